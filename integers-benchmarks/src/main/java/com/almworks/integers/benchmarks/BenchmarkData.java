@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.IntArray;
+import com.almworks.integers.LongArray;
+
+import java.util.Random;
+
+/**
+ * Deterministic input data for the benchmarks.
+ * <p>Sorted unique sequences are generated with gaps of at least 2 between neighbours,
+ * so {@code v + 1} is guaranteed to be absent for every generated {@code v}: this gives
+ * "miss" probes without an extra set lookup.
+ */
+final class BenchmarkData {
+  /**
+   * Seed for all generated data; override with {@code -Dcom.almworks.integers.benchmarks.seed=...}
+   */
+  static final long SEED = Long.getLong("com.almworks.integers.benchmarks.seed", 0x5EEDL);
+
+  /**
+   * Number of lookups done by one invocation of lookup-style benchmarks.
+   */
+  static final int PROBES = 1024;
+
+  /**
+   * Buffer size for {@code nextBatch} scans.
+   */
+  static final int BATCH = 256;
+
+  private BenchmarkData() {}
+
+  static Random random() {
+    return new Random(SEED);
+  }
+
+  /**
+   * @return {@code size} sorted unique longs, neighbours differ by at least 2
+   */
+  static long[] sortedUniqueLongs(int size, Random random) {
+    long[] res = new long[size];
+    long v = random.nextInt(16);
+    for (int i = 0; i < size; i++) {
+      res[i] = v;
+      v += 2 + random.nextInt(6);
+    }
+    return res;
+  }
+
+  /**
+   * @return {@code size} sorted unique ints, neighbours differ by at least 2
+   */
+  static int[] sortedUniqueInts(int size, Random random) {
+    int[] res = new int[size];
+    int v = random.nextInt(16);
+    for (int i = 0; i < size; i++) {
+      res[i] = v;
+      v += 2 + random.nextInt(6);
+    }
+    return res;
+  }
+
+  /**
+   * @return unique longs in random order
+   */
+  static long[] shuffledUniqueLongs(int size, Random random) {
+    LongArray res = new LongArray(sortedUniqueLongs(size, random));
+    res.shuffle(random);
+    return res.extractHostArray();
+  }
+
+  /**
+   * @return unique ints in random order
+   */
+  static int[] shuffledUniqueInts(int size, Random random) {
+    IntArray res = new IntArray(sortedUniqueInts(size, random));
+    res.shuffle(random);
+    return res.extractHostArray();
+  }
+
+  /**
+   * @param values unique values, neighbours in sorted order differ by at least 2
+   * @return {@link #PROBES} values, every even one is contained in {@code values} and every odd one is not
+   */
+  static long[] probes(long[] values, Random random) {
+    long[] res = new long[PROBES];
+    for (int i = 0; i < PROBES; i++) {
+      long v = values[random.nextInt(values.length)];
+      res[i] = (i & 1) == 0 ? v : v + 1;
+    }
+    return res;
+  }
+
+  /**
+   * @see #probes(long[], Random)
+   */
+  static int[] probes(int[] values, Random random) {
+    int[] res = new int[PROBES];
+    for (int i = 0; i < PROBES; i++) {
+      int v = values[random.nextInt(values.length)];
+      res[i] = (i & 1) == 0 ? v : v + 1;
+    }
+    return res;
+  }
+
+  /**
+   * @return {@link #PROBES} distinct values contained in {@code values}
+   */
+  static long[] presentProbes(long[] values, Random random) {
+    int count = Math.min(PROBES, values.length);
+    long[] res = new long[count];
+    int step = values.length / count;
+    int offset = random.nextInt(step);
+    for (int i = 0; i < count; i++) {
+      res[i] = values[i * step + offset];
+    }
+    return res;
+  }
+}
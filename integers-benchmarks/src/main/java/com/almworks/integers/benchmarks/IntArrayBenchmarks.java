@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.IntArray;
+import com.almworks.integers.IntIterator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Basic operations of {@link IntArray}.
+ * Benchmarks that mutate the array work on a fresh copy; {@link #copy()} measures the cost of that copy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntArrayBenchmarks {
+  @Param({"1000", "100000", "10000000", "100000000"})
+  public int size;
+
+  private int[] myShuffled;
+  private IntArray mySorted;
+  private IntArray mySmallSorted;
+  private IntArray mySameLengthSorted;
+  private int[] myProbes;
+
+  @Setup
+  public void setUp() {
+    Random random = BenchmarkData.random();
+    myShuffled = BenchmarkData.shuffledUniqueInts(size, random);
+    int[] sorted = BenchmarkData.sortedUniqueInts(size, random);
+    mySorted = new IntArray(sorted);
+    mySmallSorted = new IntArray(BenchmarkData.sortedUniqueInts(Math.max(1, size / 64), random));
+    mySameLengthSorted = new IntArray(BenchmarkData.sortedUniqueInts(size, random));
+    myProbes = BenchmarkData.probes(sorted, random);
+  }
+
+  @Benchmark
+  public IntArray add() {
+    IntArray array = new IntArray();
+    for (int v : myShuffled) {
+      array.add(v);
+    }
+    return array;
+  }
+
+  @Benchmark
+  public IntArray copy() {
+    return IntArray.copy(myShuffled);
+  }
+
+  @Benchmark
+  public int get() {
+    int sum = 0;
+    for (int i = 0, n = mySorted.size(); i < n; i++) {
+      sum += mySorted.get(i);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int iterate() {
+    int sum = 0;
+    for (IntIterator it : mySorted) {
+      sum += it.value();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public void binarySearch(Blackhole bh) {
+    for (int probe : myProbes) {
+      bh.consume(mySorted.binarySearch(probe));
+    }
+  }
+
+  @Benchmark
+  public IntArray sort() {
+    IntArray array = IntArray.copy(myShuffled);
+    array.sort();
+    return array;
+  }
+
+  @Benchmark
+  public IntArray sortUnique() {
+    IntArray array = IntArray.copy(myShuffled);
+    array.sortUnique();
+    return array;
+  }
+
+  @Benchmark
+  public IntArray mergeSmall() {
+    IntArray array = IntArray.copy(mySorted);
+    array.merge(mySmallSorted);
+    return array;
+  }
+
+  @Benchmark
+  public IntArray mergeSameLength() {
+    IntArray array = IntArray.copy(mySorted);
+    array.merge(mySameLengthSorted);
+    return array;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Intersection and union of two dense int sets of equal size: {@link IntRoaringSet} operations
+ * against merging sorted {@link IntArray}s with {@link IntIntersectionIterator} and {@link IntUnionIterator}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntRoaringSetBenchmarks {
+  @Param({"100000", "1000000", "10000000"})
+  public int size;
+
+  private IntArray myFirst;
+  private IntArray mySecond;
+  private IntRoaringSet myFirstRoaring;
+  private IntRoaringSet mySecondRoaring;
+
+  @Setup
+  public void setUp() {
+    Random random = BenchmarkData.random();
+    myFirst = new IntArray(BenchmarkData.sortedUniqueInts(size, random));
+    mySecond = new IntArray(BenchmarkData.sortedUniqueInts(size, random));
+    myFirstRoaring = IntRoaringSet.createFrom(myFirst);
+    mySecondRoaring = IntRoaringSet.createFrom(mySecond);
+  }
+
+  @Benchmark
+  public IntArray intersectArrays() {
+    return new IntArray(new IntIntersectionIterator(myFirst, mySecond));
+  }
+
+  @Benchmark
+  public IntRoaringSet intersectRoaring() {
+    return myFirstRoaring.intersection(mySecondRoaring);
+  }
+
+  @Benchmark
+  public IntArray unionArrays() {
+    return new IntArray(new IntUnionIteratorOfTwo(myFirst, mySecond));
+  }
+
+  @Benchmark
+  public IntRoaringSet unionRoaring() {
+    return myFirstRoaring.union(mySecondRoaring);
+  }
+}
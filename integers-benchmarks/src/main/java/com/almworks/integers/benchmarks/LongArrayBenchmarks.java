@@ -0,0 +1,179 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.LongArray;
+import com.almworks.integers.LongCollections;
+import com.almworks.integers.LongIterator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Basic operations of {@link LongArray}.
+ * Benchmarks that mutate the array work on a fresh copy; {@link #copy()} measures the cost of that copy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LongArrayBenchmarks {
+  @Param({"1000", "100000", "10000000", "100000000"})
+  public int size;
+
+  private long[] myShuffled;
+  private LongArray mySorted;
+  private LongArray mySmallSorted;
+  private LongArray mySameLengthSorted;
+  private long[] myProbes;
+  private final long[] myBatch = new long[BenchmarkData.BATCH];
+
+  @Setup
+  public void setUp() {
+    Random random = BenchmarkData.random();
+    myShuffled = BenchmarkData.shuffledUniqueLongs(size, random);
+    long[] sorted = BenchmarkData.sortedUniqueLongs(size, random);
+    mySorted = new LongArray(sorted);
+    mySmallSorted = new LongArray(BenchmarkData.sortedUniqueLongs(Math.max(1, size / 64), random));
+    mySameLengthSorted = new LongArray(BenchmarkData.sortedUniqueLongs(size, random));
+    myProbes = BenchmarkData.probes(sorted, random);
+  }
+
+  @Benchmark
+  public LongArray add() {
+    LongArray array = new LongArray();
+    for (long v : myShuffled) {
+      array.add(v);
+    }
+    return array;
+  }
+
+  @Benchmark
+  public LongArray copy() {
+    return LongArray.copy(myShuffled);
+  }
+
+  @Benchmark
+  public long get() {
+    long sum = 0;
+    for (int i = 0, n = mySorted.size(); i < n; i++) {
+      sum += mySorted.get(i);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long iterate() {
+    long sum = 0;
+    for (LongIterator it : mySorted) {
+      sum += it.value();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long iterateBatch() {
+    long[] batch = myBatch;
+    long sum = 0;
+    LongIterator it = mySorted.iterator();
+    for (int count; (count = it.nextBatch(batch, 0, batch.length)) > 0; ) {
+      for (int i = 0; i < count; i++) {
+        sum += batch[i];
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public void binarySearch(Blackhole bh) {
+    for (long probe : myProbes) {
+      bh.consume(mySorted.binarySearch(probe));
+    }
+  }
+
+  @Benchmark
+  public LongArray sort() {
+    LongArray array = LongArray.copy(myShuffled);
+    array.sort();
+    return array;
+  }
+
+  /**
+   * Baseline for {@link #sort()}, which uses radix sort for large arrays.
+   */
+  @Benchmark
+  public long[] sortArraysSort() {
+    long[] array = myShuffled.clone();
+    Arrays.sort(array);
+    return array;
+  }
+
+  @Benchmark
+  public LongArray parallelSort() {
+    LongArray array = LongArray.copy(myShuffled);
+    array.parallelSort();
+    return array;
+  }
+
+  @Benchmark
+  public LongArray parallelSortUnique() {
+    LongArray array = LongArray.copy(myShuffled);
+    array.parallelSortUnique();
+    return array;
+  }
+
+  @Benchmark
+  public LongArray sortWithValues() {
+    LongArray array = LongArray.copy(myShuffled);
+    array.sort(LongArray.copy(mySorted));
+    return array;
+  }
+
+  @Benchmark
+  public LongArray sortPairs() {
+    LongArray array = LongArray.copy(myShuffled);
+    LongCollections.sortPairs(array, LongArray.copy(mySorted));
+    return array;
+  }
+
+  @Benchmark
+  public LongArray sortUnique() {
+    LongArray array = LongArray.copy(myShuffled);
+    array.sortUnique();
+    return array;
+  }
+
+  @Benchmark
+  public LongArray mergeSmall() {
+    LongArray array = LongArray.copy(mySorted);
+    array.merge(mySmallSorted);
+    return array;
+  }
+
+  @Benchmark
+  public LongArray mergeSameLength() {
+    LongArray array = LongArray.copy(mySorted);
+    array.merge(mySameLengthSorted);
+    return array;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.LongArray;
+import com.almworks.integers.LongCodecs;
+import com.almworks.integers.LongIterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LongCodecs}: encoding and decoding of a sorted unique set, compared to writing and reading
+ * the raw values with {@link DataOutputStream}/{@link DataInputStream}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LongCodecsBenchmarks {
+  @Param({"1000", "100000", "10000000"})
+  public int size;
+
+  private LongArray myValues;
+  private byte[] myEncoded;
+  private byte[] myRaw;
+
+  @Setup
+  public void setUp() throws IOException {
+    myValues = new LongArray(BenchmarkData.sortedUniqueLongs(size, BenchmarkData.random()));
+    myEncoded = LongCodecs.encode(myValues);
+    myRaw = writeRaw();
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return LongCodecs.encode(myValues);
+  }
+
+  @Benchmark
+  public LongArray decode() {
+    return LongCodecs.decode(myEncoded);
+  }
+
+  @Benchmark
+  public long decodeIterator() {
+    long sum = 0;
+    for (LongIterator it = LongCodecs.iterator(myEncoded); it.hasNext(); ) {
+      sum += it.nextValue();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public LongArray readStream() throws IOException {
+    return LongCodecs.read(new ByteArrayInputStream(myEncoded));
+  }
+
+  @Benchmark
+  public byte[] writeRaw() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(size * 8 + 4);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(myValues.size());
+    for (int i = 0; i < myValues.size(); i++) {
+      out.writeLong(myValues.get(i));
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  @Benchmark
+  public LongArray readRaw() throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new ByteArrayInputStream(myRaw)));
+    long[] values = new long[in.readInt()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = in.readLong();
+    }
+    return new LongArray(values);
+  }
+}
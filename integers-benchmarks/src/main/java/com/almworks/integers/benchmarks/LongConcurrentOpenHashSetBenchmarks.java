@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.LongConcurrentOpenHashSet;
+import com.almworks.integers.LongOpenHashSet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deduplication from several threads into one shared set: {@link LongConcurrentOpenHashSet} against
+ * {@link LongOpenHashSet} guarded by a lock. Every thread includes {@link BenchmarkData#PROBES} values
+ * per invocation, drawn from a pool of {@code size} values, so after warmup most of them are duplicates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class LongConcurrentOpenHashSetBenchmarks {
+  @Param({"1000", "100000", "10000000"})
+  public int size;
+
+  private long[] myValues;
+  private LongConcurrentOpenHashSet myConcurrent;
+  private LongOpenHashSet mySynchronized;
+  private final AtomicInteger myThreadCount = new AtomicInteger();
+
+  @Setup
+  public void setUp() {
+    myValues = BenchmarkData.shuffledUniqueLongs(size, BenchmarkData.random());
+    myConcurrent = new LongConcurrentOpenHashSet();
+    mySynchronized = new LongOpenHashSet();
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadState {
+    private Random myRandom;
+    private long[] myBatch = new long[BenchmarkData.PROBES];
+
+    @Setup
+    public void setUp(LongConcurrentOpenHashSetBenchmarks benchmark) {
+      myRandom = new Random(BenchmarkData.SEED + benchmark.myThreadCount.incrementAndGet());
+    }
+
+    long[] nextBatch(long[] values) {
+      for (int i = 0; i < myBatch.length; i++) {
+        myBatch[i] = values[myRandom.nextInt(values.length)];
+      }
+      return myBatch;
+    }
+  }
+
+  @Benchmark
+  public int includeConcurrent(ThreadState state) {
+    int added = 0;
+    for (long v : state.nextBatch(myValues)) {
+      if (myConcurrent.include(v)) added++;
+    }
+    return added;
+  }
+
+  @Benchmark
+  public int includeSynchronized(ThreadState state) {
+    int added = 0;
+    for (long v : state.nextBatch(myValues)) {
+      synchronized (mySynchronized) {
+        if (mySynchronized.include(v)) added++;
+      }
+    }
+    return added;
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-{@link BenchmarkData#PROBES} selection and heap sort of {@code size} shuffled values with {@link LongMinHeap}
+ * against {@link PriorityQueue}; {@link LongLongIndexedHeap#decreaseKey} on all entries followed by popping them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LongHeapBenchmarks {
+  @Param({"1000", "100000", "10000000"})
+  public int size;
+
+  private LongArray myValues;
+  private LongArray myInitial;
+  private LongMinHeap myHeap;
+  private LongLongIndexedHeap myIndexedHeap;
+
+  @Setup
+  public void setUp() {
+    Random random = BenchmarkData.random();
+    myValues = new LongArray(BenchmarkData.shuffledUniqueLongs(size, random));
+    myInitial = new LongArray(LongCollections.repeat(Long.MAX_VALUE, size));
+    myHeap = new LongMinHeap(size);
+    myIndexedHeap = new LongLongIndexedHeap(size);
+  }
+
+  @Benchmark
+  public long topKHeap() {
+    LongMinHeap heap = myHeap;
+    heap.clear();
+    for (int i = 0; i < size; i++) {
+      long value = myValues.get(i);
+      if (heap.size() < BenchmarkData.PROBES) {
+        heap.add(value);
+      } else if (value > heap.peek()) {
+        heap.replaceTop(value);
+      }
+    }
+    return heap.peek();
+  }
+
+  @Benchmark
+  public long topKPriorityQueue() {
+    PriorityQueue<Long> queue = new PriorityQueue<Long>(BenchmarkData.PROBES);
+    for (int i = 0; i < size; i++) {
+      long value = myValues.get(i);
+      if (queue.size() < BenchmarkData.PROBES) {
+        queue.add(value);
+      } else if (value > queue.peek()) {
+        queue.poll();
+        queue.add(value);
+      }
+    }
+    return queue.peek();
+  }
+
+  @Benchmark
+  public long sortHeap() {
+    LongMinHeap heap = myHeap;
+    heap.clear();
+    heap.addAll(myValues);
+    long[] batch = new long[BenchmarkData.BATCH];
+    long sum = 0;
+    for (int count; (count = heap.popBatch(batch, 0, batch.length)) > 0; ) {
+      sum += batch[count - 1];
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long sortPriorityQueue() {
+    PriorityQueue<Long> queue = new PriorityQueue<Long>(size);
+    for (int i = 0; i < size; i++) {
+      queue.add(myValues.get(i));
+    }
+    long sum = 0;
+    while (!queue.isEmpty()) {
+      sum += queue.poll();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long decreaseKeyIndexedHeap() {
+    LongLongIndexedHeap heap = myIndexedHeap;
+    heap.clear();
+    heap.addAll(myInitial, LongProgression.range(size));
+    for (int i = 0; i < size; i++) {
+      heap.decreaseKey(i, myValues.get(i));
+    }
+    long sum = 0;
+    while (!heap.isEmpty()) {
+      sum += heap.pop();
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.LongIntIterator;
+import com.almworks.integers.LongIntListMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LongIntListMap}: filling in key order, lookups and iteration.
+ * Insertion in random key order is quadratic for a list map and is not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LongIntListMapBenchmarks {
+  @Param({"1000", "100000", "10000000", "100000000"})
+  public int size;
+
+  private long[] myKeys;
+  private LongIntListMap myMap;
+  private long[] myProbes;
+
+  @Setup
+  public void setUp() {
+    Random random = BenchmarkData.random();
+    myKeys = BenchmarkData.sortedUniqueLongs(size, random);
+    myMap = putAscending();
+    myProbes = BenchmarkData.probes(myKeys, random);
+  }
+
+  @Benchmark
+  public LongIntListMap putAscending() {
+    LongIntListMap map = new LongIntListMap();
+    for (int i = 0; i < myKeys.length; i++) {
+      map.put(myKeys[i], i);
+    }
+    return map;
+  }
+
+  @Benchmark
+  public void get(Blackhole bh) {
+    for (long probe : myProbes) {
+      bh.consume(myMap.get(probe));
+    }
+  }
+
+  @Benchmark
+  public void containsKey(Blackhole bh) {
+    for (long probe : myProbes) {
+      bh.consume(myMap.containsKey(probe));
+    }
+  }
+
+  @Benchmark
+  public long iterate() {
+    long sum = 0;
+    for (LongIntIterator it : myMap) {
+      sum += it.left() + it.right();
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.LongIntIterator;
+import com.almworks.integers.LongIntOpenHashMap;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LongIntOpenHashMap}: filling in random key order, counting with {@code addTo}, lookups and iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LongIntOpenHashMapBenchmarks {
+  @Param({"1000", "100000", "10000000"})
+  public int size;
+
+  private long[] myKeys;
+  private LongIntOpenHashMap myMap;
+  private long[] myProbes;
+
+  @Setup
+  public void setUp() {
+    Random random = BenchmarkData.random();
+    myKeys = BenchmarkData.shuffledUniqueLongs(size, random);
+    myMap = put();
+    myProbes = BenchmarkData.probes(myKeys, random);
+  }
+
+  @Benchmark
+  public LongIntOpenHashMap put() {
+    LongIntOpenHashMap map = new LongIntOpenHashMap();
+    for (int i = 0; i < myKeys.length; i++) {
+      map.put(myKeys[i], i);
+    }
+    return map;
+  }
+
+  /**
+   * Counts the keys taken modulo {@code size / 8}, so each counter is incremented about 8 times.
+   */
+  @Benchmark
+  public LongIntOpenHashMap addTo() {
+    LongIntOpenHashMap map = new LongIntOpenHashMap();
+    long buckets = Math.max(1, size / 8);
+    for (long key : myKeys) {
+      map.addTo(key % buckets, 1);
+    }
+    return map;
+  }
+
+  @Benchmark
+  public void get(Blackhole bh) {
+    for (long probe : myProbes) {
+      bh.consume(myMap.get(probe));
+    }
+  }
+
+  @Benchmark
+  public long iterate() {
+    long sum = 0;
+    for (LongIntIterator it : myMap) {
+      sum += it.left() + it.right();
+    }
+    return sum;
+  }
+}
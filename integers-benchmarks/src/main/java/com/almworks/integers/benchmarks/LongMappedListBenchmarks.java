@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MappedLongList} against {@link LongArray} with the same sorted values: binary search and sequential reads.
+ * The file is in the page cache, so this measures the cost of reading through a mapped buffer, not the disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LongMappedListBenchmarks {
+  public enum Kind { ARRAY, MAPPED }
+
+  @Param({"1000", "100000", "10000000", "100000000"})
+  public int size;
+
+  @Param({"ARRAY", "MAPPED"})
+  public Kind kind;
+
+  private File myFile;
+  private LongList myList;
+  private long[] myProbes;
+  private final long[] myBatch = new long[BenchmarkData.BATCH];
+
+  @Setup
+  public void setUp() throws IOException {
+    Random random = BenchmarkData.random();
+    long[] values = BenchmarkData.sortedUniqueLongs(size, random);
+    myProbes = BenchmarkData.probes(values, random);
+    LongArray array = new LongArray(values);
+    if (kind == Kind.ARRAY) {
+      myList = array;
+    } else {
+      myFile = File.createTempFile("benchmark", ".bin");
+      LongListWriter.write(array, myFile);
+      myList = MappedLongList.open(myFile);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (myFile != null) myFile.delete();
+  }
+
+  @Benchmark
+  public void binarySearch(Blackhole bh) {
+    for (long probe : myProbes) {
+      bh.consume(myList.binarySearch(probe));
+    }
+  }
+
+  @Benchmark
+  public long iterateBatch() {
+    long[] batch = myBatch;
+    long sum = 0;
+    LongIterator it = myList.iterator();
+    for (int count; (count = it.nextBatch(batch, 0, batch.length)) > 0; ) {
+      for (int i = 0; i < count; i++) {
+        sum += batch[i];
+      }
+    }
+    return sum;
+  }
+}
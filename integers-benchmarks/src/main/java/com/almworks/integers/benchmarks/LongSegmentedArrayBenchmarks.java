@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.LongArray;
+import com.almworks.integers.LongIterator;
+import com.almworks.integers.LongList;
+import com.almworks.integers.func.LongProcedure;
+import com.almworks.integers.segmented.LongSegmentedArray;
+import com.almworks.integers.segmented.LongSegmentedArrayPoolingEnvironment;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LongSegmentedArray}: appends, random and sequential access, insertion into the middle
+ * and the copy-on-write path ({@code clone()} followed by modification), with and without segment pooling.
+ * {@link #setSnapshot} is the cost of publishing an update to readers, compare it with {@link #toNativeArray}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LongSegmentedArrayBenchmarks {
+  @Param({"1000", "100000", "10000000", "100000000"})
+  public int size;
+
+  private long[] myValues;
+  private LongSegmentedArray myArray;
+  private LongSegmentedArray myPooledArray;
+  private int[] myIndexes;
+  private int mySnapshotIndex;
+  private LongArray myInserted;
+  private final long[] myBatch = new long[BenchmarkData.BATCH];
+
+  @Setup
+  public void setUp() {
+    Random random = BenchmarkData.random();
+    myValues = BenchmarkData.sortedUniqueLongs(size, random);
+    myArray = add();
+    myPooledArray = new LongSegmentedArray(new LongSegmentedArrayPoolingEnvironment());
+    myPooledArray.addAll(myArray);
+    myIndexes = new int[BenchmarkData.PROBES];
+    for (int i = 0; i < myIndexes.length; i++) {
+      myIndexes[i] = random.nextInt(size);
+    }
+    myInserted = new LongArray(BenchmarkData.sortedUniqueLongs(BenchmarkData.PROBES, random));
+  }
+
+  @Benchmark
+  public LongSegmentedArray add() {
+    LongSegmentedArray array = new LongSegmentedArray();
+    for (long v : myValues) {
+      array.add(v);
+    }
+    return array;
+  }
+
+  @Benchmark
+  public void get(Blackhole bh) {
+    for (int index : myIndexes) {
+      bh.consume(myArray.get(index));
+    }
+  }
+
+  @Benchmark
+  public long iterate() {
+    long sum = 0;
+    for (LongIterator it : myArray) {
+      sum += it.value();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long forEachValue() {
+    Sum sum = new Sum();
+    myArray.forEachValue(sum);
+    return sum.value;
+  }
+
+  @Benchmark
+  public long iterateBatch() {
+    long[] batch = myBatch;
+    long sum = 0;
+    LongIterator it = myArray.iterator();
+    for (int count; (count = it.nextBatch(batch, 0, batch.length)) > 0; ) {
+      for (int i = 0; i < count; i++) {
+        sum += batch[i];
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long[] toNativeArray() {
+    return myArray.toNativeArray();
+  }
+
+  /**
+   * Modifies one value and takes a snapshot: copies one segment and the segment table.
+   */
+  @Benchmark
+  public LongList setSnapshot() {
+    int index = myIndexes[mySnapshotIndex++ & (myIndexes.length - 1)];
+    myArray.set(index, myValues[index]);
+    return myArray.snapshot();
+  }
+
+  /**
+   * Inserts a block into the middle of a clone and removes it from there, touching the segments shared with the original.
+   */
+  @Benchmark
+  public LongSegmentedArray cloneInsertRemove() {
+    LongSegmentedArray copy = myArray.clone();
+    int middle = size / 2;
+    copy.insertAll(middle, myInserted);
+    copy.removeRange(middle, middle + myInserted.size());
+    return copy;
+  }
+
+  @Benchmark
+  public LongSegmentedArray cloneSet() {
+    LongSegmentedArray copy = myArray.clone();
+    for (int index : myIndexes) {
+      copy.set(index, index);
+    }
+    return copy;
+  }
+
+  @Benchmark
+  public long cloneSetClear() {
+    return cloneSetClear(myArray);
+  }
+
+  @Benchmark
+  public long cloneSetClearPooled() {
+    return cloneSetClear(myPooledArray);
+  }
+
+  private long cloneSetClear(LongSegmentedArray array) {
+    LongSegmentedArray copy = array.clone();
+    for (int index : myIndexes) {
+      copy.set(index, index);
+    }
+    long r = copy.get(myIndexes[0]);
+    copy.clear();
+    return r;
+  }
+
+  private static final class Sum implements LongProcedure {
+    long value;
+
+    public void invoke(long a) {
+      value += a;
+    }
+  }
+}
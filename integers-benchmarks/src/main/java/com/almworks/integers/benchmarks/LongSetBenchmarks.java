@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares implementations of {@link WritableLongSet} on the same data.
+ * <p>{@link #churn} excludes {@link BenchmarkData#PROBES} present values and includes them back,
+ * so the set is left in its original state; subtract {@link #includeExisting} to get an estimate
+ * of the cost of removal alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LongSetBenchmarks {
+  public enum Kind {
+    OPEN_HASH {
+      WritableLongSet create(int capacity) {
+        return LongOpenHashSet.createForAdd(capacity);
+      }
+    },
+    CHAIN_HASH {
+      WritableLongSet create(int capacity) {
+        return LongChainHashSet.createForAdd(capacity);
+      }
+    },
+    TREE {
+      WritableLongSet create(int capacity) {
+        return new LongTreeSet(capacity);
+      }
+    },
+    BTREE {
+      WritableLongSet create(int capacity) {
+        return new LongBTreeSet(capacity);
+      }
+    },
+    AMORTIZED {
+      WritableLongSet create(int capacity) {
+        return new LongAmortizedSet(capacity);
+      }
+    };
+
+    abstract WritableLongSet create(int capacity);
+  }
+
+  @Param({"OPEN_HASH", "CHAIN_HASH", "TREE", "BTREE", "AMORTIZED"})
+  public Kind kind;
+
+  @Param({"1000", "100000", "10000000", "100000000"})
+  public int size;
+
+  private long[] myValues;
+  private WritableLongSet mySet;
+  private long[] myProbes;
+  private long[] myPresent;
+  private final long[] myBatch = new long[BenchmarkData.BATCH];
+
+  @Setup
+  public void setUp() {
+    Random random = BenchmarkData.random();
+    myValues = BenchmarkData.shuffledUniqueLongs(size, random);
+    mySet = kind.create(size);
+    mySet.addAll(myValues);
+    myProbes = BenchmarkData.probes(myValues, random);
+    myPresent = BenchmarkData.presentProbes(myValues, random);
+  }
+
+  @Benchmark
+  public WritableLongSet include() {
+    WritableLongSet set = kind.create(0);
+    for (long v : myValues) {
+      set.include(v);
+    }
+    return set;
+  }
+
+  @Benchmark
+  public WritableLongSet includePresized() {
+    WritableLongSet set = kind.create(size);
+    for (long v : myValues) {
+      set.include(v);
+    }
+    return set;
+  }
+
+  @Benchmark
+  public void contains(Blackhole bh) {
+    for (long probe : myProbes) {
+      bh.consume(mySet.contains(probe));
+    }
+  }
+
+  @Benchmark
+  public void includeExisting(Blackhole bh) {
+    for (long v : myPresent) {
+      bh.consume(mySet.include(v));
+    }
+  }
+
+  @Benchmark
+  public void churn(Blackhole bh) {
+    for (long v : myPresent) {
+      bh.consume(mySet.exclude(v));
+    }
+    for (long v : myPresent) {
+      bh.consume(mySet.include(v));
+    }
+  }
+
+  @Benchmark
+  public long iterate() {
+    long sum = 0;
+    for (LongIterator it : mySet) {
+      sum += it.value();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long iterateBatch() {
+    long[] batch = myBatch;
+    long sum = 0;
+    LongIterator it = mySet.iterator();
+    for (int count; (count = it.nextBatch(batch, 0, batch.length)) > 0; ) {
+      for (int i = 0; i < count; i++) {
+        sum += batch[i];
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public LongArray toArray() {
+    return mySet.toArray();
+  }
+}
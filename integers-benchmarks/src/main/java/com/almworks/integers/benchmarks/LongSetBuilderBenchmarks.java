@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.LongArray;
+import com.almworks.integers.LongIterator;
+import com.almworks.integers.LongList;
+import com.almworks.integers.LongSetBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LongSetBuilder}: building from unsorted input, merging builders and sorted lists.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LongSetBuilderBenchmarks {
+  private static final int PARTS = 16;
+
+  @Param({"1000", "100000", "10000000", "100000000"})
+  public int size;
+
+  private long[] myValues;
+  private LongArray mySorted;
+  private List<LongSetBuilder> myParts;
+
+  @Setup
+  public void setUp() {
+    Random random = BenchmarkData.random();
+    myValues = BenchmarkData.shuffledUniqueLongs(size, random);
+    mySorted = new LongArray(BenchmarkData.sortedUniqueLongs(size, random));
+    myParts = new ArrayList<LongSetBuilder>(PARTS);
+    for (int i = 0; i < PARTS; i++) {
+      myParts.add(new LongSetBuilder());
+    }
+    for (int i = 0; i < size; i++) {
+      myParts.get(i % PARTS).add(myValues[i]);
+    }
+    for (LongSetBuilder part : myParts) {
+      part.toList();
+    }
+  }
+
+  @Benchmark
+  public LongArray add() {
+    LongSetBuilder builder = new LongSetBuilder();
+    for (long v : myValues) {
+      builder.add(v);
+    }
+    return builder.commitToArray();
+  }
+
+  @Benchmark
+  public LongArray mergeFrom() {
+    LongSetBuilder builder = new LongSetBuilder();
+    for (LongSetBuilder part : myParts) {
+      builder.mergeFrom(part);
+    }
+    return builder.commitToArray();
+  }
+
+  @Benchmark
+  public LongArray mergeFromSortedCollection() {
+    LongSetBuilder builder = new LongSetBuilder();
+    builder.addAll(myValues);
+    builder.mergeFromSortedCollection(mySorted);
+    return builder.commitToArray();
+  }
+
+  @Benchmark
+  public long iterate() {
+    long sum = 0;
+    LongList list = myParts.get(0).toList();
+    for (LongIterator it : list) {
+      sum += it.value();
+    }
+    return sum;
+  }
+}
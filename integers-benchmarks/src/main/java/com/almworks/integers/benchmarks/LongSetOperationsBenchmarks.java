@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Intersection and difference of a small sorted filter ({@link BenchmarkData#PROBES} values) with a large sorted set.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LongSetOperationsBenchmarks {
+  @Param({"1000", "100000", "10000000", "100000000"})
+  public int size;
+
+  private LongArray myLarge;
+  private LongTreeSet myLargeTree;
+  private LongEliasFanoSet myLargeEliasFano;
+  private LongArray mySmall;
+
+  @Setup
+  public void setUp() {
+    Random random = BenchmarkData.random();
+    long[] values = BenchmarkData.sortedUniqueLongs(size, random);
+    myLarge = new LongArray(values);
+    myLargeTree = LongTreeSet.createFromSortedUnique(myLarge);
+    myLargeEliasFano = LongEliasFanoSet.createFromSortedUnique(myLarge);
+    long[] probes = BenchmarkData.probes(values, random);
+    Arrays.sort(probes);
+    mySmall = new LongArray(probes);
+    mySmall.sortUnique();
+  }
+
+  @Benchmark
+  public long intersectArray() {
+    return sum(new LongIntersectionIterator(mySmall, myLarge));
+  }
+
+  @Benchmark
+  public long intersectTree() {
+    return sum(new LongIntersectionIterator(mySmall, myLargeTree));
+  }
+
+  @Benchmark
+  public long intersectEliasFano() {
+    return sum(new LongIntersectionIterator(mySmall, myLargeEliasFano));
+  }
+
+  @Benchmark
+  public long minusArray() {
+    return sum(new LongMinusIterator(mySmall, myLarge));
+  }
+
+  private static long sum(LongIterator it) {
+    long sum = 0;
+    while (it.hasNext()) {
+      sum += it.nextValue();
+    }
+    return sum;
+  }
+}
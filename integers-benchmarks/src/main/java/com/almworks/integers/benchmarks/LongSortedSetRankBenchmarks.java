@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link WritableLongSortedSet#rank(long)} and {@link WritableLongSortedSet#select(int)} for {@link BenchmarkData#PROBES}
+ * values, and reading a page of {@link #PAGE} elements with {@link WritableLongSortedSet#subSetIterator(int, int)}.
+ * The amortized set has pending changes, so that its base list and deltas are combined.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LongSortedSetRankBenchmarks {
+  private static final int PAGE = 100;
+
+  public enum Kind {
+    TREE {
+      WritableLongSortedSet create(LongArray sortedUnique) {
+        return LongTreeSet.createFromSortedUnique(sortedUnique);
+      }
+    },
+    BTREE {
+      WritableLongSortedSet create(LongArray sortedUnique) {
+        return LongBTreeSet.createFromSortedUnique(sortedUnique);
+      }
+    },
+    AMORTIZED {
+      WritableLongSortedSet create(LongArray sortedUnique) {
+        return LongAmortizedSet.createFromSortedUnique(sortedUnique);
+      }
+    };
+
+    abstract WritableLongSortedSet create(LongArray sortedUnique);
+  }
+
+  @Param({"TREE", "BTREE", "AMORTIZED"})
+  public Kind kind;
+
+  @Param({"1000", "100000", "10000000"})
+  public int size;
+
+  private WritableLongSortedSet mySet;
+  private long[] myProbes;
+  private int[] myIndices;
+
+  @Setup
+  public void setUp() {
+    Random random = BenchmarkData.random();
+    long[] values = BenchmarkData.sortedUniqueLongs(size, random);
+    mySet = kind.create(new LongArray(values));
+    long[] present = BenchmarkData.presentProbes(values, random);
+    for (int i = 0; i < present.length / 4; i++) {
+      mySet.remove(present[i]);
+      mySet.add(present[i] + 1);
+    }
+    myProbes = BenchmarkData.probes(values, random);
+    myIndices = new int[BenchmarkData.PROBES];
+    for (int i = 0; i < myIndices.length; i++) {
+      myIndices[i] = random.nextInt(mySet.size() - PAGE);
+    }
+  }
+
+  @Benchmark
+  public void rank(Blackhole bh) {
+    for (long probe : myProbes) {
+      bh.consume(mySet.rank(probe));
+    }
+  }
+
+  @Benchmark
+  public void select(Blackhole bh) {
+    for (int index : myIndices) {
+      bh.consume(mySet.select(index));
+    }
+  }
+
+  @Benchmark
+  public long page() {
+    long sum = 0;
+    int from = myIndices[0];
+    for (LongIterator it : mySet.subSetIterator(from, from + PAGE)) {
+      sum += it.value();
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.LongTwoWayMap;
+import com.almworks.integers.LongTwoWayTreeMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LongTwoWayMap} vs {@link LongTwoWayTreeMap}: filling in random key order
+ * and changing the values of {@link BenchmarkData#PROBES} present keys.
+ * Values are random and repeat, about ten keys per value.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LongTwoWayMapBenchmarks {
+  @Param({"1000", "10000", "100000"})
+  public int size;
+
+  private long[] myKeys;
+  private long[] myValues;
+  private long[] myProbes;
+  private LongTwoWayMap myArrayMap;
+  private LongTwoWayTreeMap myTreeMap;
+
+  @Setup
+  public void setUp() {
+    Random random = BenchmarkData.random();
+    myKeys = BenchmarkData.shuffledUniqueLongs(size, random);
+    myValues = new long[size];
+    for (int i = 0; i < size; i++) {
+      myValues[i] = random.nextInt(size / 10 + 1);
+    }
+    myProbes = BenchmarkData.presentProbes(myKeys, random);
+    myArrayMap = putArray();
+    myTreeMap = putTree();
+  }
+
+  @Benchmark
+  public LongTwoWayMap putArray() {
+    LongTwoWayMap map = new LongTwoWayMap();
+    for (int i = 0; i < size; i++) {
+      map.put(myKeys[i], myValues[i]);
+    }
+    return map;
+  }
+
+  @Benchmark
+  public LongTwoWayTreeMap putTree() {
+    LongTwoWayTreeMap map = new LongTwoWayTreeMap();
+    for (int i = 0; i < size; i++) {
+      map.put(myKeys[i], myValues[i]);
+    }
+    return map;
+  }
+
+  @Benchmark
+  public long updateArray() {
+    long sum = 0;
+    for (long key : myProbes) {
+      sum += myArrayMap.put(key, myArrayMap.get(key) ^ 1);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long updateTree() {
+    long sum = 0;
+    for (long key : myProbes) {
+      sum += myTreeMap.put(key, myTreeMap.get(key) ^ 1);
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers.benchmarks;
+
+import com.almworks.integers.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Union of many sorted unique lists of {@code size} elements each: {@link LongUnionIterator} on one thread
+ * against {@link LongCollections#parallelUnion(LongList...)} and {@link LongSetBuilder#mergeFrom(LongSetBuilder...)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LongUnionBenchmarks {
+  @Param({"16", "200"})
+  public int lists;
+
+  @Param({"10000", "100000"})
+  public int size;
+
+  private LongArray[] myLists;
+  private LongSetBuilder[] myBuilders;
+
+  @Setup
+  public void setUp() {
+    Random random = BenchmarkData.random();
+    myLists = new LongArray[lists];
+    myBuilders = new LongSetBuilder[lists];
+    for (int i = 0; i < lists; i++) {
+      myLists[i] = new LongArray(BenchmarkData.sortedUniqueLongs(size, random));
+      myBuilders[i] = new LongSetBuilder();
+      myBuilders[i].mergeFromSortedCollection(myLists[i]);
+    }
+  }
+
+  @Benchmark
+  public LongArray unionIterator() {
+    return LongCollections.collectIterable(size, new LongUnionIterator(myLists));
+  }
+
+  @Benchmark
+  public LongArray parallelUnion() {
+    return LongCollections.parallelUnion(myLists);
+  }
+
+  @Benchmark
+  public LongList mergeBuilders() {
+    LongSetBuilder builder = new LongSetBuilder();
+    builder.mergeFrom(myBuilders);
+    return builder.commitToArray();
+  }
+}
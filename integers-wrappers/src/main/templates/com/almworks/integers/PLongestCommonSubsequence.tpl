@@ -10,8 +10,20 @@ import static com.almworks.integers.#E#Collections.toBoundedString;
  * @author Igor Sereda
  *
  * Copied from IntLongestCommonSequence.
+ * <br>For large sequences, {@link #getLCS} and {@link #diff} use Hunt-Szymanski algorithm if there are few pairs of
+ * equal elements (as in lists of ids) and linear-space variant of Myers' O(ND) algorithm otherwise, so memory is O(n).
  */
 public class #E#LongestCommonSubsequence {
+  /**
+   * {@link #getLCS} uses quadratic dynamic programming if the product of the sizes of the sequences does not exceed this limit
+   */
+  static final long DP_LIMIT = 1 << 20;
+
+  /**
+   * Hunt-Szymanski algorithm is used if the number of pairs of equal elements is at most this factor times the total size
+   */
+  static final int HUNT_SZYMANSKI_MATCHES_FACTOR = 8;
+
   private final #E#List aseq;
   private final #E#List bseq;
   private final int alen;
@@ -92,10 +104,13 @@ public class #E#LongestCommonSubsequence {
     if (prefix.size() == maxsize) {
       return prefix;
     }
-    #E#List suffix = getSuffix(aseq, bseq, maxsize);
+    #E#List suffix = getSuffix(aseq, bseq, maxsize - prefix.size());
     if (suffix.size() == maxsize) {
       return suffix;
     }
+    if ((long)aseq.size() * bseq.size() > DP_LIMIT) {
+      return diff(aseq, bseq).getLcs();
+    }
     boolean hasPrefix = !prefix.isEmpty();
     boolean hasSuffix = !suffix.isEmpty();
     if (hasPrefix) {
@@ -116,6 +131,39 @@ public class #E#LongestCommonSubsequence {
     return r.length == 0 ? #E#List.EMPTY : new #E#Array(r);
   }
 
+  /**
+   * Computes a longest common subsequence of {@code aseq} and {@code bseq} as pairs of indices of the matched elements.
+   * Elements that are not matched form a shortest edit script that turns {@code aseq} into {@code bseq}:
+   * delete {@link Diff#getDeletedIndices()} from {@code aseq}, insert {@link Diff#getInsertedIndices()} from {@code bseq}.
+   * <br>Memory: O(n + m). Time: O((n + m) log n) if elements rarely repeat; otherwise, O((n + m) D),
+   * where D is the size of the edit script.
+   */
+  @NotNull
+  public static Diff diff(@Nullable #E#List aseq, @Nullable #E#List bseq) {
+    if (aseq == null) aseq = #E#List.EMPTY;
+    if (bseq == null) bseq = #E#List.EMPTY;
+    int alen = aseq.size();
+    int blen = bseq.size();
+    IntArray aIndices = new IntArray();
+    IntArray bIndices = new IntArray();
+    int maxsize = Math.min(alen, blen);
+    int prefix = getPrefix(aseq, bseq, maxsize).size();
+    int suffix = prefix == maxsize ? 0 : getSuffix(aseq, bseq, maxsize - prefix).size();
+    aIndices.addAll(IntProgression.arithmetic(0, prefix));
+    bIndices.addAll(IntProgression.arithmetic(0, prefix));
+    if (prefix + suffix < maxsize) {
+      #e#[] a = aseq.subList(prefix, alen - suffix).toNativeArray();
+      #e#[] b = bseq.subList(prefix, blen - suffix).toNativeArray();
+      Matcher matcher = new Matcher(a, b, prefix, aIndices, bIndices);
+      if (!matcher.huntSzymanski()) {
+        matcher.myers();
+      }
+    }
+    aIndices.addAll(IntProgression.arithmetic(alen - suffix, suffix));
+    bIndices.addAll(IntProgression.arithmetic(blen - suffix, suffix));
+    return new Diff(aseq, alen, blen, aIndices, bIndices);
+  }
+
   private static #E#List getSuffix(#E#List aseq, #E#List bseq, int maxsize) {
     int i = 0;
     int ai = aseq.size(), bi = bseq.size();
@@ -188,4 +236,299 @@ public class #E#LongestCommonSubsequence {
     assert bi >= 0 && bi < blen;
     return ai * blen + bi;
   }
-}
\ No newline at end of file
+
+  /**
+   * Longest common subsequence of two sequences as pairs of indices of the matched elements, in increasing order.
+   * @see #diff
+   */
+  public static final class Diff {
+    private final #E#List myASeq;
+    private final int myASize;
+    private final int myBSize;
+    private final IntArray myAIndices;
+    private final IntArray myBIndices;
+
+    private Diff(#E#List aseq, int aSize, int bSize, IntArray aIndices, IntArray bIndices) {
+      myASeq = aseq;
+      myASize = aSize;
+      myBSize = bSize;
+      myAIndices = aIndices;
+      myBIndices = bIndices;
+    }
+
+    public int getLcsLength() {
+      return myAIndices.size();
+    }
+
+    /**
+     * @return the longest common subsequence
+     */
+    public #E#List getLcs() {
+      if (myAIndices.isEmpty()) return #E#List.EMPTY;
+      #E#Array lcs = new #E#Array(myAIndices.size());
+      for (int i = 0; i < myAIndices.size(); i++) {
+        lcs.add(myASeq.get(myAIndices.get(i)));
+      }
+      return lcs;
+    }
+
+    /**
+     * @return indices of the elements of the first sequence that belong to the LCS, in increasing order
+     */
+    public IntList getMatchedAIndices() {
+      return myAIndices;
+    }
+
+    /**
+     * @return indices of the elements of the second sequence that belong to the LCS, parallel to {@link #getMatchedAIndices()}
+     */
+    public IntList getMatchedBIndices() {
+      return myBIndices;
+    }
+
+    /**
+     * @return indices of the elements of the first sequence that are not in the LCS, in increasing order
+     */
+    public IntList getDeletedIndices() {
+      return complement(myAIndices, myASize);
+    }
+
+    /**
+     * @return indices of the elements of the second sequence that are not in the LCS, in increasing order
+     */
+    public IntList getInsertedIndices() {
+      return complement(myBIndices, myBSize);
+    }
+
+    /**
+     * @return the number of deletions and insertions needed to turn the first sequence into the second one
+     */
+    public int getEditDistance() {
+      return myASize + myBSize - 2 * myAIndices.size();
+    }
+
+    private static IntList complement(IntArray sortedIndices, int size) {
+      IntArray res = new IntArray(size - sortedIndices.size());
+      for (int i = 0, k = 0; i < size; i++) {
+        if (k < sortedIndices.size() && sortedIndices.get(k) == i) k++;
+        else res.add(i);
+      }
+      return res;
+    }
+
+    @Override
+    public String toString() {
+      return "Diff(" + myASize + ", " + myBSize + ", lcs " + myAIndices.size() + ")";
+    }
+  }
+
+  /**
+   * Finds matched pairs of indices for {@code a} and {@code b} and appends them, shifted by {@code offset},
+   * to {@code aIndices} and {@code bIndices}.
+   */
+  private static final class Matcher {
+    private final #e#[] a;
+    private final #e#[] b;
+    private final int offset;
+    private final IntArray aIndices;
+    private final IntArray bIndices;
+    private int[] forward;
+    private int[] backward;
+    // the middle snake found by middleSnake(): from (snakeX, snakeY) to (snakeU, snakeV)
+    private int snakeX;
+    private int snakeY;
+    private int snakeU;
+    private int snakeV;
+
+    Matcher(#e#[] a, #e#[] b, int offset, IntArray aIndices, IntArray bIndices) {
+      this.a = a;
+      this.b = b;
+      this.offset = offset;
+      this.aIndices = aIndices;
+      this.bIndices = bIndices;
+    }
+
+    private void match(int i, int j) {
+      aIndices.add(offset + i);
+      bIndices.add(offset + j);
+    }
+
+    /**
+     * Hunt-Szymanski algorithm: for each element of {@code a}, goes through the positions of equal elements of {@code b}
+     * in decreasing order and updates the smallest end of a common subsequence of each length.
+     * @return false without doing anything if there are too many pairs of equal elements
+     */
+    boolean huntSzymanski() {
+      int n = a.length;
+      int m = b.length;
+      // ids of distinct values of b, stored as id + 1
+      #E#IntHppcOpenHashMap ids = new #E#IntHppcOpenHashMap(m);
+      int[] bIds = new int[m];
+      int idCount = 0;
+      for (int j = 0; j < m; j++) {
+        int id = ids.get(b[j]) - 1;
+        if (id < 0) {
+          id = idCount++;
+          ids.put(b[j], id + 1);
+        }
+        bIds[j] = id;
+      }
+      // positions of each value in b, in decreasing order
+      int[] starts = new int[idCount + 1];
+      for (int j = 0; j < m; j++) {
+        starts[bIds[j] + 1]++;
+      }
+      for (int id = 0; id < idCount; id++) {
+        starts[id + 1] += starts[id];
+      }
+      int[] positions = new int[m];
+      int[] fill = new int[idCount];
+      for (int j = m - 1; j >= 0; j--) {
+        int id = bIds[j];
+        positions[starts[id] + fill[id]++] = j;
+      }
+      int[] aIds = new int[n];
+      long matches = 0;
+      for (int i = 0; i < n; i++) {
+        int id = ids.get(a[i]) - 1;
+        aIds[i] = id;
+        if (id >= 0) matches += starts[id + 1] - starts[id];
+      }
+      if (matches > (long)HUNT_SZYMANSKI_MATCHES_FACTOR * (n + m)) return false;
+
+      // thresholds[k] is the smallest j such that a[0..i] and b[0..j] have a common subsequence of length k
+      int[] thresholds = new int[Math.min(n, m) + 1];
+      int[] links = new int[thresholds.length];
+      IntArray nodeI = new IntArray();
+      IntArray nodeJ = new IntArray();
+      IntArray nodePrev = new IntArray();
+      int len = 0;
+      for (int i = 0; i < n; i++) {
+        int id = aIds[i];
+        if (id < 0) continue;
+        for (int p = starts[id], pEnd = starts[id + 1]; p < pEnd; p++) {
+          int j = positions[p];
+          // the smallest k such that thresholds[k] >= j
+          int lo = 1;
+          int hi = len + 1;
+          while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (thresholds[mid] < j) lo = mid + 1;
+            else hi = mid;
+          }
+          if (lo <= len && thresholds[lo] == j) continue;
+          thresholds[lo] = j;
+          links[lo] = nodeI.size();
+          nodeI.add(i);
+          nodeJ.add(j);
+          nodePrev.add(lo > 1 ? links[lo - 1] : -1);
+          if (lo > len) len = lo;
+        }
+      }
+      int[] is = new int[len];
+      int[] js = new int[len];
+      for (int k = len - 1, node = len > 0 ? links[len] : -1; k >= 0; k--, node = nodePrev.get(node)) {
+        is[k] = nodeI.get(node);
+        js[k] = nodeJ.get(node);
+      }
+      for (int k = 0; k < len; k++) {
+        match(is[k], js[k]);
+      }
+      return true;
+    }
+
+    /**
+     * Linear-space variant of Myers' algorithm, see E. Myers, "An O(ND) Difference Algorithm and Its Variations".
+     */
+    void myers() {
+      int size = 2 * ((a.length + b.length + 1) / 2) + 3;
+      forward = new int[size];
+      backward = new int[size];
+      myers(0, a.length, 0, b.length);
+    }
+
+    private void myers(int aFrom, int aTo, int bFrom, int bTo) {
+      while (aFrom < aTo && bFrom < bTo && a[aFrom] == b[bFrom]) {
+        match(aFrom++, bFrom++);
+      }
+      int suffix = 0;
+      while (aFrom < aTo && bFrom < bTo && a[aTo - 1] == b[bTo - 1]) {
+        aTo--;
+        bTo--;
+        suffix++;
+      }
+      if (aFrom < aTo && bFrom < bTo) {
+        // here the edit script has at least two edits, so both parts are smaller
+        middleSnake(aFrom, aTo, bFrom, bTo);
+        int x = snakeX, y = snakeY, u = snakeU, v = snakeV;
+        myers(aFrom, x, bFrom, y);
+        for (int i = x, j = y; i < u; i++, j++) {
+          match(i, j);
+        }
+        myers(u, aTo, v, bTo);
+      }
+      for (int k = 0; k < suffix; k++) {
+        match(aTo + k, bTo + k);
+      }
+    }
+
+    /**
+     * Finds the snake in the middle of a shortest edit script by searching from both ends.
+     * {@code forward[offset + k]} is the furthest x on the diagonal {@code k = x - y},
+     * {@code backward[offset + k]} is the furthest distance from the end along x on the reversed diagonal
+     * {@code k = (n - x) - (m - y)}.
+     */
+    private void middleSnake(int aFrom, int aTo, int bFrom, int bTo) {
+      int n = aTo - aFrom;
+      int m = bTo - bFrom;
+      int delta = n - m;
+      boolean odd = (delta & 1) != 0;
+      int max = (n + m + 1) / 2;
+      int offset = max + 1;
+      forward[offset + 1] = 0;
+      backward[offset + 1] = 0;
+      for (int d = 0; d <= max; d++) {
+        for (int k = -d; k <= d; k += 2) {
+          int x = k == -d || k != d && forward[offset + k - 1] < forward[offset + k + 1] ?
+            forward[offset + k + 1] : forward[offset + k - 1] + 1;
+          int y = x - k;
+          int x0 = x, y0 = y;
+          while (x < n && y < m && a[aFrom + x] == b[bFrom + y]) {
+            x++;
+            y++;
+          }
+          forward[offset + k] = x;
+          int kr = delta - k;
+          if (odd && kr >= -(d - 1) && kr <= d - 1 && x + backward[offset + kr] >= n) {
+            setSnake(aFrom + x0, bFrom + y0, aFrom + x, bFrom + y);
+            return;
+          }
+        }
+        for (int k = -d; k <= d; k += 2) {
+          int x = k == -d || k != d && backward[offset + k - 1] < backward[offset + k + 1] ?
+            backward[offset + k + 1] : backward[offset + k - 1] + 1;
+          int y = x - k;
+          int x0 = x, y0 = y;
+          while (x < n && y < m && a[aTo - 1 - x] == b[bTo - 1 - y]) {
+            x++;
+            y++;
+          }
+          backward[offset + k] = x;
+          int kf = delta - k;
+          if (!odd && kf >= -d && kf <= d && x + forward[offset + kf] >= n) {
+            setSnake(aTo - x, bTo - y, aTo - x0, bTo - y0);
+            return;
+          }
+        }
+      }
+      throw new AssertionError(n + " " + m);
+    }
+
+    private void setSnake(int x, int y, int u, int v) {
+      snakeX = x;
+      snakeY = y;
+      snakeU = u;
+      snakeV = v;
+    }
+  }
+}
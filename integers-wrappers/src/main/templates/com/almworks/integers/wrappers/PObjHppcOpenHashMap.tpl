@@ -45,7 +45,7 @@ public class #E#ObjHppcOpenHashMap<T> extends AbstractWritable#E#ObjMap<T> {
     int keysSize = (keys instanceof #E#SizedIterable) ? ((#E#SizedIterable) keys).size() : 0;
     int valuesSize = (values instanceof Collection) ? ((Collection) keys).size() : 0;
 
-    float loadFactor = #E#IntOpenHashMap.DEFAULT_LOAD_FACTOR;
+    float loadFactor = com.carrotsearch.hppc.#E#IntOpenHashMap.DEFAULT_LOAD_FACTOR;
     int initialCapacity = (int)(Math.max(keysSize, valuesSize) / loadFactor) + 1;
     #E#ObjHppcOpenHashMap map = new #E#ObjHppcOpenHashMap(initialCapacity);
 
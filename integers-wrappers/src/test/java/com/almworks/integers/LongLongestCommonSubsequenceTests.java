@@ -111,5 +111,72 @@ public void testRandom() {
     }
   }
 
+  private LongLongestCommonSubsequence.Diff checkDiff(LongList a, LongList b) {
+    LongLongestCommonSubsequence.Diff diff = LongLongestCommonSubsequence.diff(a, b);
+    IntList ai = diff.getMatchedAIndices();
+    IntList bi = diff.getMatchedBIndices();
+    assertEquals(diff.getLcsLength(), ai.size());
+    assertEquals(ai.size(), bi.size());
+    assertTrue(ai.isSortedUnique());
+    assertTrue(bi.isSortedUnique());
+    for (int k = 0; k < ai.size(); k++) {
+      assertEquals(a.get(ai.get(k)), b.get(bi.get(k)));
+    }
+    LongArray lcs = new LongArray();
+    for (IntIterator it : ai) {
+      lcs.add(a.get(it.value()));
+    }
+    CHECK.order(diff.getLcs(), lcs);
+    assertEquals(a.size() - ai.size(), diff.getDeletedIndices().size());
+    assertEquals(b.size() - bi.size(), diff.getInsertedIndices().size());
+    assertEquals(diff.getDeletedIndices().size() + diff.getInsertedIndices().size(), diff.getEditDistance());
+    return diff;
+  }
+
+  public void testDiff() {
+    for (int attempt = 0; attempt < 200; attempt++) {
+      // few distinct values: many equal pairs; many distinct values: few equal pairs
+      int range = attempt % 2 == 0 ? 3 : 10000;
+      LongArray a = generateRandomLongArray(myRand.nextInt(200), SortedStatus.UNORDERED, range);
+      LongArray b = new LongArray(a);
+      for (int i = 0, edits = myRand.nextInt(50); i < edits; i++) {
+        int op = myRand.nextInt(3);
+        if (op == 0 && !b.isEmpty()) b.removeAt(myRand.nextInt(b.size()));
+        else if (op == 1) b.insert(myRand.nextInt(b.size() + 1), myRand.nextInt(range));
+        else if (!b.isEmpty()) b.set(myRand.nextInt(b.size()), myRand.nextInt(range));
+      }
+      LongLongestCommonSubsequence.Diff diff = checkDiff(a, b);
+      assertEquals(getLCS(a, b).size(), diff.getLcsLength());
+    }
+    CHECK.order(LongLongestCommonSubsequence.diff(null, LongArray.create(1, 2)).getInsertedIndices().iterator(), 0, 1);
+    assertEquals(0, LongLongestCommonSubsequence.diff(LongArray.create(1, 2), LongArray.create(1, 2)).getEditDistance());
+  }
+
+  public void testLarge() {
+    int n = 300000;
+    // ids
+    LongArray a = new LongArray(LongProgression.range(n));
+    LongArray b = new LongArray(a);
+    for (int i = 0; i < 100; i++) {
+      b.removeAt(myRand.nextInt(b.size()));
+      b.insert(myRand.nextInt(b.size()), n + i);
+    }
+    // move some ids around
+    for (int i = 0; i < 500; i++) {
+      b.swap(1000 + myRand.nextInt(1000), 1000 + myRand.nextInt(1000));
+    }
+    LongLongestCommonSubsequence.Diff diff = checkDiff(a, b);
+    assertTrue(diff.getEditDistance() < 3000);
+    CHECK.order(LongLongestCommonSubsequence.getLCS(a, b), diff.getLcs());
 
+    // repeating values
+    a = generateRandomLongArray(n, SortedStatus.UNORDERED, 10);
+    b = new LongArray(a);
+    for (int i = 0; i < 100; i++) {
+      b.removeAt(myRand.nextInt(b.size()));
+      b.insert(myRand.nextInt(b.size()), 10 + i);
+    }
+    diff = checkDiff(a, b);
+    assertTrue(diff.getEditDistance() <= 200);
+  }
 }
@@ -0,0 +1,562 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.almworks.integers;
+
+import java.util.Arrays;
+
+/**
+ * The shape of a B+tree with subtree sizes, laid out in flat primitive arrays: wide sorted leaves linked in order,
+ * and internal nodes that keep their separator keys, children and subtree sizes side by side.
+ * This class allocates, splits, merges and rebalances the nodes; subclasses store the keys and search them.
+ * <p>
+ * Keys live in three stores: {@link #LEAF_KEYS}, {@link #NODE_KEYS} and {@link #TEMP_KEYS}.
+ * Keys of the leaf {@code i} are at positions {@code [i * LEAF_STRIDE, i * LEAF_STRIDE + myLeafSizes[i])} of the leaf store.
+ * Key {@code j} of the node {@code i} is at position {@code i * NODE_STRIDE + j} of the node store, it separates
+ * children {@code j} and {@code j + 1}: all keys of child {@code j} are less than it, all keys of child {@code j + 1}
+ * are greater than or equal to it. The tree moves keys only with {@link #copyKeys}.
+ * <p>
+ * Updates go along a path: a subclass looks for the leaf of a key, filling {@link #myPathNodes} and
+ * {@link #myPathPositions} on the way, then calls {@link #insertAt} or {@link #removeAt}.
+ * @see IntBTreeSet
+ * @see LongBTreeSet
+ */
+abstract class AbstractBPlusTree {
+  /** Maximum number of keys in a leaf. */
+  static final int LEAF_CAPACITY = 128;
+  /** Maximum number of children of an internal node. */
+  static final int NODE_CAPACITY = 64;
+  /** A non-root node having fewer keys or children is merged with or borrows from its sibling. */
+  private static final int LEAF_MIN = LEAF_CAPACITY / 4;
+  private static final int NODE_MIN = NODE_CAPACITY / 4;
+  /** Fill factor of the nodes built from sorted data and of the merged nodes: leaves some room for additions. */
+  private static final int LEAF_FILL = LEAF_CAPACITY * 3 / 4;
+  private static final int NODE_FILL = NODE_CAPACITY * 3 / 4;
+  /** Every node has one spare slot: a node is split right after it overflows. */
+  static final int LEAF_STRIDE = LEAF_CAPACITY + 1;
+  static final int NODE_STRIDE = NODE_CAPACITY + 1;
+  static final int MAX_HEIGHT = 32;
+  static final int NO_LEAF = -1;
+
+  static final int LEAF_KEYS = 0;
+  static final int NODE_KEYS = 1;
+  /** Two adjacent nodes are concatenated here when they are rebalanced, {@code 2 * NODE_STRIDE} keys. */
+  static final int TEMP_KEYS = 2;
+
+  int[] myLeafSizes;
+  /** The leaf holding the next keys, or {@link #NO_LEAF}. */
+  int[] myLeafNext;
+  /** Number of the used leaf slots, including the freed ones. */
+  private int myLeafCount;
+  private final IntArray myFreeLeaves = new IntArray();
+
+  /** Children are nodes at all levels except the lowest one, where children are leaves. */
+  int[] myNodeChildren;
+  /** {@code myNodeCounts[i * NODE_STRIDE + j]} is the number of keys in the subtree of child {@code j} of the node {@code i}. */
+  int[] myNodeCounts;
+  int[] myNodeSizes;
+  private int myNodeCount;
+  private final IntArray myFreeNodes = new IntArray();
+
+  /** A leaf if {@code myHeight == 0}, a node otherwise. */
+  int myRoot;
+  /** Number of levels of internal nodes. */
+  int myHeight;
+  int mySize;
+
+  /** The path from the root to the last visited leaf: nodes and positions of the children taken. */
+  final int[] myPathNodes = new int[MAX_HEIGHT];
+  final int[] myPathPositions = new int[MAX_HEIGHT];
+  private final int[] myTempChildren = new int[2 * NODE_STRIDE];
+  private final int[] myTempCounts = new int[2 * NODE_STRIDE];
+
+  /**
+   * Copies {@code length} keys in the same way as {@link System#arraycopy}.
+   */
+  protected abstract void copyKeys(int srcStore, int srcPos, int dstStore, int dstPos, int length);
+
+  /**
+   * Replaces {@code store} with one that holds {@code capacity} keys, copying the old keys if {@code keep}.
+   */
+  protected abstract void resizeKeys(int store, int capacity, boolean keep);
+
+  /**
+   * Used only to check invariants.
+   * @return true if the key at {@code pos1} of {@code store1} is less than the key at {@code pos2} of {@code store2}
+   */
+  protected abstract boolean lessKeys(int store1, int pos1, int store2, int pos2);
+
+  /**
+   * Allocates room for {@code capacity} keys and makes the tree empty. Must be called by the subclass constructor.
+   */
+  final void allocate(int capacity) {
+    int leaves = capacity / LEAF_FILL + 1;
+    resizeKeys(LEAF_KEYS, leaves * LEAF_STRIDE, false);
+    myLeafSizes = new int[leaves];
+    myLeafNext = new int[leaves];
+    int nodes = leaves / NODE_FILL + 1;
+    resizeKeys(NODE_KEYS, nodes * NODE_STRIDE, false);
+    myNodeChildren = new int[nodes * NODE_STRIDE];
+    myNodeCounts = new int[nodes * NODE_STRIDE];
+    myNodeSizes = new int[nodes];
+    resizeKeys(TEMP_KEYS, 2 * NODE_STRIDE, false);
+    init();
+  }
+
+  final void init() {
+    myLeafCount = 0;
+    myFreeLeaves.clear();
+    myNodeCount = 0;
+    myFreeNodes.clear();
+    myRoot = allocLeaf();
+    myHeight = 0;
+    mySize = 0;
+  }
+
+  /**
+   * Sorted unique keys to build a tree from, see {@link #initFromSorted}.
+   */
+  interface SortedKeys {
+    /**
+     * Copies the keys {@code [from, from + length)} to the leaf store starting from {@code leafPos}.
+     */
+    void copyToLeaf(int from, int leafPos, int length);
+  }
+
+  /**
+   * Replaces the contents of this tree with {@code n} sorted unique keys. Nodes are filled by three quarters.
+   */
+  final void initFromSorted(int n, SortedKeys keys) {
+    allocate(n);
+    if (n == 0) return;
+    myLeafCount = 0;
+    int leafCount = (n + LEAF_FILL - 1) / LEAF_FILL;
+    IntArray children = new IntArray(leafCount);
+    IntArray counts = new IntArray(leafCount);
+    // the first leaf of the subtree of each child, its first key is the lower bound of the subtree
+    IntArray lowestLeaves = new IntArray(leafCount);
+    int prev = NO_LEAF;
+    for (int i = 0; i < leafCount; i++) {
+      int from = (int)((long)n * i / leafCount);
+      int to = (int)((long)n * (i + 1) / leafCount);
+      int leaf = allocLeaf();
+      keys.copyToLeaf(from, leaf * LEAF_STRIDE, to - from);
+      myLeafSizes[leaf] = to - from;
+      if (prev != NO_LEAF) myLeafNext[prev] = leaf;
+      prev = leaf;
+      children.add(leaf);
+      counts.add(to - from);
+      lowestLeaves.add(leaf);
+    }
+    int height = 0;
+    while (children.size() > 1) {
+      int m = children.size();
+      int nodeCount = (m + NODE_FILL - 1) / NODE_FILL;
+      IntArray parents = new IntArray(nodeCount);
+      IntArray parentCounts = new IntArray(nodeCount);
+      IntArray parentLowestLeaves = new IntArray(nodeCount);
+      for (int i = 0; i < nodeCount; i++) {
+        int from = (int)((long)m * i / nodeCount);
+        int to = (int)((long)m * (i + 1) / nodeCount);
+        int node = allocNode();
+        int base = node * NODE_STRIDE;
+        children.toNativeArray(from, myNodeChildren, base, to - from);
+        counts.toNativeArray(from, myNodeCounts, base, to - from);
+        for (int j = from + 1; j < to; j++) {
+          copyKeys(LEAF_KEYS, lowestLeaves.get(j) * LEAF_STRIDE, NODE_KEYS, base + j - from - 1, 1);
+        }
+        myNodeSizes[node] = to - from;
+        parents.add(node);
+        parentCounts.add(sum(myNodeCounts, base, to - from));
+        parentLowestLeaves.add(lowestLeaves.get(from));
+      }
+      children = parents;
+      counts = parentCounts;
+      lowestLeaves = parentLowestLeaves;
+      height++;
+    }
+    myRoot = children.get(0);
+    myHeight = height;
+    mySize = n;
+    assert !IntegersDebug.CHECK || checkInvariants();
+  }
+
+  final int size() {
+    return mySize;
+  }
+
+  final int firstLeaf() {
+    int x = myRoot;
+    for (int level = 0; level < myHeight; level++) {
+      x = myNodeChildren[x * NODE_STRIDE];
+    }
+    return x;
+  }
+
+  final int lastLeaf() {
+    int x = myRoot;
+    for (int level = 0; level < myHeight; level++) {
+      x = myNodeChildren[x * NODE_STRIDE + myNodeSizes[x] - 1];
+    }
+    return x;
+  }
+
+  /**
+   * @return position of the first key in the leaf store, or -1 if the tree is empty
+   */
+  final int first() {
+    return mySize == 0 ? -1 : firstLeaf() * LEAF_STRIDE;
+  }
+
+  /**
+   * @return position of the key that follows the one at {@code position}, or -1 if there is none
+   */
+  final int next(int position) {
+    int leaf = position / LEAF_STRIDE;
+    if (position + 1 - leaf * LEAF_STRIDE < myLeafSizes[leaf]) return position + 1;
+    int next = myLeafNext[leaf];
+    // only the root leaf may be empty
+    return next == NO_LEAF ? -1 : next * LEAF_STRIDE;
+  }
+
+  /**
+   * @return position of the key number {@code index} in the leaf store
+   * @throws IndexOutOfBoundsException if {@code index < 0 || index >= size()}
+   */
+  final int select(int index) {
+    if (index < 0 || index >= mySize) throw new IndexOutOfBoundsException(index + " " + mySize);
+    int x = myRoot;
+    for (int level = 0; level < myHeight; level++) {
+      int i = x * NODE_STRIDE;
+      while (index >= myNodeCounts[i]) {
+        index -= myNodeCounts[i++];
+      }
+      x = myNodeChildren[i];
+    }
+    return x * LEAF_STRIDE + index;
+  }
+
+  /**
+   * @return the number of keys in the subtrees of the children of {@code node} that precede child {@code pos}
+   */
+  final int countBefore(int node, int pos) {
+    return sum(myNodeCounts, node * NODE_STRIDE, pos);
+  }
+
+  /**
+   * Makes room for a key at {@code index} of the last visited leaf. The caller writes the key at the returned
+   * position of the leaf store and then calls {@link #splitIfOverflown}.
+   */
+  final int insertAt(int leaf, int index) {
+    for (int level = 0; level < myHeight; level++) {
+      myNodeCounts[myPathNodes[level] * NODE_STRIDE + myPathPositions[level]]++;
+    }
+    mySize++;
+    int base = leaf * LEAF_STRIDE;
+    int size = myLeafSizes[leaf];
+    copyKeys(LEAF_KEYS, base + index, LEAF_KEYS, base + index + 1, size - index);
+    myLeafSizes[leaf] = size + 1;
+    return base + index;
+  }
+
+  final void splitIfOverflown(int leaf) {
+    if (myLeafSizes[leaf] > LEAF_CAPACITY) splitLeaf(leaf);
+    assert !IntegersDebug.CHECK || checkInvariants();
+  }
+
+  private void splitLeaf(int leaf) {
+    int size = myLeafSizes[leaf];
+    int leftSize = size / 2;
+    int rightSize = size - leftSize;
+    int right = allocLeaf();
+    copyKeys(LEAF_KEYS, leaf * LEAF_STRIDE + leftSize, LEAF_KEYS, right * LEAF_STRIDE, rightSize);
+    myLeafSizes[leaf] = leftSize;
+    myLeafSizes[right] = rightSize;
+    myLeafNext[right] = myLeafNext[leaf];
+    myLeafNext[leaf] = right;
+    insertChild(myHeight - 1, leaf, right, LEAF_KEYS, right * LEAF_STRIDE, leftSize, rightSize);
+  }
+
+  /**
+   * Inserts {@code right} next to {@code left} into the node at the specified level of the path,
+   * or creates a new root if {@code level < 0}.
+   * @param left a child that has just been split
+   * @param right the new child that holds the upper part of {@code left}
+   * @param separatorStore the store of the lowest key of {@code right}
+   * @param separatorPos the position of the lowest key of {@code right}, it is not moved by this method
+   */
+  private void insertChild(int level, int left, int right, int separatorStore, int separatorPos, int leftCount, int rightCount) {
+    if (level < 0) {
+      int root = allocNode();
+      int base = root * NODE_STRIDE;
+      myNodeChildren[base] = left;
+      myNodeChildren[base + 1] = right;
+      myNodeCounts[base] = leftCount;
+      myNodeCounts[base + 1] = rightCount;
+      copyKeys(separatorStore, separatorPos, NODE_KEYS, base, 1);
+      myNodeSizes[root] = 2;
+      myRoot = root;
+      myHeight++;
+      return;
+    }
+    int node = myPathNodes[level];
+    int pos = myPathPositions[level];
+    int base = node * NODE_STRIDE;
+    int size = myNodeSizes[node];
+    int tail = size - 1 - pos;
+    copyKeys(NODE_KEYS, base + pos, NODE_KEYS, base + pos + 1, tail);
+    System.arraycopy(myNodeChildren, base + pos + 1, myNodeChildren, base + pos + 2, tail);
+    System.arraycopy(myNodeCounts, base + pos + 1, myNodeCounts, base + pos + 2, tail);
+    copyKeys(separatorStore, separatorPos, NODE_KEYS, base + pos, 1);
+    myNodeChildren[base + pos + 1] = right;
+    myNodeCounts[base + pos] = leftCount;
+    myNodeCounts[base + pos + 1] = rightCount;
+    myNodeSizes[node] = ++size;
+    if (size > NODE_CAPACITY) splitNode(level);
+  }
+
+  private void splitNode(int level) {
+    int node = myPathNodes[level];
+    int size = myNodeSizes[node];
+    int leftSize = size / 2;
+    int rightSize = size - leftSize;
+    int right = allocNode();
+    int base = node * NODE_STRIDE;
+    int rightBase = right * NODE_STRIDE;
+    copyKeys(NODE_KEYS, base + leftSize, NODE_KEYS, rightBase, rightSize - 1);
+    System.arraycopy(myNodeChildren, base + leftSize, myNodeChildren, rightBase, rightSize);
+    System.arraycopy(myNodeCounts, base + leftSize, myNodeCounts, rightBase, rightSize);
+    myNodeSizes[node] = leftSize;
+    myNodeSizes[right] = rightSize;
+    int rightCount = sum(myNodeCounts, rightBase, rightSize);
+    int count = level == 0 ? mySize : myNodeCounts[myPathNodes[level - 1] * NODE_STRIDE + myPathPositions[level - 1]];
+    // the key leftSize - 1 of the node separates it from the right one, it stays in place after the node has shrunk
+    insertChild(level - 1, node, right, NODE_KEYS, base + leftSize - 1, count - rightCount, rightCount);
+  }
+
+  /**
+   * Removes the key at {@code index} of the last visited leaf.
+   */
+  final void removeAt(int leaf, int index) {
+    for (int level = 0; level < myHeight; level++) {
+      myNodeCounts[myPathNodes[level] * NODE_STRIDE + myPathPositions[level]]--;
+    }
+    mySize--;
+    int base = leaf * LEAF_STRIDE;
+    int size = myLeafSizes[leaf];
+    copyKeys(LEAF_KEYS, base + index + 1, LEAF_KEYS, base + index, size - index - 1);
+    myLeafSizes[leaf] = --size;
+    if (myHeight > 0 && size < LEAF_MIN) rebalanceLeaf();
+    assert !IntegersDebug.CHECK || checkInvariants();
+  }
+
+  /**
+   * Merges the last visited leaf with its sibling or moves some keys from the sibling to it.
+   */
+  private void rebalanceLeaf() {
+    int level = myHeight - 1;
+    int parentBase = myPathNodes[level] * NODE_STRIDE;
+    int q = Math.max(myPathPositions[level] - 1, 0);
+    int a = myNodeChildren[parentBase + q];
+    int b = myNodeChildren[parentBase + q + 1];
+    int aBase = a * LEAF_STRIDE;
+    int bBase = b * LEAF_STRIDE;
+    int aSize = myLeafSizes[a];
+    int bSize = myLeafSizes[b];
+    int total = aSize + bSize;
+    if (total <= LEAF_FILL) {
+      copyKeys(LEAF_KEYS, bBase, LEAF_KEYS, aBase + aSize, bSize);
+      myLeafSizes[a] = total;
+      myLeafNext[a] = myLeafNext[b];
+      myFreeLeaves.add(b);
+      removeChild(level, q, total);
+      return;
+    }
+    int leftSize = total / 2;
+    if (aSize > leftSize) {
+      int move = aSize - leftSize;
+      copyKeys(LEAF_KEYS, bBase, LEAF_KEYS, bBase + move, bSize);
+      copyKeys(LEAF_KEYS, aBase + leftSize, LEAF_KEYS, bBase, move);
+    } else {
+      int move = leftSize - aSize;
+      copyKeys(LEAF_KEYS, bBase, LEAF_KEYS, aBase + aSize, move);
+      copyKeys(LEAF_KEYS, bBase + move, LEAF_KEYS, bBase, bSize - move);
+    }
+    myLeafSizes[a] = leftSize;
+    myLeafSizes[b] = total - leftSize;
+    myNodeCounts[parentBase + q] = leftSize;
+    myNodeCounts[parentBase + q + 1] = total - leftSize;
+    copyKeys(LEAF_KEYS, bBase, NODE_KEYS, parentBase + q, 1);
+  }
+
+  /**
+   * Removes child {@code q + 1} of the node at the specified level of the path after it has been merged into child {@code q}.
+   * @param mergedCount the number of keys in the merged child
+   */
+  private void removeChild(int level, int q, int mergedCount) {
+    int node = myPathNodes[level];
+    int base = node * NODE_STRIDE;
+    int size = myNodeSizes[node];
+    int tail = size - 2 - q;
+    copyKeys(NODE_KEYS, base + q + 1, NODE_KEYS, base + q, tail);
+    System.arraycopy(myNodeChildren, base + q + 2, myNodeChildren, base + q + 1, tail);
+    System.arraycopy(myNodeCounts, base + q + 2, myNodeCounts, base + q + 1, tail);
+    myNodeCounts[base + q] = mergedCount;
+    myNodeSizes[node] = --size;
+    if (level == 0) {
+      if (size == 1) {
+        myRoot = myNodeChildren[base];
+        myHeight--;
+        myFreeNodes.add(node);
+      }
+    } else if (size < NODE_MIN) {
+      rebalanceNode(level);
+    }
+  }
+
+  /**
+   * Merges the node at the specified level of the path with its sibling or redistributes their children.
+   */
+  private void rebalanceNode(int level) {
+    int parentBase = myPathNodes[level - 1] * NODE_STRIDE;
+    int q = Math.max(myPathPositions[level - 1] - 1, 0);
+    int a = myNodeChildren[parentBase + q];
+    int b = myNodeChildren[parentBase + q + 1];
+    int aBase = a * NODE_STRIDE;
+    int bBase = b * NODE_STRIDE;
+    int aSize = myNodeSizes[a];
+    int bSize = myNodeSizes[b];
+    int total = aSize + bSize;
+    int count = myNodeCounts[parentBase + q] + myNodeCounts[parentBase + q + 1];
+
+    // the keys of a, the separator between a and b, the keys of b
+    copyKeys(NODE_KEYS, aBase, TEMP_KEYS, 0, aSize - 1);
+    copyKeys(NODE_KEYS, parentBase + q, TEMP_KEYS, aSize - 1, 1);
+    copyKeys(NODE_KEYS, bBase, TEMP_KEYS, aSize, bSize - 1);
+    System.arraycopy(myNodeChildren, aBase, myTempChildren, 0, aSize);
+    System.arraycopy(myNodeChildren, bBase, myTempChildren, aSize, bSize);
+    System.arraycopy(myNodeCounts, aBase, myTempCounts, 0, aSize);
+    System.arraycopy(myNodeCounts, bBase, myTempCounts, aSize, bSize);
+
+    if (total <= NODE_FILL) {
+      copyKeys(TEMP_KEYS, 0, NODE_KEYS, aBase, total - 1);
+      System.arraycopy(myTempChildren, 0, myNodeChildren, aBase, total);
+      System.arraycopy(myTempCounts, 0, myNodeCounts, aBase, total);
+      myNodeSizes[a] = total;
+      myFreeNodes.add(b);
+      removeChild(level - 1, q, count);
+      return;
+    }
+    int leftSize = total / 2;
+    int rightSize = total - leftSize;
+    copyKeys(TEMP_KEYS, 0, NODE_KEYS, aBase, leftSize - 1);
+    System.arraycopy(myTempChildren, 0, myNodeChildren, aBase, leftSize);
+    System.arraycopy(myTempCounts, 0, myNodeCounts, aBase, leftSize);
+    copyKeys(TEMP_KEYS, leftSize - 1, NODE_KEYS, parentBase + q, 1);
+    copyKeys(TEMP_KEYS, leftSize, NODE_KEYS, bBase, rightSize - 1);
+    System.arraycopy(myTempChildren, leftSize, myNodeChildren, bBase, rightSize);
+    System.arraycopy(myTempCounts, leftSize, myNodeCounts, bBase, rightSize);
+    myNodeSizes[a] = leftSize;
+    myNodeSizes[b] = rightSize;
+    int leftCount = sum(myTempCounts, 0, leftSize);
+    myNodeCounts[parentBase + q] = leftCount;
+    myNodeCounts[parentBase + q + 1] = count - leftCount;
+  }
+
+  private int allocLeaf() {
+    int leaf;
+    if (!myFreeLeaves.isEmpty()) {
+      leaf = myFreeLeaves.removeLast();
+    } else {
+      leaf = myLeafCount++;
+      if (leaf == myLeafSizes.length) {
+        int capacity = Math.max(leaf * 2, 4);
+        resizeKeys(LEAF_KEYS, capacity * LEAF_STRIDE, true);
+        myLeafSizes = Arrays.copyOf(myLeafSizes, capacity);
+        myLeafNext = Arrays.copyOf(myLeafNext, capacity);
+      }
+    }
+    myLeafSizes[leaf] = 0;
+    myLeafNext[leaf] = NO_LEAF;
+    return leaf;
+  }
+
+  private int allocNode() {
+    int node;
+    if (!myFreeNodes.isEmpty()) {
+      node = myFreeNodes.removeLast();
+    } else {
+      node = myNodeCount++;
+      if (node == myNodeSizes.length) {
+        int capacity = Math.max(node * 2, 4);
+        resizeKeys(NODE_KEYS, capacity * NODE_STRIDE, true);
+        myNodeChildren = Arrays.copyOf(myNodeChildren, capacity * NODE_STRIDE);
+        myNodeCounts = Arrays.copyOf(myNodeCounts, capacity * NODE_STRIDE);
+        myNodeSizes = Arrays.copyOf(myNodeSizes, capacity);
+      }
+    }
+    myNodeSizes[node] = 0;
+    return node;
+  }
+
+  private static int sum(int[] values, int from, int length) {
+    int sum = 0;
+    for (int i = from, to = from + length; i < to; i++) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
+  final boolean checkInvariants() {
+    assert myHeight < MAX_HEIGHT : myHeight;
+    int count = checkSubtree(myRoot, 0, -1, -1, true);
+    assert count == mySize : count + " " + mySize;
+    int listed = 0;
+    for (int p = first(), prev = -1; p >= 0; prev = p, p = next(p), listed++) {
+      assert prev < 0 || lessKeys(LEAF_KEYS, prev, LEAF_KEYS, p) : prev + " " + p;
+    }
+    assert listed == mySize : listed + " " + mySize;
+    return true;
+  }
+
+  /**
+   * Checks that all keys of the subtree are not less than the key at {@code lower} and less than the key at {@code upper}
+   * of the node store, a bound is absent if it is negative; and that the nodes are neither overflown nor underflown.
+   * @return the number of keys in the subtree
+   */
+  private int checkSubtree(int x, int level, int lower, int upper, boolean isRoot) {
+    if (level == myHeight) {
+      int size = myLeafSizes[x];
+      assert size <= LEAF_CAPACITY && (isRoot || size >= LEAF_MIN) : x + " " + size;
+      for (int i = x * LEAF_STRIDE; i < x * LEAF_STRIDE + size; i++) {
+        assert lower < 0 || !lessKeys(LEAF_KEYS, i, NODE_KEYS, lower) : x + " " + i + " " + lower;
+        assert upper < 0 || lessKeys(LEAF_KEYS, i, NODE_KEYS, upper) : x + " " + i + " " + upper;
+      }
+      return size;
+    }
+    int base = x * NODE_STRIDE;
+    int size = myNodeSizes[x];
+    assert size <= NODE_CAPACITY && size >= (isRoot ? 2 : NODE_MIN) : x + " " + size;
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      int childCount = checkSubtree(myNodeChildren[base + i], level + 1,
+        i == 0 ? lower : base + i - 1, i == size - 1 ? upper : base + i, false);
+      assert childCount == myNodeCounts[base + i] : x + " " + i + " " + childCount + " " + myNodeCounts[base + i];
+      count += childCount;
+    }
+    return count;
+  }
+}
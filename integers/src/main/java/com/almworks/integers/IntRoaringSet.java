@@ -0,0 +1,934 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.almworks.integers;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Compressed bitmap set of ints in the Roaring layout.
+ * <p>
+ * The int space is split into chunks of 2<sup>16</sup> values sharing the upper 16 bits. Each non-empty chunk keeps
+ * the lower 16 bits of its values in a container of one of three kinds:
+ * <ul>
+ * <li>sorted array, for chunks with at most {@value #ARRAY_MAX} values;
+ * <li>bitmap of 2<sup>16</sup> bits;
+ * <li>sorted runs of consecutive values, created by {@link #runOptimize()} where they take less space.
+ * </ul>
+ * {@link #union(IntRoaringSet)}, {@link #intersection(IntRoaringSet)} and {@link #minus(IntRoaringSet)} work chunk by
+ * chunk, combining bitmaps with 64-bit word operations. {@link #addAll(IntIterable)}, {@link #removeAll(IntIterable)}
+ * and {@link IntCollections#toSortedIntersection(IntSet, IntSet)} use them when given another {@code IntRoaringSet}.
+ * Iterators skip with {@link IntIterator#advanceTo(int)}, so the set is also a good input for
+ * {@link IntIntersectionIterator} and {@link IntUnionIterator}.
+ */
+public class IntRoaringSet extends AbstractWritableIntSet implements WritableIntSortedSet, IntSetAlgebra {
+  static final int ARRAY_MAX = 4096;
+  private static final int BITMAP_WORDS = 1 << 10;
+  private static final int BUFFER_SIZE = 256;
+
+  /**
+   * Keys of the chunks, in ascending order. The key of a chunk is its upper 16 bits with the sign bit flipped,
+   * so that the order of keys as unsigned numbers is the order of values as signed ints.
+   */
+  private char[] myKeys;
+  private Container[] myContainers;
+  private int myCount;
+  private int mySize;
+
+  public IntRoaringSet() {
+    myKeys = new char[4];
+    myContainers = new Container[4];
+  }
+
+  private IntRoaringSet(int chunkCapacity) {
+    myKeys = new char[Math.max(chunkCapacity, 4)];
+    myContainers = new Container[myKeys.length];
+  }
+
+  public static IntRoaringSet createFrom(IntIterable values) {
+    IntRoaringSet set = new IntRoaringSet();
+    set.addAll(values);
+    return set;
+  }
+
+  public static IntRoaringSet createFrom(int... values) {
+    IntRoaringSet set = new IntRoaringSet();
+    set.addAll(values);
+    return set;
+  }
+
+  private static char key(int value) {
+    return (char) ((value >>> 16) ^ 0x8000);
+  }
+
+  private static int high(char key) {
+    return (key ^ 0x8000) << 16;
+  }
+
+  private int chunkIndex(char key) {
+    return Arrays.binarySearch(myKeys, 0, myCount, key);
+  }
+
+  @Override
+  protected boolean include0(int value) {
+    char key = key(value);
+    int i = chunkIndex(key);
+    if (i < 0) {
+      ArrayContainer c = new ArrayContainer(4);
+      c.add((char) value);
+      insertChunk(-i - 1, key, c);
+      mySize++;
+      return true;
+    }
+    Container c = myContainers[i];
+    int cardinality = c.cardinality();
+    c = myContainers[i] = c.add((char) value);
+    if (c.cardinality() == cardinality) return false;
+    mySize++;
+    return true;
+  }
+
+  @Override
+  protected boolean exclude0(int value) {
+    int i = chunkIndex(key(value));
+    if (i < 0) return false;
+    Container c = myContainers[i];
+    int cardinality = c.cardinality();
+    c = c.remove((char) value);
+    if (c.cardinality() == cardinality) return false;
+    mySize--;
+    if (c.cardinality() == 0) {
+      removeChunk(i);
+    } else {
+      myContainers[i] = c;
+    }
+    return true;
+  }
+
+  private void insertChunk(int i, char key, Container c) {
+    if (myCount == myKeys.length) {
+      int capacity = myCount * 2;
+      myKeys = Arrays.copyOf(myKeys, capacity);
+      myContainers = Arrays.copyOf(myContainers, capacity);
+    }
+    System.arraycopy(myKeys, i, myKeys, i + 1, myCount - i);
+    System.arraycopy(myContainers, i, myContainers, i + 1, myCount - i);
+    myKeys[i] = key;
+    myContainers[i] = c;
+    myCount++;
+  }
+
+  private void removeChunk(int i) {
+    System.arraycopy(myKeys, i + 1, myKeys, i, myCount - i - 1);
+    System.arraycopy(myContainers, i + 1, myContainers, i, myCount - i - 1);
+    myContainers[--myCount] = null;
+  }
+
+  private void appendChunk(char key, Container c) {
+    if (c.cardinality() == 0) return;
+    assert myCount == 0 || myKeys[myCount - 1] < key : myKeys[myCount - 1] + " " + (int) key;
+    if (myCount == myKeys.length) {
+      int capacity = myCount * 2;
+      myKeys = Arrays.copyOf(myKeys, capacity);
+      myContainers = Arrays.copyOf(myContainers, capacity);
+    }
+    myKeys[myCount] = key;
+    myContainers[myCount++] = c;
+    mySize += c.cardinality();
+  }
+
+  @Override
+  public void clear() {
+    modified();
+    Arrays.fill(myContainers, 0, myCount, null);
+    myCount = 0;
+    mySize = 0;
+  }
+
+  @Override
+  public boolean contains(int value) {
+    int i = chunkIndex(key(value));
+    return i >= 0 && myContainers[i].contains((char) value);
+  }
+
+  @Override
+  public int size() {
+    return mySize;
+  }
+
+  public int getUpperBound() {
+    return myCount == 0 ? Integer.MIN_VALUE : high(myKeys[myCount - 1]) | myContainers[myCount - 1].last();
+  }
+
+  public int getLowerBound() {
+    return myCount == 0 ? Integer.MAX_VALUE : high(myKeys[0]) | myContainers[0].first();
+  }
+
+  public int rank(int value) {
+    int i = chunkIndex(key(value));
+    int rank = 0;
+    for (int j = 0, to = i >= 0 ? i : -i - 1; j < to; j++) {
+      rank += myContainers[j].cardinality();
+    }
+    return i >= 0 ? rank + myContainers[i].rank(value & 0xFFFF) : rank;
+  }
+
+  public int select(int index) {
+    if (index < 0 || index >= mySize) throw new IndexOutOfBoundsException(index + " " + mySize);
+    int i = 0;
+    for (int count; index >= (count = myContainers[i].cardinality()); i++) {
+      index -= count;
+    }
+    return high(myKeys[i]) | myContainers[i].select(index);
+  }
+
+  public IntIterator subSetIterator(int fromIndex, int toIndex) {
+    return IntIterators.subSetIterator(this, fromIndex, toIndex);
+  }
+
+  @NotNull
+  @Override
+  public IntIterator iterator() {
+    return failFast(new RoaringIterator(0, 0));
+  }
+
+  public IntIterator tailIterator(int fromElement) {
+    int i = chunkIndex(key(fromElement));
+    return failFast(i >= 0 ? new RoaringIterator(i, fromElement & 0xFFFF) : new RoaringIterator(-i - 1, 0));
+  }
+
+  @Override
+  protected void toNativeArrayImpl(int[] dest, int destPos) {
+    for (int i = 0; i < myCount; i++) {
+      destPos += myContainers[i].fill(0, high(myKeys[i]), dest, destPos, Integer.MAX_VALUE);
+    }
+  }
+
+  /**
+   * @return a new set with the values contained in this set or in {@code other}
+   */
+  public IntRoaringSet union(IntRoaringSet other) {
+    IntRoaringSet res = new IntRoaringSet(myCount + other.myCount);
+    int i = 0, j = 0;
+    while (i < myCount && j < other.myCount) {
+      char a = myKeys[i], b = other.myKeys[j];
+      if (a < b) {
+        res.appendChunk(a, myContainers[i++].copy());
+      } else if (a > b) {
+        res.appendChunk(b, other.myContainers[j++].copy());
+      } else {
+        res.appendChunk(a, Container.or(myContainers[i++], other.myContainers[j++]));
+      }
+    }
+    for (; i < myCount; i++) res.appendChunk(myKeys[i], myContainers[i].copy());
+    for (; j < other.myCount; j++) res.appendChunk(other.myKeys[j], other.myContainers[j].copy());
+    return res;
+  }
+
+  /**
+   * @return a new set with the values contained both in this set and in {@code other}
+   */
+  public IntRoaringSet intersection(IntRoaringSet other) {
+    IntRoaringSet res = new IntRoaringSet(Math.min(myCount, other.myCount));
+    int i = 0, j = 0;
+    while (i < myCount && j < other.myCount) {
+      char a = myKeys[i], b = other.myKeys[j];
+      if (a < b) {
+        i++;
+      } else if (a > b) {
+        j++;
+      } else {
+        res.appendChunk(a, Container.and(myContainers[i++], other.myContainers[j++]));
+      }
+    }
+    return res;
+  }
+
+  /**
+   * @return a new set with the values contained in this set but not in {@code other}
+   */
+  public IntRoaringSet minus(IntRoaringSet other) {
+    IntRoaringSet res = new IntRoaringSet(myCount);
+    int j = 0;
+    for (int i = 0; i < myCount; i++) {
+      char a = myKeys[i];
+      while (j < other.myCount && other.myKeys[j] < a) j++;
+      if (j < other.myCount && other.myKeys[j] == a) {
+        res.appendChunk(a, Container.andNot(myContainers[i], other.myContainers[j]));
+      } else {
+        res.appendChunk(a, myContainers[i].copy());
+      }
+    }
+    return res;
+  }
+
+  public WritableIntSortedSet unionOrNull(IntSet other) {
+    return other instanceof IntRoaringSet ? union((IntRoaringSet) other) : null;
+  }
+
+  public WritableIntSortedSet intersectionOrNull(IntSet other) {
+    return other instanceof IntRoaringSet ? intersection((IntRoaringSet) other) : null;
+  }
+
+  @Override
+  public void addAll(IntIterable iterable) {
+    if (iterable instanceof IntRoaringSet) {
+      modified();
+      assign(union((IntRoaringSet) iterable));
+    } else {
+      super.addAll(iterable);
+    }
+  }
+
+  @Override
+  public void removeAll(IntIterable iterable) {
+    if (iterable instanceof IntRoaringSet) {
+      modified();
+      assign(minus((IntRoaringSet) iterable));
+    } else {
+      super.removeAll(iterable);
+    }
+  }
+
+  private void assign(IntRoaringSet other) {
+    myKeys = other.myKeys;
+    myContainers = other.myContainers;
+    myCount = other.myCount;
+    mySize = other.mySize;
+  }
+
+  /**
+   * Converts the containers that hold long runs of consecutive values to the run representation where it takes
+   * less memory.
+   */
+  public void runOptimize() {
+    modified();
+    for (int i = 0; i < myCount; i++) {
+      myContainers[i] = myContainers[i].runOptimize();
+    }
+  }
+
+  private class RoaringIterator extends AbstractIntIteratorWithFlag {
+    private final int[] myBuffer = new int[BUFFER_SIZE];
+    private int myBufferPos;
+    private int myBufferSize;
+    /**
+     * The chunk to fill the buffer from
+     */
+    private int myChunk;
+    /**
+     * The lower bits to start filling the buffer from, 0x10000 if the chunk is exhausted
+     */
+    private int myNextLow;
+    private int myValue;
+
+    RoaringIterator(int chunk, int low) {
+      myChunk = chunk;
+      myNextLow = low;
+    }
+
+    private boolean fill() {
+      while (myChunk < myCount) {
+        if (myNextLow <= 0xFFFF) {
+          int count = myContainers[myChunk].fill(myNextLow, high(myKeys[myChunk]), myBuffer, 0, BUFFER_SIZE);
+          if (count > 0) {
+            myBufferPos = 0;
+            myBufferSize = count;
+            myNextLow = (myBuffer[count - 1] & 0xFFFF) + 1;
+            return true;
+          }
+        }
+        myChunk++;
+        myNextLow = 0;
+      }
+      return false;
+    }
+
+    public boolean hasNext() {
+      return myBufferPos < myBufferSize || fill();
+    }
+
+    @Override
+    protected void nextImpl() throws NoSuchElementException {
+      if (!hasNext()) throw new NoSuchElementException();
+      myValue = myBuffer[myBufferPos++];
+    }
+
+    @Override
+    protected int valueImpl() {
+      return myValue;
+    }
+
+    @Override
+    public int nextBatch(int[] dst, int off, int len) {
+      int count = 0;
+      while (count < len && hasNext()) {
+        int n = Math.min(len - count, myBufferSize - myBufferPos);
+        System.arraycopy(myBuffer, myBufferPos, dst, off + count, n);
+        myBufferPos += n;
+        count += n;
+      }
+      if (count > 0) {
+        myValue = dst[off + count - 1];
+        myIterated = true;
+      }
+      return count;
+    }
+
+    @Override
+    public boolean advanceTo(int value) {
+      if (myIterated && myValue >= value) return true;
+      if (myBufferPos == myBufferSize || myBuffer[myBufferSize - 1] < value) {
+        // everything before value is skipped, the position of value can't be behind the current one
+        char key = key(value);
+        int i = Arrays.binarySearch(myKeys, myChunk, myCount, key);
+        if (i >= 0) {
+          myNextLow = myChunk == i ? Math.max(myNextLow, value & 0xFFFF) : value & 0xFFFF;
+          myChunk = i;
+        } else if (-i - 1 > myChunk) {
+          myChunk = -i - 1;
+          myNextLow = 0;
+        }
+        myBufferPos = myBufferSize = 0;
+        if (!fill()) return false;
+      }
+      int pos = Arrays.binarySearch(myBuffer, myBufferPos, myBufferSize, value);
+      myBufferPos = pos >= 0 ? pos : -pos - 1;
+      assert myBufferPos < myBufferSize : myBufferPos + " " + myBufferSize;
+      next();
+      return true;
+    }
+  }
+
+  abstract static class Container {
+    abstract int cardinality();
+
+    abstract boolean contains(char low);
+
+    /**
+     * @return container with {@code low} added, this or a new one
+     */
+    abstract Container add(char low);
+
+    /**
+     * @return container with {@code low} removed, this or a new one
+     */
+    abstract Container remove(char low);
+
+    abstract int first();
+
+    abstract int last();
+
+    /**
+     * @return the number of values less than {@code low}
+     */
+    abstract int rank(int low);
+
+    /**
+     * @return the value with the specified index, {@code 0 <= index < cardinality()}
+     */
+    abstract int select(int index);
+
+    /**
+     * Writes into {@code dst} up to {@code len} values greater than or equal to {@code from},
+     * the upper bits of each value are taken from {@code high}
+     * @return the number of written values
+     */
+    abstract int fill(int from, int high, int[] dst, int off, int len);
+
+    abstract Container copy();
+
+    /**
+     * @return new bitmap container with the values of this container
+     */
+    abstract BitmapContainer toBitmap();
+
+    abstract int runCount();
+
+    Container runOptimize() {
+      int runs = runCount();
+      if (RunContainer.sizeInBytes(runs) >= sizeInBytes()) return this;
+      RunContainer res = new RunContainer(runs);
+      int[] values = new int[cardinality()];
+      fill(0, 0, values, 0, values.length);
+      for (int i = 0; i < values.length; ) {
+        int start = values[i], end = start;
+        while (++i < values.length && values[i] == end + 1) end++;
+        res.appendRun(start, end);
+      }
+      assert res.cardinality() == cardinality() : res.cardinality() + " " + cardinality();
+      return res;
+    }
+
+    abstract int sizeInBytes();
+
+    static Container or(Container a, Container b) {
+      if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+        ArrayContainer x = (ArrayContainer) a, y = (ArrayContainer) b;
+        if (x.mySize + y.mySize <= ARRAY_MAX) return x.or(y);
+      }
+      long[] words = bitmapWords(a, true);
+      long[] other = bitmapWords(b, false);
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        words[i] |= other[i];
+      }
+      return BitmapContainer.normalize(words);
+    }
+
+    static Container and(Container a, Container b) {
+      if (a instanceof ArrayContainer) return ((ArrayContainer) a).filter(b, true);
+      if (b instanceof ArrayContainer) return ((ArrayContainer) b).filter(a, true);
+      long[] words = bitmapWords(a, true);
+      long[] other = bitmapWords(b, false);
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        words[i] &= other[i];
+      }
+      return BitmapContainer.normalize(words);
+    }
+
+    static Container andNot(Container a, Container b) {
+      if (a instanceof ArrayContainer) return ((ArrayContainer) a).filter(b, false);
+      long[] words = bitmapWords(a, true);
+      if (b instanceof ArrayContainer) {
+        ArrayContainer y = (ArrayContainer) b;
+        for (int i = 0; i < y.mySize; i++) {
+          char low = y.myValues[i];
+          words[low >>> 6] &= ~(1L << low);
+        }
+      } else {
+        long[] other = bitmapWords(b, false);
+        for (int i = 0; i < BITMAP_WORDS; i++) {
+          words[i] &= ~other[i];
+        }
+      }
+      return BitmapContainer.normalize(words);
+    }
+
+    /**
+     * @param writable if true, a new array is returned
+     */
+    private static long[] bitmapWords(Container c, boolean writable) {
+      if (c instanceof BitmapContainer) {
+        long[] words = ((BitmapContainer) c).myWords;
+        return writable ? words.clone() : words;
+      }
+      return c.toBitmap().myWords;
+    }
+  }
+
+  static final class ArrayContainer extends Container {
+    private char[] myValues;
+    private int mySize;
+
+    ArrayContainer(int capacity) {
+      myValues = new char[capacity];
+    }
+
+    private ArrayContainer(char[] values, int size) {
+      myValues = values;
+      mySize = size;
+    }
+
+    int cardinality() {
+      return mySize;
+    }
+
+    boolean contains(char low) {
+      return Arrays.binarySearch(myValues, 0, mySize, low) >= 0;
+    }
+
+    Container add(char low) {
+      int i = Arrays.binarySearch(myValues, 0, mySize, low);
+      if (i >= 0) return this;
+      if (mySize == ARRAY_MAX) return toBitmap().add(low);
+      i = -i - 1;
+      if (mySize == myValues.length) {
+        myValues = Arrays.copyOf(myValues, Math.min(ARRAY_MAX, Math.max(4, mySize * 2)));
+      }
+      System.arraycopy(myValues, i, myValues, i + 1, mySize - i);
+      myValues[i] = low;
+      mySize++;
+      return this;
+    }
+
+    Container remove(char low) {
+      int i = Arrays.binarySearch(myValues, 0, mySize, low);
+      if (i < 0) return this;
+      System.arraycopy(myValues, i + 1, myValues, i, mySize - i - 1);
+      mySize--;
+      return this;
+    }
+
+    int first() {
+      return myValues[0];
+    }
+
+    int last() {
+      return myValues[mySize - 1];
+    }
+
+    int rank(int low) {
+      int i = Arrays.binarySearch(myValues, 0, mySize, (char) low);
+      return i >= 0 ? i : -i - 1;
+    }
+
+    int select(int index) {
+      return myValues[index];
+    }
+
+    int fill(int from, int high, int[] dst, int off, int len) {
+      int i = from == 0 ? 0 : Arrays.binarySearch(myValues, 0, mySize, (char) from);
+      if (i < 0) i = -i - 1;
+      int count = Math.min(len, mySize - i);
+      for (int k = 0; k < count; k++) {
+        dst[off + k] = high | myValues[i + k];
+      }
+      return count;
+    }
+
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(myValues, mySize), mySize);
+    }
+
+    BitmapContainer toBitmap() {
+      BitmapContainer res = new BitmapContainer(new long[BITMAP_WORDS], mySize);
+      for (int i = 0; i < mySize; i++) {
+        char low = myValues[i];
+        res.myWords[low >>> 6] |= 1L << low;
+      }
+      return res;
+    }
+
+    int runCount() {
+      int runs = 0;
+      for (int i = 0; i < mySize; i++) {
+        if (i == 0 || myValues[i] != myValues[i - 1] + 1) runs++;
+      }
+      return runs;
+    }
+
+    int sizeInBytes() {
+      return 2 * mySize;
+    }
+
+    ArrayContainer or(ArrayContainer other) {
+      char[] res = new char[mySize + other.mySize];
+      int i = 0, j = 0, k = 0;
+      while (i < mySize && j < other.mySize) {
+        char a = myValues[i], b = other.myValues[j];
+        if (a <= b) {
+          res[k++] = a;
+          i++;
+          if (a == b) j++;
+        } else {
+          res[k++] = b;
+          j++;
+        }
+      }
+      while (i < mySize) res[k++] = myValues[i++];
+      while (j < other.mySize) res[k++] = other.myValues[j++];
+      return new ArrayContainer(res, k);
+    }
+
+    /**
+     * @return the values of this container that are contained ({@code keep}) or not contained in {@code other}
+     */
+    ArrayContainer filter(Container other, boolean keep) {
+      char[] res = new char[mySize];
+      int k = 0;
+      if (other instanceof ArrayContainer) {
+        ArrayContainer y = (ArrayContainer) other;
+        int j = 0;
+        for (int i = 0; i < mySize; i++) {
+          char a = myValues[i];
+          while (j < y.mySize && y.myValues[j] < a) j++;
+          if ((j < y.mySize && y.myValues[j] == a) == keep) res[k++] = a;
+        }
+      } else {
+        for (int i = 0; i < mySize; i++) {
+          char a = myValues[i];
+          if (other.contains(a) == keep) res[k++] = a;
+        }
+      }
+      return new ArrayContainer(res, k);
+    }
+  }
+
+  static final class BitmapContainer extends Container {
+    private final long[] myWords;
+    private int myCardinality;
+
+    BitmapContainer(long[] words, int cardinality) {
+      myWords = words;
+      myCardinality = cardinality;
+    }
+
+    /**
+     * @return container holding the bits of {@code words}, an array container if there are few of them
+     */
+    static Container normalize(long[] words) {
+      int cardinality = 0;
+      for (long word : words) {
+        cardinality += Long.bitCount(word);
+      }
+      BitmapContainer res = new BitmapContainer(words, cardinality);
+      return cardinality <= ARRAY_MAX ? res.toArray() : res;
+    }
+
+    int cardinality() {
+      return myCardinality;
+    }
+
+    boolean contains(char low) {
+      return (myWords[low >>> 6] & (1L << low)) != 0;
+    }
+
+    Container add(char low) {
+      long bit = 1L << low;
+      if ((myWords[low >>> 6] & bit) == 0) {
+        myWords[low >>> 6] |= bit;
+        myCardinality++;
+      }
+      return this;
+    }
+
+    Container remove(char low) {
+      long bit = 1L << low;
+      if ((myWords[low >>> 6] & bit) != 0) {
+        myWords[low >>> 6] &= ~bit;
+        if (--myCardinality <= ARRAY_MAX) return toArray();
+      }
+      return this;
+    }
+
+    int first() {
+      int w = 0;
+      while (myWords[w] == 0) w++;
+      return (w << 6) + Long.numberOfTrailingZeros(myWords[w]);
+    }
+
+    int last() {
+      int w = BITMAP_WORDS - 1;
+      while (myWords[w] == 0) w--;
+      return (w << 6) + 63 - Long.numberOfLeadingZeros(myWords[w]);
+    }
+
+    int rank(int low) {
+      int w = low >>> 6;
+      int rank = Long.bitCount(myWords[w] & ~(-1L << low));
+      for (int i = 0; i < w; i++) {
+        rank += Long.bitCount(myWords[i]);
+      }
+      return rank;
+    }
+
+    int select(int index) {
+      int w = 0;
+      for (int count; index >= (count = Long.bitCount(myWords[w])); w++) {
+        index -= count;
+      }
+      long word = myWords[w];
+      for (; index > 0; index--) {
+        word &= word - 1;
+      }
+      return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    int fill(int from, int high, int[] dst, int off, int len) {
+      int w = from >>> 6;
+      long word = myWords[w] & (-1L << from);
+      int count = 0;
+      while (count < len) {
+        while (word == 0) {
+          if (++w == BITMAP_WORDS) return count;
+          word = myWords[w];
+        }
+        dst[off + count++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+        word &= word - 1;
+      }
+      return count;
+    }
+
+    Container copy() {
+      return new BitmapContainer(myWords.clone(), myCardinality);
+    }
+
+    BitmapContainer toBitmap() {
+      return (BitmapContainer) copy();
+    }
+
+    ArrayContainer toArray() {
+      char[] values = new char[myCardinality];
+      int k = 0;
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        for (long word = myWords[w]; word != 0; word &= word - 1) {
+          values[k++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+        }
+      }
+      return new ArrayContainer(values, k);
+    }
+
+    int runCount() {
+      int runs = 0;
+      for (int w = 0; w < BITMAP_WORDS; w++) {
+        long word = myWords[w];
+        // a run starts at every set bit whose lower neighbour is clear
+        long prevBit = w == 0 ? 0 : myWords[w - 1] >>> 63;
+        runs += Long.bitCount(word & ~((word << 1) | prevBit));
+      }
+      return runs;
+    }
+
+    int sizeInBytes() {
+      return BITMAP_WORDS * 8;
+    }
+  }
+
+  static final class RunContainer extends Container {
+    /**
+     * Pairs of the first and the last value of each run
+     */
+    private char[] myRuns;
+    private int myRunCount;
+    private int myCardinality;
+
+    RunContainer(int capacity) {
+      myRuns = new char[2 * capacity];
+    }
+
+    static int sizeInBytes(int runs) {
+      return 4 * runs;
+    }
+
+    void appendRun(int start, int end) {
+      if (2 * myRunCount == myRuns.length) myRuns = Arrays.copyOf(myRuns, Math.max(4, myRuns.length * 2));
+      myRuns[2 * myRunCount] = (char) start;
+      myRuns[2 * myRunCount + 1] = (char) end;
+      myRunCount++;
+      myCardinality += end - start + 1;
+    }
+
+    int cardinality() {
+      return myCardinality;
+    }
+
+    /**
+     * @return index of the first run whose last value is at least {@code low}, or myRunCount
+     */
+    private int runIndex(int low) {
+      int lo = 0, hi = myRunCount - 1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (myRuns[2 * mid + 1] < low) lo = mid + 1;
+        else hi = mid - 1;
+      }
+      return lo;
+    }
+
+    boolean contains(char low) {
+      int i = runIndex(low);
+      return i < myRunCount && myRuns[2 * i] <= low;
+    }
+
+    Container add(char low) {
+      return contains(low) ? this : expand().add(low);
+    }
+
+    Container remove(char low) {
+      return contains(low) ? expand().remove(low) : this;
+    }
+
+    private Container expand() {
+      return myCardinality <= ARRAY_MAX ? toBitmap().toArray() : toBitmap();
+    }
+
+    int first() {
+      return myRuns[0];
+    }
+
+    int last() {
+      return myRuns[2 * myRunCount - 1];
+    }
+
+    int rank(int low) {
+      int rank = 0;
+      for (int i = 0; i < myRunCount && myRuns[2 * i] < low; i++) {
+        rank += Math.min(low - 1, myRuns[2 * i + 1]) - myRuns[2 * i] + 1;
+      }
+      return rank;
+    }
+
+    int select(int index) {
+      int i = 0;
+      for (int length; index >= (length = myRuns[2 * i + 1] - myRuns[2 * i] + 1); i++) {
+        index -= length;
+      }
+      return myRuns[2 * i] + index;
+    }
+
+    int fill(int from, int high, int[] dst, int off, int len) {
+      int count = 0;
+      for (int i = runIndex(from); i < myRunCount && count < len; i++) {
+        int end = myRuns[2 * i + 1];
+        for (int v = Math.max(from, myRuns[2 * i]); v <= end && count < len; v++) {
+          dst[off + count++] = high | v;
+        }
+      }
+      return count;
+    }
+
+    Container copy() {
+      RunContainer res = new RunContainer(0);
+      res.myRuns = Arrays.copyOf(myRuns, 2 * myRunCount);
+      res.myRunCount = myRunCount;
+      res.myCardinality = myCardinality;
+      return res;
+    }
+
+    BitmapContainer toBitmap() {
+      long[] words = new long[BITMAP_WORDS];
+      for (int i = 0; i < myRunCount; i++) {
+        int start = myRuns[2 * i], end = myRuns[2 * i + 1];
+        int ws = start >>> 6, we = end >>> 6;
+        long first = -1L << start, last = -1L >>> (63 - (end & 63));
+        if (ws == we) {
+          words[ws] |= first & last;
+        } else {
+          words[ws] |= first;
+          for (int w = ws + 1; w < we; w++) words[w] = -1L;
+          words[we] |= last;
+        }
+      }
+      return new BitmapContainer(words, myCardinality);
+    }
+
+    int runCount() {
+      return myRunCount;
+    }
+
+    int sizeInBytes() {
+      return sizeInBytes(myRunCount);
+    }
+
+    @Override
+    Container runOptimize() {
+      return this;
+    }
+  }
+}
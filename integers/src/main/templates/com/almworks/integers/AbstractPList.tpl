@@ -22,6 +22,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.stream.#E#Stream;
 
 import static com.almworks.integers.IntegersUtils.EMPTY_#EC#S;
 
@@ -64,6 +65,20 @@ public abstract class Abstract#E#List implements #E#List {
     return new IndexIterator(from, to);
   }
 
+  /**
+   * @see #E#Streams#stream(#E#Iterable)
+   */
+  public #E#Stream stream() {
+    return #E#Streams.stream(this);
+  }
+
+  /**
+   * @see #E#Streams#parallelStream(#E#Iterable)
+   */
+  public #E#Stream parallelStream() {
+    return #E#Streams.parallelStream(this);
+  }
+
   public #E#List get(final IntList indices) {
     if (indices == null) {
       throw new NullPointerException("indices");
@@ -63,6 +63,34 @@ public abstract class Abstract#E#ListIndexIterator extends Abstract#E#Iterator i
     myNext = p + 1;
   }
 
+  /**
+   * Gallops from the current position: probes the values 1, 2, 4, ... positions ahead
+   * and then does a binary search within the last step, so that skipping k values takes O(log k).
+   */
+  public boolean advanceTo(#e# value) throws ConcurrentModificationException {
+    if (myFrom < myNext && absget(myNext - 1) >= value) return true;
+    int low = myNext;
+    int high = low;
+    int step = 1;
+    while (high < myTo && absget(high) < value) {
+      low = high + 1;
+      high = myTo - high > step ? high + step : myTo;
+      step <<= 1;
+    }
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (absget(mid) < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    // move to the found index or to the end
+    int count = Math.min(low, myTo - 1) - (myNext - 1);
+    if (count > 0) move(count);
+    return low < myTo;
+  }
+
   public #e# get(int relativeOffset) throws NoSuchElementException {
     int idx = myNext - 1 + relativeOffset;
     if (idx < myFrom || idx >= myTo)
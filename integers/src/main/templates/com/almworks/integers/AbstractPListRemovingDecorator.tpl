@@ -219,7 +219,7 @@ public abstract class Abstract#E#ListRemovingDecorator extends Abstract#E#ListDe
     }
 
     protected #e# absget(int index) {
-      if (index == index()) {
+      if (hasValue() && index == index()) {
         return value();
       } else {
         return Abstract#E#ListRemovingDecorator.this.get(index);
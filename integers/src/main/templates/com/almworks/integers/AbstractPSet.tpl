@@ -16,6 +16,8 @@
 
 package com.almworks.integers;
 
+import java.util.stream.#E#Stream;
+
 import static com.almworks.integers.IntegersUtils.appendShortName;
 import static com.almworks.integers.#E#IterableLexicographicComparator.#EC#_ITERABLE_LEXICOGRAPHIC_COMPARATOR;
 
@@ -67,6 +69,20 @@ public abstract class Abstract#E#Set implements #E#Set {
     return new #E#Array(toNativeArray(new #e#[size()]));
   }
 
+  /**
+   * @see #E#Streams#stream(#E#Iterable)
+   */
+  public #E#Stream stream() {
+    return #E#Streams.stream(this);
+  }
+
+  /**
+   * @see #E#Streams#parallelStream(#E#Iterable)
+   */
+  public #E#Stream parallelStream() {
+    return #E#Streams.parallelStream(this);
+  }
+
   public StringBuilder toString(StringBuilder builder) {
     appendShortName(builder, this);
     builder.append(" ").append(size()).append(" [");
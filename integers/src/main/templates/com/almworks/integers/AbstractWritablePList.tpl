@@ -18,8 +18,6 @@
 
 package com.almworks.integers;
 
-import com.almworks.integers.func.IntIntProcedure;
-import com.almworks.integers.func.#E#Functions;
 import com.almworks.integers.func.#E#To#E#;
 import org.jetbrains.annotations.NotNull;
 
@@ -27,6 +25,9 @@ import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
 
 public abstract class AbstractWritable#E#List extends Abstract#E#List implements Writable#E#List {
+  /** Lists shorter than this are sorted in place, without the scratch space of {@link #E#RadixSort} */
+  private static final int INSERTION_SORT_THRESHOLD = 32;
+
   private transient int myModCount;
   private int mySize;
 
@@ -252,7 +253,8 @@ public abstract class AbstractWritable#E#List extends Abstract#E#List implements
   }
 
   /**
-   * Sorts this list using quicksort copied from {@link java.util.Arrays#sort(int[])} then corrected
+   * Sorts this list using {@link #E#RadixSort}, small lists are sorted in place with insertion sort.
+   * The sort is stable: elements with equal values keep their relative order.
    * @param sortAlso lists in which the order is changed as well as this list
    */
   public void sort(final Writable#E#List... sortAlso) {
@@ -261,16 +263,26 @@ public abstract class AbstractWritable#E#List extends Abstract#E#List implements
         assert list.size() == size();
       }
     }
-    IntegersUtils.quicksort(size(), #E#Functions.comparator(this),
-        new IntIntProcedure() {
-          public void invoke(int a, int b) {
-            swap(a, b);
-            if (sortAlso != null)
-              for (Writable#E#List list : sortAlso) {
-                list.swap(a, b);
-              }
+    int size = size();
+    if (size < INSERTION_SORT_THRESHOLD) {
+      insertionSort(size, sortAlso);
+    } else {
+      #E#RadixSort.sorter(size).sort(this, sortAlso);
+    }
+  }
+
+  private void insertionSort(int size, Writable#E#List[] sortAlso) {
+    for (int i = 1; i < size; i++) {
+      #e# value = get(i);
+      for (int j = i; j > 0 && get(j - 1) > value; j--) {
+        swap(j - 1, j);
+        if (sortAlso != null) {
+          for (Writable#E#List list : sortAlso) {
+            list.swap(j - 1, j);
           }
-        });
+        }
+      }
+    }
   }
 
   public void sortUnique() {
@@ -372,6 +384,12 @@ public abstract class AbstractWritable#E#List extends Abstract#E#List implements
       return (Writable#E#ListIterator)super.next();
     }
 
+    public boolean advanceTo(#e# value) throws ConcurrentModificationException {
+      checkMod();
+      setNotRemoved();
+      return super.advanceTo(value);
+    }
+
     public #e# value() throws ConcurrentModificationException, NoSuchElementException {
       checkMod();
       if (isJustRemoved())
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.#E#Buffer;
+import java.nio.channels.FileChannel;
+
+import static com.almworks.integers.#E#ListWriter.*;
+
+/**
+ * Read-only list over a file written by {@link #E#ListWriter}, the values are not loaded into the Java heap.
+ * <p>
+ * A single {@link java.nio.MappedByteBuffer} cannot be larger than 2 GB, so the file is mapped in regions
+ * of {@code 2^chunkBits} values each; the region that holds an index is found with a shift.
+ * The list may have up to {@code Integer.MAX_VALUE} values, that is, up to 16 GB of data for longs.
+ * <p>
+ * The mapping stays valid after the file is closed, and it is released when the list becomes unreachable.
+ * The list is immutable and may be shared between threads, as long as the file itself is not modified.
+ */
+public class Mapped#E#List extends Abstract#E#List {
+  /**
+   * Default region size: 1 GB.
+   */
+  static final int DEFAULT_CHUNK_BITS = 30 - Integer.numberOfTrailingZeros(VALUE_BYTES);
+
+  private final #E#Buffer[] myChunks;
+  private final int myChunkBits;
+  private final int myChunkMask;
+  private final int mySize;
+
+  private Mapped#E#List(#E#Buffer[] chunks, int chunkBits, int size) {
+    myChunks = chunks;
+    myChunkBits = chunkBits;
+    myChunkMask = (1 << chunkBits) - 1;
+    mySize = size;
+  }
+
+  /**
+   * Maps the file written by {@link #E#ListWriter}.
+   * @throws IOException if the file cannot be read or has a wrong format
+   */
+  public static Mapped#E#List open(File file) throws IOException {
+    return open(file, DEFAULT_CHUNK_BITS);
+  }
+
+  static Mapped#E#List open(File file, int chunkBits) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      return map(raf.getChannel(), chunkBits);
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Maps the file written by {@link #E#ListWriter}. The channel may be closed afterwards.
+   * @throws IOException if the file cannot be read or has a wrong format
+   */
+  public static Mapped#E#List map(FileChannel channel) throws IOException {
+    return map(channel, DEFAULT_CHUNK_BITS);
+  }
+
+  static Mapped#E#List map(FileChannel channel, int chunkBits) throws IOException {
+    if (chunkBits < 0 || ((long) VALUE_BYTES << chunkBits) > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("chunkBits = " + chunkBits);
+    long fileSize = channel.size();
+    if (fileSize < HEADER_SIZE) throw new IOException("not a list file: " + fileSize + " bytes");
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+    while (header.hasRemaining()) {
+      if (channel.read(header, header.position()) < 0) throw new IOException("unexpected end of file");
+    }
+    ((Buffer) header).flip();
+    int magic = header.getInt();
+    int version = header.getInt();
+    int valueBytes = header.getInt();
+    header.getInt();
+    long size = header.getLong();
+    if (magic != MAGIC) throw new IOException("not a list file: magic " + Integer.toHexString(magic));
+    if (version != VERSION) throw new IOException("unsupported version " + version);
+    if (valueBytes != VALUE_BYTES) throw new IOException(valueBytes + "-byte values, expected " + VALUE_BYTES);
+    if (size < 0 || size > Integer.MAX_VALUE) throw new IOException("bad size " + size);
+    if (HEADER_SIZE + size * VALUE_BYTES > fileSize) throw new IOException("truncated: " + size + " values, " + fileSize + " bytes");
+
+    int count = (int) size;
+    int chunkCount = count == 0 ? 0 : ((count - 1) >>> chunkBits) + 1;
+    #E#Buffer[] chunks = new #E#Buffer[chunkCount];
+    for (int i = 0; i < chunkCount; i++) {
+      long from = (long) i << chunkBits;
+      long length = Math.min(count - from, 1L << chunkBits);
+      ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + from * VALUE_BYTES, length * VALUE_BYTES);
+      chunks[i] = region.order(ORDER).as#E#Buffer();
+    }
+    return new Mapped#E#List(chunks, chunkBits, count);
+  }
+
+  public int size() {
+    return mySize;
+  }
+
+  public #e# get(int index) {
+    if (index < 0 || index >= mySize) throw new IndexOutOfBoundsException(index + " " + mySize);
+    return myChunks[index >>> myChunkBits].get(index & myChunkMask);
+  }
+
+  @Override
+  public #e#[] toNativeArray(int startIndex, #e#[] dest, int destOffset, int length) {
+    if (startIndex < 0 || length < 0 || startIndex + length > mySize)
+      throw new IndexOutOfBoundsException(startIndex + " " + length + " " + mySize);
+    while (length > 0) {
+      int offset = startIndex & myChunkMask;
+      int count = Math.min(length, myChunkMask + 1 - offset);
+      read(startIndex >>> myChunkBits, offset, dest, destOffset, count);
+      startIndex += count;
+      destOffset += count;
+      length -= count;
+    }
+    return dest;
+  }
+
+  private void read(int chunk, int offset, #e#[] dest, int destOffset, int length) {
+    // a view of its own for every read keeps the shared buffers' positions untouched
+    #E#Buffer view = myChunks[chunk].duplicate();
+    ((Buffer) view).position(offset);
+    view.get(dest, destOffset, length);
+  }
+
+  @Override
+  public int binarySearch(#e# value, int from, int to) {
+    if (from < 0 || from > to || to > mySize)
+      throw new IndexOutOfBoundsException(from + " " + to + " " + mySize + " " + value);
+    // find the first index with a value >= value
+    int low = from;
+    int high = to;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (myChunks[mid >>> myChunkBits].get(mid & myChunkMask) < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low < to && myChunks[low >>> myChunkBits].get(low & myChunkMask) == value ? low : -low - 1;
+  }
+
+  @NotNull
+  @Override
+  public #E#ListIterator iterator(int from, int to) {
+    if (from >= to) {
+      assert from == to : from + " " + to;
+      return #E#Iterator.EMPTY;
+    }
+    return new MappedIterator(from, to);
+  }
+
+  private class MappedIterator extends IndexIterator {
+    public MappedIterator(int from, int to) {
+      super(from, to);
+    }
+
+    @Override
+    protected #e# absget(int index) {
+      return myChunks[index >>> myChunkBits].get(index & myChunkMask);
+    }
+
+    @Override
+    public int nextBatch(#e#[] dst, int off, int len) {
+      int next = getNextIndex();
+      int count = Math.min(len, getTo() - next);
+      if (count <= 0) return 0;
+      toNativeArray(next, dst, off, count);
+      setNext(next + count);
+      return count;
+    }
+  }
+}
@@ -41,6 +41,12 @@ public class #E#AmortizedSet extends AbstractWritable#E#Set implements Writable#
   private int[][] myTempInsertionPoints = {null};
   private #E#Array myRemovedTemp = null;
 
+  // Net changes to myBaseList, used for rank() and select(); null if they have to be rebuilt.
+  // Values of myAdded that are not in myBaseList
+  private #E#Array myAddedDelta;
+  // Indices in myBaseList of values of myRemoved
+  private IntArray myRemovedDelta;
+
   public #E#AmortizedSet(Writable#E#SortedSet addedSet, Writable#E#Set removedSet) {
     this(0, addedSet, removedSet, DEFAULT_CHUNKSIZE);
   }
@@ -230,12 +236,87 @@ public class #E#AmortizedSet extends AbstractWritable#E#Set implements Writable#
     myBaseList.mergeWithSmall(myAdded.toArray(), myTempInsertionPoints);
     myAdded.clear();
     myRemoved.clear();
+    myAddedDelta = null;
   }
 
   @Override
   protected void modified() {
     super.modified();
     myCoalesced = false;
+    myAddedDelta = null;
+  }
+
+  private void prepareDeltas() {
+    if (myAddedDelta != null) return;
+    #E#Array added = new #E#Array();
+    int from = 0;
+    for (#E#Iterator it : myAdded) {
+      #e# value = it.value();
+      int idx = myBaseList.binarySearch(value, from, myBaseList.size());
+      if (idx < 0) {
+        added.add(value);
+        idx = -idx - 1;
+      }
+      from = idx;
+    }
+    myRemovedDelta = IntArray.copy(sortedIndicesToRemove());
+    myAddedDelta = added;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <br>Takes O(log(size())) time, except for the first call after a modification:
+   * it goes through the changes accumulated since the last coalesce, which are fewer than the chunk size.
+   */
+  public int rank(#e# value) {
+    prepareDeltas();
+    int baseRank = myBaseList.binarySearch(value);
+    if (baseRank < 0) baseRank = -baseRank - 1;
+    int addedRank = myAddedDelta.binarySearch(value);
+    if (addedRank < 0) addedRank = -addedRank - 1;
+    return baseRank - removedBefore(baseRank) + addedRank;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <br>Takes O(log(size())<sup>2</sup>) time, except for the first call after a modification, see {@link #rank(#e#)}.
+   */
+  public #e# select(int index) {
+    prepareDeltas();
+    int size = size();
+    if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index + " " + size);
+    // the number of the added values that precede the element: the first one whose rank is not less than index
+    int lo = 0, hi = myAddedDelta.size();
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      #e# value = myAddedDelta.get(mid);
+      int baseRank = myBaseList.binarySearch(value);
+      // added values are not in myBaseList
+      baseRank = -baseRank - 1;
+      int rank = mid + baseRank - removedBefore(baseRank);
+      if (rank == index) return value;
+      if (rank < index) lo = mid + 1;
+      else hi = mid;
+    }
+    // the element is in myBaseList, index - lo remaining values precede it there;
+    // removed values before it are those with fewer remaining values before them
+    int remaining = index - lo;
+    lo = 0;
+    hi = myRemovedDelta.size();
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (myRemovedDelta.get(mid) - mid <= remaining) lo = mid + 1;
+      else hi = mid;
+    }
+    return myBaseList.get(remaining + lo);
+  }
+
+  /**
+   * @return the number of removed values of myBaseList with indices less than {@code baseIndex}
+   */
+  private int removedBefore(int baseIndex) {
+    int removed = myRemovedDelta.binarySearch(baseIndex);
+    return removed >= 0 ? removed : -removed - 1;
   }
 
   public #E#Iterator tailIterator(#e# fromElement) {
@@ -269,6 +350,7 @@ public class #E#AmortizedSet extends AbstractWritable#E#Set implements Writable#
   }
 
   public int size() {
+    if (myAddedDelta != null) return myBaseList.size() - myRemovedDelta.size() + myAddedDelta.size();
     int size = myBaseList.size();
     // myAdded and myRemoved are disjoint
     if (!myAdded.isEmpty()) {
@@ -346,6 +428,23 @@ public class #E#AmortizedSet extends AbstractWritable#E#Set implements Writable#
 
     @Override
     protected boolean findNext() {
+      maybeReactOnCoalesce();
+      while (myIterator.hasNext()) {
+        myNext = myIterator.nextValue();
+        if (!myRemoved.contains(myNext)) return true;
+      }
+      return false;
+    }
+
+    @Override
+    protected boolean findNextAtLeast(#e# value) {
+      maybeReactOnCoalesce();
+      if (!myIterator.advanceTo(value)) return false;
+      myNext = myIterator.value();
+      return !myRemoved.contains(myNext) || findNext();
+    }
+
+    private void maybeReactOnCoalesce() {
       if (myShouldReactOnCoalesce && myCoalesced) {
         myShouldReactOnCoalesce = false;
         // baseIndex always >= -1
@@ -357,11 +456,6 @@ public class #E#AmortizedSet extends AbstractWritable#E#Set implements Writable#
           myIterator = myBaseList.iterator(baseIndex + 1, myBaseList.size());
         }
       }
-      while (myIterator.hasNext()) {
-        myNext = myIterator.nextValue();
-        if (!myRemoved.contains(myNext)) return true;
-      }
-      return false;
     }
 
   }
@@ -18,13 +18,17 @@
 
 package com.almworks.integers;
 
+import com.almworks.integers.func.#E#Condition;
+import com.almworks.integers.func.#E#Procedure;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.almworks.integers.IntegersUtils.EMPTY_#EC#S;
 
@@ -268,13 +272,25 @@ public final class #E#Array extends AbstractWritable#E#List {
     updateSize(newsz);
   }
 
+  /**
+   * Sorts this array using {@link #E#RadixSort}; small arrays without {@code sortAlso} are sorted with {@link Arrays#sort(#e#[])}.
+   * @param sortAlso lists in which the order is changed as well as this array
+   */
   public void sort(Writable#E#List... sortAlso) {
     if (sortAlso == null || sortAlso.length == 0)
-      Arrays.sort(myArray, 0, size());
+      sort(myArray, 0, size());
     else
       super.sort(sortAlso);
   }
 
+  private static void sort(#e#[] array, int from, int to) {
+    if (to - from < #E#RadixSort.ARRAYS_SORT_THRESHOLD) {
+      Arrays.sort(array, from, to);
+    } else {
+      #E#RadixSort.sorter(to - from).sort(array, from, to);
+    }
+  }
+
   public void addAll(#E#List list) {
     int added = list.size();
     int sz = size();
@@ -293,6 +309,53 @@ public final class #E#Array extends AbstractWritable#E#List {
     updateSize(newSize);
   }
 
+  public void addAll(#E#Iterable iterable) {
+    if (iterable instanceof #E#List) {
+      addAll((#E#List) iterable);
+      return;
+    }
+    #E#Iterator it = iterable.iterator();
+    int sz = size();
+    while (it.hasNext()) {
+      ensureCapacity(sz + 1);
+      sz += it.nextBatch(myArray, sz, myArray.length - sz);
+    }
+    updateSize(sz);
+  }
+
+  @NotNull
+  public Writable#E#ListIterator iterator(int from, int to) {
+    if (from >= to) {
+      assert from == to : from + " " + to;
+      return #E#Iterator.EMPTY;
+    }
+    return new ArrayIterator(from, to);
+  }
+
+  @Override
+  public void forEachValue(#E#Procedure procedure) {
+    int modCount = modCount();
+    #e#[] array = myArray;
+    int size = size();
+    for (int i = 0; i < size; i++) {
+      procedure.invoke(array[i]);
+      if (modCount != modCount()) throw new ConcurrentModificationException(modCount + " " + modCount());
+    }
+  }
+
+  @Override
+  public boolean forEachWhile(#E#Condition condition) {
+    int modCount = modCount();
+    #e#[] array = myArray;
+    int size = size();
+    for (int i = 0; i < size; i++) {
+      boolean proceed = condition.invoke(array[i]);
+      if (modCount != modCount()) throw new ConcurrentModificationException(modCount + " " + modCount());
+      if (!proceed) return false;
+    }
+    return true;
+  }
+
   @Override
   protected boolean isSorted(boolean checkUnique) {
     int r = #E#Collections.isSortedUnique(!checkUnique, myArray, 0, size());
@@ -313,14 +376,75 @@ public final class #E#Array extends AbstractWritable#E#List {
   }
 
   /**
-   * Sorts this array using {@link Arrays#sort(int[])}, removes duplicates and updates size.
+   * Sorts this array, removes duplicates and updates size.
+   * @see #sort(Writable#E#List...)
    */
   @Override
   public void sortUnique() {
-    Arrays.sort(myArray, 0, size());
+    sort(myArray, 0, size());
     updateSize(#E#Collections.removeSubsequentDuplicates(myArray, 0, size()));
   }
 
+  /**
+   * Sorts this array on {@link ForkJoinPool#commonPool()}.
+   * @see #parallelSort(ForkJoinPool, int, Writable#E#List...)
+   */
+  public void parallelSort(Writable#E#List... sortAlso) {
+    parallelSort(ForkJoinPool.commonPool(), #E#ParallelSort.DEFAULT_THRESHOLD, sortAlso);
+  }
+
+  /**
+   * Sorts this array with a fork-join merge sort. The sort is stable: if {@code sortAlso} is specified,
+   * elements with equal values keep their relative order. Needs additional memory of the size of this array,
+   * and of an {@code int} index per element and the size of each of {@code sortAlso} if it is specified.
+   * If the pool has a single worker, the array is sorted sequentially.
+   * @param pool pool to run the sort in
+   * @param threshold ranges of at most this size are sorted sequentially; default is {@code 65536}
+   * @param sortAlso lists in which the order is changed as well as this array; must not be shorter than this array
+   * @throws IllegalArgumentException if {@code threshold} is not positive
+   */
+  public void parallelSort(ForkJoinPool pool, int threshold, Writable#E#List... sortAlso) {
+    int n = size();
+    if (sortAlso == null || sortAlso.length == 0) {
+      #E#ParallelSort.sort(myArray, n, pool, threshold);
+      return;
+    }
+    int[] order = new int[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+    }
+    #E#ParallelSort.sort(myArray, order, n, pool, threshold);
+    for (Writable#E#List list : sortAlso) {
+      assert list.size() >= n;
+      #e#[] values = list.toNativeArray(0, new #e#[n], 0, n);
+      list.setAll(0, new #E#Array(#E#ParallelSort.permute(values, order, n, pool, threshold)));
+    }
+  }
+
+  /**
+   * Sorts this array and removes duplicates on {@link ForkJoinPool#commonPool()}.
+   * @see #parallelSortUnique(ForkJoinPool, int)
+   */
+  public void parallelSortUnique() {
+    parallelSortUnique(ForkJoinPool.commonPool(), #E#ParallelSort.DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Sorts this array with a fork-join merge sort and removes duplicates in parallel.
+   * The host array is replaced with a new one that exactly fits the unique elements.
+   * @see #parallelSort(ForkJoinPool, int, Writable#E#List...)
+   */
+  public void parallelSortUnique(ForkJoinPool pool, int threshold) {
+    int n = size();
+    #E#ParallelSort.sort(myArray, n, pool, threshold);
+    if (!#E#ParallelSort.isSequential(n, pool, threshold)) {
+      myArray = #E#ParallelSort.removeDuplicates(myArray, n, pool, threshold);
+      updateSize(myArray.length);
+    } else {
+      updateSize(#E#Collections.removeSubsequentDuplicates(myArray, 0, n));
+    }
+  }
+
   /**
    * removes from this array all of its elements that are not contained in {@code values}
    * <p>Complexity: {@code O((M + N) * log(M))}, where N - {@code size()}, M - {@code values.size()}
@@ -773,4 +897,27 @@ public final class #E#Array extends AbstractWritable#E#List {
     }
     return hashCode;
   }
+
+  private class ArrayIterator extends WritableIndexIterator {
+    public ArrayIterator(int from, int to) {
+      super(from, to);
+    }
+
+    @Override
+    protected #e# absget(int index) {
+      return myArray[index];
+    }
+
+    @Override
+    public int nextBatch(#e#[] dst, int off, int len) {
+      checkMod();
+      int next = getNextIndex();
+      if (next < 0) next = -next - 1;
+      int count = Math.min(len, getTo() - next);
+      if (count <= 0) return 0;
+      System.arraycopy(myArray, next, dst, off, count);
+      setNext(next + count);
+      return count;
+    }
+  }
 }
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+
+/**
+ * A B+tree implementation of a sorted set. Single-thread access only. <br/>
+ * Keys are kept in wide sorted leaves, and every internal node keeps its separator keys, children and
+ * subtree sizes side by side, all of them in flat primitive arrays. A lookup therefore touches
+ * about log<sub>64</sub>(n) nodes instead of 2&middot;log<sub>2</sub>(n) scattered tree nodes,
+ * which matters once the set no longer fits into the CPU caches.
+ * Subtree sizes make {@link #rank(#e#)} and {@link #select(int)} logarithmic as well.
+ * <br/>Use instead of {@link #E#TreeSet} for large sets, e.g. as the {@code addedSet} of {@link #E#AmortizedSet}.
+ * @see AbstractBPlusTree
+ */
+public class #E#BTreeSet extends AbstractWritable#E#Set implements Writable#E#SortedSet {
+  private static final int LEAF_STRIDE = AbstractBPlusTree.LEAF_STRIDE;
+  private static final int NODE_STRIDE = AbstractBPlusTree.NODE_STRIDE;
+  private static final int NO_LEAF = AbstractBPlusTree.NO_LEAF;
+
+  private final Tree myTree = new Tree();
+  /** Keys of the leaf {@code i} are stored in {@code myLeafKeys[i * LEAF_STRIDE, i * LEAF_STRIDE + leaf size)}. */
+  private #e#[] myLeafKeys;
+  /** Key {@code j} of the node {@code i} is {@code myNodeKeys[i * NODE_STRIDE + j]}, it is the lowest key of child {@code j + 1}. */
+  private #e#[] myNodeKeys;
+  private #e#[] myTempKeys;
+
+  public #E#BTreeSet() {
+    this(0);
+  }
+
+  /**
+   * Constructs an empty <tt>#E#BTreeSet</tt> with the specified initial capacity.
+   * */
+  public #E#BTreeSet(int initialCapacity) {
+    if (initialCapacity < 0) throw new IllegalArgumentException();
+    myTree.allocate(initialCapacity);
+  }
+
+  /**
+   * @param src sorted unique values
+   * @return {@code #E#BTreeSet} with elements from {@code src}; its nodes are filled by three quarters.
+   */
+  public static #E#BTreeSet createFromSortedUnique(#E#Iterable src) {
+    final #E#List values = src instanceof #E#List ? (#E#List)src : #E#Collections.collectIterable(0, src);
+    final #E#BTreeSet res = new #E#BTreeSet();
+    res.myTree.initFromSorted(values.size(), new AbstractBPlusTree.SortedKeys() {
+      @Override
+      public void copyToLeaf(int from, int leafPos, int length) {
+        values.toNativeArray(from, res.myLeafKeys, leafPos, length);
+      }
+    });
+    return res;
+  }
+
+  public void clear() {
+    modified();
+    myTree.init();
+  }
+
+  public int size() {
+    return myTree.mySize;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return myTree.mySize == 0;
+  }
+
+  public #e# getUpperBound() {
+    if (isEmpty()) return #EW#.MIN_VALUE;
+    int leaf = myTree.lastLeaf();
+    return myLeafKeys[leaf * LEAF_STRIDE + myTree.myLeafSizes[leaf] - 1];
+  }
+
+  public #e# getLowerBound() {
+    if (isEmpty()) return #EW#.MAX_VALUE;
+    return myLeafKeys[myTree.firstLeaf() * LEAF_STRIDE];
+  }
+
+  public boolean contains(#e# key) {
+    return leafSearch(findLeaf(key), key) >= 0;
+  }
+
+  public int rank(#e# value) {
+    int rank = 0;
+    Tree tree = myTree;
+    int x = tree.myRoot;
+    for (int level = 0, height = tree.myHeight; level < height; level++) {
+      int pos = childPosition(tree, x, value);
+      rank += tree.countBefore(x, pos);
+      x = tree.myNodeChildren[x * NODE_STRIDE + pos];
+    }
+    int index = leafSearch(x, value);
+    return rank + (index >= 0 ? index : -index - 1);
+  }
+
+  public #e# select(int index) {
+    return myLeafKeys[myTree.select(index)];
+  }
+
+  /**
+   * @return the leaf that may contain {@code key}
+   */
+  private int findLeaf(#e# key) {
+    Tree tree = myTree;
+    int x = tree.myRoot;
+    for (int level = 0, height = tree.myHeight; level < height; level++) {
+      x = tree.myNodeChildren[x * NODE_STRIDE + childPosition(tree, x, key)];
+    }
+    return x;
+  }
+
+  /**
+   * Same as {@link #findLeaf(#e#)}, but also fills the path of {@link #myTree}.
+   */
+  private int descend(#e# key) {
+    Tree tree = myTree;
+    int x = tree.myRoot;
+    for (int level = 0, height = tree.myHeight; level < height; level++) {
+      int pos = childPosition(tree, x, key);
+      tree.myPathNodes[level] = x;
+      tree.myPathPositions[level] = pos;
+      x = tree.myNodeChildren[x * NODE_STRIDE + pos];
+    }
+    return x;
+  }
+
+  /**
+   * @return the position of the child of {@code node} that may contain {@code key},
+   * i.e. the number of the separator keys that are less than or equal to {@code key}
+   */
+  private int childPosition(Tree tree, int node, #e# key) {
+    int base = node * NODE_STRIDE;
+    int from = base;
+    int to = base + tree.myNodeSizes[node] - 1;
+    while (from < to) {
+      int mid = (from + to) >>> 1;
+      if (myNodeKeys[mid] <= key) from = mid + 1;
+      else to = mid;
+    }
+    return from - base;
+  }
+
+  /**
+   * @return index of {@code key} in {@code leaf}, if it's there; otherwise, {@code (-(insertion point) - 1)}
+   */
+  private int leafSearch(int leaf, #e# key) {
+    int base = leaf * LEAF_STRIDE;
+    int from = base;
+    int to = base + myTree.myLeafSizes[leaf] - 1;
+    while (from <= to) {
+      int mid = (from + to) >>> 1;
+      #e# midVal = myLeafKeys[mid];
+      if (midVal < key) from = mid + 1;
+      else if (midVal > key) to = mid - 1;
+      else return mid - base;
+    }
+    return -(from - base) - 1;
+  }
+
+  protected boolean include0(#e# key) {
+    int leaf = descend(key);
+    int index = leafSearch(leaf, key);
+    if (index >= 0) return false;
+    myLeafKeys[myTree.insertAt(leaf, -index - 1)] = key;
+    myTree.splitIfOverflown(leaf);
+    return true;
+  }
+
+  protected boolean exclude0(#e# key) {
+    int leaf = descend(key);
+    int index = leafSearch(leaf, key);
+    if (index < 0) return false;
+    myTree.removeAt(leaf, index);
+    return true;
+  }
+
+  public #E#Iterator iterator() {
+    return failFast(new LeafIterator(myTree.firstLeaf(), 0));
+  }
+
+  public #E#Iterator tailIterator(#e# fromElement) {
+    int leaf = findLeaf(fromElement);
+    int index = leafSearch(leaf, fromElement);
+    return failFast(new LeafIterator(leaf, index >= 0 ? index : -index - 1));
+  }
+
+  @Override
+  protected void toNativeArrayImpl(#e#[] dest, int destPos) {
+    for (int leaf = myTree.firstLeaf(); leaf != NO_LEAF; leaf = myTree.myLeafNext[leaf]) {
+      int size = myTree.myLeafSizes[leaf];
+      System.arraycopy(myLeafKeys, leaf * LEAF_STRIDE, dest, destPos, size);
+      destPos += size;
+    }
+  }
+
+  /**
+   * The structure of the tree, keys are in the arrays of the enclosing set.
+   */
+  private class Tree extends AbstractBPlusTree {
+    @Override
+    protected void copyKeys(int srcStore, int srcPos, int dstStore, int dstPos, int length) {
+      System.arraycopy(keys(srcStore), srcPos, keys(dstStore), dstPos, length);
+    }
+
+    @Override
+    protected void resizeKeys(int store, int capacity, boolean keep) {
+      #e#[] keys = keep ? Arrays.copyOf(keys(store), capacity) : new #e#[capacity];
+      if (store == LEAF_KEYS) myLeafKeys = keys;
+      else if (store == NODE_KEYS) myNodeKeys = keys;
+      else myTempKeys = keys;
+    }
+
+    @Override
+    protected boolean lessKeys(int store1, int pos1, int store2, int pos2) {
+      return keys(store1)[pos1] < keys(store2)[pos2];
+    }
+
+    private #e#[] keys(int store) {
+      return store == LEAF_KEYS ? myLeafKeys : store == NODE_KEYS ? myNodeKeys : myTempKeys;
+    }
+  }
+
+  private class LeafIterator extends #E#FindingIterator {
+    private int myLeaf;
+    private int myIndex;
+
+    LeafIterator(int leaf, int index) {
+      myLeaf = leaf;
+      myIndex = index;
+    }
+
+    @Override
+    protected boolean findNext() throws ConcurrentModificationException {
+      while (myLeaf != NO_LEAF) {
+        if (myIndex < myTree.myLeafSizes[myLeaf]) {
+          myNext = myLeafKeys[myLeaf * LEAF_STRIDE + myIndex++];
+          return true;
+        }
+        myLeaf = myTree.myLeafNext[myLeaf];
+        myIndex = 0;
+      }
+      return false;
+    }
+
+    @Override
+    protected int findNextBatch(#e#[] dst, int off, int len) throws ConcurrentModificationException {
+      int count = 0;
+      while (count < len && myLeaf != NO_LEAF) {
+        int n = Math.min(len - count, myTree.myLeafSizes[myLeaf] - myIndex);
+        if (n > 0) {
+          System.arraycopy(myLeafKeys, myLeaf * LEAF_STRIDE + myIndex, dst, off + count, n);
+          myIndex += n;
+          count += n;
+        } else {
+          myLeaf = myTree.myLeafNext[myLeaf];
+          myIndex = 0;
+        }
+      }
+      return count;
+    }
+
+    @Override
+    protected boolean findNextAtLeast(#e# value) throws ConcurrentModificationException {
+      if (myLeaf == NO_LEAF) return false;
+      int size = myTree.myLeafSizes[myLeaf];
+      if (size == 0 || myLeafKeys[myLeaf * LEAF_STRIDE + size - 1] < value) {
+        // all keys that are >= value follow the current leaf, so descending from the root is O(log(size))
+        myLeaf = findLeaf(value);
+        myIndex = 0;
+      }
+      int index = leafSearch(myLeaf, value);
+      myIndex = Math.max(myIndex, index >= 0 ? index : -index - 1);
+      return findNext();
+    }
+  }
+}
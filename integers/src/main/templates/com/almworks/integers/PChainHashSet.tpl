@@ -16,10 +16,13 @@
 
 package com.almworks.integers;
 
+import com.almworks.integers.func.#E#Condition;
+import com.almworks.integers.func.#E#Procedure;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.ConcurrentModificationException;
 
 public class #E#ChainHashSet extends AbstractWritable#E#Set implements Writable#E#Set {
   private int[] myHead;
@@ -257,9 +260,59 @@ public class #E#ChainHashSet extends AbstractWritable#E#Set implements Writable#
         }
         return false;
       }
+
+      @Override
+      protected int findNextBatch(#e#[] dst, int off, int len) {
+        int count = 0;
+        while (count < len) {
+          while (myNextRemoved == myCurIndex) {
+            myNextRemoved = myRemoved.nextSetBit(myNextRemoved + 1);
+            myCurIndex++;
+          }
+          int runEnd = myNextRemoved == -1 ? myFront : Math.min(myNextRemoved, myFront);
+          int run = Math.min(runEnd - myCurIndex, len - count);
+          if (run <= 0) break;
+          System.arraycopy(myKeys, myCurIndex, dst, off + count, run);
+          myCurIndex += run;
+          count += run;
+        }
+        return count;
+      }
     });
   }
 
+  @Override
+  public void forEachValue(#E#Procedure procedure) {
+    int modCount = myModCount;
+    #e#[] keys = myKeys;
+    int front = myFront;
+    for (int i = 1, removed = myRemoved.nextSetBit(1); i < front; i++) {
+      if (i == removed) {
+        removed = myRemoved.nextSetBit(i + 1);
+        continue;
+      }
+      procedure.invoke(keys[i]);
+      if (modCount != myModCount) throw new ConcurrentModificationException(modCount + " " + myModCount);
+    }
+  }
+
+  @Override
+  public boolean forEachWhile(#E#Condition condition) {
+    int modCount = myModCount;
+    #e#[] keys = myKeys;
+    int front = myFront;
+    for (int i = 1, removed = myRemoved.nextSetBit(1); i < front; i++) {
+      if (i == removed) {
+        removed = myRemoved.nextSetBit(i + 1);
+        continue;
+      }
+      boolean proceed = condition.invoke(keys[i]);
+      if (modCount != myModCount) throw new ConcurrentModificationException(modCount + " " + myModCount);
+      if (!proceed) return false;
+    }
+    return true;
+  }
+
   public void clear() {
     modified();
     myFront = 1;
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import java.io.*;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact binary encoding of sorted unique #e# values, such as the contents of a sorted unique {@link #E#List}
+ * or a {@link #E#SortedSet}.
+ * <p>
+ * Each value is stored as the gap from the previous one, so sets of close values take a byte or two per value.
+ * The format is:
+ * <ul>
+ * <li>the number of values;
+ * <li>the length of the rest of the data in bytes;
+ * <li>the first value, zigzag-encoded so that small negative values stay short;
+ * <li>for each next value, {@code value - previous - 1}.
+ * </ul>
+ * All numbers are varints: 7 bits per byte starting from the lowest bits, the high bit is set in every byte but the last.
+ * Since the length of the data is known, a reader never reads past its end and several encoded sets may follow each
+ * other in one stream.
+ */
+public class #E#Codecs {
+  private static final int MAX_VARINT_BYTES = (#EW#.SIZE + 6) / 7;
+  private static final int BUFFER_SIZE = 8192;
+
+  /**
+   * @return the encoded {@code sortedUnique}
+   * @throws IllegalArgumentException if {@code sortedUnique} is not sorted unique
+   */
+  public static byte[] encode(#E#SizedIterable sortedUnique) {
+    ByteSink payload = encodePayload(sortedUnique);
+    ByteSink header = encodeHeader(sortedUnique.size(), payload);
+    byte[] res = new byte[header.mySize + payload.mySize];
+    System.arraycopy(header.myBytes, 0, res, 0, header.mySize);
+    System.arraycopy(payload.myBytes, 0, res, header.mySize, payload.mySize);
+    return res;
+  }
+
+  /**
+   * Writes the encoded {@code sortedUnique} into {@code out}. Nothing is written if {@code sortedUnique} is not sorted unique.
+   * @throws IllegalArgumentException if {@code sortedUnique} is not sorted unique
+   */
+  public static void write(#E#SizedIterable sortedUnique, OutputStream out) throws IOException {
+    ByteSink payload = encodePayload(sortedUnique);
+    ByteSink header = encodeHeader(sortedUnique.size(), payload);
+    out.write(header.myBytes, 0, header.mySize);
+    out.write(payload.myBytes, 0, payload.mySize);
+  }
+
+  /**
+   * @throws IllegalArgumentException if {@code data} is not a valid encoding
+   */
+  public static #E#Array decode(byte[] data) {
+    return decodeAll(iterator(data));
+  }
+
+  /**
+   * @return iterator over the values encoded in {@code data}, values are decoded as the iterator advances
+   * @throws IllegalArgumentException if {@code data} is not a valid encoding
+   */
+  public static #E#Iterator iterator(byte[] data) {
+    int[] pos = {0};
+    int count = readLength(data, pos);
+    int length = readLength(data, pos);
+    if (length != data.length - pos[0]) throw new IllegalArgumentException("corrupted data: length " + length + ", " + (data.length - pos[0]) + " bytes left");
+    // every value takes at least one byte
+    if (count > length) throw new IllegalArgumentException("corrupted data: " + count + " values in " + length + " bytes");
+    return count == 0 && length == 0 ? #E#Iterator.EMPTY : new DecodingIterator(data, pos[0], count);
+  }
+
+  /**
+   * Reads one encoded set from {@code in}, leaving the stream right after its end.
+   */
+  public static #E#Array read(InputStream in) throws IOException {
+    try {
+      return decodeAll(readIterator(in));
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Reads the header of an encoded set from {@code in} and returns an iterator that reads and decodes the values
+   * as it advances. The stream must not be used for anything else until the iterator is exhausted.
+   * I/O errors and malformed data met during the iteration are reported as {@link UncheckedIOException}.
+   */
+  public static #E#Iterator readIterator(InputStream in) throws IOException {
+    int count = readLength(in);
+    int length = readLength(in);
+    // every value takes at least one byte
+    if (count > length) throw new StreamCorruptedException(count + " values in " + length + " bytes");
+    return count == 0 && length == 0 ? #E#Iterator.EMPTY : new DecodingIterator(in, length, count);
+  }
+
+  private static #E#Array decodeAll(#E#Iterator iterator) {
+    if (iterator == #E#Iterator.EMPTY) return new #E#Array();
+    DecodingIterator it = (DecodingIterator) iterator;
+    #e#[] values = new #e#[it.myLeft];
+    int count = it.nextBatch(values, 0, values.length);
+    assert count == values.length : count + " " + values.length;
+    if (it.myPos != it.myLimit || it.myUnread != 0) throw it.corrupted("extra bytes after the last value");
+    return new #E#Array(values);
+  }
+
+  private static ByteSink encodePayload(#E#SizedIterable sortedUnique) {
+    int size = sortedUnique.size();
+    ByteSink sink = new ByteSink(size + MAX_VARINT_BYTES);
+    #E#Iterator it = sortedUnique.iterator();
+    if (it.hasNext()) {
+      #e# prev = it.nextValue();
+      sink.writeVarint((prev << 1) ^ (prev >> (#EW#.SIZE - 1)));
+      int count = 1;
+      while (it.hasNext()) {
+        #e# value = it.nextValue();
+        if (value <= prev) throw new IllegalArgumentException("not sorted unique: " + prev + " " + value);
+        // may overflow, but the difference is exact when treated as unsigned
+        sink.writeVarint(value - prev - 1);
+        prev = value;
+        count++;
+      }
+      if (count != size) throw new IllegalArgumentException("size() is " + size + ", iterated " + count);
+    } else if (size != 0) {
+      throw new IllegalArgumentException("size() is " + size + ", iterated 0");
+    }
+    return sink;
+  }
+
+  private static ByteSink encodeHeader(int count, ByteSink payload) {
+    ByteSink header = new ByteSink(2 * MAX_VARINT_BYTES);
+    header.writeVarint(count);
+    header.writeVarint(payload.mySize);
+    return header;
+  }
+
+  private static int readLength(byte[] data, int[] pos) {
+    int res = 0;
+    for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+      if (pos[0] >= data.length) throw new IllegalArgumentException("corrupted data: truncated header");
+      int b = data[pos[0]++] & 0xFF;
+      if (shift > Integer.SIZE - 7 && b >>> (Integer.SIZE - shift) != 0) break;
+      res |= (b & 0x7F) << shift;
+      if (b < 0x80) {
+        if (res < 0) break;
+        return res;
+      }
+    }
+    throw new IllegalArgumentException("corrupted data: bad header");
+  }
+
+  private static int readLength(InputStream in) throws IOException {
+    int res = 0;
+    for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+      int b = in.read();
+      if (b < 0) throw new EOFException();
+      if (shift > Integer.SIZE - 7 && b >>> (Integer.SIZE - shift) != 0) break;
+      res |= (b & 0x7F) << shift;
+      if (b < 0x80) {
+        if (res < 0) break;
+        return res;
+      }
+    }
+    throw new StreamCorruptedException("bad header");
+  }
+
+  private static final class ByteSink {
+    private byte[] myBytes;
+    private int mySize;
+
+    ByteSink(int capacity) {
+      myBytes = new byte[capacity];
+    }
+
+    void writeVarint(#e# value) {
+      if (myBytes.length - mySize < MAX_VARINT_BYTES) {
+        byte[] bytes = new byte[Math.max(myBytes.length * 2, myBytes.length + MAX_VARINT_BYTES)];
+        System.arraycopy(myBytes, 0, bytes, 0, mySize);
+        myBytes = bytes;
+      }
+      byte[] bytes = myBytes;
+      int size = mySize;
+      while ((value & ~0x7F) != 0) {
+        bytes[size++] = (byte) (value | 0x80);
+        value >>>= 7;
+      }
+      bytes[size++] = (byte) value;
+      mySize = size;
+    }
+  }
+
+  private static final class DecodingIterator extends Abstract#E#IteratorWithFlag {
+    /**
+     * The source of the data, or null if all data is in myBuf
+     */
+    private final InputStream myIn;
+    private final byte[] myBuf;
+    private int myPos;
+    private int myLimit;
+    /**
+     * The number of bytes that are still in myIn
+     */
+    private int myUnread;
+    private final int myCount;
+    /**
+     * The number of values that are not decoded yet
+     */
+    private int myLeft;
+    private #e# myValue;
+
+    DecodingIterator(byte[] data, int pos, int count) {
+      myIn = null;
+      myBuf = data;
+      myPos = pos;
+      myLimit = data.length;
+      myCount = myLeft = count;
+    }
+
+    DecodingIterator(InputStream in, int length, int count) {
+      myIn = in;
+      myBuf = new byte[Math.min(length, BUFFER_SIZE)];
+      myUnread = length;
+      myCount = myLeft = count;
+    }
+
+    public boolean hasNext() {
+      return myLeft > 0;
+    }
+
+    protected void nextImpl() throws NoSuchElementException {
+      if (myLeft <= 0) throw new NoSuchElementException();
+      myValue = decodeNext(myValue);
+    }
+
+    protected #e# valueImpl() {
+      return myValue;
+    }
+
+    public int nextBatch(#e#[] dst, int off, int len) {
+      int count = Math.min(len, myLeft);
+      if (count <= 0) return 0;
+      int i = 0;
+      #e# value = myValue;
+      if (myLeft == myCount) {
+        value = decodeNext(value);
+        dst[off + i++] = value;
+      }
+      myLeft -= count - i;
+      for (; i < count; i++) {
+        value += readVarint() + 1;
+        dst[off + i] = value;
+      }
+      myValue = value;
+      myIterated = true;
+      return count;
+    }
+
+    private #e# decodeNext(#e# prev) {
+      #e# v = readVarint();
+      boolean first = myLeft == myCount;
+      myLeft--;
+      return first ? (v >>> 1) ^ -(v & 1) : prev + v + 1;
+    }
+
+    private #e# readVarint() {
+      int pos = myPos;
+      if (myLimit - pos < MAX_VARINT_BYTES) return readVarintSlow();
+      byte[] buf = myBuf;
+      int b0 = buf[pos];
+      if (b0 >= 0) {
+        myPos = pos + 1;
+        return b0;
+      }
+      #e# res = 0;
+      for (int shift = 0; shift < #EW#.SIZE; shift += 7) {
+        int b = buf[pos++];
+        #e# bits = b & 0x7F;
+        res |= bits << shift;
+        if (b >= 0) {
+          if (shift > #EW#.SIZE - 7 && b >>> (#EW#.SIZE - shift) != 0) break;
+          myPos = pos;
+          return res;
+        }
+      }
+      throw corrupted("bad varint");
+    }
+
+    private #e# readVarintSlow() {
+      #e# res = 0;
+      for (int shift = 0; shift < #EW#.SIZE; shift += 7) {
+        if (myPos == myLimit) refill();
+        int b = myBuf[myPos++];
+        #e# bits = b & 0x7F;
+        res |= bits << shift;
+        if (b >= 0) {
+          if (shift > #EW#.SIZE - 7 && b >>> (#EW#.SIZE - shift) != 0) break;
+          return res;
+        }
+      }
+      throw corrupted("bad varint");
+    }
+
+    private void refill() {
+      if (myUnread == 0) throw corrupted("truncated data");
+      try {
+        int read = myIn.read(myBuf, 0, Math.min(myBuf.length, myUnread));
+        if (read < 0) throw new EOFException();
+        myPos = 0;
+        myLimit = read;
+        myUnread -= read;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    RuntimeException corrupted(String message) {
+      if (myIn == null) return new IllegalArgumentException("corrupted data: " + message);
+      return new UncheckedIOException(new StreamCorruptedException(message));
+    }
+  }
+}
@@ -23,6 +23,7 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.almworks.integers.IntegersUtils.EMPTY_#EC#S;
 
@@ -180,19 +181,13 @@ public class #E#Collections {
   public static int removeSubsequentDuplicates(#e#[] array, int offset, int length) {
     if (length < 2)
       return length;
-    int index = offset;
-    length += offset;
-    while (index < length - 1) {
-      #e# prev = array[index];
-      int seqEnd = index + 1;
-      while (seqEnd < length && prev == array[seqEnd])
-        seqEnd++;
-      if (seqEnd > index + 1)
-        System.arraycopy(array, seqEnd, array, index + 1, length - seqEnd);
-      length -= seqEnd - index - 1;
-      index++;
+    int last = offset;
+    for (int i = offset + 1, end = offset + length; i < end; i++) {
+      if (array[i] != array[last]) {
+        array[++last] = array[i];
+      }
     }
-    return length - offset;
+    return last + 1 - offset;
   }
 
   /** @return index of a duplicate (not necessarily leftmost) or -1 if none */
@@ -476,6 +471,8 @@ public class #E#Collections {
    */
   @NotNull
   public static Writable#E#SortedSet toSortedUnion(@NotNull #E#Set first, @NotNull #E#Set second) {
+    Writable#E#SortedSet res = algebraUnionOrNull(first, second);
+    if (res != null) return res;
     #E#Array[] arrays = {first.toArray(), second.toArray()};
     if (!(first instanceof #E#SortedSet)) arrays[0].sort();
     if (!(second instanceof #E#SortedSet)) arrays[1].sort();
@@ -491,13 +488,39 @@ public class #E#Collections {
    */
   @NotNull
   public static Writable#E#SortedSet toSortedIntersection(@NotNull #E#Set first, @NotNull #E#Set second) {
+    Writable#E#SortedSet algebraRes = algebraIntersectionOrNull(first, second);
+    if (algebraRes != null) return algebraRes;
     #E#Array res = collectSetsIntersection(first, second, new #E#Array());
-    if (!(first instanceof #E#SortedSet || second instanceof #E#SortedSet)) {
+    // the values come in the order of the set that was iterated, which may be the unsorted one
+    if (!res.isSorted()) {
       res.sort();
     }
     return #E#AmortizedSet.createFromSortedUniqueArray(res);
   }
 
+  /**
+   * @return the union computed by {@link #E#SetAlgebra} of either operand, or null if neither supports the other one
+   */
+  @Nullable
+  private static Writable#E#SortedSet algebraUnionOrNull(#E#Set first, #E#Set second) {
+    Writable#E#SortedSet res = null;
+    if (first instanceof #E#SetAlgebra) res = ((#E#SetAlgebra) first).unionOrNull(second);
+    if (res == null && second instanceof #E#SetAlgebra) res = ((#E#SetAlgebra) second).unionOrNull(first);
+    return res;
+  }
+
+  /**
+   * @return the intersection computed by {@link #E#SetAlgebra} of either operand, or null if neither supports the
+   * other one
+   */
+  @Nullable
+  private static Writable#E#SortedSet algebraIntersectionOrNull(#E#Set first, #E#Set second) {
+    Writable#E#SortedSet res = null;
+    if (first instanceof #E#SetAlgebra) res = ((#E#SetAlgebra) first).intersectionOrNull(second);
+    if (res == null && second instanceof #E#SetAlgebra) res = ((#E#SetAlgebra) second).intersectionOrNull(first);
+    return res;
+  }
+
   /**
    * @return intersection of the two sets
    */
@@ -508,6 +531,7 @@ public class #E#Collections {
   private static <T extends #E#Collector> T collectSetsIntersection(#E#Set first, #E#Set second, T collector) {
     if (first instanceof #E#SortedSet && second instanceof #E#SortedSet) {
       collector.addAll(new #E#IntersectionIterator(first, second));
+      return collector;
     }
     if (first instanceof #E#SortedSet || first.size() <= second.size()) {
       collectElements(first, second, collector);
@@ -565,6 +589,28 @@ public class #E#Collections {
     return array;
   }
 
+  /**
+   * Computes the union of the specified sorted unique lists on {@link ForkJoinPool#commonPool()}.
+   * @see #parallelUnion(ForkJoinPool, #E#List...)
+   */
+  @NotNull
+  public static #E#Array parallelUnion(#E#List... sortedUniqueLists) {
+    return parallelUnion(ForkJoinPool.commonPool(), sortedUniqueLists);
+  }
+
+  /**
+   * Computes the union of the specified sorted unique lists. The value domain is split into ranges
+   * by binary search in the lists, and the ranges are merged concurrently in {@code pool}.
+   * Small inputs are merged in the calling thread.
+   * @param sortedUniqueLists sorted unique lists, null elements are ignored
+   * @return new sorted unique array
+   * @see #E#UnionIterator
+   */
+  @NotNull
+  public static #E#Array parallelUnion(ForkJoinPool pool, #E#List... sortedUniqueLists) {
+    return #E#ParallelUnion.union(pool, Arrays.asList(sortedUniqueLists));
+  }
+
   /**
    * @return intersection of the specified lists
    * @param aSorted sorted unique {@code #E#List}
@@ -632,7 +678,12 @@ public class #E#Collections {
   public static void sortPairs(final Writable#E#List primary, final Writable#E#List secondary) throws IllegalArgumentException {
     if (primary.size() > secondary.size()) throw new IllegalArgumentException("secondary is shorter than primary: " +
         primary.size() + " > " + secondary.size());
-    IntegersUtils.quicksort(primary.size(), new IntIntToInt() {
+    int size = primary.size();
+    if (size >= #E#RadixSort.ARRAYS_SORT_THRESHOLD) {
+      #E#RadixSort.sorter(size).sortPairs(primary, secondary);
+      return;
+    }
+    IntegersUtils.quicksort(size, new IntIntToInt() {
           @Override
           public int invoke(int i, int j) {
             int comp = #E#Collections.compare(primary.get(i), primary.get(j));
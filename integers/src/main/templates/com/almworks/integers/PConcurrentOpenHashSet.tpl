@@ -0,0 +1,388 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A thread-safe hash set of {@code #e#}'s, implemented using open addressing with linear probing,
+ * like {@link #E#OpenHashSet}.
+ *
+ * <p>The set is split into a fixed number of segments chosen by the high bits of the element hash.
+ * Every segment has its own table and its own lock, so threads that modify different segments
+ * don't contend, and each segment grows independently of the others.
+ * {@link #contains(#e#)} never locks. {@link #include(#e#)} locks the segment only if the element
+ * is not already present, which makes deduplication of mostly repeated values nearly lock-free.
+ *
+ * <p>Removed elements leave a tombstone in their slot until the segment is rehashed,
+ * so concurrent readers always see every element that is not being removed.
+ *
+ * <p>Iterators are weakly consistent: they never throw {@link java.util.ConcurrentModificationException},
+ * return every element that stays in the set during the iteration exactly once,
+ * and may or may not return elements added or removed concurrently.
+ * An element that is removed and added again during the iteration may be returned twice.
+ * {@link #size()}, {@link #clear()} and the bulk operations are not atomic: under concurrent
+ * modification they reflect some interleaving of the per-segment states.
+ *
+ * @see #E#OpenHashSet
+ */
+public class #E#ConcurrentOpenHashSet extends Abstract#E#Set implements Writable#E#Set {
+  final static int DEFAULT_CAPACITY = 16;
+  final static float DEFAULT_LOAD_FACTOR = 0.75f;
+  final static int DEFAULT_CONCURRENCY_LEVEL = IntegersUtils.nextHighestPowerOfTwo(Runtime.getRuntime().availableProcessors() * 4);
+  private final static int MAX_SEGMENTS = 1 << 16;
+  private final static int MIN_SEGMENT_CAPACITY = 4;
+  private final static int MAX_SEGMENT_CAPACITY = 1 << 30;
+
+  private final static int FREE = 0, FULL = 1, REMOVED = 2;
+
+  private final Segment[] mySegments;
+  private final int mySegmentShift;
+  private final int mySegmentMask;
+  private final int mySegmentCapacity;
+  private final float myLoadFactor;
+  private final #e# myPerturbation = System.identityHashCode(this);
+
+  /**
+   * @param initialCapacity the number of elements that the set is expected to hold; the segments grow as needed
+   * @param loadFactor the maximum ratio of used slots to the table length for every segment
+   * @param concurrencyLevel the expected number of concurrently modifying threads; it is rounded up
+   * to a power of two and used as the number of segments
+   */
+  public #E#ConcurrentOpenHashSet(int initialCapacity, float loadFactor, int concurrencyLevel) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+    }
+    if (!(0 < loadFactor && loadFactor < 1)) {
+      throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+    }
+    if (concurrencyLevel <= 0) {
+      throw new IllegalArgumentException("Illegal concurrency level: " + concurrencyLevel);
+    }
+    int segments = IntegersUtils.nextHighestPowerOfTwo(Math.min(concurrencyLevel, MAX_SEGMENTS));
+    mySegmentShift = 32 - Integer.numberOfTrailingZeros(segments);
+    mySegmentMask = segments - 1;
+    myLoadFactor = loadFactor;
+    int perSegment = (int) ((initialCapacity / segments + 1) / loadFactor) + 1;
+    mySegmentCapacity = IntegersUtils.nextHighestPowerOfTwo(Math.max(MIN_SEGMENT_CAPACITY, perSegment));
+    mySegments = new Segment[segments];
+    for (int i = 0; i < segments; i++) {
+      mySegments[i] = new Segment();
+    }
+  }
+
+  /**
+   * Creates new set with default load factor and concurrency level
+   * @see ##E#ConcurrentOpenHashSet(int, float, int)
+   */
+  public #E#ConcurrentOpenHashSet(int initialCapacity) {
+    this(initialCapacity, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
+  }
+
+  /**
+   * Creates new set with default capacity, load factor and concurrency level
+   */
+  public #E#ConcurrentOpenHashSet() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
+  }
+
+  public static #E#ConcurrentOpenHashSet createFrom(#E#Iterable keys) {
+    #E#ConcurrentOpenHashSet set = new #E#ConcurrentOpenHashSet(#E#Collections.sizeOfIterable(keys, 0));
+    set.addAll(keys);
+    return set;
+  }
+
+  public static #E#ConcurrentOpenHashSet createFrom(#e# ... keys) {
+    return createFrom(keys == null ? #E#List.EMPTY : new #E#Array(keys));
+  }
+
+  protected int hash(#e# value) {
+    return IntegersUtils.hash(value ^ myPerturbation);
+  }
+
+  private Segment segmentFor(int hash) {
+    return mySegments[(hash >>> mySegmentShift) & mySegmentMask];
+  }
+
+  @Override
+  public boolean contains(#e# value) {
+    int hash = hash(value);
+    return segmentFor(hash).myTable.find(value, hash) >= 0;
+  }
+
+  @Override
+  public boolean include(#e# value) {
+    int hash = hash(value);
+    Segment segment = segmentFor(hash);
+    return segment.myTable.find(value, hash) < 0 && segment.include(value, hash);
+  }
+
+  @Override
+  public boolean exclude(#e# value) {
+    int hash = hash(value);
+    Segment segment = segmentFor(hash);
+    return segment.myTable.find(value, hash) >= 0 && segment.exclude(value, hash);
+  }
+
+  @Override
+  public void add(#e# value) {
+    include(value);
+  }
+
+  @Override
+  public void remove(#e# value) {
+    exclude(value);
+  }
+
+  @Override
+  public void addAll(#E#List values) {
+    addAll((#E#Iterable) values);
+  }
+
+  @Override
+  public void addAll(#E#Iterable iterable) {
+    for (#E#Iterator it : iterable) {
+      include(it.value());
+    }
+  }
+
+  @Override
+  public void addAll(#e#... values) {
+    if (values != null) {
+      for (#e# value : values) {
+        include(value);
+      }
+    }
+  }
+
+  @Override
+  public void removeAll(#e#... values) {
+    for (#e# value : values) {
+      exclude(value);
+    }
+  }
+
+  @Override
+  public void removeAll(#E#Iterable iterable) {
+    for (#E#Iterator it : iterable) {
+      exclude(it.value());
+    }
+  }
+
+  /**
+   * Removes the elements that are not contained in {@code values} one by one,
+   * so the elements that are retained stay visible to concurrent readers.
+   */
+  @Override
+  public void retain(#E#List values) {
+    #E#OpenHashSet retained = #E#OpenHashSet.createFrom(values);
+    for (#E#Iterator it : this) {
+      #e# value = it.value();
+      if (!retained.contains(value)) exclude(value);
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (Segment segment : mySegments) {
+      segment.clear();
+    }
+  }
+
+  /**
+   * @return the sum of the segment sizes; under concurrent modification this is only an estimate
+   */
+  @Override
+  public int size() {
+    long size = 0;
+    for (Segment segment : mySegments) {
+      size += segment.mySize;
+    }
+    return (int) Math.min(size, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public #E#Array toArray() {
+    #E#Array array = new #E#Array(size());
+    array.addAll(iterator());
+    return array;
+  }
+
+  @Override
+  protected void toNativeArrayImpl(#e#[] dest, int destPos) {
+    for (#E#Iterator it = iterator(); destPos < dest.length && it.hasNext(); ) {
+      dest[destPos++] = it.nextValue();
+    }
+  }
+
+  /**
+   * @return weakly consistent iterator, see the class description
+   */
+  @NotNull
+  public #E#Iterator iterator() {
+    return new #E#FindingIterator() {
+      private int mySegment = 0;
+      private Table myTable;
+      private int mySlot;
+
+      @Override
+      protected boolean findNext() {
+        while (nextTable()) {
+          while (mySlot < myTable.keys.length) {
+            int slot = mySlot++;
+            if (myTable.states.get(slot) == FULL) {
+              myNext = myTable.keys[slot];
+              return true;
+            }
+          }
+          myTable = null;
+        }
+        return false;
+      }
+
+      @Override
+      protected int findNextBatch(#e#[] dst, int off, int len) {
+        int count = 0;
+        while (count < len && nextTable()) {
+          while (count < len && mySlot < myTable.keys.length) {
+            int slot = mySlot++;
+            if (myTable.states.get(slot) == FULL) {
+              dst[off + count++] = myTable.keys[slot];
+            }
+          }
+          if (mySlot == myTable.keys.length) myTable = null;
+        }
+        return count;
+      }
+
+      private boolean nextTable() {
+        if (myTable == null) {
+          if (mySegment == mySegments.length) return false;
+          myTable = mySegments[mySegment++].myTable;
+          mySlot = 0;
+        }
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Slot {@code i} is published by writing {@code keys[i]} and then {@code states[i]}; a key is written
+   * at most once per table, so a reader that sees {@code FULL} sees the key as well.
+   * Tables are replaced as a whole on rehash.
+   */
+  private static final class Table {
+    final #e#[] keys;
+    final AtomicIntegerArray states;
+    final int mask;
+
+    Table(int length) {
+      keys = new #e#[length];
+      states = new AtomicIntegerArray(length);
+      mask = length - 1;
+    }
+
+    /**
+     * @return slot of {@code value}, or {@code -1 - slot} where {@code slot} is the first free slot
+     */
+    int find(#e# value, int hash) {
+      int slot = hash & mask;
+      int state;
+      while ((state = states.get(slot)) != FREE) {
+        if (state == FULL && keys[slot] == value) return slot;
+        slot = (slot + 1) & mask;
+      }
+      return -1 - slot;
+    }
+  }
+
+  private final class Segment {
+    volatile Table myTable;
+    volatile int mySize;
+    /** number of slots that are not free: elements and tombstones */
+    private int myUsed;
+    private int myThreshold;
+
+    Segment() {
+      reset(new Table(mySegmentCapacity));
+    }
+
+    private void reset(Table table) {
+      myThreshold = Math.min(table.keys.length - 1, Math.max(1, (int) (table.keys.length * myLoadFactor)));
+      myTable = table;
+    }
+
+    synchronized boolean include(#e# value, int hash) {
+      Table table = myTable;
+      int slot = table.find(value, hash);
+      if (slot >= 0) return false;
+      if (myUsed + 1 > myThreshold) {
+        table = rehash();
+        slot = table.find(value, hash);
+      }
+      slot = -1 - slot;
+      table.keys[slot] = value;
+      table.states.set(slot, FULL);
+      myUsed++;
+      mySize = mySize + 1;
+      return true;
+    }
+
+    synchronized boolean exclude(#e# value, int hash) {
+      Table table = myTable;
+      int slot = table.find(value, hash);
+      if (slot < 0) return false;
+      table.states.set(slot, REMOVED);
+      mySize = mySize - 1;
+      return true;
+    }
+
+    synchronized void clear() {
+      myUsed = 0;
+      mySize = 0;
+      reset(new Table(mySegmentCapacity));
+    }
+
+    /**
+     * Copies the elements to a new table, dropping the tombstones. The table grows only if
+     * the elements themselves take more than half of the threshold.
+     */
+    private Table rehash() {
+      Table old = myTable;
+      int length = old.keys.length;
+      if (mySize + 1 > myThreshold / 2 && length < MAX_SEGMENT_CAPACITY) {
+        length <<= 1;
+      }
+      Table table = new Table(length);
+      for (int i = 0; i < old.keys.length; i++) {
+        if (old.states.get(i) == FULL) {
+          #e# key = old.keys[i];
+          int slot = -1 - table.find(key, hash(key));
+          table.keys[slot] = key;
+          table.states.lazySet(slot, FULL);
+        }
+      }
+      myUsed = mySize;
+      reset(table);
+      return table;
+    }
+  }
+}
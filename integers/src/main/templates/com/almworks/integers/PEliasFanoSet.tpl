@@ -0,0 +1,340 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.NoSuchElementException;
+
+import static com.almworks.integers.IntegersUtils.EMPTY_LONGS;
+
+/**
+ * Immutable sorted set in the Elias&ndash;Fano representation, taking about {@code 2 + log(U/n)} bits per element
+ * where {@code U} is the difference between the greatest and the smallest element.
+ * <p>
+ * Each value, taken as the offset from the smallest element, is split into the lower {@code L = floor(log(U/n))} bits,
+ * stored as is in a packed bit array, and the upper bits, stored in unary: element {@code i} with upper bits {@code h}
+ * sets bit {@code h + i} in the upper bit array. Positions of every 256th one and zero of the upper bit array are
+ * sampled, so {@link #get(int)}, {@link #indexOf(#e#)}, {@link #contains(#e#)} and {@link #tailIterator(#e#)}
+ * take near-constant time.
+ * <p>
+ * Iterators over this set skip efficiently with {@link #E#Iterator#advanceTo(#e#)}.
+ */
+public final class #E#EliasFanoSet extends Abstract#E#Set implements #E#SortedSet {
+  private static final int SAMPLE_BITS = 8;
+  /**
+   * Converts unsigned #e# to long
+   */
+  private static final long UNSIGNED = -1L >>> (Long.SIZE - #EW#.SIZE);
+
+  private final int mySize;
+  private final #e# myFirst;
+  private final #e# myLast;
+
+  private final int myLowBits;
+  private final long myLowMask;
+  private final long[] myLow;
+
+  private final long[] myHigh;
+  /**
+   * mySelect1[k] is the position of the one number {@code k << SAMPLE_BITS} in myHigh
+   */
+  private final long[] mySelect1;
+  /**
+   * mySelect0[k] is the position of the zero number {@code k << SAMPLE_BITS} in myHigh
+   */
+  private final long[] mySelect0;
+
+  /**
+   * @param src sorted unique values, for example the result of {@link #E#SetBuilder#commitToArray()}
+   * @throws IllegalArgumentException if {@code src} is not sorted unique
+   */
+  public static #E#EliasFanoSet createFromSortedUnique(#E#Iterable src) {
+    if (src instanceof #E#SortedSet) {
+      #E#SortedSet set = (#E#SortedSet) src;
+      return new #E#EliasFanoSet(set.size(), set.getLowerBound(), set.getUpperBound(), set.iterator());
+    }
+    #E#List list = src instanceof #E#List ? (#E#List) src : new #E#Array(src.iterator());
+    int size = list.size();
+    return size == 0 ? new #E#EliasFanoSet(0, 0, 0, #E#Iterator.EMPTY) :
+      new #E#EliasFanoSet(size, list.get(0), list.get(size - 1), list.iterator());
+  }
+
+  private #E#EliasFanoSet(int size, #e# first, #e# last, #E#Iterator values) {
+    mySize = size;
+    myFirst = first;
+    myLast = last;
+    if (size == 0) {
+      myLowBits = 0;
+      myLowMask = 0;
+      myLow = myHigh = mySelect1 = mySelect0 = EMPTY_LONGS;
+      if (values.hasNext()) throw new IllegalArgumentException("more than 0 values");
+      return;
+    }
+    #e# range = last - first;
+    #e# perElement = #EW#.divideUnsigned(range, size);
+    myLowBits = perElement == 0 ? 0 : #EW#.SIZE - 1 - #EW#.numberOfLeadingZeros(perElement);
+    myLowMask = (1L << myLowBits) - 1;
+    myLow = new long[(int) (((long) size * myLowBits + 63) >>> 6)];
+    long highLength = ((range >>> myLowBits) & UNSIGNED) + size + 1;
+    myHigh = new long[(int) ((highLength + 63) >>> 6)];
+
+    int i = 0;
+    #e# prev = first;
+    while (values.hasNext()) {
+      #e# value = values.nextValue();
+      if (i == 0 ? value != first : value <= prev) throw new IllegalArgumentException("not sorted unique: " + prev + " " + value);
+      if (i == size) throw new IllegalArgumentException("more than " + size + " values");
+      #e# x = value - first;
+      long pos = ((x >>> myLowBits) & UNSIGNED) + i;
+      myHigh[(int) (pos >>> 6)] |= 1L << pos;
+      if (myLowBits > 0) writeLow(i, x & myLowMask);
+      prev = value;
+      i++;
+    }
+    if (i != size || prev != last) throw new IllegalArgumentException("expected " + size + " values up to " + last + ", got " + i + " up to " + prev);
+
+    long zeros = highLength - size;
+    mySelect1 = new long[((size - 1) >>> SAMPLE_BITS) + 1];
+    mySelect0 = new long[(int) ((zeros - 1) >>> SAMPLE_BITS) + 1];
+    int k1 = 0, k0 = 0;
+    long ones = 0;
+    for (int w = 0; w < myHigh.length; w++) {
+      long word = myHigh[w];
+      int count = Long.bitCount(word);
+      for (long rank; k1 < mySelect1.length && (rank = ((long) k1 << SAMPLE_BITS) - ones) < count; k1++) {
+        mySelect1[k1] = ((long) w << 6) + selectInWord(word, (int) rank);
+      }
+      long zerosBefore = ((long) w << 6) - ones;
+      for (long rank; k0 < mySelect0.length && (rank = ((long) k0 << SAMPLE_BITS) - zerosBefore) < 64 - count; k0++) {
+        mySelect0[k0] = ((long) w << 6) + selectInWord(~word, (int) rank);
+      }
+      ones += count;
+    }
+    assert k1 == mySelect1.length && k0 == mySelect0.length : k1 + " " + k0;
+  }
+
+  public int size() {
+    return mySize;
+  }
+
+  public boolean contains(#e# value) {
+    int index = lowerBoundIndex(value);
+    return index < mySize && get(index) == value;
+  }
+
+  /**
+   * @return the {@code index}-th smallest element
+   * @throws IndexOutOfBoundsException if {@code index < 0 || index >= size()}
+   */
+  public #e# get(int index) {
+    if (index < 0 || index >= mySize) throw new IndexOutOfBoundsException(index + " " + mySize);
+    return valueAt(index, select1(index));
+  }
+
+  /**
+   * @return the index of {@code value} in the ascending order of the elements, or -1 if it is not in this set
+   */
+  public int indexOf(#e# value) {
+    int index = lowerBoundIndex(value);
+    return index < mySize && get(index) == value ? index : -1;
+  }
+
+  @NotNull
+  public #E#Iterator iterator() {
+    return new EliasFanoIterator(0);
+  }
+
+  public #E#Iterator tailIterator(#e# fromElement) {
+    return new EliasFanoIterator(lowerBoundIndex(fromElement));
+  }
+
+  public #e# getUpperBound() {
+    return mySize == 0 ? #EW#.MIN_VALUE : myLast;
+  }
+
+  public #e# getLowerBound() {
+    return mySize == 0 ? #EW#.MAX_VALUE : myFirst;
+  }
+
+  @Override
+  protected void toNativeArrayImpl(#e#[] dest, int destPos) {
+    iterator().nextBatch(dest, destPos, mySize);
+  }
+
+  /**
+   * @return the index of the smallest element that is greater than or equal to {@code value}, or {@code size()}
+   */
+  private int lowerBoundIndex(#e# value) {
+    if (mySize == 0 || value <= myFirst) return 0;
+    if (value > myLast) return mySize;
+    #e# x = value - myFirst;
+    long high = (x >>> myLowBits) & UNSIGNED;
+    long low = x & myLowMask;
+    // the elements with upper bits equal to high are the ones between the zeros number high - 1 and high;
+    // their lower bits are sorted, so a dense run that shares the upper bits is searched in logarithmic time
+    int from = (int) ((high == 0 ? 0 : select0(high - 1) + 1) - high);
+    int to = (int) (select0(high) - high);
+    while (from < to) {
+      int mid = (from + to) >>> 1;
+      if (readLow(mid) < low) from = mid + 1;
+      else to = mid;
+    }
+    return from;
+  }
+
+  private #e# valueAt(int index, long pos) {
+    #e# value = myFirst;
+    // the compound assignment narrows the offset to #e#
+    value += (pos - index) << myLowBits | readLow(index);
+    return value;
+  }
+
+  private long readLow(int index) {
+    if (myLowBits == 0) return 0;
+    long bit = (long) index * myLowBits;
+    int w = (int) (bit >>> 6);
+    int offset = (int) bit & 63;
+    long res = myLow[w] >>> offset;
+    if (offset + myLowBits > 64) res |= myLow[w + 1] << (64 - offset);
+    return res & myLowMask;
+  }
+
+  private void writeLow(int index, long low) {
+    long bit = (long) index * myLowBits;
+    int w = (int) (bit >>> 6);
+    int offset = (int) bit & 63;
+    myLow[w] |= low << offset;
+    if (offset + myLowBits > 64) myLow[w + 1] |= low >>> (64 - offset);
+  }
+
+  /**
+   * @return position of the one number {@code rank} in myHigh
+   */
+  private long select1(int rank) {
+    int k = rank >>> SAMPLE_BITS;
+    long pos = mySelect1[k];
+    int left = rank - (k << SAMPLE_BITS);
+    int w = (int) (pos >>> 6);
+    long word = myHigh[w] & (-1L << pos);
+    while (true) {
+      int count = Long.bitCount(word);
+      if (left < count) return ((long) w << 6) + selectInWord(word, left);
+      left -= count;
+      word = myHigh[++w];
+    }
+  }
+
+  /**
+   * @return position of the zero number {@code rank} in myHigh
+   */
+  private long select0(long rank) {
+    int k = (int) (rank >>> SAMPLE_BITS);
+    long pos = mySelect0[k];
+    int left = (int) (rank - ((long) k << SAMPLE_BITS));
+    int w = (int) (pos >>> 6);
+    long word = ~myHigh[w] & (-1L << pos);
+    while (true) {
+      int count = Long.bitCount(word);
+      if (left < count) return ((long) w << 6) + selectInWord(word, left);
+      left -= count;
+      word = ~myHigh[++w];
+    }
+  }
+
+  /**
+   * @return position of the set bit number {@code rank} in {@code word}
+   */
+  private static int selectInWord(long word, int rank) {
+    for (int i = 0; i < rank; i++) {
+      word &= word - 1;
+    }
+    return Long.numberOfTrailingZeros(word);
+  }
+
+  private class EliasFanoIterator extends Abstract#E#IteratorWithFlag {
+    /**
+     * Index of the next value
+     */
+    private int myNextIndex;
+    /**
+     * Position in myHigh of the current value, the search for the next value starts after it
+     */
+    private long myPos;
+    private #e# myValue;
+
+    EliasFanoIterator(int index) {
+      seek(index);
+    }
+
+    private void seek(int index) {
+      myNextIndex = index;
+      myPos = index < mySize ? select1(index) - 1 : -1;
+    }
+
+    public boolean hasNext() {
+      return myNextIndex < mySize;
+    }
+
+    protected void nextImpl() throws NoSuchElementException {
+      if (myNextIndex >= mySize) throw new NoSuchElementException();
+      myPos = nextOne(myPos + 1);
+      myValue = valueAt(myNextIndex++, myPos);
+    }
+
+    protected #e# valueImpl() {
+      return myValue;
+    }
+
+    public int nextBatch(#e#[] dst, int off, int len) {
+      int count = Math.min(len, mySize - myNextIndex);
+      if (count <= 0) return 0;
+      long pos = myPos;
+      int index = myNextIndex;
+      for (int i = 0; i < count; i++) {
+        pos = nextOne(pos + 1);
+        dst[off + i] = valueAt(index++, pos);
+      }
+      myPos = pos;
+      myNextIndex = index;
+      myValue = dst[off + count - 1];
+      myIterated = true;
+      return count;
+    }
+
+    public boolean advanceTo(#e# value) {
+      if (myIterated && myValue >= value) return true;
+      if (myNextIndex >= mySize) return false;
+      int index = Math.max(lowerBoundIndex(value), myNextIndex);
+      if (index >= mySize) index = mySize - 1;
+      seek(index);
+      next();
+      return myValue >= value;
+    }
+
+    private long nextOne(long from) {
+      int w = (int) (from >>> 6);
+      long word = myHigh[w] & (-1L << from);
+      while (word == 0) {
+        word = myHigh[++w];
+      }
+      return ((long) w << 6) + Long.numberOfTrailingZeros(word);
+    }
+  }
+}
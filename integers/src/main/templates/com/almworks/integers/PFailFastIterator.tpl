@@ -44,6 +44,16 @@ public abstract class #E#FailFastIterator<T extends #E#Iterator> extends Abstrac
     return this;
   }
 
+  public int nextBatch(#e#[] dst, int off, int len) throws ConcurrentModificationException {
+    checkMod();
+    return getIterator().nextBatch(dst, off, len);
+  }
+
+  public boolean advanceTo(#e# value) throws ConcurrentModificationException {
+    checkMod();
+    return getIterator().advanceTo(value);
+  }
+
   public boolean hasValue() throws ConcurrentModificationException {
     checkMod();
     return getIterator().hasValue();
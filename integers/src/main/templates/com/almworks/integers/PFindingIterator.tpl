@@ -65,6 +65,77 @@ public abstract class #E#FindingIterator extends Abstract#E#Iterator {
     return this;
   }
 
+  public int nextBatch(#e#[] dst, int off, int len) throws ConcurrentModificationException {
+    if (len <= 0 || myIteratorStatus == FINISHED) return 0;
+    int count = 0;
+    if (myIteratorStatus == CACHED) {
+      dst[off] = myCurrent = myNext;
+      count = 1;
+      myIteratorStatus = NO_CACHED;
+      myIterated = true;
+    }
+    if (count < len) {
+      int found = findNextBatch(dst, off + count, len - count);
+      if (found < len - count) {
+        myIteratorStatus = FINISHED;
+      }
+      count += found;
+    }
+    if (count > 0) {
+      myCurrent = dst[off + count - 1];
+      myIterated = true;
+    }
+    return count;
+  }
+
+  /**
+   * Finds at most {@code len} next values and writes them to {@code dst} starting from {@code off}.
+   * Override if the values can be found faster than by repeated calls to {@link #findNext()}.
+   * @return the number of found values; returning less than {@code len} means that there are no more values
+   */
+  protected int findNextBatch(#e#[] dst, int off, int len) throws ConcurrentModificationException {
+    int count = 0;
+    while (count < len && findNext()) {
+      // findNext() may rely on value()
+      dst[off + count++] = myCurrent = myNext;
+      myIterated = true;
+    }
+    return count;
+  }
+
+  public boolean advanceTo(#e# value) throws ConcurrentModificationException {
+    if (myIterated && myCurrent >= value) return true;
+    if (myIteratorStatus == FINISHED) return false;
+    if (myIteratorStatus == CACHED) {
+      myCurrent = myNext;
+      myIteratorStatus = NO_CACHED;
+      myIterated = true;
+      if (myCurrent >= value) return true;
+    }
+    if (!findNextAtLeast(value)) {
+      myIteratorStatus = FINISHED;
+      return false;
+    }
+    myCurrent = myNext;
+    myIterated = true;
+    return true;
+  }
+
+  /**
+   * Same as {@link #findNext()}, but skips the values that are less than {@code value}.
+   * Override if the values can be skipped faster than by repeated calls to {@link #findNext()}.
+   * @return true if such value exists and was assigned to {@code myNext}, otherwise false
+   */
+  protected boolean findNextAtLeast(#e# value) throws ConcurrentModificationException {
+    while (findNext()) {
+      if (myNext >= value) return true;
+      // findNext() may rely on value()
+      myCurrent = myNext;
+      myIterated = true;
+    }
+    return false;
+  }
+
   public #e# value() throws NoSuchElementException {
     if (!myIterated) {
       throw new NoSuchElementException();
@@ -23,6 +23,7 @@ import java.util.List;
 
 /**
  * Iterates through a list of sorted unique #e# lists in O(N), where N - total length of iterables,
+ * or faster if the iterators can skip values, see {@link #E#Iterator#advanceTo(#e#)}
  * @author Eugene Vagin
  */
 public class #E#IntersectionIterator extends #E#FindingIterator {
@@ -57,35 +58,38 @@ public class #E#IntersectionIterator extends #E#FindingIterator {
       myIts.get(i).next();
     }
     myNext = myIts.get(0).value();
+    return findCommon();
+  }
+
+  @Override
+  protected boolean findNextAtLeast(#e# value) throws ConcurrentModificationException {
+    if (myIts.size() == 0) return false;
+    myNext = value;
+    return findCommon();
+  }
 
+  /**
+   * Advances the iterators to the first value that is greater than or equal to {@code myNext}
+   * and is contained in all of them, and assigns it to {@code myNext}
+   */
+  private boolean findCommon() {
     boolean ok;
     do {
       ok = true;
       for (int i = 0; i < myIts.size(); i++) {
-        if (!accept(myIts.get(i))) {
-          if (myIts.get(i).value() < myNext) {
-            return false;
-          } else {
-            ok = false;
-            myNext = myIts.get(i).value();
-            break;
-          }
+        #E#Iterator it = myIts.get(i);
+        // sorted lists and sets skip to myNext in O(log(distance)), so a short input
+        // intersected with a long one costs O(m * log(n / m)) instead of O(n + m)
+        if (!it.advanceTo(myNext)) {
+          return false;
+        }
+        if (it.value() != myNext) {
+          ok = false;
+          myNext = it.value();
+          break;
         }
       }
     } while (!ok);
     return true;
   }
-
-  private boolean accept(#E#Iterator it) {
-    assert it.hasValue();
-    while (it.value() < myNext) {
-      #e# prev = it.value();
-      if (!it.hasNext()) {
-        return false;
-      }
-      it.next();
-      assert prev < it.value() : prev + " " + it.value();
-    }
-    return it.value() == myNext;
-  }
 }
\ No newline at end of file
@@ -18,6 +18,8 @@
 
 package com.almworks.integers;
 
+import com.almworks.integers.func.#E#Condition;
+import com.almworks.integers.func.#E#Procedure;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -32,4 +34,28 @@ public interface #E#Iterable extends Iterable<#E#Iterator> {
    */
   @NotNull
   #E#Iterator iterator();
+
+  /**
+   * Calls {@code procedure} for every value in the order of {@link #iterator()}.
+   * Collections override it with a loop over their storage that does not allocate an iterator.
+   */
+  default void forEachValue(#E#Procedure procedure) {
+    #E#Iterator it = iterator();
+    while (it.hasNext()) {
+      procedure.invoke(it.nextValue());
+    }
+  }
+
+  /**
+   * Calls {@code condition} for the values in the order of {@link #iterator()} until it returns false.
+   * @return true if {@code condition} returned true for all values
+   * @see #forEachValue(#E#Procedure)
+   */
+  default boolean forEachWhile(#E#Condition condition) {
+    #E#Iterator it = iterator();
+    while (it.hasNext()) {
+      if (!condition.invoke(it.nextValue())) return false;
+    }
+    return true;
+  }
 }
@@ -56,6 +56,41 @@ public interface #E#Iterator extends #E#Iterable, Iterator<#E#Iterator> {
   */
   #e# nextValue() throws ConcurrentModificationException, NoSuchElementException;
 
+  /**
+   * Advances the iterator at most {@code len} times, writing the values to {@code dst} starting from {@code off}.
+   * The effect is the same as calling {@link #nextValue()} while {@link #hasNext()} returns {@code true}
+   * and fewer than {@code len} values are written, which is what the default implementation does;
+   * implementations backed by arrays copy whole runs at once.
+   * After the call {@link #value()} returns the last written value, if any.
+   * @return the number of written values; less than {@code len} only if the iterator has reached an end
+   * @throws ConcurrentModificationException if underlying collection is concurrently modified
+   */
+  default int nextBatch(#e#[] dst, int off, int len) throws ConcurrentModificationException {
+    int count = 0;
+    while (count < len && hasNext()) {
+      dst[off + count++] = nextValue();
+    }
+    return count;
+  }
+
+  /**
+   * Advances the iterator to the first value that is greater than or equal to {@code value};
+   * does nothing if {@link #value()} already is.
+   * This method assumes that the values go in ascending order. If not sorted the result is unpredictable.
+   * Iterators over sorted lists and sets skip the values in between in logarithmic time,
+   * the default implementation calls {@link #nextValue()} until the condition holds.
+   * @return {@code true} if {@link #value()} is now greater than or equal to {@code value};
+   * {@code false} if there is no such value, in which case the iterator has reached an end
+   * @throws ConcurrentModificationException if underlying collection is concurrently modified
+   */
+  default boolean advanceTo(#e# value) throws ConcurrentModificationException {
+    if (hasValue() && value() >= value) return true;
+    while (hasNext()) {
+      if (nextValue() >= value) return true;
+    }
+    return false;
+  }
+
   class Single extends Abstract#E#IteratorWithFlag {
     private #e# myValue;
 
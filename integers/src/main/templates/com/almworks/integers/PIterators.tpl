@@ -231,6 +231,18 @@ public class #E#Iterators {
     };
   }
 
+  /**
+   * Implements {@link Writable#E#SortedSet#subSetIterator(int, int)} by {@link Writable#E#SortedSet#select(int)}
+   * and {@link Writable#E#SortedSet#tailIterator(#e#)}.
+   */
+  static #E#Iterator subSetIterator(Writable#E#SortedSet set, int fromIndex, int toIndex) {
+    int size = set.size();
+    if (fromIndex < 0 || toIndex > size || fromIndex > toIndex)
+      throw new IndexOutOfBoundsException(fromIndex + " " + toIndex + " " + size);
+    if (fromIndex == toIndex) return #E#Iterator.EMPTY;
+    return limit(set.tailIterator(set.select(fromIndex)), toIndex - fromIndex);
+  }
+
   /**
    * @see #E#Progression#range(#e#, #e#, #e#)
    */
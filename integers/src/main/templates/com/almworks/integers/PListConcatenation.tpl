@@ -21,28 +21,108 @@ package com.almworks.integers;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.List;
 
 /**
  * List that allows to access a concatenation of several lists (here called slices) as a list
  * as if they go one after the other.
  * <br>Changes in lists propagate to this list — added / removed values are immediately visible through this list.
- * <br>Because of that, {@link #get(int)}, {@link #indexOf(#e#)}, {@link #size()}, {@link #isEmpty()} are O(n).
+ * <br>Because of that, {@link #get(int)}, {@link #indexOf(#e#)}, {@link #size()}, {@link #isEmpty()} are O(n),
+ * where n is the number of slices.
+ * <br>If sizes of the slices do not change, use {@link #withFixedSliceSizes}: such a list keeps the sums of slice sizes,
+ * so {@link #get(int)} is O(log n), {@link #size()} and {@link #isEmpty()} are O(1), and its iterators do not look
+ * for the slice on every step. If a size changes anyway, {@link #sliceSizesChanged()} must be called.
  * <br>Slices can be added during the lifetime of the list.
  */
 public class #E#ListConcatenation extends Abstract#E#List {
   private final List<#E#List> mySlices = IntegersUtils.arrayList();
+  private final boolean myFixedSliceSizes;
+  /**
+   * If {@link #myFixedSliceSizes}, {@code myPrefixSizes[i]} is the total size of the slices before slice {@code i},
+   * {@code myPrefixSizes[getSliceCount()]} is the size of the list. Built lazily, null if not built.
+   */
+  private int[] myPrefixSizes;
 
   public #E#ListConcatenation() {
+    this(false);
   }
 
   public #E#ListConcatenation(#E#List... collections) {
+    this(false, collections);
+  }
+
+  private #E#ListConcatenation(boolean fixedSliceSizes, #E#List... collections) {
+    myFixedSliceSizes = fixedSliceSizes;
     mySlices.addAll(Arrays.asList(collections));
   }
 
+  /**
+   * Creates a concatenation of slices whose sizes must not change, while values may be changed.
+   * If sizes do change, call {@link #sliceSizesChanged()} before the next access to this list. Otherwise the results
+   * of this list are undefined; as a best effort, reading from a slice whose size has changed throws
+   * {@link ConcurrentModificationException}.
+   */
+  public static #E#ListConcatenation withFixedSliceSizes(#E#List... collections) {
+    return new #E#ListConcatenation(true, collections);
+  }
+
+  /**
+   * Drops the sums of slice sizes kept by a list created with {@link #withFixedSliceSizes}.
+   */
+  public void sliceSizesChanged() {
+    myPrefixSizes = null;
+  }
+
+  private int[] prefixSizes() {
+    if (myPrefixSizes == null) {
+      int slices = mySlices.size();
+      int[] prefixSizes = new int[slices + 1];
+      for (int i = 0; i < slices; i++) {
+        prefixSizes[i + 1] = prefixSizes[i] + mySlices.get(i).size();
+      }
+      myPrefixSizes = prefixSizes;
+    }
+    return myPrefixSizes;
+  }
+
+  /**
+   * Checks the size of the slice against the sums of slice sizes.
+   * @throws ConcurrentModificationException if the slice has changed its size since the sums were built
+   */
+  private void checkSliceSize(int[] prefixSizes, int slice) {
+    int size = mySlices.get(slice).size();
+    if (size != prefixSizes[slice + 1] - prefixSizes[slice])
+      throw new ConcurrentModificationException("slice " + slice + " has changed its size: " + (prefixSizes[slice + 1] - prefixSizes[slice]) + " " + size);
+  }
+
+  /**
+   * @return the number of the slice that contains {@code index}, requires {@link #myFixedSliceSizes}
+   * @throws IndexOutOfBoundsException if {@code index} is not in this list
+   */
+  private int sliceOf(int[] prefixSizes, int index) {
+    int to = prefixSizes.length - 1;
+    if (index < 0 || index >= prefixSizes[to]) throw new IndexOutOfBoundsException(index + " " + prefixSizes[to]);
+    // the last slice i with prefixSizes[i] <= index; it is not empty
+    int from = 0;
+    while (from < to) {
+      int mid = (from + to + 1) >>> 1;
+      if (prefixSizes[mid] <= index) from = mid;
+      else to = mid - 1;
+    }
+    return from;
+  }
+
   public #e#[] toNativeArray(int sourceOffset, #e#[] dest, int destOffset, int length) {
     int slices = mySlices.size();
-    for (int i = 0; i < slices && length > 0; i++) {
+    int i = 0;
+    if (myFixedSliceSizes && length > 0) {
+      int[] prefixSizes = prefixSizes();
+      i = sliceOf(prefixSizes, sourceOffset);
+      checkSliceSize(prefixSizes, i);
+      sourceOffset -= prefixSizes[i];
+    }
+    for (; i < slices && length > 0; i++) {
       #E#List list = mySlices.get(i);
       int size = list.size();
       if (sourceOffset >= size) {
@@ -70,6 +150,7 @@ public class #E#ListConcatenation extends Abstract#E#List {
   }
 
   public int size() {
+    if (myFixedSliceSizes) return prefixSizes()[mySlices.size()];
     int size = 0;
     //noinspection ForLoopReplaceableByForEach
     for (int i = 0; i < mySlices.size(); i++) {
@@ -80,6 +161,12 @@ public class #E#ListConcatenation extends Abstract#E#List {
   }
 
   public #e# get(int index) {
+    if (myFixedSliceSizes) {
+      int[] prefixSizes = prefixSizes();
+      int slice = sliceOf(prefixSizes, index);
+      checkSliceSize(prefixSizes, slice);
+      return mySlices.get(slice).get(index - prefixSizes[slice]);
+    }
     // Rewrite iterator(int, int) before replacing FOR with FOR-EACH
     //noinspection ForLoopReplaceableByForEach
     for (int i = 0; i < mySlices.size(); i++) {
@@ -93,6 +180,7 @@ public class #E#ListConcatenation extends Abstract#E#List {
   }
 
   public boolean isEmpty() {
+    if (myFixedSliceSizes) return size() == 0;
     for (#E#List list : mySlices) {
       if (!list.isEmpty())
         return false;
@@ -106,8 +194,9 @@ public class #E#ListConcatenation extends Abstract#E#List {
       assert from == to : from + " " + to;
       return #E#Iterator.EMPTY;
     }
-    // todo effective
-    return super.iterator(from, to);
+    // without fixed sizes, any slice may change its size between two steps, so every step has to locate its slice
+    if (!myFixedSliceSizes) return super.iterator(from, to);
+    return new SliceIterator(from, to);
   }
 
   public int getSliceCount() {
@@ -116,6 +205,7 @@ public class #E#ListConcatenation extends Abstract#E#List {
 
   public void addSlice(#E#List collection) {
     mySlices.add(collection);
+    myPrefixSizes = null;
   }
 
   public static #E#List concatUnmodifiable(#E#List... lists) {
@@ -140,4 +230,38 @@ public class #E#ListConcatenation extends Abstract#E#List {
     }
     return r;
   }
+
+  /**
+   * Iterator over a list with {@link #myFixedSliceSizes}. Remembers the slice of the last accessed index,
+   * so that sequential access doesn't locate the slice again.
+   */
+  private class SliceIterator extends Abstract#E#ListIndexIterator {
+    private #E#List mySliceList;
+    private int mySliceFrom;
+    private int mySliceTo;
+
+    SliceIterator(int from, int to) {
+      super(from, to);
+    }
+
+    @Override
+    protected #e# absget(int index) {
+      if (index < mySliceFrom || index >= mySliceTo) {
+        locate(index);
+      } else if (mySliceList.size() != mySliceTo - mySliceFrom) {
+        throw new ConcurrentModificationException("slice has changed its size: " + (mySliceTo - mySliceFrom) + " " + mySliceList.size());
+      }
+      return mySliceList.get(index - mySliceFrom);
+    }
+
+    private void locate(int index) {
+      int[] prefixSizes = myPrefixSizes;
+      if (prefixSizes == null) prefixSizes = prefixSizes();
+      int slice = sliceOf(prefixSizes, index);
+      checkSliceSize(prefixSizes, slice);
+      mySliceList = mySlices.get(slice);
+      mySliceFrom = prefixSizes[slice];
+      mySliceTo = prefixSizes[slice + 1];
+    }
+  }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes #e# values to a file that can be read back with {@link Mapped#E#List}.
+ * <p>
+ * File format, all numbers are little-endian:
+ * <pre>
+ *   int    MAGIC
+ *   int    VERSION
+ *   int    the number of bytes in a value, {@code #EW#.SIZE / 8}
+ *   int    reserved, 0
+ *   long   the number of values
+ *   #e#[]  the values
+ * </pre>
+ * The number of values is written on {@link #close()}; until then the file has 0 in its place.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class #E#ListWriter implements Closeable {
+  static final int MAGIC = 0x494C5354;
+  static final int VERSION = 1;
+  static final int VALUE_BYTES = #EW#.SIZE / Byte.SIZE;
+  static final int HEADER_SIZE = 24;
+  static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int BATCH_SIZE = 1024;
+
+  private final RandomAccessFile myFile;
+  private final FileChannel myChannel;
+  private final ByteBuffer myBuffer;
+  private long mySize;
+  private boolean myClosed;
+
+  /**
+   * Creates the file or truncates it if it exists.
+   */
+  public #E#ListWriter(File file) throws IOException {
+    myFile = new RandomAccessFile(file, "rw");
+    try {
+      myFile.setLength(0);
+      myChannel = myFile.getChannel();
+      myBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ORDER);
+      writeHeader(0);
+      myChannel.position(HEADER_SIZE);
+    } catch (IOException e) {
+      myFile.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Writes {@code values} to {@code file}, replacing its contents.
+   */
+  public static void write(#E#Iterable values, File file) throws IOException {
+    #E#ListWriter writer = new #E#ListWriter(file);
+    try {
+      writer.addAll(values);
+    } finally {
+      writer.close();
+    }
+  }
+
+  public void add(#e# value) throws IOException {
+    checkOpen();
+    if (myBuffer.remaining() < VALUE_BYTES) flush();
+    myBuffer.put#E#(value);
+    mySize++;
+  }
+
+  public void addAll(#e#... values) throws IOException {
+    addAll(values, 0, values.length);
+  }
+
+  public void addAll(#e#[] values, int offset, int length) throws IOException {
+    checkOpen();
+    if (offset < 0 || length < 0 || offset + length > values.length)
+      throw new IndexOutOfBoundsException(offset + " " + length + " " + values.length);
+    while (length > 0) {
+      if (myBuffer.remaining() < VALUE_BYTES) flush();
+      int count = Math.min(length, myBuffer.remaining() / VALUE_BYTES);
+      myBuffer.as#E#Buffer().put(values, offset, count);
+      ((Buffer) myBuffer).position(myBuffer.position() + count * VALUE_BYTES);
+      offset += count;
+      length -= count;
+      mySize += count;
+    }
+  }
+
+  public void addAll(#E#Iterable values) throws IOException {
+    #e#[] batch = new #e#[BATCH_SIZE];
+    #E#Iterator it = values.iterator();
+    int count;
+    while ((count = it.nextBatch(batch, 0, batch.length)) > 0) {
+      addAll(batch, 0, count);
+    }
+  }
+
+  /**
+   * @return the number of values written so far
+   */
+  public long size() {
+    return mySize;
+  }
+
+  /**
+   * Writes the buffered values and the header and closes the file. Does nothing if the writer is already closed.
+   */
+  public void close() throws IOException {
+    if (myClosed) return;
+    myClosed = true;
+    try {
+      flush();
+      writeHeader(mySize);
+    } finally {
+      myFile.close();
+    }
+  }
+
+  private void writeHeader(long size) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+    header.putInt(MAGIC).putInt(VERSION).putInt(VALUE_BYTES).putInt(0).putLong(size);
+    ((Buffer) header).flip();
+    long position = 0;
+    while (header.hasRemaining()) {
+      position += myChannel.write(header, position);
+    }
+  }
+
+  private void flush() throws IOException {
+    ((Buffer) myBuffer).flip();
+    while (myBuffer.hasRemaining()) {
+      myChannel.write(myBuffer);
+    }
+    ((Buffer) myBuffer).clear();
+  }
+
+  private void checkOpen() throws IOException {
+    if (myClosed) throw new IOException("closed");
+  }
+}
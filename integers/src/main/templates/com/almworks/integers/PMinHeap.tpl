@@ -0,0 +1,215 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Binary heap of #e# values, duplicates are allowed. Single-thread access only. <br/>
+ * Values are kept in a single growing array, so {@link #add}, {@link #pop} and {@link #replaceTop} do not allocate
+ * once the capacity is reached; {@link #addAll} builds the heap in linear time. <br/>
+ * A heap created with {@link #createMaxHeap} returns the greatest value first.
+ * @see #E##E#IndexedHeap
+ */
+public class #E#MinHeap {
+  /**
+   * Values are stored as {@code value ^ myMask}: {@code myMask} is {@code 0} for a min-heap and {@code -1} for
+   * a max-heap, where {@code ~value} reverses the order without overflow.
+   */
+  private final #e# myMask;
+  private #e#[] myHeap;
+  private int mySize;
+
+  public #E#MinHeap() {
+    this(0);
+  }
+
+  public #E#MinHeap(int initialCapacity) {
+    this(initialCapacity, false);
+  }
+
+  private #E#MinHeap(int initialCapacity, boolean maxHeap) {
+    if (initialCapacity < 0) throw new IllegalArgumentException("initialCapacity=" + initialCapacity);
+    myMask = maxHeap ? -1 : 0;
+    myHeap = initialCapacity == 0 ? IntegersUtils.EMPTY_#EC#S : new #e#[initialCapacity];
+  }
+
+  /**
+   * @return an empty heap which returns the greatest value first
+   */
+  public static #E#MinHeap createMaxHeap(int initialCapacity) {
+    return new #E#MinHeap(initialCapacity, true);
+  }
+
+  public boolean isMaxHeap() {
+    return myMask != 0;
+  }
+
+  public int size() {
+    return mySize;
+  }
+
+  public boolean isEmpty() {
+    return mySize == 0;
+  }
+
+  public void clear() {
+    mySize = 0;
+  }
+
+  public void ensureCapacity(int capacity) {
+    myHeap = #E#Collections.ensureCapacity(myHeap, capacity);
+  }
+
+  public void add(#e# value) {
+    if (mySize == myHeap.length) ensureCapacity(mySize + 1);
+    siftUp(mySize++, value ^ myMask);
+    assert !IntegersDebug.CHECK || checkInvariants();
+  }
+
+  /**
+   * Adds all values from the list. If the list is not smaller than the heap, the heap is rebuilt from scratch in
+   * {@code O(size())}, otherwise the values are added one by one.
+   */
+  public void addAll(@Nullable #E#List values) {
+    if (values == null || values.isEmpty()) return;
+    int n = values.size();
+    ensureCapacity(mySize + n);
+    if (n < mySize) {
+      for (#E#Iterator it : values) {
+        siftUp(mySize++, it.value() ^ myMask);
+      }
+    } else {
+      values.toNativeArray(0, myHeap, mySize, n);
+      for (int i = mySize; i < mySize + n; i++) {
+        myHeap[i] ^= myMask;
+      }
+      mySize += n;
+      for (int i = (mySize >>> 1) - 1; i >= 0; i--) {
+        siftDown(i, myHeap[i]);
+      }
+    }
+    assert !IntegersDebug.CHECK || checkInvariants();
+  }
+
+  /**
+   * @return the least value (the greatest one for a {@link #createMaxHeap max-heap})
+   * @throws NoSuchElementException if the heap is empty
+   */
+  public #e# peek() throws NoSuchElementException {
+    if (mySize == 0) throw new NoSuchElementException();
+    return myHeap[0] ^ myMask;
+  }
+
+  /**
+   * Removes the {@link #peek top} value and returns it.
+   * @throws NoSuchElementException if the heap is empty
+   */
+  public #e# pop() throws NoSuchElementException {
+    if (mySize == 0) throw new NoSuchElementException();
+    #e# top = myHeap[0];
+    if (--mySize > 0) siftDown(0, myHeap[mySize]);
+    assert !IntegersDebug.CHECK || checkInvariants();
+    return top ^ myMask;
+  }
+
+  /**
+   * Removes the {@link #peek top} value and adds the specified one in a single pass, which is cheaper than
+   * {@code pop(); add(value);}. For example, the greatest {@code k} values of a stream are kept in a min-heap of size
+   * {@code k} with {@code if (value > heap.peek()) heap.replaceTop(value);}
+   * @return the removed value
+   * @throws NoSuchElementException if the heap is empty
+   */
+  public #e# replaceTop(#e# value) throws NoSuchElementException {
+    if (mySize == 0) throw new NoSuchElementException();
+    #e# top = myHeap[0];
+    siftDown(0, value ^ myMask);
+    assert !IntegersDebug.CHECK || checkInvariants();
+    return top ^ myMask;
+  }
+
+  /**
+   * Pops up to {@code len} values into {@code dst} starting from {@code off}, in the order they would be
+   * returned by {@link #pop}.
+   * @return the number of values written, {@code min(len, size())}
+   */
+  public int popBatch(#e#[] dst, int off, int len) {
+    if (off < 0 || len < 0) throw new IndexOutOfBoundsException(off + " " + len);
+    int count = Math.min(len, mySize);
+    if (off + count > dst.length) throw new IndexOutOfBoundsException(off + " " + count + " " + dst.length);
+    for (int i = 0; i < count; i++) {
+      dst[off + i] = myHeap[0] ^ myMask;
+      if (--mySize > 0) siftDown(0, myHeap[mySize]);
+    }
+    assert !IntegersDebug.CHECK || checkInvariants();
+    return count;
+  }
+
+  /**
+   * @return the values of this heap in no particular order
+   */
+  public #e#[] toNativeArray() {
+    #e#[] res = new #e#[mySize];
+    for (int i = 0; i < mySize; i++) {
+      res[i] = myHeap[i] ^ myMask;
+    }
+    return res;
+  }
+
+  /** Moves the hole at {@code i} up until {@code key} can be placed there. */
+  private void siftUp(int i, #e# key) {
+    #e#[] heap = myHeap;
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heap[parent] <= key) break;
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = key;
+  }
+
+  /** Moves the hole at {@code i} down until {@code key} can be placed there; {@code mySize} must not include the hole. */
+  private void siftDown(int i, #e# key) {
+    #e#[] heap = myHeap;
+    int size = mySize;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+      if (key <= heap[child]) break;
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = key;
+  }
+
+  private boolean checkInvariants() {
+    assert mySize <= myHeap.length : mySize + " " + myHeap.length;
+    for (int i = 1; i < mySize; i++) {
+      assert myHeap[(i - 1) >>> 1] <= myHeap[i] : i + " " + myHeap[(i - 1) >>> 1] + " " + myHeap[i];
+    }
+    return true;
+  }
+
+  public String toString() {
+    return "#E#MinHeap[" + mySize + (mySize == 0 ? "" : ", top=" + peek()) + "]";
+  }
+}
@@ -20,7 +20,8 @@ package com.almworks.integers;
 
 /**
  * Iterates through two sorted #e# lists in O(N+M), providing values that exist in the
- * first list and do not exist in the second
+ * first list and do not exist in the second.
+ * The second list is traversed with {@link #E#Iterator#advanceTo(#e#)}, so a long excluded list costs O(N * log(M / N))
  */
 public class #E#MinusIterator extends #E#FindingIterator {
   private final #E#Iterator myInclude;
@@ -45,27 +46,29 @@ public class #E#MinusIterator extends #E#FindingIterator {
     return false;
   }
 
-  private boolean accept(#e# v) {
-    #e# excludeValue = #EW#.MIN_VALUE;
-    if (myExclude.hasValue()) {
-      excludeValue = myExclude.value();
-      if (v < excludeValue) {
-        return true;
-      } else if ( v == excludeValue) {
-        return false;
-      }
-    }
-    while (myExclude.hasNext()) {
-      myExclude.next();
-      assert myExclude.value() >= excludeValue : excludeValue + " " + myExclude.value() + "  " + myExclude;
-      excludeValue = myExclude.value();
-      if (v < excludeValue) {
-        return true;
-      } else if ( v == excludeValue) {
-        return false;
+  @Override
+  protected boolean findNextAtLeast(#e# value) {
+    if (!myInclude.advanceTo(value)) return false;
+    myNext = myInclude.value();
+    return accept(myNext) || findNext();
+  }
+
+  @Override
+  protected int findNextBatch(#e#[] dst, int off, int len) {
+    int count = 0;
+    while (count < len && findNext()) {
+      dst[off + count++] = myNext;
+      if (!myExclude.hasNext() && (!myExclude.hasValue() || myExclude.value() < myNext)) {
+        // nothing left to exclude: the rest of include goes as is
+        count += myInclude.nextBatch(dst, off + count, len - count);
+        myNext = dst[off + count - 1];
+        break;
       }
     }
-    return true;
+    return count;
   }
 
+  private boolean accept(#e# v) {
+    return !myExclude.advanceTo(v) || myExclude.value() != v;
+  }
 }
\ No newline at end of file
@@ -41,4 +41,14 @@ public class #E#NativeArrayIterator extends Abstract#E#ListIndexIterator {
   protected #e# absget(int index) {
     return myArray[index];
   }
+
+  @Override
+  public int nextBatch(#e#[] dst, int off, int len) {
+    int next = getNextIndex();
+    int count = Math.min(len, getTo() - next);
+    if (count <= 0) return 0;
+    System.arraycopy(myArray, next, dst, off, count);
+    setNext(next + count);
+    return count;
+  }
 }
@@ -16,9 +16,15 @@
 
 package com.almworks.integers;
 
+import com.almworks.integers.func.#E#Condition;
+import com.almworks.integers.func.#E#Procedure;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.BitSet;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Spliterator;
+import java.util.function.#E#Consumer;
 
 /**
  * A hash set of {@code #e#}'s, implemented using using open
@@ -304,6 +310,122 @@ public class #E#OpenHashSet extends AbstractWritable#E#Set implements Writable#E
         curSlot++;
         return true;
       }
+
+      @Override
+      protected int findNextBatch(#e#[] dst, int off, int len) {
+        int count = 0;
+        while (count < len) {
+          curSlot = myAllocated.nextSetBit(curSlot);
+          if (curSlot == -1) break;
+          dst[off + count++] = myKeys[curSlot++];
+        }
+        return count;
+      }
     });
   }
+
+  @Override
+  public void forEachValue(#E#Procedure procedure) {
+    int modCount = myModCount;
+    #e#[] keys = myKeys;
+    BitSet allocated = myAllocated;
+    for (int slot = allocated.nextSetBit(0); slot >= 0; slot = allocated.nextSetBit(slot + 1)) {
+      procedure.invoke(keys[slot]);
+      if (modCount != myModCount) throw new ConcurrentModificationException(modCount + " " + myModCount);
+    }
+  }
+
+  @Override
+  public boolean forEachWhile(#E#Condition condition) {
+    int modCount = myModCount;
+    #e#[] keys = myKeys;
+    BitSet allocated = myAllocated;
+    for (int slot = allocated.nextSetBit(0); slot >= 0; slot = allocated.nextSetBit(slot + 1)) {
+      boolean proceed = condition.invoke(keys[slot]);
+      if (modCount != myModCount) throw new ConcurrentModificationException(modCount + " " + myModCount);
+      if (!proceed) return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return spliterator that splits the table in halves, see {@link #E#Streams#spliterator(#E#Iterable)}
+   */
+  Spliterator.Of#E# tableSpliterator() {
+    return new TableSpliterator(0, -1, -1, Spliterator.SIZED | Spliterator.DISTINCT);
+  }
+
+  private class TableSpliterator implements Spliterator.Of#E# {
+    private int mySlot;
+    /**
+     * -1 until the spliterator is bound to the table
+     */
+    private int myFence;
+    private int myEstimate;
+    private int myCharacteristics;
+
+    TableSpliterator(int slot, int fence, int estimate, int characteristics) {
+      mySlot = slot;
+      myFence = fence;
+      myEstimate = estimate;
+      myCharacteristics = characteristics;
+    }
+
+    private int fence() {
+      if (myFence < 0) {
+        myFence = myKeys.length;
+        myEstimate = mySize;
+      }
+      return myFence;
+    }
+
+    public Of#E# trySplit() {
+      int fence = fence();
+      int mid = (mySlot + fence) >>> 1;
+      if (mySlot >= mid) return null;
+      // halves of the table hold about the same number of keys, but exactly it is known only for the whole table
+      myEstimate >>>= 1;
+      myCharacteristics = Spliterator.DISTINCT;
+      TableSpliterator prefix = new TableSpliterator(mySlot, mid, myEstimate, myCharacteristics);
+      mySlot = mid;
+      return prefix;
+    }
+
+    public boolean tryAdvance(#E#Consumer action) {
+      if (action == null) throw new NullPointerException();
+      int fence = fence();
+      int slot = mySlot < fence ? myAllocated.nextSetBit(mySlot) : -1;
+      if (slot < 0 || slot >= fence) {
+        mySlot = fence;
+        return false;
+      }
+      mySlot = slot + 1;
+      action.accept(myKeys[slot]);
+      return true;
+    }
+
+    public void forEachRemaining(#E#Consumer action) {
+      if (action == null) throw new NullPointerException();
+      int fence = fence();
+      #e#[] table = myKeys;
+      BitSet allocated = myAllocated;
+      for (int slot = allocated.nextSetBit(mySlot); slot >= 0 && slot < fence; slot = allocated.nextSetBit(slot + 1)) {
+        action.accept(table[slot]);
+      }
+      mySlot = fence;
+    }
+
+    public long estimateSize() {
+      fence();
+      return myEstimate;
+    }
+
+    public int characteristics() {
+      return myCharacteristics;
+    }
+
+    public Comparator<? super #EW#> getComparator() {
+      throw new IllegalStateException();
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,248 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of unique pairs {@code (a, b)}, ordered by {@code a} and then by {@code b}. Single-thread access only. <br/>
+ * A B+tree with subtree sizes built on {@link AbstractBPlusTree} in the same way as {@link #E#BTreeSet}, so that insertion,
+ * removal, lookup, {@link #rank} and {@link #select} are logarithmic.
+ * If the tree is not {@code orderedByB}, {@code a} is unique and {@code b} is only a payload that may be changed in place.
+ * <br/>
+ * Pairs are addressed by positions: {@code leaf * LEAF_STRIDE + index}. A position is valid until the next modification.
+ * @see #E#TwoWayTreeMap
+ */
+final class #E#PairTree extends AbstractBPlusTree {
+  /** If false, pairs are ordered by {@code a} only. */
+  private final boolean myOrderedByB;
+
+  private #e#[] myLeafA;
+  private #e#[] myLeafB;
+  /** Separator {@code j} of a node is the lowest pair of its child {@code j + 1}. */
+  private #e#[] myNodeA;
+  private #e#[] myNodeB;
+  private #e#[] myTempA;
+  private #e#[] myTempB;
+
+  #E#PairTree(boolean orderedByB) {
+    myOrderedByB = orderedByB;
+    allocate(0);
+  }
+
+  @Override
+  protected void copyKeys(int srcStore, int srcPos, int dstStore, int dstPos, int length) {
+    System.arraycopy(storeA(srcStore), srcPos, storeA(dstStore), dstPos, length);
+    System.arraycopy(storeB(srcStore), srcPos, storeB(dstStore), dstPos, length);
+  }
+
+  @Override
+  protected void resizeKeys(int store, int capacity, boolean keep) {
+    #e#[] a = keep ? Arrays.copyOf(storeA(store), capacity) : new #e#[capacity];
+    #e#[] b = keep ? Arrays.copyOf(storeB(store), capacity) : new #e#[capacity];
+    if (store == LEAF_KEYS) {
+      myLeafA = a;
+      myLeafB = b;
+    } else if (store == NODE_KEYS) {
+      myNodeA = a;
+      myNodeB = b;
+    } else {
+      myTempA = a;
+      myTempB = b;
+    }
+  }
+
+  @Override
+  protected boolean lessKeys(int store1, int pos1, int store2, int pos2) {
+    return less(storeA(store1)[pos1], storeB(store1)[pos1], storeA(store2)[pos2], storeB(store2)[pos2]);
+  }
+
+  private #e#[] storeA(int store) {
+    return store == LEAF_KEYS ? myLeafA : store == NODE_KEYS ? myNodeA : myTempA;
+  }
+
+  private #e#[] storeB(int store) {
+    return store == LEAF_KEYS ? myLeafB : store == NODE_KEYS ? myNodeB : myTempB;
+  }
+
+  void clear() {
+    init();
+  }
+
+  /**
+   * Replaces the contents of this tree with {@code n} pairs {@code (a[i], b[i])}, which must be sorted and unique.
+   * Nodes are filled by three quarters.
+   */
+  void initFromSorted(final #e#[] a, final #e#[] b, int n) {
+    initFromSorted(n, new SortedKeys() {
+      @Override
+      public void copyToLeaf(int from, int leafPos, int length) {
+        System.arraycopy(a, from, myLeafA, leafPos, length);
+        System.arraycopy(b, from, myLeafB, leafPos, length);
+      }
+    });
+  }
+
+  /**
+   * Copies all pairs in order to {@code a} and {@code b}.
+   */
+  void toNativeArrays(#e#[] a, #e#[] b) {
+    int pos = 0;
+    for (int leaf = firstLeaf(); leaf != NO_LEAF; leaf = myLeafNext[leaf]) {
+      int size = myLeafSizes[leaf];
+      System.arraycopy(myLeafA, leaf * LEAF_STRIDE, a, pos, size);
+      System.arraycopy(myLeafB, leaf * LEAF_STRIDE, b, pos, size);
+      pos += size;
+    }
+  }
+
+  #e# a(int position) {
+    return myLeafA[position];
+  }
+
+  #e# b(int position) {
+    return myLeafB[position];
+  }
+
+  /**
+   * Changes the payload of the pair at {@code position}, possible only if the tree is not ordered by {@code b}.
+   */
+  void setB(int position, #e# b) {
+    assert !myOrderedByB;
+    myLeafB[position] = b;
+  }
+
+  /**
+   * @return position of the pair equal to {@code (a, b)}, or -1 if there is none
+   */
+  int find(#e# a, #e# b) {
+    int leaf = findLeaf(a, b);
+    int index = leafSearch(leaf, a, b);
+    return index >= 0 ? leaf * LEAF_STRIDE + index : -1;
+  }
+
+  /**
+   * @return position of the first pair that is greater than or equal to {@code (a, b)}, or -1 if there is none
+   */
+  int ceiling(#e# a, #e# b) {
+    int leaf = findLeaf(a, b);
+    int index = leafSearch(leaf, a, b);
+    if (index < 0) index = -index - 1;
+    if (index < myLeafSizes[leaf]) return leaf * LEAF_STRIDE + index;
+    int next = myLeafNext[leaf];
+    return next == NO_LEAF ? -1 : next * LEAF_STRIDE;
+  }
+
+  /**
+   * @return the number of pairs that are less than {@code (a, b)}
+   */
+  int rank(#e# a, #e# b) {
+    int rank = 0;
+    int x = myRoot;
+    for (int level = 0; level < myHeight; level++) {
+      int pos = childPosition(x, a, b);
+      rank += countBefore(x, pos);
+      x = myNodeChildren[x * NODE_STRIDE + pos];
+    }
+    int index = leafSearch(x, a, b);
+    return rank + (index >= 0 ? index : -index - 1);
+  }
+
+  /**
+   * @return true if {@code (a1, b1) < (a2, b2)}
+   */
+  private boolean less(#e# a1, #e# b1, #e# a2, #e# b2) {
+    return a1 < a2 || a1 == a2 && myOrderedByB && b1 < b2;
+  }
+
+  private int findLeaf(#e# a, #e# b) {
+    int x = myRoot;
+    for (int level = 0; level < myHeight; level++) {
+      x = myNodeChildren[x * NODE_STRIDE + childPosition(x, a, b)];
+    }
+    return x;
+  }
+
+  private int descend(#e# a, #e# b) {
+    int x = myRoot;
+    for (int level = 0; level < myHeight; level++) {
+      int pos = childPosition(x, a, b);
+      myPathNodes[level] = x;
+      myPathPositions[level] = pos;
+      x = myNodeChildren[x * NODE_STRIDE + pos];
+    }
+    return x;
+  }
+
+  /**
+   * @return the number of the separators of {@code node} that are less than or equal to {@code (a, b)}
+   */
+  private int childPosition(int node, #e# a, #e# b) {
+    int base = node * NODE_STRIDE;
+    int from = base;
+    int to = base + myNodeSizes[node] - 1;
+    while (from < to) {
+      int mid = (from + to) >>> 1;
+      if (!less(a, b, myNodeA[mid], myNodeB[mid])) from = mid + 1;
+      else to = mid;
+    }
+    return from - base;
+  }
+
+  /**
+   * @return index of {@code (a, b)} in {@code leaf}, if it's there; otherwise, {@code (-(insertion point) - 1)}
+   */
+  private int leafSearch(int leaf, #e# a, #e# b) {
+    int base = leaf * LEAF_STRIDE;
+    int from = base;
+    int to = base + myLeafSizes[leaf] - 1;
+    while (from <= to) {
+      int mid = (from + to) >>> 1;
+      if (less(myLeafA[mid], myLeafB[mid], a, b)) from = mid + 1;
+      else if (less(a, b, myLeafA[mid], myLeafB[mid])) to = mid - 1;
+      else return mid - base;
+    }
+    return -(from - base) - 1;
+  }
+
+  /**
+   * @return false if the tree already contains a pair equal to {@code (a, b)}
+   */
+  boolean add(#e# a, #e# b) {
+    int leaf = descend(a, b);
+    int index = leafSearch(leaf, a, b);
+    if (index >= 0) return false;
+    int position = insertAt(leaf, -index - 1);
+    myLeafA[position] = a;
+    myLeafB[position] = b;
+    splitIfOverflown(leaf);
+    return true;
+  }
+
+  /**
+   * @return false if the tree has no pair equal to {@code (a, b)}
+   */
+  boolean remove(#e# a, #e# b) {
+    int leaf = descend(a, b);
+    int index = leafSearch(leaf, a, b);
+    if (index < 0) return false;
+    removeAt(leaf, index);
+    return true;
+  }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork-join merge sort of {@code #e#[]} prefixes, used by {@link #E#Array#parallelSort(ForkJoinPool, int, Writable#E#List...)}
+ * and {@link #E#Array#parallelSortUnique(ForkJoinPool, int)}.
+ * <p>Ranges not longer than {@code threshold} are sorted sequentially with {@link #E#RadixSort}, as is the whole array
+ * if the pool has a single worker; sorted halves are merged in parallel by splitting the longer run at its middle
+ * and the shorter one at the matching position.
+ * The merges ping-pong between the sorted array and a workspace of the same size.
+ */
+final class #E#ParallelSort {
+  /** default size of sequentially sorted ranges */
+  static final int DEFAULT_THRESHOLD = 1 << 16;
+  /** merges shorter than this are never split, whatever the threshold */
+  private static final int MIN_MERGE = 1 << 8;
+
+  private #E#ParallelSort() {}
+
+  static void checkThreshold(int threshold) {
+    if (threshold <= 0) throw new IllegalArgumentException("Illegal threshold: " + threshold);
+  }
+
+  /**
+   * @return true if {@code n} elements are better sorted sequentially: they fit into one range, or the pool has
+   * a single worker, for which the merges are pure overhead
+   */
+  static boolean isSequential(int n, ForkJoinPool pool, int threshold) {
+    return n <= threshold || pool.getParallelism() <= 1;
+  }
+
+  /**
+   * Sorts {@code keys[0, n)} in ascending order.
+   */
+  static void sort(#e#[] keys, int n, ForkJoinPool pool, int threshold) {
+    checkThreshold(threshold);
+    if (isSequential(n, pool, threshold)) {
+      #E#RadixSort.sorter(n).sort(keys, 0, n);
+    } else {
+      pool.invoke(new SortTask(new Sorter(keys, null, n, threshold), 0, n, false));
+    }
+  }
+
+  /**
+   * Sorts {@code keys[0, n)} in ascending order, moving {@code indices[0, n)} along.
+   * Elements with equal keys keep their relative order.
+   */
+  static void sort(#e#[] keys, int[] indices, int n, ForkJoinPool pool, int threshold) {
+    checkThreshold(threshold);
+    if (isSequential(n, pool, threshold)) {
+      #E#RadixSort.sorter(n).sort(keys, indices, 0, n);
+    } else {
+      pool.invoke(new SortTask(new Sorter(keys, indices, n, threshold), 0, n, false));
+    }
+  }
+
+  /**
+   * @return new array with {@code values[order[i]]} at index {@code i}, for {@code i < n}
+   */
+  static #e#[] permute(final #e#[] values, final int[] order, int n, ForkJoinPool pool, int threshold) {
+    checkThreshold(threshold);
+    final #e#[] res = new #e#[n];
+    if (isSequential(n, pool, threshold)) {
+      for (int i = 0; i < n; i++) {
+        res[i] = values[order[i]];
+      }
+      return res;
+    }
+    pool.invoke(new RangeTask(0, n, threshold) {
+      @Override
+      void run(int from, int to) {
+        for (int i = from; i < to; i++) {
+          res[i] = values[order[i]];
+        }
+      }
+    });
+    return res;
+  }
+
+  /**
+   * @param sorted array sorted in ascending order up to {@code n}
+   * @return new array of the exact size that holds distinct elements of {@code sorted[0, n)}
+   */
+  static #e#[] removeDuplicates(final #e#[] sorted, int n, ForkJoinPool pool, int threshold) {
+    checkThreshold(threshold);
+    if (n == 0) return sorted;
+    if (isSequential(n, pool, threshold)) {
+      int count = 1;
+      for (int i = 1; i < n; i++) {
+        if (sorted[i] != sorted[i - 1]) count++;
+      }
+      #e#[] res = new #e#[count];
+      res[0] = sorted[0];
+      for (int i = 1, j = 1; i < n; i++) {
+        if (sorted[i] != sorted[i - 1]) res[j++] = sorted[i];
+      }
+      return res;
+    }
+    final int chunk = Math.max(threshold, n / (pool.getParallelism() * 4) + 1);
+    final int chunks = (n - 1) / chunk + 1;
+    final int[] offsets = new int[chunks + 1];
+    final int size = n;
+    pool.invoke(new RangeTask(0, chunks, 1) {
+      @Override
+      void run(int from, int to) {
+        for (int c = from; c < to; c++) {
+          int count = 0;
+          for (int i = c * chunk, end = Math.min(size, i + chunk); i < end; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) count++;
+          }
+          offsets[c + 1] = count;
+        }
+      }
+    });
+    for (int c = 0; c < chunks; c++) {
+      offsets[c + 1] += offsets[c];
+    }
+    final #e#[] res = new #e#[offsets[chunks]];
+    pool.invoke(new RangeTask(0, chunks, 1) {
+      @Override
+      void run(int from, int to) {
+        for (int c = from; c < to; c++) {
+          int j = offsets[c];
+          for (int i = c * chunk, end = Math.min(size, i + chunk); i < end; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) res[j++] = sorted[i];
+          }
+        }
+      }
+    });
+    return res;
+  }
+
+  /**
+   * Splits {@code [from, to)} in halves until it is not longer than {@code threshold}.
+   */
+  private static abstract class RangeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final int myFrom;
+    private final int myTo;
+    private final int myThreshold;
+
+    RangeTask(int from, int to, int threshold) {
+      myFrom = from;
+      myTo = to;
+      myThreshold = threshold;
+    }
+
+    abstract void run(int from, int to);
+
+    @Override
+    protected void compute() {
+      compute(myFrom, myTo);
+    }
+
+    private void compute(final int from, int to) {
+      if (to - from <= myThreshold) {
+        run(from, to);
+        return;
+      }
+      final int mid = (from + to) >>> 1;
+      RecursiveAction left = new RecursiveAction() {
+        @Override
+        protected void compute() {
+          RangeTask.this.compute(from, mid);
+        }
+      };
+      left.fork();
+      compute(mid, to);
+      left.join();
+    }
+  }
+
+  /**
+   * Arrays shared by the tasks of one sort; {@code indices} and their workspace are null if there are no indices.
+   */
+  private static final class Sorter {
+    final #e#[] keys;
+    final int[] indices;
+    final #e#[] keysWork;
+    final int[] indicesWork;
+    final int threshold;
+
+    Sorter(#e#[] keys, int[] indices, int n, int threshold) {
+      this.keys = keys;
+      this.indices = indices;
+      this.threshold = threshold;
+      keysWork = new #e#[n];
+      indicesWork = indices == null ? null : new int[n];
+    }
+  }
+
+  /**
+   * Sorts {@code [from, to)} and puts the result into the workspace if {@code toWork} is set,
+   * otherwise into the sorted arrays.
+   */
+  private static final class SortTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final Sorter mySorter;
+    private final int myFrom;
+    private final int myTo;
+    private final boolean myToWork;
+
+    SortTask(Sorter sorter, int from, int to, boolean toWork) {
+      mySorter = sorter;
+      myFrom = from;
+      myTo = to;
+      myToWork = toWork;
+    }
+
+    @Override
+    protected void compute() {
+      Sorter s = mySorter;
+      if (myTo - myFrom <= s.threshold) {
+        // the sorter is cached per worker thread for ranges of the default size
+        #E#RadixSort sorter = #E#RadixSort.sorter(myTo - myFrom);
+        if (s.indices == null) {
+          sorter.sort(s.keys, myFrom, myTo);
+        } else {
+          sorter.sort(s.keys, s.indices, myFrom, myTo);
+        }
+        if (myToWork) {
+          System.arraycopy(s.keys, myFrom, s.keysWork, myFrom, myTo - myFrom);
+          if (s.indices != null) System.arraycopy(s.indices, myFrom, s.indicesWork, myFrom, myTo - myFrom);
+        }
+        return;
+      }
+      int mid = (myFrom + myTo) >>> 1;
+      invokeAll(new SortTask(s, myFrom, mid, !myToWork), new SortTask(s, mid, myTo, !myToWork));
+      if (myToWork) {
+        new MergeTask(s, s.keys, s.indices, s.keysWork, s.indicesWork, myFrom, mid, mid, myTo, myFrom).compute();
+      } else {
+        new MergeTask(s, s.keysWork, s.indicesWork, s.keys, s.indices, myFrom, mid, mid, myTo, myFrom).compute();
+      }
+    }
+  }
+
+  /**
+   * Merges sorted runs {@code src[from1, to1)} and {@code src[from2, to2)} into {@code dst} starting at {@code out}.
+   * Of equal keys, the ones from the first run go first.
+   */
+  private static final class MergeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final Sorter mySorter;
+    private final #e#[] mySrc;
+    private final int[] mySrcIndices;
+    private final #e#[] myDst;
+    private final int[] myDstIndices;
+    private final int myFrom1, myTo1, myFrom2, myTo2, myOut;
+
+    MergeTask(Sorter sorter, #e#[] src, int[] srcIndices, #e#[] dst, int[] dstIndices,
+      int from1, int to1, int from2, int to2, int out)
+    {
+      mySorter = sorter;
+      mySrc = src;
+      mySrcIndices = srcIndices;
+      myDst = dst;
+      myDstIndices = dstIndices;
+      myFrom1 = from1;
+      myTo1 = to1;
+      myFrom2 = from2;
+      myTo2 = to2;
+      myOut = out;
+    }
+
+    @Override
+    protected void compute() {
+      int len1 = myTo1 - myFrom1, len2 = myTo2 - myFrom2;
+      if (len1 + len2 <= Math.max(mySorter.threshold, MIN_MERGE)) {
+        merge();
+        return;
+      }
+      int mid1, mid2;
+      if (len1 >= len2) {
+        mid1 = (myFrom1 + myTo1) >>> 1;
+        mid2 = lowerBound(mySrc, myFrom2, myTo2, mySrc[mid1]);
+      } else {
+        mid2 = (myFrom2 + myTo2) >>> 1;
+        mid1 = upperBound(mySrc, myFrom1, myTo1, mySrc[mid2]);
+      }
+      int outMid = myOut + (mid1 - myFrom1) + (mid2 - myFrom2);
+      invokeAll(
+        new MergeTask(mySorter, mySrc, mySrcIndices, myDst, myDstIndices, myFrom1, mid1, myFrom2, mid2, myOut),
+        new MergeTask(mySorter, mySrc, mySrcIndices, myDst, myDstIndices, mid1, myTo1, mid2, myTo2, outMid));
+    }
+
+    private void merge() {
+      #e#[] src = mySrc, dst = myDst;
+      int[] srcIndices = mySrcIndices, dstIndices = myDstIndices;
+      int i = myFrom1, j = myFrom2, k = myOut;
+      while (i < myTo1 && j < myTo2) {
+        int from = src[j] < src[i] ? j++ : i++;
+        dst[k] = src[from];
+        if (srcIndices != null) dstIndices[k] = srcIndices[from];
+        k++;
+      }
+      int rest = i < myTo1 ? i : j, restLength = i < myTo1 ? myTo1 - i : myTo2 - j;
+      System.arraycopy(src, rest, dst, k, restLength);
+      if (srcIndices != null) System.arraycopy(srcIndices, rest, dstIndices, k, restLength);
+    }
+  }
+
+  /**
+   * @return the first index in {@code [from, to)} with {@code array[index] >= value}, or {@code to}
+   */
+  private static int lowerBound(#e#[] array, int from, int to, #e# value) {
+    while (from < to) {
+      int mid = (from + to) >>> 1;
+      if (array[mid] < value) from = mid + 1;
+      else to = mid;
+    }
+    return from;
+  }
+
+  /**
+   * @return the first index in {@code [from, to)} with {@code array[index] > value}, or {@code to}
+   */
+  private static int upperBound(#e#[] array, int from, int to, #e# value) {
+    while (from < to) {
+      int mid = (from + to) >>> 1;
+      if (array[mid] <= value) from = mid + 1;
+      else to = mid;
+    }
+    return from;
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Union of many sorted unique lists computed in parallel.
+ * <p>The value domain is split into ranges by splitters sampled from the inputs in proportion to their sizes,
+ * so every range holds about the same number of input elements. Binary search gives the part of every input that
+ * falls into a range; the parts of each range are merged with {@link #E#UnionIterator} in a separate task,
+ * and the merged ranges are then copied side by side into the result.
+ *
+ * @see #E#Collections#parallelUnion(ForkJoinPool, #E#List...)
+ */
+final class #E#ParallelUnion {
+  /** ranges are not made smaller than this number of input elements */
+  static final int MIN_RANGE = 1 << 15;
+  /** number of samples taken per range to choose the splitters */
+  private static final int SAMPLES_PER_RANGE = 8;
+  /** more lists are concatenated and sorted rather than merged through a heap */
+  private static final int MAX_HEAP_MERGE = 4;
+
+  private #E#ParallelUnion() {}
+
+  static #E#Array union(ForkJoinPool pool, List<? extends #E#List> lists) {
+    return union(pool, lists, MIN_RANGE);
+  }
+
+  static #E#Array union(ForkJoinPool pool, List<? extends #E#List> lists, int minRange) {
+    final List<#E#List> inputs = new ArrayList<#E#List>(lists.size());
+    long total = 0;
+    int maxSize = 0;
+    for (#E#List list : lists) {
+      if (list != null && !list.isEmpty()) {
+        inputs.add(list);
+        total += list.size();
+        maxSize = Math.max(maxSize, list.size());
+      }
+    }
+    if (inputs.size() < 2) {
+      return inputs.isEmpty() ? new #E#Array() : new #E#Array(inputs.get(0));
+    }
+    int ranges = (int) Math.min(pool.getParallelism() * 4L, total / minRange);
+    if (ranges < 2) {
+      return merge(inputs, maxSize, total);
+    }
+
+    #E#Array splitters = splitters(inputs, total, ranges);
+    final int rangeCount = splitters.size() + 1;
+    final int[][] bounds = new int[inputs.size()][];
+    for (int i = 0; i < inputs.size(); i++) {
+      #E#List list = inputs.get(i);
+      int[] listBounds = bounds[i] = new int[rangeCount + 1];
+      for (int r = 1; r < rangeCount; r++) {
+        int idx = list.binarySearch(splitters.get(r - 1), listBounds[r - 1], list.size());
+        listBounds[r] = idx >= 0 ? idx : -idx - 1;
+      }
+      listBounds[rangeCount] = list.size();
+    }
+
+    final List<RecursiveTask<#E#Array>> merges = new ArrayList<RecursiveTask<#E#Array>>(rangeCount);
+    for (int r = 0; r < rangeCount; r++) {
+      final int range = r;
+      merges.add(new RecursiveTask<#E#Array>() {
+        @Override
+        protected #E#Array compute() {
+          return mergeRange(inputs, bounds, range);
+        }
+      });
+    }
+    pool.invoke(new RecursiveAction() {
+      @Override
+      protected void compute() {
+        invokeAll(merges);
+      }
+    });
+
+    final int[] offsets = new int[rangeCount + 1];
+    for (int r = 0; r < rangeCount; r++) {
+      long offset = (long) offsets[r] + merges.get(r).getRawResult().size();
+      if (offset > Integer.MAX_VALUE) throw new IllegalArgumentException("Union is too large: " + offset);
+      offsets[r + 1] = (int) offset;
+    }
+    final #e#[] res = new #e#[offsets[rangeCount]];
+    pool.invoke(new RecursiveAction() {
+      @Override
+      protected void compute() {
+        List<RecursiveAction> copies = new ArrayList<RecursiveAction>(rangeCount);
+        for (int r = 0; r < rangeCount; r++) {
+          final int range = r;
+          copies.add(new RecursiveAction() {
+            @Override
+            protected void compute() {
+              #E#Array part = merges.get(range).getRawResult();
+              part.toNativeArray(0, res, offsets[range], part.size());
+            }
+          });
+        }
+        invokeAll(copies);
+      }
+    });
+    return new #E#Array(res);
+  }
+
+  /**
+   * @return sorted unique values that split the union into about {@code ranges} ranges of equal size;
+   * range {@code r} holds the values in {@code [splitters[r - 1], splitters[r])}
+   */
+  private static #E#Array splitters(List<#E#List> inputs, long total, int ranges) {
+    // every sample stands for the elements of its list up to the next sample
+    #E#Array samples = new #E#Array();
+    #E#Array weights = new #E#Array();
+    for (#E#List list : inputs) {
+      int size = list.size();
+      int count = (int) Math.max(1, (long) size * ranges * SAMPLES_PER_RANGE / total);
+      for (int j = 0; j < count; j++) {
+        int from = (int) ((long) j * size / count), to = (int) ((long) (j + 1) * size / count);
+        samples.add(list.get(from));
+        weights.add(to - from);
+      }
+    }
+    samples.sort(weights);
+    #E#Array splitters = new #E#Array(ranges - 1);
+    long weight = 0;
+    for (int i = 0, r = 1; i < samples.size() && r < ranges; i++) {
+      weight += weights.get(i);
+      if (weight >= (long) r * total / ranges) {
+        r++;
+        if (i + 1 < samples.size() && (splitters.isEmpty() || splitters.getLast(0) < samples.get(i + 1))) {
+          splitters.add(samples.get(i + 1));
+        }
+      }
+    }
+    return splitters;
+  }
+
+  /**
+   * Merges the parts of a range with {@link #E#UnionIterator} if there are only a few of them; otherwise
+   * concatenates them and sorts with {@link #E#RadixSort}, which does not depend on the number of parts.
+   */
+  private static #E#Array mergeRange(List<#E#List> inputs, int[][] bounds, int range) {
+    List<#E#List> parts = new ArrayList<#E#List>(inputs.size());
+    int maxSize = 0;
+    long totalSize = 0;
+    for (int i = 0; i < inputs.size(); i++) {
+      int from = bounds[i][range], to = bounds[i][range + 1];
+      if (from < to) {
+        parts.add(inputs.get(i).subList(from, to));
+        maxSize = Math.max(maxSize, to - from);
+        totalSize += to - from;
+      }
+    }
+    if (parts.size() < 2) {
+      return parts.isEmpty() ? new #E#Array() : new #E#Array(parts.get(0));
+    }
+    return merge(parts, maxSize, totalSize);
+  }
+
+  static #E#Array merge(List<#E#List> parts, int maxSize, long totalSize) {
+    if (parts.size() <= MAX_HEAP_MERGE || totalSize > Integer.MAX_VALUE) {
+      return #E#Collections.collectIterable(maxSize, new #E#UnionIterator(parts));
+    }
+    #E#Array res = new #E#Array((int) totalSize);
+    for (#E#List part : parts) {
+      res.addAll(part);
+    }
+    res.sortUnique();
+    return res;
+  }
+}
@@ -149,5 +149,18 @@ public abstract class #E#Progression extends Abstract#E#List {
     public #e# absget(int index) throws NoSuchElementException {
       return myStart + index * myStep;
     }
+
+    @Override
+    public int nextBatch(#e#[] dst, int off, int len) {
+      int next = getNextIndex();
+      int count = Math.min(len, getTo() - next);
+      if (count <= 0) return 0;
+      #e# value = absget(next);
+      for (int i = 0; i < count; i++, value += myStep) {
+        dst[off + i] = value;
+      }
+      setNext(next + count);
+      return count;
+    }
   }
 }
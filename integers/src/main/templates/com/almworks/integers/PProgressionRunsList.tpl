@@ -0,0 +1,240 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import com.almworks.integers.func.#E#Condition;
+import com.almworks.integers.func.#E#Procedure;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+
+/**
+ * Append-only list that is memory-optimized to contain runs of arithmetic progressions,
+ * for example, runs of equal values or of consecutive ids.
+ * Each run is stored as its start index, its first value and its step.
+ * Runs are formed greedily when values are added: a value continues the last run if it differs from
+ * the last value by the step of the run; the second value of a run defines its step.
+ * <br>{@link #get(int)} is O(log r), where r is the number of runs, and O(1) amortized for sequential access;
+ * {@link #toNativeArray(int, #e#[], int, int)}, {@link #forEachValue} and iterators' {@code nextBatch} work run by run.
+ * @see #E#SameValuesList
+ * @see #E#Progression
+ */
+public class #E#ProgressionRunsList extends Abstract#E#List {
+  private final IntArray myStarts = new IntArray();
+  private final #E#Array myFirstValues = new #E#Array();
+  private final #E#Array mySteps = new #E#Array();
+  private int mySize;
+  private int myModCount;
+
+  /**
+   * The run that contained the last index passed to {@link #get(int)}; a hint that is validated on each use.
+   */
+  private int myLastRun;
+
+  public #E#ProgressionRunsList() {
+  }
+
+  public static #E#ProgressionRunsList create(#E#Iterable values) {
+    #E#ProgressionRunsList list = new #E#ProgressionRunsList();
+    list.addAll(values);
+    return list;
+  }
+
+  public static #E#ProgressionRunsList create(#e#... values) {
+    #E#ProgressionRunsList list = new #E#ProgressionRunsList();
+    list.addAll(values);
+    return list;
+  }
+
+  public void add(#e# value) {
+    int last = myStarts.size() - 1;
+    if (last >= 0) {
+      int length = mySize - myStarts.get(last);
+      if (length == 1) {
+        mySteps.set(last, value - myFirstValues.get(last));
+        mySize++;
+        myModCount++;
+        return;
+      }
+      #e# step = mySteps.get(last);
+      if (value == myFirstValues.get(last) + step * length) {
+        mySize++;
+        myModCount++;
+        return;
+      }
+    }
+    myStarts.add(mySize);
+    myFirstValues.add(value);
+    mySteps.add(0);
+    mySize++;
+    myModCount++;
+  }
+
+  public void addAll(#e#... values) {
+    for (#e# value : values) {
+      add(value);
+    }
+  }
+
+  public void addAll(#E#Iterable values) {
+    for (#E#Iterator it : values) {
+      add(it.value());
+    }
+  }
+
+  public void clear() {
+    myStarts.clear();
+    myFirstValues.clear();
+    mySteps.clear();
+    mySize = 0;
+    myModCount++;
+  }
+
+  public int size() {
+    return mySize;
+  }
+
+  /**
+   * @return the number of runs
+   */
+  public int getRunCount() {
+    return myStarts.size();
+  }
+
+  public #e# get(int index) {
+    if (index < 0 || index >= mySize)
+      throw new IndexOutOfBoundsException(index + " " + mySize);
+    int run = myLastRun;
+    if (!isInRun(run, index)) {
+      if (isInRun(run + 1, index)) {
+        run++;
+      } else {
+        run = runOf(index);
+      }
+      myLastRun = run;
+    }
+    return myFirstValues.get(run) + mySteps.get(run) * (index - myStarts.get(run));
+  }
+
+  private boolean isInRun(int run, int index) {
+    int runs = myStarts.size();
+    return run < runs && myStarts.get(run) <= index && (run + 1 == runs || index < myStarts.get(run + 1));
+  }
+
+  private int runOf(int index) {
+    int run = myStarts.binarySearch(index);
+    return run >= 0 ? run : -run - 2;
+  }
+
+  private int runEnd(int run) {
+    return run + 1 < myStarts.size() ? myStarts.get(run + 1) : mySize;
+  }
+
+  @Override
+  public #e#[] toNativeArray(int startIndex, #e#[] dest, int destOffset, int length) {
+    if (length <= 0) return dest;
+    if (startIndex < 0 || startIndex + length > mySize)
+      throw new IndexOutOfBoundsException(startIndex + " " + length + " " + mySize);
+    int to = startIndex + length;
+    for (int run = runOf(startIndex), i = startIndex; i < to; run++) {
+      int runEnd = Math.min(runEnd(run), to);
+      #e# step = mySteps.get(run);
+      #e# value = myFirstValues.get(run) + step * (i - myStarts.get(run));
+      int d = destOffset + i - startIndex;
+      int dEnd = destOffset + runEnd - startIndex;
+      if (step == 0) {
+        Arrays.fill(dest, d, dEnd, value);
+      } else {
+        for (; d < dEnd; d++, value += step) {
+          dest[d] = value;
+        }
+      }
+      i = runEnd;
+    }
+    return dest;
+  }
+
+  @Override
+  public void forEachValue(#E#Procedure procedure) {
+    int modCount = myModCount;
+    for (int run = 0, runs = myStarts.size(); run < runs; run++) {
+      #e# value = myFirstValues.get(run);
+      #e# step = mySteps.get(run);
+      for (int i = myStarts.get(run), runEnd = runEnd(run); i < runEnd; i++, value += step) {
+        procedure.invoke(value);
+        if (modCount != myModCount) throw new ConcurrentModificationException(modCount + " " + myModCount);
+      }
+    }
+  }
+
+  @Override
+  public boolean forEachWhile(#E#Condition condition) {
+    int modCount = myModCount;
+    for (int run = 0, runs = myStarts.size(); run < runs; run++) {
+      #e# value = myFirstValues.get(run);
+      #e# step = mySteps.get(run);
+      for (int i = myStarts.get(run), runEnd = runEnd(run); i < runEnd; i++, value += step) {
+        boolean proceed = condition.invoke(value);
+        if (modCount != myModCount) throw new ConcurrentModificationException(modCount + " " + myModCount);
+        if (!proceed) return false;
+      }
+    }
+    return true;
+  }
+
+  @NotNull
+  public #E#ListIterator iterator(int from, int to) {
+    if (from >= to) {
+      assert from == to : from + " " + to;
+      return #E#Iterator.EMPTY;
+    }
+    return new RunsIterator(from, to);
+  }
+
+  private class RunsIterator extends Abstract#E#ListIndexIterator {
+    private final int myModCountAtCreation = myModCount;
+
+    RunsIterator(int from, int to) {
+      super(from, to);
+    }
+
+    @Override
+    protected #e# absget(int index) {
+      checkMod();
+      return #E#ProgressionRunsList.this.get(index);
+    }
+
+    @Override
+    public int nextBatch(#e#[] dst, int off, int len) throws ConcurrentModificationException {
+      checkMod();
+      int next = getNextIndex();
+      int count = Math.min(getTo() - next, len);
+      if (count <= 0) return 0;
+      toNativeArray(next, dst, off, count);
+      setNext(next + count);
+      return count;
+    }
+
+    private void checkMod() {
+      if (myModCountAtCreation != myModCount)
+        throw new ConcurrentModificationException(myModCountAtCreation + " " + myModCount);
+    }
+  }
+}
@@ -0,0 +1,353 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.NoSuchElementException;
+
+/**
+ * Binary heap of {@code (priority, value)} entries ordered by priority, with access to the entries by handles.
+ * Single-thread access only. <br/>
+ * {@link #add} returns an int handle that stays valid until the entry is removed; it can be used to read the entry,
+ * to change its priority ({@link #decreaseKey}, {@link #updatePriority}) or to {@link #remove} it in {@code O(log n)}.
+ * Handles of removed entries are reused by the following additions. A heap that has had no entries removed since
+ * creation or {@link #clear()} assigns handles {@code 0, 1, 2, ...} in the order of addition, so, for example,
+ * {@code heap.addAll(distances, nodes)} makes the handle of every node equal to its index. <br/>
+ * All data is kept in growing arrays, so no allocation happens once the capacity is reached.
+ * A heap created with {@link #createMaxHeap} returns the entry with the greatest priority first.
+ * @see #E#MinHeap
+ */
+public class #E##F#IndexedHeap {
+  /** Priorities are stored as {@code priority ^ myMask}, see {@link #E#MinHeap} */
+  private final #e# myMask;
+  /** Priorities in heap order */
+  private #e#[] myKeys;
+  /** Handles in heap order */
+  private int[] myHeapHandles;
+  /**
+   * Heap positions by handle. For a free handle it is {@code -2 - next}, where {@code next} is the next free handle
+   * or {@code -1}, so it is always negative.
+   */
+  private int[] myPositions;
+  /** Values by handle */
+  private #f#[] myValues;
+  private int mySize;
+  private int myHandleCount;
+  private int myFreeHandle = -1;
+
+  public #E##F#IndexedHeap() {
+    this(0);
+  }
+
+  public #E##F#IndexedHeap(int initialCapacity) {
+    this(initialCapacity, false);
+  }
+
+  private #E##F#IndexedHeap(int initialCapacity, boolean maxHeap) {
+    if (initialCapacity < 0) throw new IllegalArgumentException("initialCapacity=" + initialCapacity);
+    myMask = maxHeap ? -1 : 0;
+    myKeys = initialCapacity == 0 ? IntegersUtils.EMPTY_#EC#S : new #e#[initialCapacity];
+    myValues = initialCapacity == 0 ? IntegersUtils.EMPTY_#FC#S : new #f#[initialCapacity];
+    myHeapHandles = initialCapacity == 0 ? IntegersUtils.EMPTY_INTS : new int[initialCapacity];
+    myPositions = initialCapacity == 0 ? IntegersUtils.EMPTY_INTS : new int[initialCapacity];
+  }
+
+  /**
+   * @return an empty heap which returns the entry with the greatest priority first
+   */
+  public static #E##F#IndexedHeap createMaxHeap(int initialCapacity) {
+    return new #E##F#IndexedHeap(initialCapacity, true);
+  }
+
+  public boolean isMaxHeap() {
+    return myMask != 0;
+  }
+
+  public int size() {
+    return mySize;
+  }
+
+  public boolean isEmpty() {
+    return mySize == 0;
+  }
+
+  public void clear() {
+    mySize = 0;
+    myHandleCount = 0;
+    myFreeHandle = -1;
+  }
+
+  /**
+   * Makes room for {@code capacity} entries.
+   */
+  public void ensureCapacity(int capacity) {
+    myKeys = #E#Collections.ensureCapacity(myKeys, capacity);
+    myHeapHandles = IntCollections.ensureCapacity(myHeapHandles, capacity);
+    myValues = #F#Collections.ensureCapacity(myValues, capacity);
+    myPositions = IntCollections.ensureCapacity(myPositions, capacity);
+  }
+
+  /**
+   * @return the handle of the added entry
+   */
+  public int add(#e# priority, #f# value) {
+    int handle = allocateHandle();
+    myValues[handle] = value;
+    siftUp(mySize++, priority ^ myMask, handle);
+    assert !IntegersDebug.CHECK || checkInvariants();
+    return handle;
+  }
+
+  /**
+   * Adds the entries {@code (priorities.get(i), values.get(i))} for all {@code i}, in that order.
+   * If there are not fewer entries to add than this heap contains, the heap is rebuilt from scratch in
+   * {@code O(size())}, otherwise the entries are added one by one.
+   * @throws IllegalArgumentException if the lists have different sizes
+   */
+  public void addAll(#E#List priorities, #F#List values) throws IllegalArgumentException {
+    int n = priorities.size();
+    if (values.size() != n) throw new IllegalArgumentException("Sizes of priorities and values lists are not equal: " + n + " priorities, but " + values.size() + " values");
+    if (n == 0) return;
+    ensureCapacity(mySize + n);
+    boolean rebuild = n >= mySize;
+    #E#Iterator pit = priorities.iterator();
+    for (#F#Iterator vit : values) {
+      #e# key = pit.nextValue() ^ myMask;
+      int handle = allocateHandle();
+      myValues[handle] = vit.value();
+      if (rebuild) {
+        setEntry(mySize++, key, handle);
+      } else {
+        siftUp(mySize++, key, handle);
+      }
+    }
+    if (rebuild) {
+      for (int i = (mySize >>> 1) - 1; i >= 0; i--) {
+        siftDown(i, myKeys[i], myHeapHandles[i]);
+      }
+    }
+    assert !IntegersDebug.CHECK || checkInvariants();
+  }
+
+  /**
+   * @return true if the handle belongs to an entry of this heap
+   */
+  public boolean contains(int handle) {
+    return handle >= 0 && handle < myHandleCount && myPositions[handle] >= 0;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the heap does not {@link #contains contain} the handle
+   */
+  public #e# getPriority(int handle) throws IllegalArgumentException {
+    return myKeys[position(handle)] ^ myMask;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the heap does not {@link #contains contain} the handle
+   */
+  public #f# getValue(int handle) throws IllegalArgumentException {
+    position(handle);
+    return myValues[handle];
+  }
+
+  /**
+   * Moves the entry closer to the top: the new priority must not be greater than the current one
+   * (for a {@link #createMaxHeap max-heap}: must not be less).
+   * @throws IllegalArgumentException if the heap does not {@link #contains contain} the handle or the new
+   * priority would move the entry away from the top
+   */
+  public void decreaseKey(int handle, #e# priority) throws IllegalArgumentException {
+    int pos = position(handle);
+    #e# key = priority ^ myMask;
+    if (key > myKeys[pos]) throw new IllegalArgumentException("Cannot decrease key of " + handle + " from " + getPriority(handle) + " to " + priority);
+    siftUp(pos, key, handle);
+    assert !IntegersDebug.CHECK || checkInvariants();
+  }
+
+  /**
+   * Sets the priority of the entry, moving it in either direction.
+   * @throws IllegalArgumentException if the heap does not {@link #contains contain} the handle
+   */
+  public void updatePriority(int handle, #e# priority) throws IllegalArgumentException {
+    int pos = position(handle);
+    #e# key = priority ^ myMask;
+    if (key < myKeys[pos]) {
+      siftUp(pos, key, handle);
+    } else {
+      siftDown(pos, key, handle);
+    }
+    assert !IntegersDebug.CHECK || checkInvariants();
+  }
+
+  /**
+   * Removes the entry, its handle becomes invalid.
+   * @return the value of the removed entry
+   * @throws IllegalArgumentException if the heap does not {@link #contains contain} the handle
+   */
+  public #f# remove(int handle) throws IllegalArgumentException {
+    int pos = position(handle);
+    #f# value = myValues[handle];
+    removeAt(pos);
+    assert !IntegersDebug.CHECK || checkInvariants();
+    return value;
+  }
+
+  /**
+   * @return the handle of the entry with the least priority (the greatest one for a {@link #createMaxHeap max-heap})
+   * @throws NoSuchElementException if the heap is empty
+   */
+  public int peekHandle() throws NoSuchElementException {
+    if (mySize == 0) throw new NoSuchElementException();
+    return myHeapHandles[0];
+  }
+
+  /**
+   * @return the priority of the {@link #peekHandle top} entry
+   * @throws NoSuchElementException if the heap is empty
+   */
+  public #e# peekPriority() throws NoSuchElementException {
+    if (mySize == 0) throw new NoSuchElementException();
+    return myKeys[0] ^ myMask;
+  }
+
+  /**
+   * @return the value of the {@link #peekHandle top} entry
+   * @throws NoSuchElementException if the heap is empty
+   */
+  public #f# peekValue() throws NoSuchElementException {
+    if (mySize == 0) throw new NoSuchElementException();
+    return myValues[myHeapHandles[0]];
+  }
+
+  /**
+   * Removes the {@link #peekHandle top} entry.
+   * @return the value of the removed entry
+   * @throws NoSuchElementException if the heap is empty
+   */
+  public #f# pop() throws NoSuchElementException {
+    if (mySize == 0) throw new NoSuchElementException();
+    #f# value = myValues[myHeapHandles[0]];
+    removeAt(0);
+    assert !IntegersDebug.CHECK || checkInvariants();
+    return value;
+  }
+
+  /**
+   * Pops up to {@code len} entries in the order they would be returned by {@link #pop}, writing their priorities
+   * and values to the specified arrays starting from {@code off}; either array may be null.
+   * @return the number of entries removed, {@code min(len, size())}
+   */
+  public int popBatch(@Nullable #e#[] priorities, @Nullable #f#[] values, int off, int len) {
+    if (off < 0 || len < 0) throw new IndexOutOfBoundsException(off + " " + len);
+    int count = Math.min(len, mySize);
+    if (priorities != null && off + count > priorities.length || values != null && off + count > values.length) {
+      throw new IndexOutOfBoundsException(off + " " + count);
+    }
+    for (int i = 0; i < count; i++) {
+      if (priorities != null) priorities[off + i] = myKeys[0] ^ myMask;
+      if (values != null) values[off + i] = myValues[myHeapHandles[0]];
+      removeAt(0);
+    }
+    assert !IntegersDebug.CHECK || checkInvariants();
+    return count;
+  }
+
+  private int position(int handle) throws IllegalArgumentException {
+    if (!contains(handle)) throw new IllegalArgumentException("Handle " + handle + " is not contained in " + this);
+    return myPositions[handle];
+  }
+
+  private int allocateHandle() {
+    int handle = myFreeHandle;
+    if (handle >= 0) {
+      myFreeHandle = -2 - myPositions[handle];
+    } else {
+      if (myHandleCount == myPositions.length) ensureCapacity(myHandleCount + 1);
+      handle = myHandleCount++;
+    }
+    return handle;
+  }
+
+  private void removeAt(int pos) {
+    int handle = myHeapHandles[pos];
+    myPositions[handle] = -2 - myFreeHandle;
+    myFreeHandle = handle;
+    if (--mySize == pos) return;
+    #e# key = myKeys[mySize];
+    int last = myHeapHandles[mySize];
+    if (pos > 0 && key < myKeys[(pos - 1) >>> 1]) {
+      siftUp(pos, key, last);
+    } else {
+      siftDown(pos, key, last);
+    }
+  }
+
+  private void setEntry(int pos, #e# key, int handle) {
+    myKeys[pos] = key;
+    myHeapHandles[pos] = handle;
+    myPositions[handle] = pos;
+  }
+
+  /** Moves the hole at {@code i} up until the entry can be placed there. */
+  private void siftUp(int i, #e# key, int handle) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (myKeys[parent] <= key) break;
+      setEntry(i, myKeys[parent], myHeapHandles[parent]);
+      i = parent;
+    }
+    setEntry(i, key, handle);
+  }
+
+  /** Moves the hole at {@code i} down until the entry can be placed there; {@code mySize} must not include the hole. */
+  private void siftDown(int i, #e# key, int handle) {
+    #e#[] keys = myKeys;
+    int size = mySize;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+      if (key <= keys[child]) break;
+      setEntry(i, keys[child], myHeapHandles[child]);
+      i = child;
+    }
+    setEntry(i, key, handle);
+  }
+
+  private boolean checkInvariants() {
+    assert mySize <= myHandleCount : mySize + " " + myHandleCount;
+    for (int i = 0; i < mySize; i++) {
+      assert i == 0 || myKeys[(i - 1) >>> 1] <= myKeys[i] : i + " " + myKeys[(i - 1) >>> 1] + " " + myKeys[i];
+      assert myPositions[myHeapHandles[i]] == i : i + " " + myHeapHandles[i] + " " + myPositions[myHeapHandles[i]];
+    }
+    int free = 0;
+    for (int h = myFreeHandle; h >= 0; h = -2 - myPositions[h]) {
+      assert myPositions[h] < 0 : h + " " + myPositions[h];
+      assert ++free <= myHandleCount : free + " " + myHandleCount;
+    }
+    assert free + mySize == myHandleCount : free + " " + mySize + " " + myHandleCount;
+    return true;
+  }
+
+  public String toString() {
+    return "#E##F#IndexedHeap[" + mySize + (mySize == 0 ? "" : ", top=(" + peekPriority() + ", " + peekValue() + ")") + "]";
+  }
+}
@@ -16,6 +16,8 @@
 
 package com.almworks.integers;
 
+import com.almworks.integers.func.#E##F#Condition;
+import com.almworks.integers.func.#E##F#Procedure;
 import org.jetbrains.annotations.NotNull;
 
 public interface #E##F#Iterable extends Iterable<#E##F#Iterator> {
@@ -25,4 +27,28 @@ public interface #E##F#Iterable extends Iterable<#E##F#Iterator> {
    */
   @NotNull
   #E##F#Iterator iterator();
+
+  /**
+   * Calls {@code procedure} for every pair in the order of {@link #iterator()}.
+   */
+  default void forEachPair(#E##F#Procedure procedure) {
+    #E##F#Iterator it = iterator();
+    while (it.hasNext()) {
+      it.next();
+      procedure.invoke(it.left(), it.right());
+    }
+  }
+
+  /**
+   * Calls {@code condition} for the pairs in the order of {@link #iterator()} until it returns false.
+   * @return true if {@code condition} returned true for all pairs
+   */
+  default boolean forEachWhile(#E##F#Condition condition) {
+    #E##F#Iterator it = iterator();
+    while (it.hasNext()) {
+      it.next();
+      if (!condition.invoke(it.left(), it.right())) return false;
+    }
+    return true;
+  }
 }
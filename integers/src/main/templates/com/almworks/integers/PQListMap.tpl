@@ -18,8 +18,12 @@
 
 package com.almworks.integers;
 
+import com.almworks.integers.func.#E##F#Condition;
+import com.almworks.integers.func.#E##F#Procedure;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ConcurrentModificationException;
+
 public class #E##F#ListMap extends AbstractWritable#E##F#Map {
   private final Writable#E#List myKeys;
   private final Writable#F#List myValues;
@@ -189,6 +193,28 @@ public class #E##F#ListMap extends AbstractWritable#E##F#Map {
     };
   }
 
+  @Override
+  public void forEachPair(#E##F#Procedure procedure) {
+    checkMutatorPresence();
+    int modCount = myModCount;
+    for (int i = 0, size = myKeys.size(); i < size; i++) {
+      procedure.invoke(myKeys.get(i), myValues.get(i));
+      if (modCount != myModCount) throw new ConcurrentModificationException(modCount + " " + myModCount);
+    }
+  }
+
+  @Override
+  public boolean forEachWhile(#E##F#Condition condition) {
+    checkMutatorPresence();
+    int modCount = myModCount;
+    for (int i = 0, size = myKeys.size(); i < size; i++) {
+      boolean proceed = condition.invoke(myKeys.get(i), myValues.get(i));
+      if (modCount != myModCount) throw new ConcurrentModificationException(modCount + " " + myModCount);
+      if (!proceed) return false;
+    }
+    return true;
+  }
+
   public boolean containsKey(#e# key) {
     checkMutatorPresence();
     return findKey(key) >= 0;
@@ -0,0 +1,408 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.BitSet;
+
+/**
+ * A hash map from {@code #e#} to {@code #f#}, implemented using open addressing with linear probing
+ * in the same way as {@link #E#OpenHashSet}: power-of-two tables and the <code>MurmurHash3</code> finalization step
+ * as the hash function (override {@link #hash(#e#)} to change it).
+ * <br>It makes no guarantees as to the iteration order of the map;
+ * in particular, it does not guarantee that the order will remain constant over time.
+ *
+ * <p>For counters, use {@link #addTo(#e#, #f#)} and {@link #putOrAdd(#e#, #f#, #f#)}, which look the key up once.
+ */
+public class #E##F#OpenHashMap extends AbstractWritable#E##F#Map {
+  final static int DEFAULT_CAPACITY = 16;
+  final static float DEFAULT_LOAD_FACTOR = 0.75f;
+
+  private #e#[] myKeys;
+  private #f#[] myValues;
+  private BitSet myAllocated;
+  private final float myLoadFactor;
+  private int myThreshold;
+  private int mySize = 0;
+  private int myMask;
+  private final #e# myPerturbation = System.identityHashCode(this);
+
+  /**
+   * No guarantees are made regarding the number of entries that can be added to the created map without rehash.
+   * {@code initialCapacity} influences only the amount of memory initially allocated.
+   * If you need such guarantees, use {@link #createForAdd(int, float)}.
+   */
+  public #E##F#OpenHashMap(int initialCapacity, float loadFactor) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+    }
+    if (!(0 < loadFactor && loadFactor < 1)) {
+      throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+    }
+
+    int keysLength = IntegersUtils.nextHighestPowerOfTwo(Math.max(DEFAULT_CAPACITY, initialCapacity));
+    assert (keysLength & (keysLength - 1)) == 0;
+
+    this.myLoadFactor = loadFactor;
+    init(new #e#[keysLength], new #f#[keysLength], new BitSet(keysLength), (int) (keysLength * loadFactor));
+  }
+
+  /**
+   * Creates new hashmap with default load factor
+   * @see ##E##F#OpenHashMap(int, float)
+   */
+  public #E##F#OpenHashMap(int initialCapacity) {
+    this(initialCapacity, DEFAULT_LOAD_FACTOR);
+  }
+
+  /**
+   * Creates new hashmap with default load factor and default capacity
+   */
+  public #E##F#OpenHashMap() {
+    this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+  }
+
+  private void init(#e#[] keys, #f#[] values, BitSet allocated, int threshold) {
+    myKeys = keys;
+    myValues = values;
+    myAllocated = allocated;
+    myThreshold = threshold;
+    myMask = keys.length - 1;
+    assert (myMask & (myMask + 1)) == 0;
+  }
+
+  /**
+   * Creates new hashmap with the specified load factor
+   * that is garanteed to not invoke {@code resize} after adding {@code count} entries
+   * @return new hashmap with the specified capacity dependent on {@code count} and {@code loadFactor}
+   */
+  public static #E##F#OpenHashMap createForAdd(int count, float loadFactor) {
+    int initialCapacity = (int)(count / loadFactor) + 1;
+    return new #E##F#OpenHashMap(initialCapacity, loadFactor);
+  }
+
+  /**
+   * Creates new hashmap with default load factor
+   * @see #createForAdd(int, float)
+   */
+  public static #E##F#OpenHashMap createForAdd(int count) {
+    return createForAdd(count, DEFAULT_LOAD_FACTOR);
+  }
+
+  /**
+   * @throws IllegalArgumentException if {@code keys} and {@code values} have different sizes
+   */
+  public static #E##F#OpenHashMap createFrom(#E#Iterable keys, #F#Iterable values) {
+    int keysSize = #E#Collections.sizeOfIterable(keys, 0);
+    int valuesSize = #F#Collections.sizeOfIterable(values, 0);
+    if (keysSize != valuesSize) {
+      throw new IllegalArgumentException("keys.size() != values.size()");
+    }
+    #E##F#OpenHashMap map = createForAdd(keysSize);
+    #E#Iterator keysIt = keys.iterator();
+    #F#Iterator valuesIt = values.iterator();
+    map.putAll(#E##F#Iterators.pair(keysIt, valuesIt));
+    if (keysIt.hasNext() || valuesIt.hasNext()) {
+      throw new IllegalArgumentException("keys.size() != values.size()");
+    }
+    return map;
+  }
+
+  /**
+   * @throws IllegalArgumentException if {@code keys.length != values.length}
+   */
+  public static #E##F#OpenHashMap createFrom(#e#[] keys, #f#[] values) {
+    if (keys.length != values.length) {
+      throw new IllegalArgumentException("Arrays of keys and values must have an identical length.");
+    }
+    #E##F#OpenHashMap map = createForAdd(keys.length);
+    map.putAll(keys, values);
+    return map;
+  }
+
+  protected int hash(#e# key) {
+    return IntegersUtils.hash(key ^ myPerturbation);
+  }
+
+  private int index(int hash, int mask) {
+    // length = 2^k
+    // "hash & mask" equal to "hash % length"
+    return hash & mask;
+  }
+
+  private void resize(int newCapacity) {
+    assert (newCapacity & (newCapacity - 1)) == 0 && newCapacity > 0;
+    int mask = newCapacity - 1;
+
+    #e#[] keysNew = new #e#[newCapacity];
+    #f#[] valuesNew = new #f#[newCapacity];
+    BitSet allocatedNew = new BitSet(newCapacity);
+
+    for (int i = myAllocated.nextSetBit(0); i >= 0; i = myAllocated.nextSetBit(i + 1)) {
+      #e# key = myKeys[i];
+      int slot = index(hash(key), mask);
+      while (allocatedNew.get(slot)) {
+        slot = index(slot + 1, mask);
+      }
+      keysNew[slot] = key;
+      valuesNew[slot] = myValues[i];
+      allocatedNew.set(slot);
+    }
+
+    init(keysNew, valuesNew, allocatedNew, (int)(newCapacity * myLoadFactor));
+  }
+
+  /**
+   * @return the slot of {@code key}, or {@code -1 - slot} where slot is the free slot where {@code key} would be inserted
+   */
+  private int find(#e# key) {
+    int slot = index(hash(key), myMask);
+    while (myAllocated.get(slot)) {
+      if (key == myKeys[slot]) return slot;
+      slot = index(slot + 1, myMask);
+    }
+    return -1 - slot;
+  }
+
+  /**
+   * @return the slot for {@code key}, allocated and filled with {@code value} if the map did not contain {@code key},
+   * or {@code -1 - slot} where slot is the existing slot of {@code key}
+   */
+  private int insert(#e# key, #f# value) {
+    if (mySize + 1 > myThreshold) {
+      int slot = find(key);
+      if (slot >= 0) return -1 - slot;
+      resize(myKeys.length << 1);
+    }
+    int slot = find(key);
+    if (slot >= 0) return -1 - slot;
+    slot = -1 - slot;
+    myKeys[slot] = key;
+    myValues[slot] = value;
+    myAllocated.set(slot);
+    mySize++;
+    return slot;
+  }
+
+  @Override
+  protected #f# putImpl(#e# key, #f# value) {
+    int slot = insert(key, value);
+    if (slot >= 0) return DEFAULT_VALUE;
+    slot = -1 - slot;
+    #f# old = myValues[slot];
+    myValues[slot] = value;
+    return old;
+  }
+
+  @Override
+  public boolean putIfAbsent(#e# key, #f# value) {
+    modified();
+    return insert(key, value) >= 0;
+  }
+
+  /**
+   * If {@code key} is in the map, adds {@code additionValue} to its value, otherwise puts {@code putValue}.
+   * @return the value associated with {@code key} after the change
+   */
+  public #f# putOrAdd(#e# key, #f# putValue, #f# additionValue) {
+    modified();
+    int slot = insert(key, putValue);
+    if (slot >= 0) return putValue;
+    slot = -1 - slot;
+    return myValues[slot] += additionValue;
+  }
+
+  /**
+   * Adds {@code additionValue} to the value of {@code key}, which is taken as {@link #DEFAULT_VALUE} if the map
+   * does not contain {@code key}.
+   * @return the value associated with {@code key} after the change
+   */
+  public #f# addTo(#e# key, #f# additionValue) {
+    return putOrAdd(key, additionValue, additionValue);
+  }
+
+  @Override
+  public #f# get(#e# key) {
+    return getOrDefault(key, DEFAULT_VALUE);
+  }
+
+  /**
+   * @return the value associated with {@code key} or {@code defaultValue} if the map does not contain {@code key}
+   */
+  public #f# getOrDefault(#e# key, #f# defaultValue) {
+    int slot = find(key);
+    return slot >= 0 ? myValues[slot] : defaultValue;
+  }
+
+  @Override
+  public boolean containsKey(#e# key) {
+    return find(key) >= 0;
+  }
+
+  @Override
+  public boolean remove(#e# key, #f# value) {
+    modified();
+    int slot = find(key);
+    if (slot < 0 || myValues[slot] != value) return false;
+    mySize--;
+    shiftConflictingKeys(slot);
+    return true;
+  }
+
+  @Override
+  protected #f# removeImpl(#e# key) {
+    int slot = find(key);
+    if (slot < 0) return DEFAULT_VALUE;
+    #f# old = myValues[slot];
+    mySize--;
+    shiftConflictingKeys(slot);
+    return old;
+  }
+
+  /**
+   * Shift all the slot-conflicting entries allocated to (and including) <code>slot</code>.
+   * @see #E#OpenHashSet
+   */
+  private void shiftConflictingKeys(int slotCurr) {
+    int slotPrev, slotOther;
+    while (true) {
+      slotPrev = slotCurr;
+      slotCurr = index(slotCurr + 1, myMask);
+
+      while (myAllocated.get(slotCurr)) {
+        slotOther = index(hash(myKeys[slotCurr]), myMask);
+        if (slotPrev <= slotCurr) {
+          // We are on the right of the original slot.
+          if (slotPrev >= slotOther || slotOther > slotCurr) break;
+        } else {
+          // We have wrapped around.
+          if (slotPrev >= slotOther && slotOther > slotCurr) break;
+        }
+        slotCurr = index(slotCurr + 1, myMask);
+      }
+
+      if (!myAllocated.get(slotCurr)) break;
+
+      // Shift key/value pair.
+      myKeys[slotPrev] = myKeys[slotCurr];
+      myValues[slotPrev] = myValues[slotCurr];
+    }
+
+    myAllocated.clear(slotPrev);
+  }
+
+  @Override
+  public void clear() {
+    modified();
+    mySize = 0;
+    myAllocated.clear();
+  }
+
+  @Override
+  public int size() {
+    return mySize;
+  }
+
+  /**
+   *  @return maximum number of entries that this map may contain without rehash
+   */
+  public int getThreshold() {
+    return myThreshold;
+  }
+
+  @NotNull
+  public #E##F#Iterator iterator() {
+    return new #E##F#FailFastIterator(new #E##F#FindingIterator() {
+      int curSlot = 0;
+      @Override
+      protected boolean findNext() {
+        curSlot = myAllocated.nextSetBit(curSlot);
+        if (curSlot == -1) return false;
+        myNextLeft = myKeys[curSlot];
+        myNextRight = myValues[curSlot];
+        curSlot++;
+        return true;
+      }
+    }) {
+      @Override
+      protected int getCurrentModCount() {
+        return myModCount;
+      }
+    };
+  }
+
+  public #E#Iterator keysIterator() {
+    return new #E#FailFastIterator<#E#Iterator>(new #E#FindingIterator() {
+      int curSlot = 0;
+      @Override
+      protected boolean findNext() {
+        curSlot = myAllocated.nextSetBit(curSlot);
+        if (curSlot == -1) return false;
+        myNext = myKeys[curSlot++];
+        return true;
+      }
+
+      @Override
+      protected int findNextBatch(#e#[] dst, int off, int len) {
+        int count = 0;
+        while (count < len) {
+          curSlot = myAllocated.nextSetBit(curSlot);
+          if (curSlot == -1) break;
+          dst[off + count++] = myKeys[curSlot++];
+        }
+        return count;
+      }
+    }) {
+      @Override
+      protected int getCurrentModCount() {
+        return myModCount;
+      }
+    };
+  }
+
+  public #F#Iterator valuesIterator() {
+    return new #F#FailFastIterator<#F#Iterator>(new #F#FindingIterator() {
+      int curSlot = 0;
+      @Override
+      protected boolean findNext() {
+        curSlot = myAllocated.nextSetBit(curSlot);
+        if (curSlot == -1) return false;
+        myNext = myValues[curSlot++];
+        return true;
+      }
+
+      @Override
+      protected int findNextBatch(#f#[] dst, int off, int len) {
+        int count = 0;
+        while (count < len) {
+          curSlot = myAllocated.nextSetBit(curSlot);
+          if (curSlot == -1) break;
+          dst[off + count++] = myValues[curSlot++];
+        }
+        return count;
+      }
+    }) {
+      @Override
+      protected int getCurrentModCount() {
+        return myModCount;
+      }
+    };
+  }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import java.util.Arrays;
+
+/**
+ * Stable LSD radix sort for {@code #e#} keys, one byte per pass.
+ * <p>All byte histograms are built in a single pass over the keys, and passes in which all keys share
+ * the same byte are skipped, so keys of a narrow range take fewer than {@code #EW#.SIZE / 8} passes.
+ * Lists sorted together with the keys are permuted once at the end instead of on every swap.
+ * <p>The sort needs scratch space of the size of the sorted data. An instance keeps its scratch buffers
+ * between calls, so sorting many large arrays with one instance allocates only once.
+ * Instances are not thread-safe.
+ *
+ * @see #E#Array#sort(Writable#E#List...)
+ * @see #E#Collections#sortPairs(Writable#E#List, Writable#E#List)
+ */
+public final class #E#RadixSort {
+  private static final int BITS = 8;
+  private static final int RADIX = 1 << BITS;
+  private static final int MASK = RADIX - 1;
+  private static final int DIGITS = #EW#.SIZE / BITS;
+  /** flips the sign bit in the most significant digit, so that negative keys go first */
+  private static final int SIGN = RADIX >>> 1;
+
+  /**
+   * Below this size {@link #sort(#e#[], int, int)} delegates to {@link Arrays#sort(#e#[], int, int)},
+   * which is faster for small arrays and needs no scratch space.
+   */
+  static final int ARRAYS_SORT_THRESHOLD = 1 << 12;
+
+  /**
+   * Sorts of up to this size use a sorter cached per thread, see {@link #sorter(int)}. Larger sorts allocate scratch
+   * space proportional to the data anyway, and caching it would keep that memory after the sort.
+   */
+  private static final int MAX_CACHED_SIZE = 1 << 16;
+
+  private static final ThreadLocal<#E#RadixSort> CACHED = new ThreadLocal<#E#RadixSort>() {
+    @Override
+    protected #E#RadixSort initialValue() {
+      return new #E#RadixSort();
+    }
+  };
+
+  private final int[] myCounts = new int[DIGITS * RADIX];
+  private #e#[] myKeys = IntegersUtils.EMPTY_#EC#S;
+  private #e#[] myKeysScratch = IntegersUtils.EMPTY_#EC#S;
+  private int[] myIndices = IntegersUtils.EMPTY_INTS;
+  private int[] myIndicesScratch = IntegersUtils.EMPTY_INTS;
+
+  /**
+   * @return a sorter for {@code size} elements: the instance cached for the current thread if {@code size} is small
+   * enough, so that repeated sorts do not allocate scratch space, or a new instance otherwise.
+   * The returned sorter must not be used after the sort it was requested for.
+   */
+  static #E#RadixSort sorter(int size) {
+    return size <= MAX_CACHED_SIZE ? CACHED.get() : new #E#RadixSort();
+  }
+
+  /**
+   * Sorts {@code keys[from, to)} in ascending order.
+   */
+  public void sort(#e#[] keys, int from, int to) {
+    int n = to - from;
+    if (n < ARRAYS_SORT_THRESHOLD) {
+      Arrays.sort(keys, from, to);
+      return;
+    }
+    if (myKeysScratch.length < n) myKeysScratch = new #e#[n];
+    if (radixSort(keys, null, from, n, myKeysScratch, null)) {
+      System.arraycopy(myKeysScratch, 0, keys, from, n);
+    }
+  }
+
+  /**
+   * Sorts {@code keys[from, to)} in ascending order, moving {@code indices[from, to)} along.
+   * Elements with equal keys keep their relative order.
+   */
+  void sort(#e#[] keys, int[] indices, int from, int to) {
+    int n = to - from;
+    if (n < 2) return;
+    if (myKeysScratch.length < n) myKeysScratch = new #e#[n];
+    if (myIndicesScratch.length < n) myIndicesScratch = new int[n];
+    if (radixSort(keys, indices, from, n, myKeysScratch, myIndicesScratch)) {
+      System.arraycopy(myKeysScratch, 0, keys, from, n);
+      System.arraycopy(myIndicesScratch, 0, indices, from, n);
+    }
+  }
+
+  /**
+   * Sorts {@code keys} in ascending order; each of {@code sortAlso} is reordered in the same way as {@code keys}.
+   * Elements with equal keys keep their relative order.
+   * @param sortAlso lists not shorter than {@code keys}; only their first {@code keys.size()} elements are reordered
+   */
+  public void sort(Writable#E#List keys, Writable#E#List... sortAlso) {
+    int n = keys.size();
+    if (n < 2) return;
+    if (sortAlso == null || sortAlso.length == 0) {
+      ensureKeys(n);
+      keys.toNativeArray(0, myKeys, 0, n);
+      sort(myKeys, 0, n);
+      keys.setAll(0, new #E#Array(myKeys, n));
+      return;
+    }
+    ensureKeys(n);
+    ensureIndices(n);
+    keys.toNativeArray(0, myKeys, 0, n);
+    sortBuffers(n);
+    keys.setAll(0, new #E#Array(myKeys, n));
+    for (Writable#E#List list : sortAlso) {
+      permute(list, n);
+    }
+  }
+
+  /**
+   * Sorts pairs {@code (primary[i], secondary[i])} lexicographically.
+   * @see #E#Collections#sortPairs(Writable#E#List, Writable#E#List)
+   */
+  public void sortPairs(Writable#E#List primary, Writable#E#List secondary) {
+    int n = primary.size();
+    if (n < 2) return;
+    ensureKeys(n);
+    ensureIndices(n);
+    // stable sort by secondary, then by primary
+    secondary.toNativeArray(0, myKeys, 0, n);
+    sortBuffers(n);
+    primary.toNativeArray(0, myKeysScratch, 0, n);
+    for (int i = 0; i < n; i++) {
+      myKeys[i] = myKeysScratch[myIndices[i]];
+    }
+    radixSortBuffers(n);
+    primary.setAll(0, new #E#Array(myKeys, n));
+    permute(secondary, n);
+  }
+
+  private void permute(Writable#E#List list, int n) {
+    list.toNativeArray(0, myKeysScratch, 0, n);
+    for (int i = 0; i < n; i++) {
+      myKeys[i] = myKeysScratch[myIndices[i]];
+    }
+    list.setAll(0, new #E#Array(myKeys, n));
+  }
+
+  /**
+   * Sorts {@code myKeys[0, n)}, leaving in {@code myIndices} the original index of every key.
+   */
+  private void sortBuffers(int n) {
+    for (int i = 0; i < n; i++) {
+      myIndices[i] = i;
+    }
+    radixSortBuffers(n);
+  }
+
+  private void radixSortBuffers(int n) {
+    if (radixSort(myKeys, myIndices, 0, n, myKeysScratch, myIndicesScratch)) {
+      #e#[] keys = myKeys;
+      myKeys = myKeysScratch;
+      myKeysScratch = keys;
+      int[] indices = myIndices;
+      myIndices = myIndicesScratch;
+      myIndicesScratch = indices;
+    }
+  }
+
+  private void ensureKeys(int n) {
+    if (myKeys.length < n) myKeys = new #e#[n];
+    if (myKeysScratch.length < n) myKeysScratch = new #e#[n];
+  }
+
+  private void ensureIndices(int n) {
+    if (myIndices.length < n) myIndices = new int[n];
+    if (myIndicesScratch.length < n) myIndicesScratch = new int[n];
+  }
+
+  private static int digit(#e# key, int shift, int flip) {
+    // masking with a long makes the cast to int a narrowing one for both key types
+    return (int) ((key >>> shift) & (long) MASK) ^ flip;
+  }
+
+  /**
+   * Sorts {@code n} keys starting at {@code keys[from]}, moving {@code indices[from...]} along if they are not null.
+   * {@code keysScratch} and {@code indicesScratch} are used from index 0.
+   * @return true if the sorted data ended up in the scratch arrays
+   */
+  private boolean radixSort(#e#[] keys, int[] indices, int from, int n, #e#[] keysScratch, int[] indicesScratch) {
+    int[] counts = myCounts;
+    Arrays.fill(counts, 0);
+    for (int i = from, to = from + n; i < to; i++) {
+      #e# key = keys[i];
+      for (int d = 0; d < DIGITS; d++) {
+        counts[d * RADIX + digit(key, d * BITS, d == DIGITS - 1 ? SIGN : 0)]++;
+      }
+    }
+
+    #e#[] srcKeys = keys, dstKeys = keysScratch;
+    int[] srcIndices = indices, dstIndices = indicesScratch;
+    int srcFrom = from, dstFrom = 0;
+    boolean inScratch = false;
+    for (int d = 0; d < DIGITS; d++) {
+      int base = d * RADIX;
+      int shift = d * BITS;
+      int flip = d == DIGITS - 1 ? SIGN : 0;
+      if (counts[base + digit(srcKeys[srcFrom], shift, flip)] == n) continue;
+
+      for (int b = 0, sum = dstFrom; b < RADIX; b++) {
+        int count = counts[base + b];
+        counts[base + b] = sum;
+        sum += count;
+      }
+      if (srcIndices == null) {
+        for (int i = srcFrom, to = srcFrom + n; i < to; i++) {
+          #e# key = srcKeys[i];
+          dstKeys[counts[base + digit(key, shift, flip)]++] = key;
+        }
+      } else {
+        for (int i = srcFrom, to = srcFrom + n; i < to; i++) {
+          #e# key = srcKeys[i];
+          int pos = counts[base + digit(key, shift, flip)]++;
+          dstKeys[pos] = key;
+          dstIndices[pos] = srcIndices[i];
+        }
+      }
+
+      #e#[] keysTmp = srcKeys;
+      srcKeys = dstKeys;
+      dstKeys = keysTmp;
+      int[] indicesTmp = srcIndices;
+      srcIndices = dstIndices;
+      dstIndices = indicesTmp;
+      int fromTmp = srcFrom;
+      srcFrom = dstFrom;
+      dstFrom = fromTmp;
+      inScratch = !inScratch;
+    }
+    return inScratch;
+  }
+}
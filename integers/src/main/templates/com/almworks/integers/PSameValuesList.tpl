@@ -18,8 +18,11 @@
 
 package com.almworks.integers;
 
+import com.almworks.integers.func.#E#Condition;
+import com.almworks.integers.func.#E#Procedure;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
 
@@ -29,6 +32,9 @@ import static com.almworks.integers.IntIterators.repeat;
  * This list is memory-optimized to contain values where each value is
  * likely to be the same as the previous one. Values are stored as
  * a map index_where_value_starts=>value.
+ * <br>{@link #get(int)} remembers the last accessed run, so sequential access is O(1) amortized;
+ * {@link #toNativeArray(int, #e#[], int, int)}, {@link #forEachValue} and iterators' {@code nextBatch} work run by run.
+ * @see #E#ProgressionRunsList
  */
 public class #E#SameValuesList extends AbstractWritable#E#List {
   /**
@@ -36,6 +42,12 @@ public class #E#SameValuesList extends AbstractWritable#E#List {
    */
   private Int#E#ListMap myMap;
 
+  /**
+   * Index of the pair in {@link #myMap} for the run that contained the last index passed to {@link #get(int)}.
+   * It is a hint only: it is validated on each use, so modifications need not reset it.
+   */
+  private int myLastRun;
+
   public #E#SameValuesList() {
     this(new Int#E#ListMap());
   }
@@ -113,8 +125,75 @@ public class #E#SameValuesList extends AbstractWritable#E#List {
     assert !IntegersDebug.CHECK || checkInvariants();
     if (index < 0 || index >= size())
       throw new IndexOutOfBoundsException(index + " " + this);
-    int ki = myMap.findKey(index);
-    return valueForFind(ki);
+    int ki = myLastRun;
+    if (!isInRun(ki, index)) {
+      if (isInRun(ki + 1, index)) {
+        ki++;
+      } else {
+        ki = myMap.findKey(index);
+        if (ki < 0) ki = -ki - 2;
+      }
+      myLastRun = ki;
+    }
+    return myMap.getValueAt(ki);
+  }
+
+  /**
+   * @return true if the run that starts with the pair number {@code ki} in {@link #myMap} contains {@code index},
+   * {@code index} must be less than {@code size()}
+   */
+  private boolean isInRun(int ki, int index) {
+    int mapSize = myMap.size();
+    return ki < mapSize && myMap.getKeyAt(ki) <= index && (ki + 1 == mapSize || index < myMap.getKeyAt(ki + 1));
+  }
+
+  /**
+   * @return the index that follows the run that starts with the pair number {@code ki} in {@link #myMap}
+   */
+  private int runEnd(int ki) {
+    return ki + 1 < myMap.size() ? myMap.getKeyAt(ki + 1) : size();
+  }
+
+  @Override
+  public #e#[] toNativeArray(int startIndex, #e#[] dest, int destOffset, int length) {
+    if (length <= 0) return dest;
+    if (startIndex < 0 || startIndex + length > size())
+      throw new IndexOutOfBoundsException(startIndex + " " + length + " " + this);
+    int ki = myMap.findKey(startIndex);
+    if (ki < 0) ki = -ki - 2;
+    int to = startIndex + length;
+    for (int i = startIndex; i < to; ki++) {
+      int runEnd = Math.min(runEnd(ki), to);
+      Arrays.fill(dest, destOffset + i - startIndex, destOffset + runEnd - startIndex, myMap.getValueAt(ki));
+      i = runEnd;
+    }
+    return dest;
+  }
+
+  @Override
+  public void forEachValue(#E#Procedure procedure) {
+    int modCount = modCount();
+    for (int ki = 0, mapSize = myMap.size(); ki < mapSize; ki++) {
+      #e# value = myMap.getValueAt(ki);
+      for (int i = myMap.getKeyAt(ki), runEnd = runEnd(ki); i < runEnd; i++) {
+        procedure.invoke(value);
+        if (modCount != modCount()) throw new ConcurrentModificationException(modCount + " " + modCount());
+      }
+    }
+  }
+
+  @Override
+  public boolean forEachWhile(#E#Condition condition) {
+    int modCount = modCount();
+    for (int ki = 0, mapSize = myMap.size(); ki < mapSize; ki++) {
+      #e# value = myMap.getValueAt(ki);
+      for (int i = myMap.getKeyAt(ki), runEnd = runEnd(ki); i < runEnd; i++) {
+        boolean proceed = condition.invoke(value);
+        if (modCount != modCount()) throw new ConcurrentModificationException(modCount + " " + modCount());
+        if (!proceed) return false;
+      }
+    }
+    return true;
   }
 
   private #e# valueForFind(int ki) {
@@ -486,6 +565,26 @@ public class #E#SameValuesList extends AbstractWritable#E#List {
       return this;
     }
 
+    @Override
+    public int nextBatch(#e#[] dst, int off, int len) throws ConcurrentModificationException {
+      checkMod();
+      int next = getNextIndex();
+      int to = Math.min(getTo(), next + len);
+      if (next >= to) return 0;
+      setNotRemoved();
+      for (int i = next; i < to; ) {
+        if (i == myNextChangeIndex) {
+          myValue = myIterator.right();
+          advanceToNextChange();
+        }
+        int runEnd = Math.min(myNextChangeIndex, to);
+        Arrays.fill(dst, off + i - next, off + runEnd - next, myValue);
+        i = runEnd;
+      }
+      setNext(to);
+      return to - next;
+    }
+
     public #e# value() throws NoSuchElementException {
       if (isJustRemoved())
         throw new IllegalStateException();
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Implemented by sorted sets that can compute the union and the intersection with some other sets directly,
+ * faster than by merging iterators. {@link #E#Collections#toSortedUnion(#E#Set, #E#Set)} and
+ * {@link #E#Collections#toSortedIntersection(#E#Set, #E#Set)} use it when possible, trying the first operand and then
+ * the second one, so the implementations may rely on the operations being commutative.
+ */
+public interface #E#SetAlgebra extends #E#SortedSet {
+  /**
+   * @return the union of this set and {@code other} as a new set, or null if {@code other} is not supported
+   */
+  @Nullable
+  Writable#E#SortedSet unionOrNull(#E#Set other);
+
+  /**
+   * @return the intersection of this set and {@code other} as a new set, or null if {@code other} is not supported
+   */
+  @Nullable
+  Writable#E#SortedSet intersectionOrNull(#E#Set other);
+}
@@ -20,6 +20,10 @@ package com.almworks.integers;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 public final class #E#SetBuilder extends Abstract#E#Set implements Cloneable, #E#Collector, #E#SortedSet {
   public static final int DEFAULT_TEMP_STORAGE_SIZE = 1024;
 
@@ -91,6 +95,30 @@ public final class #E#SetBuilder extends Abstract#E#Set implements Cloneable, #E
     mergeFromSortedCollection(other.mySorted);
   }
 
+  /**
+   * Merges all of the specified builders into this one at once.
+   * Large merges are done in parallel on {@link ForkJoinPool#commonPool()}.
+   * @see #E#Collections#parallelUnion(ForkJoinPool, #E#List...)
+   */
+  public void mergeFrom(#E#SetBuilder... others) {
+    if (myFinished)
+      throw new IllegalStateException();
+    coalesce();
+    List<#E#List> lists = new ArrayList<#E#List>(others.length + 1);
+    lists.add(mySorted);
+    for (#E#SetBuilder other : others) {
+      if (other != this) {
+        other.coalesce();
+        lists.add(other.mySorted);
+      }
+    }
+    #E#Array merged = #E#ParallelUnion.union(ForkJoinPool.commonPool(), lists);
+    if (merged.size() != mySorted.size()) {
+      modified();
+      mySorted = merged;
+    }
+  }
+
   public void mergeFromSortedCollection(#E#List other) {
     if (myFinished)
       throw new IllegalStateException();
@@ -32,16 +32,13 @@ abstract class #E#SetOperationsIterator extends #E#FindingIterator {
    * */
   protected final List<#E#Iterator> myIts;
   /**
-   * myHeap elements start from index 1, index 0 is unused
-   **/
-  protected final int[] myHeap;
-  protected int heapLength;
-  protected static final int TOP = 1;
+   * Iterators that have a current value: the priority is the value, the value is the index in {@link #myIts}.
+   */
+  protected final #E#IntIndexedHeap myHeap;
 
   public #E#SetOperationsIterator(@NotNull List<#E#Iterator> iterators) {
     myIts = iterators;
-    heapLength = myIts.size();
-    myHeap = new int[heapLength + 1];
+    myHeap = new #E#IntIndexedHeap(myIts.size());
   }
 
   public #E#SetOperationsIterator(@NotNull #E#Iterator... iterators) {
@@ -56,44 +53,29 @@ abstract class #E#SetOperationsIterator extends #E#FindingIterator {
     return result;
   }
 
-  protected static int parent(int i) { return i/2;  }
-
-  private static int left(int i) {   return i*2; }
-
-  private static int right(int i) {  return i*2 + 1; }
-
-  protected final void heapify(int i) {
-    int l = left(i), r = right(i), least;
-    if (l <= heapLength && myIts.get(myHeap[l]).value() < myIts.get(myHeap[i]).value()) {
-      least = l;
-    } else {
-      least = i;
-    }
-    if (r <= heapLength && myIts.get(myHeap[r]).value() < myIts.get(myHeap[least]).value()) {
-      least = r;
-    }
-    if (least != i) {
-      IntCollections.swap(myHeap, i, least);
-      heapify(least);
-    }
-  }
-
+  /**
+   * Moves all iterators that have a next value to their first value and adds them to the heap.
+   */
   protected final void buildHeap() {
-    for (int i = parent(heapLength); i >= 1; i--) {
-      heapify(i);
+    #E#Array values = new #E#Array(myIts.size());
+    IntArray indices = new IntArray(myIts.size());
+    for (int i = 0, n = myIts.size(); i < n; i++) {
+      #E#Iterator it = myIts.get(i);
+      if (it.hasNext()) {
+        values.add(it.nextValue());
+        indices.add(i);
+      }
     }
+    myHeap.addAll(values, indices);
   }
 
   protected final void outputHeap() {
     if (!IntegersDebug.PRINT) return;
-    IntegersDebug.print("output:", heapLength, ": ");
-    for (int i = 1; i <= heapLength; i++) {
-      IntegersDebug.print("(", myHeap[i], myIts.get(myHeap[i]).value(), ")");
-    }
+    IntegersDebug.print("output:", myHeap.size(), ": ", myHeap);
     IntegersDebug.println();
   }
 
   protected #E#Iterator getTopIterator() {
-    return myIts.get(myHeap[TOP]);
+    return myIts.get(myHeap.peekValue());
   }
 }
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.*;
+import java.util.stream.Collector;
+import java.util.stream.#E#Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Bridges #e# collections and {@code java.util.stream}.
+ * <p>
+ * {@link #E#Iterable} is an {@code Iterable<#E#Iterator>}, so {@code Iterable.spliterator()} can only give
+ * boxed iterators; {@link #spliterator(#E#Iterable)} gives a {@code Spliterator.Of#E#} instead.
+ * Lists are split by index, {@link #E#OpenHashSet} by slots of its table, other collections by
+ * copying batches of values from their iterators. Sets report {@code DISTINCT}, sorted sets {@code SORTED} and
+ * {@code ORDERED}, collections that know their size report {@code SIZED}.
+ * <p>
+ * Spliterators bind to the collection when the first value is read. The collection must not be modified while
+ * a stream over it is in use, the result of such a modification is undefined.
+ */
+public class #E#Streams {
+  /**
+   * The size of the first batch taken by {@link IteratorSpliterator#trySplit()}, each next batch is larger.
+   */
+  static final int BATCH_UNIT = 1 << 10;
+  static final int MAX_BATCH = 1 << 25;
+
+  public static Spliterator.Of#E# spliterator(#E#Iterable iterable) {
+    if (iterable instanceof #E#OpenHashSet) {
+      return ((#E#OpenHashSet) iterable).tableSpliterator();
+    }
+    if (iterable instanceof #E#SetBuilder) {
+      return new ListSpliterator((#E#SetBuilder) iterable, Spliterator.SORTED | Spliterator.DISTINCT);
+    }
+    if (iterable instanceof #E#List) {
+      return new ListSpliterator((#E#List) iterable, 0);
+    }
+    if (iterable instanceof #E#SortedSet) {
+      return new IteratorSpliterator(iterable, ((#E#SortedSet) iterable).size(),
+        Spliterator.SIZED | Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT);
+    }
+    if (iterable instanceof #E#Set) {
+      return new IteratorSpliterator(iterable, ((#E#Set) iterable).size(), Spliterator.SIZED | Spliterator.DISTINCT);
+    }
+    if (iterable instanceof #E#SizedIterable) {
+      return new IteratorSpliterator(iterable, ((#E#SizedIterable) iterable).size(), Spliterator.SIZED);
+    }
+    return new IteratorSpliterator(iterable, Long.MAX_VALUE, 0);
+  }
+
+  public static #E#Stream stream(#E#Iterable iterable) {
+    return StreamSupport.#e#Stream(spliterator(iterable), false);
+  }
+
+  public static #E#Stream parallelStream(#E#Iterable iterable) {
+    return StreamSupport.#e#Stream(spliterator(iterable), true);
+  }
+
+  /**
+   * @return a new array with the values of {@code stream} in the encounter order
+   */
+  public static #E#Array toArray(#E#Stream stream) {
+    return stream.collect(ARRAY_SUPPLIER, ARRAY_ADD, ARRAY_ADD_ALL);
+  }
+
+  /**
+   * @return a new set builder with the values of {@code stream}
+   */
+  public static #E#SetBuilder toSetBuilder(#E#Stream stream) {
+    return stream.collect(SET_BUILDER_SUPPLIER, SET_BUILDER_ADD, SET_BUILDER_MERGE);
+  }
+
+  /**
+   * Collector for streams of boxed values, see {@link #toArray(#E#Stream)}.
+   */
+  public static Collector<#EW#, ?, #E#Array> arrayCollector() {
+    return Collector.of(ARRAY_SUPPLIER, new BiConsumer<#E#Array, #EW#>() {
+      public void accept(#E#Array array, #EW# value) {
+        array.add(value);
+      }
+    }, new BinaryOperator<#E#Array>() {
+      public #E#Array apply(#E#Array left, #E#Array right) {
+        left.addAll(right);
+        return left;
+      }
+    });
+  }
+
+  /**
+   * Collector for streams of boxed values, see {@link #toSetBuilder(#E#Stream)}.
+   */
+  public static Collector<#EW#, ?, #E#SetBuilder> setBuilderCollector() {
+    return Collector.of(SET_BUILDER_SUPPLIER, new BiConsumer<#E#SetBuilder, #EW#>() {
+      public void accept(#E#SetBuilder builder, #EW# value) {
+        builder.add(value);
+      }
+    }, new BinaryOperator<#E#SetBuilder>() {
+      public #E#SetBuilder apply(#E#SetBuilder left, #E#SetBuilder right) {
+        left.mergeFrom(right);
+        return left;
+      }
+    }, Collector.Characteristics.UNORDERED);
+  }
+
+  private static final Supplier<#E#Array> ARRAY_SUPPLIER = new Supplier<#E#Array>() {
+    public #E#Array get() {
+      return new #E#Array();
+    }
+  };
+
+  private static final Obj#E#Consumer<#E#Array> ARRAY_ADD = new Obj#E#Consumer<#E#Array>() {
+    public void accept(#E#Array array, #e# value) {
+      array.add(value);
+    }
+  };
+
+  private static final BiConsumer<#E#Array, #E#Array> ARRAY_ADD_ALL = new BiConsumer<#E#Array, #E#Array>() {
+    public void accept(#E#Array left, #E#Array right) {
+      left.addAll(right);
+    }
+  };
+
+  private static final Supplier<#E#SetBuilder> SET_BUILDER_SUPPLIER = new Supplier<#E#SetBuilder>() {
+    public #E#SetBuilder get() {
+      return new #E#SetBuilder();
+    }
+  };
+
+  private static final Obj#E#Consumer<#E#SetBuilder> SET_BUILDER_ADD = new Obj#E#Consumer<#E#SetBuilder>() {
+    public void accept(#E#SetBuilder builder, #e# value) {
+      builder.add(value);
+    }
+  };
+
+  private static final BiConsumer<#E#SetBuilder, #E#SetBuilder> SET_BUILDER_MERGE = new BiConsumer<#E#SetBuilder, #E#SetBuilder>() {
+    public void accept(#E#SetBuilder left, #E#SetBuilder right) {
+      left.mergeFrom(right);
+    }
+  };
+
+  /**
+   * Splits a random access list in halves by index.
+   */
+  static final class ListSpliterator implements Spliterator.Of#E# {
+    /**
+     * The builder whose {@link #E#SetBuilder#toList()} is taken when the spliterator is bound, null for lists
+     */
+    private final #E#SetBuilder myBuilder;
+    private #E#List myList;
+    private final int myCharacteristics;
+    private int myIndex;
+    /**
+     * -1 until the spliterator is bound to the list
+     */
+    private int myFence;
+
+    ListSpliterator(#E#List list, int characteristics) {
+      this(null, list, 0, -1, characteristics | Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED);
+    }
+
+    ListSpliterator(#E#SetBuilder builder, int characteristics) {
+      this(builder, null, 0, -1, characteristics | Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED);
+    }
+
+    private ListSpliterator(#E#SetBuilder builder, #E#List list, int index, int fence, int characteristics) {
+      myBuilder = builder;
+      myList = list;
+      myIndex = index;
+      myFence = fence;
+      myCharacteristics = characteristics;
+    }
+
+    private int fence() {
+      if (myFence < 0) {
+        if (myList == null) myList = myBuilder.toList();
+        myFence = myList.size();
+      }
+      return myFence;
+    }
+
+    public Of#E# trySplit() {
+      int fence = fence();
+      int mid = (myIndex + fence) >>> 1;
+      if (myIndex >= mid) return null;
+      ListSpliterator prefix = new ListSpliterator(null, myList, myIndex, mid, myCharacteristics);
+      myIndex = mid;
+      return prefix;
+    }
+
+    public boolean tryAdvance(#E#Consumer action) {
+      if (action == null) throw new NullPointerException();
+      if (myIndex >= fence()) return false;
+      action.accept(myList.get(myIndex++));
+      return true;
+    }
+
+    public void forEachRemaining(#E#Consumer action) {
+      if (action == null) throw new NullPointerException();
+      int fence = fence();
+      if (myIndex >= fence) return;
+      #e#[] batch = new #e#[Math.min(fence - myIndex, BATCH_UNIT)];
+      while (myIndex < fence) {
+        int count = Math.min(fence - myIndex, batch.length);
+        myList.toNativeArray(myIndex, batch, 0, count);
+        myIndex += count;
+        for (int i = 0; i < count; i++) {
+          action.accept(batch[i]);
+        }
+      }
+    }
+
+    public long estimateSize() {
+      return fence() - myIndex;
+    }
+
+    public int characteristics() {
+      return myCharacteristics;
+    }
+
+    public Comparator<? super #EW#> getComparator() {
+      if (hasCharacteristics(Spliterator.SORTED)) return null;
+      throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Splits off arrays of values read with {@link #E#Iterator#nextBatch}, every next array is larger by {@link #BATCH_UNIT},
+   * in the same way as the JDK spliterators over iterators do.
+   */
+  static final class IteratorSpliterator implements Spliterator.Of#E# {
+    private final #E#Iterable myIterable;
+    private final int myCharacteristics;
+    private #E#Iterator myIterator;
+    private long myEstimate;
+    private int myBatch;
+
+    IteratorSpliterator(#E#Iterable iterable, long estimate, int characteristics) {
+      myIterable = iterable;
+      myEstimate = estimate;
+      myCharacteristics = (characteristics & Spliterator.SIZED) != 0 ? characteristics | Spliterator.SUBSIZED : characteristics;
+    }
+
+    private #E#Iterator iterator() {
+      if (myIterator == null) myIterator = myIterable.iterator();
+      return myIterator;
+    }
+
+    public Of#E# trySplit() {
+      #E#Iterator it = iterator();
+      if (myEstimate <= 1 || !it.hasNext()) return null;
+      int n = (int) Math.min(Math.min(myBatch + BATCH_UNIT, MAX_BATCH), myEstimate);
+      #e#[] values = new #e#[n];
+      int count = 0;
+      while (count < n) {
+        int read = it.nextBatch(values, count, n - count);
+        if (read == 0) break;
+        count += read;
+      }
+      myBatch = count;
+      if (myEstimate != Long.MAX_VALUE) myEstimate -= count;
+      return Spliterators.spliterator(values, 0, count, myCharacteristics);
+    }
+
+    public boolean tryAdvance(#E#Consumer action) {
+      if (action == null) throw new NullPointerException();
+      #E#Iterator it = iterator();
+      if (!it.hasNext()) return false;
+      action.accept(it.nextValue());
+      return true;
+    }
+
+    public void forEachRemaining(#E#Consumer action) {
+      if (action == null) throw new NullPointerException();
+      #E#Iterator it = iterator();
+      #e#[] batch = new #e#[BATCH_UNIT];
+      int count;
+      while ((count = it.nextBatch(batch, 0, batch.length)) > 0) {
+        for (int i = 0; i < count; i++) {
+          action.accept(batch[i]);
+        }
+      }
+    }
+
+    public long estimateSize() {
+      return myEstimate;
+    }
+
+    public int characteristics() {
+      return myCharacteristics;
+    }
+
+    public Comparator<? super #EW#> getComparator() {
+      if (hasCharacteristics(Spliterator.SORTED)) return null;
+      throw new IllegalStateException();
+    }
+  }
+}
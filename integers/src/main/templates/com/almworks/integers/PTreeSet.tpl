@@ -18,6 +18,7 @@
 
 package com.almworks.integers;
 
+import com.almworks.integers.func.#E#Procedure;
 import com.almworks.integers.func.IntIntToInt;
 
 import java.io.ByteArrayOutputStream;
@@ -44,6 +45,8 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
   private int[] myLeft;
   /** Tree structure: contains indices into key, left, right, black. */
   private int[] myRight;
+  /** Number of keys in the subtree of each node, 0 for the NIL. Used for {@link #rank(#e#)} and {@link #select(int)}. */
+  private int[] myCounts;
   /** Node color : false for red, true for black. */
   private BitSet myBlack;
   /** List of removed nodes. Null if no internal nodes are removed */
@@ -97,6 +100,7 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
     myKeys = new #e#[initialCapacity];
     myLeft = new int[initialCapacity];
     myRight = new int[initialCapacity];
+    myCounts = new int[initialCapacity];
     myKeys[0] = NIL_DUMMY_KEY;
   }
 
@@ -130,6 +134,7 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
     myKeys = EMPTY_KEYS;
     myLeft = EMPTY_INDEXES;
     myRight = EMPTY_INDEXES;
+    myCounts = EMPTY_INDEXES;
     myBlack.set(0);
     myRoot = 0;
     myFront = 1;
@@ -175,6 +180,39 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
     return myFront - 1 - myRemoved.cardinality();
   }
 
+  public int rank(#e# value) {
+    int rank = 0;
+    int x = myRoot;
+    while (x != 0) {
+      #e# k = myKeys[x];
+      if (value < k) {
+        x = myLeft[x];
+      } else {
+        rank += myCounts[myLeft[x]];
+        if (value == k) break;
+        rank++;
+        x = myRight[x];
+      }
+    }
+    return rank;
+  }
+
+  public #e# select(int index) {
+    if (index < 0 || index >= myCounts[myRoot]) throw new IndexOutOfBoundsException(index + " " + myCounts[myRoot]);
+    int x = myRoot;
+    while (true) {
+      int leftCount = myCounts[myLeft[x]];
+      if (index < leftCount) {
+        x = myLeft[x];
+      } else if (index == leftCount) {
+        return myKeys[x];
+      } else {
+        index -= leftCount + 1;
+        x = myRight[x];
+      }
+    }
+  }
+
   @Override
   public boolean isEmpty() {
     boolean ret = myRoot == 0;
@@ -243,6 +281,9 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
       ps[psi++] = x;
       x = key < k ? myLeft[x] : myRight[x];
     }
+    for (int i = 2; i < psi; i++) {
+      myCounts[ps[i]]++;
+    }
     x = createNode(key);
 
     // x is RED already (myBlack.get(x) == false), so no modifications to myBlack
@@ -264,6 +305,7 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
     }
     myKeys[x] = key;
     myLeft[x] = myRight[x] = 0;
+    myCounts[x] = 1;
     myBlack.clear(x);
     return x;
   }
@@ -338,6 +380,8 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
       else assert false : "tree structure broken " + x + '\n' + dumpArrays(p);
     }
     mainBranch[y] = x;
+    myCounts[y] = myCounts[x];
+    myCounts[x] = myCounts[myLeft[x]] + myCounts[myRight[x]] + 1;
   }
 
   /** @return array for holding the stack for tree traversal */
@@ -350,10 +394,11 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
     int oldSz = myKeys.length;
     int futureSize = size() + n + 1;
     if (futureSize > myKeys.length) {
-      // length of myKeys, myLeft, myRight are always the same
+      // length of myKeys, myLeft, myRight, myCounts are always the same
       myKeys = #E#Collections.ensureCapacity(myKeys, futureSize);
       myLeft = IntCollections.ensureCapacity(myLeft, futureSize);
       myRight = IntCollections.ensureCapacity(myRight, futureSize);
+      myCounts = IntCollections.ensureCapacity(myCounts, futureSize);
     }
     if (IntegersDebug.PRINT) IntegersDebug.format("%20s %4d -> %4d  %H  %s\n", "grow", oldSz, myKeys.length, this, last4MethodNames());
   }
@@ -502,6 +547,7 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
       return;
     myLeft = new int[myKeys.length];
     myRight = new int[myKeys.length];
+    myCounts = new int[myKeys.length];
 
     int levels = log(2, usedSize), step = coloringType.redLevelsDensity();
     boolean[] levelsColoring = new boolean[levels];
@@ -527,6 +573,7 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
     int halfLength = length / 2;
     int index = offset + halfLength;
     myBlack.set(index, levelsColoring[curLevel]);
+    myCounts[index] = length;
 
     myLeft[index] = rearrangeStep(offset, halfLength, curLevel + 1, levelsColoring);
     myRight[index] = rearrangeStep(index + 1, length - halfLength - 1, curLevel + 1, levelsColoring);
@@ -534,11 +581,63 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
   }
 
   public #E#Iterator iterator() {
-    return failFast(new #E#IndexedIterator(new #E#Array(myKeys), new LURIterator()));
+    return new Cursor().reset(this);
   }
 
   public #E#Iterator tailIterator(#e# fromElement) {
-    return failFast(new #E#IndexedIterator(new #E#Array(myKeys), new LURIterator(fromElement)));
+    Cursor cursor = new Cursor().reset(this);
+    cursor.seek(fromElement);
+    return cursor;
+  }
+
+  /**
+   * Same as {@link #iterator()}, but reuses {@code cursor} instead of allocating a new iterator.
+   * The cursor may be reused for any tree set once the previous iteration with it is over.
+   * @return {@code cursor}, positioned before the first key
+   */
+  public #E#Iterator iterator(Cursor cursor) {
+    return cursor.reset(this);
+  }
+
+  /**
+   * Same as {@link #tailIterator(#e#)}, but reuses {@code cursor} instead of allocating a new iterator.
+   * @return {@code cursor}, positioned before the first key that is greater than or equal to {@code fromElement}
+   * @see #iterator(Cursor)
+   */
+  public #E#Iterator tailIterator(#e# fromElement, Cursor cursor) {
+    cursor.reset(this).seek(fromElement);
+    return cursor;
+  }
+
+  /**
+   * Calls {@code procedure} for every key in ascending order. Unlike iteration with {@link #iterator()},
+   * allocates nothing unless {@code forEachValue} is called from {@code procedure}.
+   * @throws ConcurrentModificationException if {@code procedure} modifies this set
+   */
+  public void forEachValue(#E#Procedure procedure) throws ConcurrentModificationException {
+    int height = height(size());
+    int[] ps = myStackCache.length >= height ? myStackCache : new int[height];
+    // a nested call must not share the stack
+    myStackCache = IntegersUtils.EMPTY_INTS;
+    int modCount = myModCount;
+    int psi = 0;
+    int x = myRoot;
+    while (x != 0 || psi > 0) {
+      if (x == 0) {
+        x = ps[--psi];
+      } else {
+        int l = myLeft[x];
+        while (l != 0) {
+          ps[psi++] = x;
+          x = l;
+          l = myLeft[x];
+        }
+      }
+      procedure.invoke(myKeys[x]);
+      if (modCount != myModCount) throw new ConcurrentModificationException(modCount + " " + myModCount);
+      x = myRight[x];
+    }
+    if (myStackCache.length < ps.length) myStackCache = ps;
   }
 
   @Override
@@ -616,6 +715,9 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
       }
     }
     if (z != y) myKeys[z] = myKeys[y];
+    for (int i = 1; i <= xsi; i++) {
+      myCounts[parentsStack[i]]--;
+    }
 
     // Child of Y. Y can't have 2 children.
     int x = myLeft[y];
@@ -644,6 +746,7 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
     myKeys[y] = 0;
     myLeft[y] = 0;
     myRight[y] = 0;
+    myCounts[y] = 0;
     myBlack.clear(y);
     if (y == myFront - 1) {
       myFront--;
@@ -708,10 +811,7 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
 
   @Override
   protected void toNativeArrayImpl(#e#[] dest, int destPos) {
-    int i = destPos;
-    for (IntIterator it : new LURIterator()) {
-      dest[i++] = myKeys[it.value()];
-    }
+    new Cursor().reset(this).nextBatch(dest, destPos, size());
   }
 
   public String toDebugString() {
@@ -802,6 +902,8 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
         if (r != 0)
           assert rk > k : debugMegaPrint(whatWasDoing, x);
 
+        assert myCounts[x] == myCounts[l] + myCounts[r] + 1 : debugMegaPrint(whatWasDoing + " count " + myCounts[x], x);
+
         // 2. Red-black tree property-1: If node is red, all its children are black
         boolean nodeIsRed = !myBlack.get(x);
         boolean bothChildrenAreBlack = myBlack.get(l) && myBlack.get(r);
@@ -919,63 +1021,165 @@ public class #E#TreeSet extends AbstractWritable#E#Set implements Writable#E#Sor
     return h;
   }
 
-  private class LURIterator extends AbstractIntIteratorWithFlag {
-    private int myValue;
-    private int x = myRoot;
-    private final int[] ps;
+  /**
+   * In-order iterator over the keys of a tree set, it can be reused for another iteration,
+   * see {@link #iterator(Cursor)} and {@link #tailIterator(#e#, Cursor)}.
+   * The stack of parents grows to the height of the largest tree the cursor was used for, and is kept between iterations.
+   * <p>
+   * The cursor is fail-fast: if the set is modified after the cursor was positioned,
+   * every method throws {@link ConcurrentModificationException}.
+   */
+  public static final class Cursor extends Abstract#E#IteratorWithFlag {
+    private #E#TreeSet myTree;
+    private int[] ps = IntegersUtils.EMPTY_INTS;
+    /** Parents stack top + 1 */
     private int psi;
-
-    public LURIterator() {
-      int[] cache = myStackCache;
-      if (cache == null || cache.length < height(size())) {
-        ps = new int[height(size())];
-      } else {
-        ps = cache;
-        myStackCache = IntegersUtils.EMPTY_INTS;
+    /** The node to descend from to find the next node, 0 if the next node is on the stack */
+    private int x;
+    private int myNode;
+    private int myModCount;
+
+    Cursor reset(#E#TreeSet tree) {
+      int height = tree.height(tree.size());
+      if (ps.length < height) {
+        int[] cache = tree.myStackCache;
+        if (cache.length >= height) {
+          ps = cache;
+          tree.myStackCache = IntegersUtils.EMPTY_INTS;
+        } else {
+          ps = new int[height];
+        }
       }
+      myTree = tree;
+      myModCount = tree.myModCount;
+      x = tree.myRoot;
+      psi = 0;
+      myIterated = false;
+      return this;
     }
 
-    public LURIterator(#e# key) {
-      this();
-      if (myRoot == 0) return;
-
-      // Parents stack top + 1
+    /**
+     * Repositions this cursor so that the next node is the first one with the key greater than or equal to {@code key}.
+     */
+    void seek(#e# key) {
       psi = 0;
-      #e# curKey;
+      descend(myTree.myRoot, key);
+    }
+
+    /**
+     * Like {@link #seek}, for a key greater than the current one: climbs the stack of parents only while their keys are
+     * less than {@code key}, so the cost is logarithmic in the distance to the key rather than in the size of the tree.
+     */
+    private void seekForward(#e# key) {
+      #E#TreeSet tree = myTree;
+      int x = this.x;
+      // the nodes to visit are the subtree x, then each parent on the stack followed by its right subtree
+      while (psi > 0 && tree.myKeys[ps[psi - 1]] < key) {
+        x = tree.myRight[ps[--psi]];
+      }
+      descend(x, key);
+    }
+
+    private void descend(int x, #e# key) {
+      #E#TreeSet tree = myTree;
       while (x != 0) {
-        curKey = myKeys[x];
-        if (key <= curKey) {
+        if (key <= tree.myKeys[x]) {
           ps[psi++] = x;
-          x = myLeft[x];
+          x = tree.myLeft[x];
         } else {
-          x = myRight[x];
+          x = tree.myRight[x];
         }
       }
+      this.x = 0;
+    }
+
+    private void checkMod() {
+      if (myTree == null) throw new IllegalStateException("cursor is not positioned");
+      if (myModCount != myTree.myModCount)
+        throw new ConcurrentModificationException(myModCount + " " + myTree.myModCount);
     }
 
     public boolean hasNext() throws ConcurrentModificationException {
+      checkMod();
       return x != 0 || psi > 0;
     }
 
+    @Override
+    public boolean hasValue() {
+      checkMod();
+      return super.hasValue();
+    }
+
+    @Override
+    public #e# value() throws NoSuchElementException {
+      checkMod();
+      return super.value();
+    }
+
     protected void nextImpl() throws NoSuchElementException, ConcurrentModificationException {
       if (!hasNext()) throw new NoSuchElementException();
+      int[] left = myTree.myLeft;
       if (x == 0) {
         x = ps[--psi];
       }  else {
-        int l = myLeft[x];
+        int l = left[x];
         while (l != 0) {
           ps[psi++] = x;
           x = l;
-          l = myLeft[x];
+          l = left[x];
         }
       }
-      myValue = x;
-      x = myRight[x];
+      myNode = x;
+      x = myTree.myRight[x];
     }
 
     @Override
-    protected int valueImpl() {
-      return myValue;
+    protected #e# valueImpl() {
+      return myTree.myKeys[myNode];
+    }
+
+    @Override
+    public boolean advanceTo(#e# value) {
+      checkMod();
+      if (!myIterated) {
+        if (!hasNext()) return false;
+        next();
+      }
+      if (valueImpl() >= value) return true;
+      seekForward(value);
+      if (!hasNext()) return false;
+      next();
+      return true;
+    }
+
+    @Override
+    public int nextBatch(#e#[] dst, int off, int len) {
+      checkMod();
+      int[] left = myTree.myLeft;
+      int[] right = myTree.myRight;
+      #e#[] keys = myTree.myKeys;
+      int count = 0;
+      int x = this.x;
+      int psi = this.psi;
+      while (count < len && (x != 0 || psi > 0)) {
+        if (x == 0) {
+          x = ps[--psi];
+        } else {
+          int l = left[x];
+          while (l != 0) {
+            ps[psi++] = x;
+            x = l;
+            l = left[x];
+          }
+        }
+        myNode = x;
+        dst[off + count++] = keys[x];
+        x = right[x];
+      }
+      this.x = x;
+      this.psi = psi;
+      if (count > 0) myIterated = true;
+      return count;
     }
   }
 }
@@ -0,0 +1,505 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import com.almworks.integers.func.#E##E#To#E#;
+import com.almworks.integers.func.#E#To#E#;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Maps integer keys to integer values; it is possible to retrieve either value by key or keys by value. <br/>
+ * Has the same contract as {@link #E#TwoWayMap}, but stores the mapping in two trees, {@code (key, value)} pairs ordered by key
+ * and {@code (value, key)} pairs ordered by value and then by key, so that {@link #put}, {@link #remove}, {@link #get} and
+ * {@link #containsValue} take O(log n) time instead of O(n) index shifting.
+ * Bulk operations ({@link #insertAll} into a small map, {@code transformValues}, {@link #transformKeys}) rebuild both trees
+ * in O(n) time after an O(n) radix sort. <br/>
+ * Random access to {@link #getKeys()} and {@link #getValues()} takes O(log n) time, sequential iteration is amortized O(1).
+ * Single-thread access only.
+ * @see #E#TwoWayMap
+ */
+public class #E#TwoWayTreeMap implements #E##E#Map {
+  private final #E#PairTree myByKey = new #E#PairTree(false);
+  private final #E#PairTree myByValue = new #E#PairTree(true);
+  private int myModCount;
+
+  private final View myKeys = new View(myByKey, false);
+  private final View myValues = new View(myByValue, false);
+  /** values in the order of keys */
+  private final View myValuesByKey = new View(myByKey, true);
+
+  public boolean containsKey(#e# key) {
+    return myByKey.find(key, 0) >= 0;
+  }
+
+  public boolean containsAllKeys(#E#List keys) {
+    return containsKeys(keys, true);
+  }
+
+  public boolean containsAnyKeys(#E#List keys) {
+    return containsKeys(keys, false);
+  }
+
+  @Override
+  public boolean containsAnyKeys(#E#Iterable keys) {
+    for (#E#Iterator key : keys) {
+      if (containsKey(key.value())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean containsKeys(#E#Iterable keys) {
+    for (#E#Iterator key : keys) {
+      if (!containsKey(key.value())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public boolean containsKeys(#E#List keys, boolean all) {
+    for (int i = 0, m = keys.size(); i < m; ++i) {
+      if (containsKey(keys.get(i)) != all) return !all;
+    }
+    return all;
+  }
+
+  public boolean containsValue(#e# val) {
+    int p = myByValue.ceiling(val, #EW#.MIN_VALUE);
+    return p >= 0 && myByValue.a(p) == val;
+  }
+
+  /** Throws {@link IllegalArgumentException} if the map does not contain the mapping for the key.
+   * Call {@link #containsKey} to ensure that there is a mapping. */
+  public #e# get(#e# key) throws IllegalArgumentException {
+    int p = myByKey.find(key, 0);
+    if (p < 0) throw new IllegalArgumentException("Key " + key + " is not contained in " + this);
+    return myByKey.b(p);
+  }
+
+  /**
+   * @return keys mapped to {@code val} in ascending order
+   */
+  public #E#Array getKeysForValue(#e# val) {
+    #E#Array keys = new #E#Array();
+    for (int p = myByValue.ceiling(val, #EW#.MIN_VALUE); p >= 0 && myByValue.a(p) == val; p = myByValue.next(p)) {
+      keys.add(myByValue.b(p));
+    }
+    return keys;
+  }
+
+  /**
+   * @return a live view of the keys in ascending order
+   */
+  public #E#List getKeys() {
+    return myKeys;
+  }
+
+  /**
+   * @return a live view of the values in ascending order
+   */
+  public #E#List getValues() {
+    return myValues;
+  }
+
+  public void clear() {
+    myByKey.clear();
+    myByValue.clear();
+    myModCount++;
+  }
+
+  public int size() {
+    assert myByKey.size() == myByValue.size();
+    return myByKey.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * @return pair-iterator over this map in the sorted by key order.
+   */
+  @NotNull
+  @Override
+  public #E##E#Iterator iterator() {
+    return new #E##E#PairIterator(myKeys.iterator(), myValuesByKey.iterator());
+  }
+
+  @Override
+  public #E#Iterator keysIterator() {
+    return myKeys.iterator();
+  }
+
+  /**
+   * Note, that this iterator isn't equal to right projection of {@link #iterator()}
+   * @return iterator over values of this map in the sorted order.
+   */
+  @Override
+  public #E#Iterator valuesIterator() {
+    return myValues.iterator();
+  }
+
+  @Override
+  public #E#Set keySet() {
+    return #E#ListSet.setFromSortedUniqueList(myKeys);
+  }
+
+  public List<#E#TwoWayMap.Entry> toList() {
+    List<#E#TwoWayMap.Entry> l = new ArrayList<#E#TwoWayMap.Entry>(size());
+    for (int p = myByKey.first(); p >= 0; p = myByKey.next(p)) {
+      l.add(new #E#TwoWayMap.Entry(myByKey.a(p), myByKey.b(p)));
+    }
+    return l;
+  }
+
+  /**
+   * Adds a mapping from {@code key} to {@code val} in O(log n) time.
+   * @return in case there was previously a mapping for {@code key}, returns the old value; otherwise, {@code val}.
+   * @see #E#TwoWayMap#put
+   * */
+  public #e# put(#e# key, #e# val) {
+    int p = myByKey.find(key, 0);
+    #e# ret;
+    if (p >= 0) {
+      ret = myByKey.b(p);
+      if (ret != val) {
+        myByKey.setB(p, val);
+        myByValue.remove(ret, key);
+        myByValue.add(val, key);
+      }
+    } else {
+      ret = val;
+      myByKey.add(key, val);
+      myByValue.add(val, key);
+    }
+    myModCount++;
+    assert !IntegersDebug.CHECK || checkInvariants();
+    return ret;
+  }
+
+  public void insertAllRo(#E#List keys, #E#List vals) {
+    insertAll(new #E#Array(keys), new #E#Array(vals));
+  }
+
+  public void insertAllRo(#E#List keys, #E#To#E# keyToValue) {
+    insertAll(new #E#Array(keys), keyToValue);
+  }
+
+  public void insertAll(Writable#E#List keys, #E#To#E# keyToValue) {
+    int m = keys.size();
+    #E#Array vals = new #E#Array(m);
+    for (int i = 0; i < m; ++i) vals.add(keyToValue.invoke(keys.get(i)));
+    insertAll(keys, vals);
+  }
+
+  /**
+   * Adds mappings from {@code keys.get(i)} to {@code vals.get(i)} for all {@code i}. If sizes of {@code keys} and {@code vals} are not equal, throws {@link IllegalArgumentException}.<br/>
+   * Does not support updating mappings: if for any key from {@code keys} {@link #containsKey containsKey(key)}, throws {@link IllegalArgumentException}. Also, the specified keys array should not contain duplicates. <Br/>
+   * Parameter lists are changed as a result of calling this method. <br/>
+   * Complexity: {@code O(m*log(n))} if {@code m} is small relative to {@code n = size()}, otherwise {@code O(m + n)}.
+   * */
+  public void insertAll(Writable#E#List keys, Writable#E#List vals) throws IllegalArgumentException {
+    int m = keys.size();
+    int n = size();
+    if (vals.size() != m) throw new IllegalArgumentException("Sizes of keys and values lists are not equal: " + m + " keys, but " + vals.size() + " values");
+    for (int i = 0; i < m; ++i) {
+      if (containsKey(keys.get(i))) throw new IllegalArgumentException("Cannot insert multiple mappings because key " + keys.get(i) + " is already contained");
+    }
+    #E#Collections.sortPairs(keys, vals);
+    int duplicateKeyIdx = #E#Collections.findDuplicateSorted(keys);
+    if (duplicateKeyIdx >= 0) throw new IllegalArgumentException("Duplicate key " + keys.get(duplicateKeyIdx));
+
+    if (m < n / 8) {
+      for (int i = 0; i < m; ++i) {
+        put(keys.get(i), vals.get(i));
+      }
+      return;
+    }
+    // merge with the current mappings and rebuild
+    #e#[] oldKeys = new #e#[n];
+    #e#[] oldVals = new #e#[n];
+    myByKey.toNativeArrays(oldKeys, oldVals);
+    #e#[] newKeys = new #e#[n + m];
+    #e#[] newVals = new #e#[n + m];
+    for (int i = 0, j = 0, k = 0; k < n + m; ++k) {
+      if (j == m || i < n && oldKeys[i] < keys.get(j)) {
+        newKeys[k] = oldKeys[i];
+        newVals[k] = oldVals[i++];
+      } else {
+        newKeys[k] = keys.get(j);
+        newVals[k] = vals.get(j++);
+      }
+    }
+    rebuild(newKeys, newVals, n + m);
+  }
+
+  /**
+   * Replaces the mapping with {@code n} pairs {@code (keys[i], vals[i])}, {@code keys} must be sorted and unique.
+   */
+  private void rebuild(#e#[] keys, #e#[] vals, int n) {
+    myByKey.initFromSorted(keys, vals, n);
+    #E#Array byValueVals = #E#Array.copy(vals, n);
+    #E#Array byValueKeys = #E#Array.copy(keys, n);
+    #E#Collections.sortPairs(byValueVals, byValueKeys);
+    myByValue.initFromSorted(byValueVals.extractHostArray(), byValueKeys.extractHostArray(), n);
+    myModCount++;
+    assert !IntegersDebug.CHECK || checkInvariants();
+  }
+
+  /**
+   * Same as {@link #rebuild(#e#[], #e#[], int)}, but {@code keys} may be unsorted.
+   */
+  private void rebuildUnsorted(#e#[] keys, #e#[] vals, int n) {
+    #E#Array sortedKeys = new #E#Array(keys, n);
+    #E#Array sortedVals = new #E#Array(vals, n);
+    #E#Collections.sortPairs(sortedKeys, sortedVals);
+    rebuild(sortedKeys.extractHostArray(), sortedVals.extractHostArray(), n);
+  }
+
+  /** Transforms each value using the specified function. Values are supplied in ascending order.<br/>
+   * Memory: O(n). */
+  public void transformValues(@NotNull #E#To#E# fun) {
+    transformValues(#EW#.MIN_VALUE, fun);
+  }
+
+  /** Transforms each value that is not less than {@code valFrom} using the specified function. Values are supplied in ascending order.<br/>
+   * Memory: O(n). */
+  public void transformValues(#e# valFrom, @NotNull #E#To#E# fun) {
+    int n = size();
+    #e#[] vals = new #e#[n];
+    #e#[] keys = new #e#[n];
+    myByValue.toNativeArrays(vals, keys);
+    for (int i = myByValue.rank(valFrom, #EW#.MIN_VALUE); i < n; ++i) {
+      vals[i] = fun.invoke(vals[i]);
+    }
+    rebuildUnsorted(keys, vals, n);
+  }
+
+  /** Transforms the value of each mapping using the specified function (key, val). Mappings are supplied in ascending order by key. */
+  public void transformValues(@NotNull #E##E#To#E# fun) {
+    int n = size();
+    #e#[] keys = new #e#[n];
+    #e#[] vals = new #e#[n];
+    myByKey.toNativeArrays(keys, vals);
+    for (int i = 0; i < n; ++i) {
+      vals[i] = fun.invoke(keys[i], vals[i]);
+    }
+    rebuild(keys, vals, n);
+  }
+
+  /** Updates keys of the mappings using the specified function. Function must be injective; if duplicate key is generated,
+   * {@link #E#TwoWayMap.NonInjectiveFunctionException} is thrown and the map is not changed. */
+  public void transformKeys(#E#To#E# injection) throws #E#TwoWayMap.NonInjectiveFunctionException {
+    int n = size();
+    #e#[] keys = new #e#[n];
+    #e#[] vals = new #e#[n];
+    myByKey.toNativeArrays(keys, vals);
+    for (int i = 0; i < n; ++i) {
+      keys[i] = injection.invoke(keys[i]);
+    }
+    #E#Array newKeys = new #E#Array(keys);
+    #E#Array newVals = new #E#Array(vals);
+    #E#Collections.sortPairs(newKeys, newVals);
+    int dupIdx = #E#Collections.findDuplicateSorted(newKeys);
+    if (dupIdx >= 0) throw new #E#TwoWayMap.NonInjectiveFunctionException(newKeys.get(dupIdx), injection + " is not an injective function: generated duplicate key " + newKeys.get(dupIdx) + ", value: " + newVals.get(dupIdx));
+    rebuild(newKeys.extractHostArray(), newVals.extractHostArray(), n);
+  }
+
+  /** Removes the mapping specified by the key.
+   * @throws IllegalArgumentException if there is no mapping for the key; check {@link #containsKey} before calling this method. */
+  public #e# remove(#e# key) throws IllegalArgumentException {
+    int p = myByKey.find(key, 0);
+    if (p < 0) throw new IllegalArgumentException("Cannot remove: no mapping for key " + key);
+    #e# val = myByKey.b(p);
+    myByKey.remove(key, val);
+    myByValue.remove(val, key);
+    myModCount++;
+    assert !IntegersDebug.CHECK || checkInvariants();
+    return val;
+  }
+
+  /** Removes mappings for those keys that are contained in the map. Keys not contained in the map are returned.<br/>
+   * Time: O (m log n). <Br/>
+   * Space: O(m).
+   * @return keys from the input list that are not contained in the map */
+  public #E#List removeAll(#E#List keys) {
+    Writable#E#List notInMap = null;
+    #E#OpenHashSet processed = new #E#OpenHashSet(keys.size());
+    for (#E#Iterator it : keys) {
+      #e# key = it.value();
+      if (!processed.include(key)) continue;
+      if (containsKey(key)) {
+        remove(key);
+      } else {
+        (notInMap == null ? notInMap = new #E#Array() : notInMap).add(key);
+      }
+    }
+    return notInMap == null ? #E#Array.EMPTY : notInMap;
+  }
+
+  @NotNull
+  public #E#List removeAllValuesRo(#E#List vals) {
+    return removeAllValues(new #E#Array(vals));
+  }
+
+  /** Removes all mappings to the specified values. {@code vals} are sorted as a result of calling this method. <br/>
+   * Time: O (m log m + k log n), where k is the number of removed mappings.
+   * @return list of values that have not been removed (not contained in the map) */
+  @NotNull
+  public #E#List removeAllValues(Writable#E#List vals) {
+    if (!vals.isSorted()) vals.sort();
+    vals.removeDuplicates();
+    Writable#E#List notInMap = null;
+    #E#Array keys = new #E#Array();
+    for (int i = 0, m = vals.size(); i < m; ++i) {
+      #e# val = vals.get(i);
+      keys.clear();
+      for (int p = myByValue.ceiling(val, #EW#.MIN_VALUE); p >= 0 && myByValue.a(p) == val; p = myByValue.next(p)) {
+        keys.add(myByValue.b(p));
+      }
+      if (keys.isEmpty()) {
+        (notInMap == null ? notInMap = new #E#Array() : notInMap).add(val);
+      }
+      for (int j = 0, k = keys.size(); j < k; ++j) {
+        myByKey.remove(keys.get(j), val);
+        myByValue.remove(val, keys.get(j));
+      }
+    }
+    myModCount++;
+    assert !IntegersDebug.CHECK || checkInvariants();
+    return notInMap == null ? #E#List.EMPTY : notInMap;
+  }
+
+  private boolean checkInvariants() {
+    assert myByKey.checkInvariants();
+    assert myByValue.checkInvariants();
+    assert myByKey.size() == myByValue.size() : myByKey.size() + " " + myByValue.size();
+    for (int p = myByKey.first(); p >= 0; p = myByKey.next(p)) {
+      assert myByValue.find(myByKey.b(p), myByKey.a(p)) >= 0 : myByKey.a(p) + " " + myByKey.b(p);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) return true;
+    if (!(o instanceof #E##E#Map)) return false;
+    #E##E#Map otherMap = (#E##E#Map) o;
+    if (otherMap.size() != size()) return false;
+    for (int p = myByKey.first(); p >= 0; p = myByKey.next(p)) {
+      #e# key = myByKey.a(p);
+      if (!otherMap.containsKey(key) || otherMap.get(key) != myByKey.b(p)) return false;
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int h = 0;
+    for (int p = myByKey.first(); p >= 0; p = myByKey.next(p)) {
+      h += IntegersUtils.hash(myByKey.a(p)) + IntegersUtils.hash(myByKey.b(p));
+    }
+    return h;
+  }
+
+  @Override
+  public String toString() {
+    return "K: " + myKeys + "\nV: " + myValuesByKey;
+  }
+
+  /**
+   * A live list of the first or the second components of the pairs of a tree.
+   */
+  private class View extends Abstract#E#List {
+    private final #E#PairTree myTree;
+    private final boolean mySecond;
+
+    View(#E#PairTree tree, boolean second) {
+      myTree = tree;
+      mySecond = second;
+    }
+
+    @Override
+    public int size() {
+      return myTree.size();
+    }
+
+    @Override
+    public #e# get(int index) {
+      return component(myTree.select(index));
+    }
+
+    private #e# component(int position) {
+      return mySecond ? myTree.b(position) : myTree.a(position);
+    }
+
+    @NotNull
+    @Override
+    public #E#ListIterator iterator(int from, int to) {
+      if (from >= to) {
+        assert from == to : from + " " + to;
+        return #E#Iterator.EMPTY;
+      }
+      return new ViewIterator(from, to);
+    }
+
+    /**
+     * Remembers the last position, so that sequential access doesn't descend the tree.
+     */
+    private class ViewIterator extends Abstract#E#ListIndexIterator {
+      private final int myModCountAtCreation = myModCount;
+      private int myLastIndex = -1;
+      private int myLastPosition;
+
+      ViewIterator(int from, int to) {
+        super(from, to);
+      }
+
+      @Override
+      public #E#ListIterator next() throws ConcurrentModificationException, NoSuchElementException {
+        checkMod();
+        return super.next();
+      }
+
+      @Override
+      protected #e# absget(int index) {
+        checkMod();
+        if (index != myLastIndex) {
+          myLastPosition = myLastIndex >= 0 && index == myLastIndex + 1 ? myTree.next(myLastPosition) : myTree.select(index);
+          myLastIndex = index;
+        }
+        return component(myLastPosition);
+      }
+
+      private void checkMod() {
+        if (myModCountAtCreation != myModCount)
+          throw new ConcurrentModificationException(myModCountAtCreation + " " + myModCount);
+      }
+    }
+  }
+}
@@ -40,31 +40,42 @@ public class #E#UnionIterator extends #E#SetOperationsIterator {
   protected boolean findNext() {
     if (!myIsHeapBuilt) {
       myIsHeapBuilt = true;
-      heapLength = 0;
-      for (int i = 0, n = myIts.size(); i < n; i++) {
-        if (myIts.get(i).hasNext()) {
-          myIts.get(i).next();
-          heapLength++;
-          myHeap[heapLength] = i;
-        }
-      }
       buildHeap();
     }
     if (IntegersDebug.PRINT) outputHeap();
-    if (heapLength == 0) return false;
-    assert heapLength > 0 : "heapLength < 0: " + heapLength;
-    #E#Iterator topIterator = getTopIterator();
-    for (myNext = topIterator.value(); topIterator.value() == myNext; topIterator = getTopIterator()) {
+    if (myHeap.isEmpty()) return false;
+    myNext = myHeap.peekPriority();
+    do {
+      #E#Iterator topIterator = getTopIterator();
       if (topIterator.hasNext()) {
-        topIterator.next();
-        assert myNext < topIterator.value() : myHeap[TOP] + " " + myNext + " " + topIterator.value();
+        #e# value = topIterator.nextValue();
+        assert myNext < value : myHeap.peekValue() + " " + myNext + " " + value;
+        myHeap.updatePriority(myHeap.peekHandle(), value);
       } else {
-        IntCollections.swap(myHeap, TOP, heapLength);
-        heapLength--;
-        if (heapLength == 0) break;
+        myHeap.pop();
       }
-      heapify(TOP);
-    }
+    } while (!myHeap.isEmpty() && myHeap.peekPriority() == myNext);
     return true;
   }
+
+  @Override
+  protected int findNextBatch(#e#[] dst, int off, int len) {
+    int count = 0;
+    while (count < len && (!myIsHeapBuilt || myHeap.size() > 1)) {
+      if (!findNext()) return count;
+      dst[off + count++] = myNext;
+    }
+    if (count < len && myHeap.size() == 1) {
+      // the only iterator left: its values go as is
+      #E#Iterator topIterator = getTopIterator();
+      dst[off + count++] = topIterator.value();
+      count += topIterator.nextBatch(dst, off + count, len - count);
+      if (topIterator.hasNext()) {
+        myHeap.updatePriority(myHeap.peekHandle(), topIterator.nextValue());
+      } else {
+        myHeap.pop();
+      }
+    }
+    return count;
+  }
 }
\ No newline at end of file
@@ -52,6 +52,45 @@ public class #E#UnionIteratorOfTwo extends #E#FindingIterator {
     }
   }
 
+  @Override
+  protected int findNextBatch(#e#[] dst, int off, int len) {
+    int count = 0;
+    while (count < len && myItsCount == 2) {
+      findNext();
+      dst[off + count++] = myNext;
+    }
+    if (count < len && myItsCount == 1) {
+      // the only iterator left: its values go as is
+      dst[off + count++] = v[0];
+      count += myIts[0].nextBatch(dst, off + count, len - count);
+      advanceIterator(0);
+    }
+    return count;
+  }
+
+  @Override
+  protected boolean findNextAtLeast(#e# value) {
+    if (myItsCount == 2) {
+      skipIterator(1, value);
+      skipIterator(0, value);
+      maybeMoveIterator1();
+    } else if (myItsCount == 1) {
+      skipIterator(0, value);
+    }
+    return findNext();
+  }
+
+  private void skipIterator(int ind, #e# value) {
+    if (v[ind] < value) {
+      if (myIts[ind].advanceTo(value)) {
+        v[ind] = myIts[ind].value();
+      } else {
+        myIts[ind] = null;
+        myItsCount--;
+      }
+    }
+  }
+
   private void maybeMoveIterator1() {
     if (myIts[0] == null) {
       myIts[0] = myIts[1];
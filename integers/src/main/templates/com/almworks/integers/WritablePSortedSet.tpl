@@ -17,4 +17,39 @@
 package com.almworks.integers;
 
 public interface Writable#E#SortedSet extends #E#SortedSet, Writable#E#Set {
+  /**
+   * @return the number of elements of this set that are less than {@code value};
+   * if this set contains {@code value}, it is the index of {@code value} in the sorted order.
+   * The default implementation iterates over the set, sets that keep subtree sizes override it with a logarithmic one.
+   */
+  default int rank(#e# value) {
+    int rank = 0;
+    for (#E#Iterator it = iterator(); it.hasNext() && it.nextValue() < value; ) {
+      rank++;
+    }
+    return rank;
+  }
+
+  /**
+   * @return the element with the specified index in the sorted order; the default implementation is O(index)
+   * @throws IndexOutOfBoundsException if {@code index < 0 || index >= size()}
+   */
+  default #e# select(int index) {
+    int size = size();
+    if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index + " " + size);
+    #E#Iterator it = iterator();
+    for (int i = 0; i < index; i++) {
+      it.next();
+    }
+    return it.nextValue();
+  }
+
+  /**
+   * @return an iterator over the elements with indices from {@code fromIndex}, inclusive, to {@code toIndex}, exclusive,
+   * in the sorted order
+   * @throws IndexOutOfBoundsException if {@code fromIndex < 0 || toIndex > size() || fromIndex > toIndex}
+   */
+  default #E#Iterator subSetIterator(int fromIndex, int toIndex) {
+    return #E#Iterators.subSetIterator(this, fromIndex, toIndex);
+  }
 }
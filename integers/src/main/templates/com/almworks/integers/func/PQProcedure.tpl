@@ -18,11 +18,11 @@
 
 package com.almworks.integers.func;
 
-public interface #E##E#Procedure {
-  void invoke(#e# a, #e# b);
+public interface #E##F#Procedure {
+  void invoke(#e# a, #f# b);
 
-  #E##E#Procedure NO_OP = new #E##E#Procedure() {
+  #E##F#Procedure NO_OP = new #E##F#Procedure() {
     @Override
-    public void invoke(#e# a, #e# b) {}
+    public void invoke(#e# a, #f# b) {}
   };
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers.segmented;
+
+import com.almworks.integers.#E#List;
+
+/**
+ * Segment that keeps the data in a Java array.
+ */
+public class #E#ArraySegment extends #E#Segment {
+  /**
+   * Holds array with the data.
+   */
+  final #e#[] data;
+
+  public #E#ArraySegment(int size) {
+    data = new #e#[size];
+  }
+
+  public int getSize() {
+    return data.length;
+  }
+
+  public #e# get(int index) {
+    return data[index];
+  }
+
+  public void set(int index, #e# value) {
+    data[index] = value;
+  }
+
+  public void toNativeArray(int from, #e#[] dest, int destOffset, int length) {
+    System.arraycopy(data, from, dest, destOffset, length);
+  }
+
+  public void setAll(int index, #e#[] src, int srcOffset, int length) {
+    System.arraycopy(src, srcOffset, data, index, length);
+  }
+
+  public void setAll(int index, #E#List src, int srcIndex, int length) {
+    src.toNativeArray(srcIndex, data, index, length);
+  }
+
+  @Override
+  public void copy(int from, #E#Segment dest, int destIndex, int length) {
+    dest.setAll(destIndex, data, from, length);
+  }
+}
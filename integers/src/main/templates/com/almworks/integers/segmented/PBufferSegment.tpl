@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers.segmented;
+
+import com.almworks.integers.#E#Iterator;
+import com.almworks.integers.#E#List;
+
+import java.nio.Buffer;
+import java.nio.#E#Buffer;
+
+/**
+ * Segment that keeps the data in a {@link #E#Buffer}, usually a view of a direct or memory-mapped
+ * {@link java.nio.ByteBuffer}, so that the data does not take space in the Java heap.
+ * @see #E#SegmentedArrayBufferEnvironment
+ */
+public class #E#BufferSegment extends #E#Segment {
+  final #E#Buffer buffer;
+  /** the environment that cut this segment out of its chunks, or null */
+  final #E#SegmentedArrayBufferEnvironment owner;
+
+  /**
+   * @param buffer the storage; the segment takes all its capacity, position and limit are ignored
+   */
+  public #E#BufferSegment(#E#Buffer buffer) {
+    this(buffer, null);
+  }
+
+  #E#BufferSegment(#E#Buffer buffer, #E#SegmentedArrayBufferEnvironment owner) {
+    this.buffer = buffer;
+    this.owner = owner;
+  }
+
+  public int getSize() {
+    return buffer.capacity();
+  }
+
+  public #e# get(int index) {
+    return buffer.get(index);
+  }
+
+  public void set(int index, #e# value) {
+    buffer.put(index, value);
+  }
+
+  public void toNativeArray(int from, #e#[] dest, int destOffset, int length) {
+    range(from, length).get(dest, destOffset, length);
+  }
+
+  public void setAll(int index, #e#[] src, int srcOffset, int length) {
+    range(index, length).put(src, srcOffset, length);
+  }
+
+  public void setAll(int index, #E#List src, int srcIndex, int length) {
+    if (length <= 0) return;
+    #E#Iterator it = src.iterator(srcIndex, srcIndex + length);
+    for (int i = index, end = index + length; i < end; i++) {
+      buffer.put(i, it.nextValue());
+    }
+  }
+
+  @Override
+  public void copy(int from, #E#Segment dest, int destIndex, int length) {
+    if (dest instanceof #E#ArraySegment) {
+      toNativeArray(from, ((#E#ArraySegment) dest).data, destIndex, length);
+    } else if (dest instanceof #E#BufferSegment && (dest != this || from + length <= destIndex || destIndex + length <= from)) {
+      ((#E#BufferSegment) dest).range(destIndex, length).put(range(from, length));
+    } else {
+      super.copy(from, dest, destIndex, length);
+    }
+  }
+
+  /**
+   * @return a view of {@code buffer} positioned at {@code from} with {@code length} remaining values
+   */
+  private #E#Buffer range(int from, int length) {
+    #E#Buffer view = buffer.duplicate();
+    // Buffer methods return #E#Buffer only since Java 9
+    ((Buffer) view).limit(from + length);
+    ((Buffer) view).position(from);
+    return view;
+  }
+}
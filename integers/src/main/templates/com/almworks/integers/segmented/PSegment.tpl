@@ -18,28 +18,63 @@
 
 package com.almworks.integers.segmented;
 
-public class #E#Segment {
-  /**
-   * Holds array with the data. Some cells may not hold meaningful data.
-   * It is up to the using class to track data size.
-   */
-  final #e#[] data;
+import com.almworks.integers.#E#List;
 
+/**
+ * Fixed-size storage for a part of {@link #E#SegmentedArray}. Segments are created by
+ * {@link #E#SegmentedArrayEnvironment}, which decides where the data is kept.
+ * @see #E#ArraySegment
+ * @see #E#BufferSegment
+ */
+public abstract class #E#Segment {
   /**
    * Holds the number of uses in aggregate structures. When >1, the modifying
    * code must make a private copy and apply modifications there.
    */
   int refCount;
 
-  public #E#Segment(int size) {
-    data = new #e#[size];
-  }
+  /**
+   * @return the number of cells. Some cells may not hold meaningful data.
+   * It is up to the using class to track data size.
+   */
+  public abstract int getSize();
+
+  public abstract #e# get(int index);
 
-  public int getSize() {
-    return data.length;
+  public abstract void set(int index, #e# value);
+
+  /**
+   * Copies {@code length} values starting from {@code from} to {@code dest}
+   */
+  public abstract void toNativeArray(int from, #e#[] dest, int destOffset, int length);
+
+  /**
+   * Writes {@code length} values from {@code src} starting at {@code index}
+   */
+  public abstract void setAll(int index, #e#[] src, int srcOffset, int length);
+
+  /**
+   * Writes {@code length} values of {@code src} starting from {@code srcIndex} to this segment starting at {@code index}
+   */
+  public abstract void setAll(int index, #E#List src, int srcIndex, int length);
+
+  /**
+   * Copies {@code length} values starting from {@code from} to {@code dest} starting at {@code destIndex}.
+   * The ranges may overlap if {@code dest == this}.
+   */
+  public void copy(int from, #E#Segment dest, int destIndex, int length) {
+    if (dest == this && from < destIndex) {
+      for (int i = length - 1; i >= 0; i--) {
+        dest.set(destIndex + i, get(from + i));
+      }
+    } else {
+      for (int i = 0; i < length; i++) {
+        dest.set(destIndex + i, get(from + i));
+      }
+    }
   }
 
   public String toString() {
-    return "INTS[" + (data == null ? -1 : data.length) + "]@" + refCount;
+    return "INTS[" + getSize() + "]@" + refCount;
   }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers.segmented;
+
+/**
+ * Free segments kept for reuse by an environment, one free list for every power of two.
+ * Retains at most {@link #getMaxRetainedBytes()} bytes of segment data, segments of other sizes are not pooled.
+ * Not thread-safe, the environment synchronizes access.
+ * @see #E#SegmentedArrayPoolingEnvironment
+ * @see #E#SegmentedArrayBufferEnvironment
+ */
+final class #E#SegmentPool {
+  private final long myMaxRetainedBytes;
+
+  /**
+   * myPools[k] holds myPoolSizes[k] free segments of size 1 << k
+   */
+  private final #E#Segment[][] myPools = new #E#Segment[Integer.SIZE][];
+  private final int[] myPoolSizes = new int[Integer.SIZE];
+
+  private long myRetainedBytes;
+
+  /**
+   * @param maxRetainedBytes the limit on the total size of pooled segment data, 0 disables pooling
+   */
+  #E#SegmentPool(long maxRetainedBytes) {
+    if (maxRetainedBytes < 0) throw new IllegalArgumentException("maxRetainedBytes = " + maxRetainedBytes);
+    myMaxRetainedBytes = maxRetainedBytes;
+  }
+
+  /**
+   * @return a pooled segment of the specified size, or null if there is none
+   */
+  #E#Segment take(int size) {
+    if (Integer.bitCount(size) != 1) return null;
+    int k = Integer.numberOfTrailingZeros(size);
+    int count = myPoolSizes[k];
+    if (count == 0) return null;
+    #E#Segment[] pool = myPools[k];
+    #E#Segment segment = pool[--count];
+    pool[count] = null;
+    myPoolSizes[k] = count;
+    myRetainedBytes -= bytes(size);
+    return segment;
+  }
+
+  /**
+   * @return false if {@code segment} is not pooled because of its size or because the pool is full
+   */
+  boolean offer(#E#Segment segment) {
+    int size = segment.getSize();
+    if (Integer.bitCount(size) != 1) return false;
+    long bytes = bytes(size);
+    if (myRetainedBytes + bytes > myMaxRetainedBytes) return false;
+    int k = Integer.numberOfTrailingZeros(size);
+    #E#Segment[] pool = myPools[k];
+    int count = myPoolSizes[k];
+    if (pool == null) {
+      pool = myPools[k] = new #E#Segment[16];
+    } else if (count == pool.length) {
+      #E#Segment[] newPool = new #E#Segment[count * 2];
+      System.arraycopy(pool, 0, newPool, 0, count);
+      pool = myPools[k] = newPool;
+    }
+    pool[count] = segment;
+    myPoolSizes[k] = count + 1;
+    myRetainedBytes += bytes;
+    return true;
+  }
+
+  void clear() {
+    for (int k = 0; k < myPools.length; k++) {
+      myPools[k] = null;
+      myPoolSizes[k] = 0;
+    }
+    myRetainedBytes = 0;
+  }
+
+  long getMaxRetainedBytes() {
+    return myMaxRetainedBytes;
+  }
+
+  long getRetainedBytes() {
+    return myRetainedBytes;
+  }
+
+  static long bytes(int size) {
+    return (long)size * (#EW#.SIZE / Byte.SIZE);
+  }
+}
@@ -19,6 +19,8 @@
 package com.almworks.integers.segmented;
 
 import com.almworks.integers.*;
+import com.almworks.integers.func.#E#Condition;
+import com.almworks.integers.func.#E#Procedure;
 import com.almworks.integers.func.#E#To#E#;
 import org.jetbrains.annotations.NotNull;
 
@@ -75,6 +77,11 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
   private int mySegmentSize = SEGS_INITIAL;
   private int mySegmentMask = SEGS_INITIAL - 1;
 
+  /**
+   * The last result of {@link #snapshot()}, returned again while it still matches this array.
+   */
+  private Snapshot myLastSnapshot;
+
 
   final boolean checkInvariants() {
     assert mySegmentBits >= SEGB_INITIAL && mySegmentBits <= SEGB_LARGE : mySegmentBits;
@@ -102,8 +109,7 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
             assert seg == null : mySegmentCount + " " + i + " " + seg;
           } else {
             assert seg != null : mySegmentCount + " " + i;
-            assert seg.data != null : mySegmentCount + " " + i + " " + seg;
-            assert seg.data.length == mySegmentSize : mySegmentCount + " " + i + " " + seg;
+            assert seg.getSize() == mySegmentSize : mySegmentCount + " " + i + " " + seg;
             assert seg.refCount > 0 : mySegmentCount + " " + i + " " + seg;
           }
         }
@@ -133,7 +139,7 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
     try {
       index += myLeftOffset;
       #E#Segment s = mySegments.segments[index >> mySegmentBits];
-      return s.data[index & mySegmentMask];
+      return s.get(index & mySegmentMask);
     } catch (NullPointerException e) {
       if (index < 0 || index >= size())
         throw new IndexOutOfBoundsException(index + " " + this);
@@ -159,6 +165,51 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
     return new SegmentedIterator(from, to);
   }
 
+  /**
+   * Iterates segment by segment, without the bookkeeping of an iterator.
+   */
+  @Override
+  public void forEachValue(#E#Procedure procedure) {
+    int modCount = modCount();
+    int length = size();
+    int sp = myLeftOffset;
+    int si = sp >> mySegmentBits;
+    sp &= mySegmentMask;
+    while (length > 0) {
+      int len = Math.min(length, mySegmentSize - sp);
+      #E#Segment segment = mySegments.segments[si];
+      for (int i = sp, end = sp + len; i < end; i++) {
+        procedure.invoke(segment.get(i));
+        if (modCount != modCount()) throw new ConcurrentModificationException(modCount + " " + modCount());
+      }
+      length -= len;
+      sp = 0;
+      si++;
+    }
+  }
+
+  @Override
+  public boolean forEachWhile(#E#Condition condition) {
+    int modCount = modCount();
+    int length = size();
+    int sp = myLeftOffset;
+    int si = sp >> mySegmentBits;
+    sp &= mySegmentMask;
+    while (length > 0) {
+      int len = Math.min(length, mySegmentSize - sp);
+      #E#Segment segment = mySegments.segments[si];
+      for (int i = sp, end = sp + len; i < end; i++) {
+        boolean proceed = condition.invoke(segment.get(i));
+        if (modCount != modCount()) throw new ConcurrentModificationException(modCount + " " + modCount());
+        if (!proceed) return false;
+      }
+      length -= len;
+      sp = 0;
+      si++;
+    }
+    return true;
+  }
+
   public void expand(int index, int count) {
     if (count < 0) {
       throw new IllegalArgumentException();
@@ -284,7 +335,7 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
     int copied = 0;
     while (true) {
       int len = Math.min(length - copied, mySegmentSize - sp);
-      myEnv.copy(mySegments.segments[si].data, sp, dest, destOffset + copied, len);
+      mySegments.segments[si].toNativeArray(sp, dest, destOffset + copied, len);
       copied += len;
       if (copied >= length) {
         assert copied == length : copied + " " + length;
@@ -338,6 +389,33 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
     }
   }
 
+  /**
+   * Returns an immutable view of the current contents of this array. The view is thread-safe: it may be passed to
+   * and read by other threads while this array goes on being modified.
+   * <p>
+   * The view shares segments with this array, taking O(size() / segment size) time, not a full copy.
+   * Shared segments are never written again: as with {@link #clone()}, this array copies a segment before
+   * modifying it, so later writes pay for one copy of every segment they touch.
+   * Segments seen by a snapshot are not returned to the environment, they are left to the garbage collector.
+   * <p>
+   * As all other methods, this method must be called by the thread that modifies the array.
+   */
+  public #E#List snapshot() {
+    assert !IntegersDebug.CHECK || checkInvariants();
+    int size = size();
+    if (size == 0) return #E#List.EMPTY;
+    Snapshot last = myLastSnapshot;
+    if (last != null && last.isSnapshotOf(this)) return last;
+    #E#Segment[] segments = new #E#Segment[mySegmentCount];
+    System.arraycopy(mySegments.segments, 0, segments, 0, mySegmentCount);
+    for (#E#Segment segment : segments) {
+      // never released, so that this array won't write to the segment or free it
+      use(segment);
+    }
+    myLastSnapshot = new Snapshot(segments, myLeftOffset, size, mySegmentBits);
+    return myLastSnapshot;
+  }
+
   private void insertList(int index, #E#List list, int sourceIndex, int count) {
     assert !IntegersDebug.CHECK || checkInvariants();
     assert list != null && !list.isEmpty() && count > 0 && count <= list.size();
@@ -353,7 +431,7 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
     for (int i = 0; i < count;) {
       #E#Segment seg = modify(di);
       int len = Math.min(count - i, mySegmentSize - dp);
-      list.toNativeArray(sourceIndex + i, seg.data, dp, len);
+      seg.setAll(dp, list, sourceIndex + i, len);
       i += len;
       dp = 0;
       di++;
@@ -384,7 +462,7 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
         setSegment(di, array.mySegments.segments[si]);
       } else {
         #E#Segment seg = modify(di);
-        myEnv.copy(array.mySegments.segments[si].data, sp, seg.data, dp, len);
+        myEnv.copy(array.mySegments.segments[si], sp, seg, dp, len);
       }
       copied += len;
       if (copied >= length) {
@@ -476,7 +554,7 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
       } else {
         #E#Segment tseg = modify(targetSegment);
         #E#Segment sseg = mySegments.segments[sourceSegment];
-        myEnv.copy(sseg.data, sourceOffset - len, tseg.data, targetOffset - len, len);
+        myEnv.copy(sseg, sourceOffset - len, tseg, targetOffset - len, len);
       }
       source -= len;
       target -= len;
@@ -506,7 +584,7 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
       } else {
         #E#Segment tseg = modify(targetSegment);
         #E#Segment sseg = mySegments.segments[sourceSegment];
-        myEnv.copy(sseg.data, sourceOffset, tseg.data, targetOffset, len);
+        myEnv.copy(sseg, sourceOffset, tseg, targetOffset, len);
       }
       source += len;
       target += len;
@@ -601,10 +679,10 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
       myCapacity = mySegmentSize;
       int sz = size();
       if (!leftward) {
-        myEnv.copy(olds.data, myLeftOffset, s.data, myLeftOffset, sz);
+        myEnv.copy(olds, myLeftOffset, s, myLeftOffset, sz);
         myRightOffset = myCapacity - sz - myLeftOffset;
       } else {
-        myEnv.copy(olds.data, myLeftOffset, s.data, s.data.length - myRightOffset - sz, sz);
+        myEnv.copy(olds, myLeftOffset, s, s.getSize() - myRightOffset - sz, sz);
         myLeftOffset = myCapacity - sz - myRightOffset;
       }
       setSegment(0, s);
@@ -708,7 +786,7 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
   }
 
   private void writeValue(int absIndex, #e# value) {
-    modify(absIndex >> mySegmentBits).data[absIndex & mySegmentMask] = value;
+    modify(absIndex >> mySegmentBits).set(absIndex & mySegmentMask, value);
   }
 
   private #E#Segment modify(int segmentIndex) {
@@ -718,7 +796,7 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
     #E#Segment newseg = myEnv.allocate(mySegmentSize);
     int L = segmentIndex == 0 ? myLeftOffset : 0;
     int R = segmentIndex == mySegmentCount - 1 ? myRightOffset : 0;
-    myEnv.copy(s.data, L, newseg.data, L, s.data.length - L - R);
+    myEnv.copy(s, L, newseg, L, s.getSize() - L - R);
     return setSegment(segmentIndex, newseg);
   }
 
@@ -784,6 +862,65 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
 
 
 
+  /**
+   * Immutable list over segments that are shared with the array and never modified.
+   * All fields are final, so a snapshot is safely published to other threads without synchronization.
+   */
+  private static final class Snapshot extends Abstract#E#List {
+    private final #E#Segment[] mySegments;
+    private final int myLeftOffset;
+    private final int mySize;
+    private final int mySegmentBits;
+    private final int mySegmentMask;
+
+    Snapshot(#E#Segment[] segments, int leftOffset, int size, int segmentBits) {
+      mySegments = segments;
+      myLeftOffset = leftOffset;
+      mySize = size;
+      mySegmentBits = segmentBits;
+      mySegmentMask = (1 << segmentBits) - 1;
+    }
+
+    public int size() {
+      return mySize;
+    }
+
+    public #e# get(int index) {
+      if (index < 0 || index >= mySize) throw new IndexOutOfBoundsException(index + " " + mySize);
+      index += myLeftOffset;
+      return mySegments[index >> mySegmentBits].get(index & mySegmentMask);
+    }
+
+    @Override
+    public #e#[] toNativeArray(int startIndex, #e#[] dest, int destOffset, int length) {
+      if (startIndex < 0 || length < 0 || startIndex + length > mySize)
+        throw new IndexOutOfBoundsException(startIndex + " " + length + " " + mySize);
+      int index = myLeftOffset + startIndex;
+      while (length > 0) {
+        int offset = index & mySegmentMask;
+        int len = Math.min(length, mySegmentMask + 1 - offset);
+        mySegments[index >> mySegmentBits].toNativeArray(offset, dest, destOffset, len);
+        index += len;
+        destOffset += len;
+        length -= len;
+      }
+      return dest;
+    }
+
+    /**
+     * @return true if {@code array} holds the same segments in the same way: the array copies shared segments
+     * before writing, so it has not been modified since this snapshot was taken
+     */
+    boolean isSnapshotOf(#E#SegmentedArray array) {
+      if (array.size() != mySize || array.myLeftOffset != myLeftOffset || array.mySegmentBits != mySegmentBits ||
+          array.mySegmentCount != mySegments.length) return false;
+      for (int i = 0; i < mySegments.length; i++) {
+        if (array.mySegments.segments[i] != mySegments[i]) return false;
+      }
+      return true;
+    }
+  }
+
   private class SegmentedIterator extends Abstract#E#Iterator implements Writable#E#ListIterator {
     private final int myFrom;
     private int myTo;
@@ -830,7 +967,7 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
       if (mySegment == null) {
         mySegment = mySegments.segments[mySegmentIndex];
       }
-      myCurrent = mySegment.data[myOffset];
+      myCurrent = mySegment.get(myOffset);
       myNext = p + 1;
       updateOffset(myOffset + 1);
       assert !IntegersDebug.CHECK || checkIterator();
@@ -846,13 +983,64 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
       if (mySegment == null) {
         mySegment = mySegments.segments[mySegmentIndex];
       }
-      myCurrent = mySegment.data[myOffset];
+      myCurrent = mySegment.get(myOffset);
       myNext++;
       updateOffset(myOffset + 1);
       assert !IntegersDebug.CHECK || checkIterator();
       return this;
     }
 
+    public int nextBatch(#e#[] dst, int off, int len) throws ConcurrentModificationException {
+      assert !IntegersDebug.CHECK || checkIterator();
+      checkMod();
+      int next = myNext < 0 ? -myNext-1 : myNext;
+      int count = Math.min(len, myTo - next);
+      if (count <= 0) return 0;
+      for (int copied = 0; copied < count; ) {
+        if (mySegment == null) {
+          mySegment = mySegments.segments[mySegmentIndex];
+        }
+        int chunk = Math.min(count - copied, mySegmentSize - myOffset);
+        mySegment.toNativeArray(myOffset, dst, off + copied, chunk);
+        copied += chunk;
+        updateOffset(myOffset + chunk);
+      }
+      myCurrent = dst[off + count - 1];
+      myNext = next + count;
+      assert !IntegersDebug.CHECK || checkIterator();
+      return count;
+    }
+
+    /**
+     * Gallops from the current position, see {@link Abstract#E#ListIndexIterator#advanceTo(#e#)}
+     */
+    public boolean advanceTo(#e# value) throws ConcurrentModificationException {
+      checkMod();
+      if (myFrom < myNext && myCurrent >= value) return true;
+      int low = myNext < 0 ? -myNext-1 : myNext;
+      int high = low;
+      int step = 1;
+      while (high < myTo && #E#SegmentedArray.this.get(high) < value) {
+        low = high + 1;
+        high = myTo - high > step ? high + step : myTo;
+        step <<= 1;
+      }
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (#E#SegmentedArray.this.get(mid) < value) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      if (myNext < 0)
+        myNext = -myNext-1;
+      // move to the found index or to the end
+      int count = Math.min(low, myTo - 1) - (myNext - 1);
+      if (count > 0) move(count);
+      return low < myTo;
+    }
+
     public boolean hasValue() {
       return myFrom < myNext;
     }
@@ -903,7 +1091,7 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
       } else {
         seg = mySegment == null ? mySegments.segments[si] : mySegment;
       }
-      return seg.data[off];
+      return seg.get(off);
     }
 
     public int index() throws NoSuchElementException {
@@ -941,7 +1129,7 @@ public class #E#SegmentedArray extends AbstractWritable#E#List implements Clonea
           mySegment = seg;
         }
       }
-      seg.data[off] = value;
+      seg.set(off, value);
       assert !IntegersDebug.CHECK || checkIterator();
     }
 
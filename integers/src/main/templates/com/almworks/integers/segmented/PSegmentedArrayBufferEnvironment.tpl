@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers.segmented;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Keeps the data of segmented arrays out of the Java heap, in direct or memory-mapped {@link ByteBuffer}s.
+ * <p>
+ * Segments are cut out of chunks taken from a {@link ChunkAllocator}. A freed segment goes to the pool of its size
+ * and is reused by the next allocation of the same size. The pool retains at most {@link #getMaxPooledBytes()} bytes,
+ * segments freed above that limit are left to the garbage collector. The memory of the chunks is never given back
+ * to the allocator: a chunk is released when the environment and all the segments cut out of it become unreachable.
+ * <p>
+ * This class is thread-safe, one environment may be shared by arrays used in different threads.
+ */
+public class #E#SegmentedArrayBufferEnvironment implements #E#SegmentedArrayEnvironment {
+  public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+  public static final long DEFAULT_MAX_POOLED_BYTES = #E#SegmentedArrayPoolingEnvironment.DEFAULT_MAX_RETAINED_BYTES;
+
+  /**
+   * Source of memory for the segments.
+   */
+  public interface ChunkAllocator {
+    /**
+     * @return a buffer with at least {@code bytes} bytes between its position and limit
+     */
+    ByteBuffer allocateChunk(int bytes);
+  }
+
+  public static final ChunkAllocator DIRECT = new ChunkAllocator() {
+    public ByteBuffer allocateChunk(int bytes) {
+      return ByteBuffer.allocateDirect(bytes);
+    }
+  };
+
+  private final ChunkAllocator myAllocator;
+  private final int myChunkSize;
+
+  /**
+   * The rest of the last chunk, segments are cut from its position.
+   */
+  private ByteBuffer myChunk;
+
+  private final #E#SegmentPool myPool;
+
+  private long myReservedBytes;
+
+  public #E#SegmentedArrayBufferEnvironment() {
+    this(DIRECT);
+  }
+
+  public #E#SegmentedArrayBufferEnvironment(ChunkAllocator allocator) {
+    this(allocator, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * @param chunkSize the number of bytes requested from {@code allocator} at once
+   */
+  public #E#SegmentedArrayBufferEnvironment(ChunkAllocator allocator, int chunkSize) {
+    this(allocator, chunkSize, DEFAULT_MAX_POOLED_BYTES);
+  }
+
+  /**
+   * @param chunkSize the number of bytes requested from {@code allocator} at once
+   * @param maxPooledBytes the limit on the total size of free segments kept for reuse, 0 disables pooling
+   */
+  public #E#SegmentedArrayBufferEnvironment(ChunkAllocator allocator, int chunkSize, long maxPooledBytes) {
+    if (allocator == null) throw new NullPointerException();
+    if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize = " + chunkSize);
+    myAllocator = allocator;
+    myChunkSize = chunkSize;
+    myPool = new #E#SegmentPool(maxPooledBytes);
+  }
+
+  /**
+   * Maps consecutive regions of {@code channel} starting from the beginning of the file, growing the file as needed.
+   * The file serves as swap space: its contents are overwritten, and the mapped regions stay valid after the channel is closed.
+   * @throws UncheckedIOException when mapping fails
+   */
+  public static ChunkAllocator mapped(final FileChannel channel) {
+    return new ChunkAllocator() {
+      private long myPosition;
+
+      public ByteBuffer allocateChunk(int bytes) {
+        try {
+          ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_WRITE, myPosition, bytes);
+          myPosition += bytes;
+          return chunk;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+    };
+  }
+
+  public synchronized #E#Segment allocate(int size) {
+    #E#Segment segment = myPool.take(size);
+    if (segment != null) return segment;
+    int bytes = (int) #E#SegmentPool.bytes(size);
+    if (myChunk == null || myChunk.remaining() < bytes) {
+      myChunk = myAllocator.allocateChunk(Math.max(bytes, myChunkSize));
+      myReservedBytes += myChunk.remaining();
+    }
+    ByteBuffer slice = myChunk.slice();
+    // Buffer methods return ByteBuffer only since Java 9
+    ((Buffer) slice).limit(bytes);
+    ((Buffer) myChunk).position(myChunk.position() + bytes);
+    return new #E#BufferSegment(slice.order(ByteOrder.nativeOrder()).as#E#Buffer(), this);
+  }
+
+  public #E#Segments allocateSegments(int size) {
+    return new #E#Segments(size);
+  }
+
+  /**
+   * Pools {@code segment} if it has been allocated by this environment, other segments are left to the garbage collector.
+   */
+  public synchronized void free(#E#Segment segment) {
+    if (segment instanceof #E#BufferSegment && ((#E#BufferSegment) segment).owner == this) myPool.offer(segment);
+  }
+
+  /**
+   * Drops all pooled segments.
+   */
+  public synchronized void clear() {
+    myPool.clear();
+  }
+
+  public void free(#E#Segments segments) {
+  }
+
+  public final void copy(#E#Segment source, int sourceOffset, #E#Segment destination, int destinationOffset, int length) {
+    source.copy(sourceOffset, destination, destinationOffset, length);
+  }
+
+  /**
+   * @return the number of bytes taken from the allocator
+   */
+  public synchronized long getReservedBytes() {
+    return myReservedBytes;
+  }
+
+  /**
+   * @return the number of bytes held by free segments
+   */
+  public synchronized long getPooledBytes() {
+    return myPool.getRetainedBytes();
+  }
+
+  public long getMaxPooledBytes() {
+    return myPool.getMaxRetainedBytes();
+  }
+}
@@ -18,14 +18,28 @@
 
 package com.almworks.integers.segmented;
 
+/**
+ * Manages the memory of {@link #E#SegmentedArray}: segments are allocated and freed here,
+ * so an environment decides where the data lives and whether it is reused.
+ * @see #E#SegmentedArrayHeapEnvironment
+ * @see #E#SegmentedArrayPoolingEnvironment
+ * @see #E#SegmentedArrayBufferEnvironment
+ */
 public interface #E#SegmentedArrayEnvironment {
   #E#Segment allocate(int size);
 
   #E#Segments allocateSegments(int size);
 
+  /**
+   * Called when {@code segment} is no longer used by any array, so its memory may be reused
+   */
   void free(#E#Segment segment);
 
   void free(#E#Segments segments);
 
-  void copy(#e#[] source, int sourceOffset, #e#[] destination, int destinationOffset, int length);
+  /**
+   * Copies values between segments, which may belong to arrays with different environments.
+   * @see #E#Segment#copy(int, #E#Segment, int, int)
+   */
+  void copy(#E#Segment source, int sourceOffset, #E#Segment destination, int destinationOffset, int length);
 }
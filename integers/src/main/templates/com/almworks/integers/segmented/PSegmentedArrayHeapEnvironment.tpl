@@ -22,7 +22,7 @@ public class #E#SegmentedArrayHeapEnvironment implements #E#SegmentedArrayEnviro
   public static final #E#SegmentedArrayEnvironment INSTANCE = new #E#SegmentedArrayHeapEnvironment();
 
   public #E#Segment allocate(int size) {
-    return new #E#Segment(size);
+    return new #E#ArraySegment(size);
   }
 
   public #E#Segments allocateSegments(int size) {
@@ -35,7 +35,7 @@ public class #E#SegmentedArrayHeapEnvironment implements #E#SegmentedArrayEnviro
   public void free(#E#Segments segments) {
   }
 
-  public final void copy(#e#[] source, int sourceOffset, #e#[] destination, int destinationOffset, int length) {
-    System.arraycopy(source, sourceOffset, destination, destinationOffset, length);
+  public final void copy(#E#Segment source, int sourceOffset, #E#Segment destination, int destinationOffset, int length) {
+    source.copy(sourceOffset, destination, destinationOffset, length);
   }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers.segmented;
+
+/**
+ * Heap environment that keeps freed segments for reuse, so that arrays which are repeatedly cleared, cloned and
+ * modified stop producing garbage once the pool is warmed up.
+ * <p>
+ * Segments are pooled by size, one free list for every power of two. The pool retains at most
+ * {@link #getMaxRetainedBytes()} bytes of segment data; segments freed above that limit are left to the garbage collector.
+ * <p>
+ * This class is thread-safe, one environment may be shared by arrays used in different threads.
+ */
+public class #E#SegmentedArrayPoolingEnvironment extends #E#SegmentedArrayHeapEnvironment {
+  public static final long DEFAULT_MAX_RETAINED_BYTES = 16 << 20;
+
+  private final #E#SegmentPool myPool;
+  private long myHits;
+  private long myMisses;
+
+  public #E#SegmentedArrayPoolingEnvironment() {
+    this(DEFAULT_MAX_RETAINED_BYTES);
+  }
+
+  /**
+   * @param maxRetainedBytes the limit on the total size of pooled segment data, 0 disables pooling
+   */
+  public #E#SegmentedArrayPoolingEnvironment(long maxRetainedBytes) {
+    myPool = new #E#SegmentPool(maxRetainedBytes);
+  }
+
+  public synchronized #E#Segment allocate(int size) {
+    #E#Segment segment = myPool.take(size);
+    if (segment != null) {
+      myHits++;
+      return segment;
+    }
+    myMisses++;
+    return super.allocate(size);
+  }
+
+  public synchronized void free(#E#Segment segment) {
+    if (segment instanceof #E#ArraySegment) myPool.offer(segment);
+  }
+
+  /**
+   * Drops all pooled segments.
+   */
+  public synchronized void clear() {
+    myPool.clear();
+  }
+
+  public long getMaxRetainedBytes() {
+    return myPool.getMaxRetainedBytes();
+  }
+
+  /**
+   * @return the total size of the data of pooled segments
+   */
+  public synchronized long getRetainedBytes() {
+    return myPool.getRetainedBytes();
+  }
+
+  /**
+   * @return the number of allocations served from the pool
+   */
+  public synchronized long getHitCount() {
+    return myHits;
+  }
+
+  /**
+   * @return the number of allocations that created a new segment
+   */
+  public synchronized long getMissCount() {
+    return myMisses;
+  }
+}
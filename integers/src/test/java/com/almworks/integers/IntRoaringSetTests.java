@@ -0,0 +1,178 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers;
+
+import static com.almworks.integers.IntegersFixture.SortedStatus.SORTED_UNIQUE;
+import static com.almworks.integers.IntegersFixture.SortedStatus.UNORDERED;
+
+public class IntRoaringSetTests extends IntegersFixture {
+  /**
+   * Random sets of different densities: sparse chunks are arrays, dense ones are bitmaps
+   */
+  private IntArray randomValues(int size, int range) {
+    IntArray res = generateRandomIntArray(size, UNORDERED, -range / 2, range / 2);
+    res.addAll(Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 0, 65535, 65536);
+    return res;
+  }
+
+  private void checkSet(IntArray sortedUnique, IntRoaringSet set) {
+    assertEquals(sortedUnique.size(), set.size());
+    CHECK.order(set.iterator(), sortedUnique.iterator());
+    CHECK.order(set.toArray().toNativeArray(), sortedUnique.toNativeArray());
+    if (!sortedUnique.isEmpty()) {
+      assertEquals(sortedUnique.get(0), set.getLowerBound());
+      assertEquals(sortedUnique.get(sortedUnique.size() - 1), set.getUpperBound());
+    }
+  }
+
+  public void testIncludeExclude() {
+    for (int range : new int[]{1000, 100000, 10000000}) {
+      IntArray values = randomValues(20000, range);
+      IntRoaringSet set = new IntRoaringSet();
+      IntOpenHashSet expected = new IntOpenHashSet();
+      for (int i = 0; i < values.size(); i++) {
+        assertEquals(expected.include(values.get(i)), set.include(values.get(i)));
+      }
+      IntArray sorted = expected.toArray();
+      sorted.sort();
+      checkSet(sorted, set);
+      for (int i = 0; i < values.size(); i += 2) {
+        int v = values.get(i) + (i % 4 == 0 ? 0 : 1);
+        assertEquals(expected.exclude(v), set.exclude(v));
+        assertEquals(expected.contains(v + 3), set.contains(v + 3));
+      }
+      sorted = expected.toArray();
+      sorted.sort();
+      checkSet(sorted, set);
+      set.runOptimize();
+      checkSet(sorted, set);
+    }
+  }
+
+  public void testSetAlgebra() {
+    int[][] params = {{3000, 1000000}, {30000, 100000}, {100000, 150000}, {2000, 3000}};
+    for (int[] pa : params) {
+      for (int[] pb : params) {
+        IntArray a = randomValues(pa[0], pa[1]);
+        IntArray b = randomValues(pb[0], pb[1]);
+        a.addAll(IntProgression.range(70000, 75000));
+        a.sortUnique();
+        b.sortUnique();
+        IntRoaringSet x = IntRoaringSet.createFrom(a);
+        IntRoaringSet y = IntRoaringSet.createFrom(b);
+        for (int optimize = 0; optimize < 2; optimize++) {
+          checkSet(new IntArray(IntCollections.unionSortedUnique(a, b)), x.union(y));
+          checkSet(new IntArray(IntCollections.intersectionSortedUnique(a, b)), x.intersection(y));
+          IntArray minus = new IntArray(new IntMinusIterator(a, b));
+          checkSet(minus, x.minus(y));
+
+          CHECK.order(IntCollections.toSortedIntersection(x, y).iterator(), x.intersection(y).iterator());
+          CHECK.order(IntCollections.toSortedUnion(x, y).iterator(), x.union(y).iterator());
+          CHECK.order(new IntIntersectionIterator(x, y), x.intersection(y).iterator());
+          CHECK.order(new IntUnionIterator(x, y), x.union(y).iterator());
+          x.runOptimize();
+          y.runOptimize();
+        }
+        IntRoaringSet z = IntRoaringSet.createFrom(a);
+        z.addAll(y);
+        checkSet(new IntArray(IntCollections.unionSortedUnique(a, b)), z);
+        z.removeAll(y);
+        checkSet(new IntArray(new IntMinusIterator(a, b)), z);
+      }
+    }
+  }
+
+  public void testTailIteratorAndAdvanceTo() {
+    IntArray values = randomValues(50000, 1000000);
+    values.addAll(IntProgression.range(200000, 270000));
+    values.sortUnique();
+    IntRoaringSet set = IntRoaringSet.createFrom(values);
+    for (int optimize = 0; optimize < 2; optimize++) {
+      for (int attempt = 0; attempt < 50; attempt++) {
+        int from = myRand.nextInt(1200000) - 600000;
+        int idx = values.binarySearch(from);
+        if (idx < 0) idx = -idx - 1;
+        CHECK.order(set.tailIterator(from), values.subList(idx, values.size()).iterator());
+
+        IntIterator it = set.iterator();
+        IntArray probes = generateRandomIntArray(100, SORTED_UNIQUE, -600000, 600000);
+        for (int i = 0; i < probes.size(); i++) {
+          int p = probes.get(i);
+          int j = values.binarySearch(p);
+          if (j < 0) j = -j - 1;
+          if (j == values.size()) {
+            assertFalse(it.advanceTo(p));
+            break;
+          }
+          assertTrue(it.advanceTo(p));
+          assertEquals(values.get(j), it.value());
+        }
+      }
+      set.runOptimize();
+    }
+  }
+
+  public void testRankSelect() {
+    IntArray values = randomValues(30000, 1000000);
+    values.addAll(IntProgression.range(200000, 270000));
+    values.sortUnique();
+    IntRoaringSet set = IntRoaringSet.createFrom(values);
+    for (int optimize = 0; optimize < 2; optimize++) {
+      for (int attempt = 0; attempt < 2000; attempt++) {
+        int i = myRand.nextInt(values.size());
+        assertEquals(values.get(i), set.select(i));
+        assertEquals(i, set.rank(values.get(i)));
+        int value = myRand.nextInt(1200000) - 600000;
+        int idx = values.binarySearch(value);
+        assertEquals(idx >= 0 ? idx : -idx - 1, set.rank(value));
+      }
+      assertEquals(0, set.rank(Integer.MIN_VALUE));
+      assertEquals(values.size() - 1, set.rank(Integer.MAX_VALUE));
+      int from = values.size() / 3;
+      CHECK.order(set.subSetIterator(from, from + 1000), values.subList(from, from + 1000).iterator());
+      set.runOptimize();
+    }
+  }
+
+  public void testBatches() {
+    IntArray values = randomValues(30000, 200000);
+    values.sortUnique();
+    IntRoaringSet set = IntRoaringSet.createFrom(values);
+    IntIterator it = set.iterator();
+    int[] buf = new int[1000];
+    IntArray res = new IntArray();
+    for (int count; (count = it.nextBatch(buf, 0, 1 + myRand.nextInt(buf.length))) > 0; ) {
+      res.addAll(new IntArray(buf, count));
+      assertEquals(buf[count - 1], it.value());
+    }
+    CHECK.order(res.iterator(), values.iterator());
+  }
+
+  public void testFailFast() {
+    IntRoaringSet set = IntRoaringSet.createFrom(1, 2, 3);
+    IntIterator it = set.iterator();
+    it.next();
+    set.include(4);
+    try {
+      it.next();
+      fail();
+    } catch (java.util.ConcurrentModificationException e) {
+      // ok
+    }
+  }
+}
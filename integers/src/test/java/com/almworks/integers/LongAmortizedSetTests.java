@@ -73,6 +73,10 @@ protected List<LongAmortizedSet> createSets(LongList sortedUniqueList) {
     set.addAll(sortedUniqueList);
     sets.add(set);
 
+    set = new LongAmortizedSet(new LongBTreeSet(), new LongChainHashSet());
+    set.addAll(sortedUniqueList);
+    sets.add(set);
+
     return sets;
   }
 
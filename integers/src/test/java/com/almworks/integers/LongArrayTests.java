@@ -18,6 +18,7 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.almworks.integers.IntProgression.range;
 import static com.almworks.integers.IntegersFixture.SortedStatus.*;
@@ -302,4 +303,141 @@ public void testHashCode() {
     assertNotEquals(oneToTen.hashCode(), LongProgression.arithmetic(1, 5).hashCode());
     assertNotEquals(oneToTen.hashCode(), LongArray.create(1, 2, 3, 4, 5).hashCode());
   }
-}
\ No newline at end of file
+
+  public void testParallelSort() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      int[] thresholds = {1, 7, 1000, LongParallelSort.DEFAULT_THRESHOLD};
+      for (int threshold : thresholds) {
+        for (int size : new int[]{0, 1, 2, 100, 5000, 30000}) {
+          LongArray values = generateRandomLongArray(size, UNORDERED, size / 3 + 1);
+          LongArray expected = LongArray.copy(values);
+          expected.sort();
+          values.parallelSort(pool, threshold);
+          CHECK.order(expected, values);
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+    array = generateRandomLongArray(100000, UNORDERED);
+    LongArray expected = LongArray.copy(array);
+    expected.sort();
+    array.parallelSort();
+    CHECK.order(expected, array);
+  }
+
+  public void testParallelSortAlsoIsStable() {
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      for (int threshold : new int[]{1, 300, 100000}) {
+        int size = 20000;
+        LongArray keys = generateRandomLongArray(size, UNORDERED, 50);
+        LongArray original = LongArray.copy(keys);
+        LongArray positions = new LongArray(LongProgression.range(size));
+        LongArray longer = new LongArray(LongProgression.range(size + 1));
+        keys.parallelSort(pool, threshold, positions, longer);
+
+        assertTrue(keys.isSorted());
+        CHECK.order(positions, longer.subList(0, size));
+        assertEquals(size, longer.get(size));
+        for (int i = 0; i < size; i++) {
+          long position = positions.get(i);
+          assertEquals(original.get((int) position), keys.get(i));
+          if (i > 0 && keys.get(i - 1) == keys.get(i)) {
+            assertTrue(positions.get(i - 1) < position);
+          }
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  public void testParallelSortUnique() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int threshold : new int[]{1, 10, 1000, 100000}) {
+        for (int size : new int[]{0, 1, 2, 5000, 30000}) {
+          LongArray values = generateRandomLongArray(size, UNORDERED, size / 2 + 1);
+          LongArray expected = LongArray.copy(values);
+          expected.sortUnique();
+          values.parallelSortUnique(pool, threshold);
+          CHECK.order(expected, values);
+          values.add(-1);
+          assertEquals(-1, values.getLast(0));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  public void testParallelSortSingleWorker() {
+    ForkJoinPool pool = new ForkJoinPool(1);
+    try {
+      LongArray values = generateRandomLongArray(30000, UNORDERED, 10000);
+      LongArray positions = new LongArray(LongProgression.range(values.size()));
+      LongArray original = LongArray.copy(values);
+      LongArray expected = LongArray.copy(values);
+      expected.sort();
+      values.parallelSort(pool, 7, positions);
+      CHECK.order(expected, values);
+      for (int i = 0; i < values.size(); i++) {
+        assertEquals(original.get((int) positions.get(i)), values.get(i));
+      }
+      expected.sortUnique();
+      values.parallelSortUnique(pool, 7);
+      CHECK.order(expected, values);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  public void testForEachValueWithLambdas() {
+    LongArray values = LongArray.create(3, 1, 2);
+    LongArray visited = new LongArray();
+    values.forEachValue(value -> visited.add(value));
+    CHECK.order(values, visited);
+    assertFalse(values.forEachWhile(value -> value != 1));
+
+    visited.clear();
+    values.forEach(it -> visited.add(it.value()));
+    CHECK.order(values, visited);
+  }
+
+  public void testParallelSortIllegalThreshold() {
+    array.addAll(3, 2, 1);
+    try {
+      array.parallelSort(ForkJoinPool.commonPool(), 0);
+      fail();
+    } catch (IllegalArgumentException e) {}
+    try {
+      LongParallelSort.permute(new long[]{3, 2, 1}, new int[]{2, 1, 0}, 3, ForkJoinPool.commonPool(), 0);
+      fail();
+    } catch (IllegalArgumentException e) {}
+    try {
+      LongParallelSort.removeDuplicates(new long[]{1, 1, 2}, 3, ForkJoinPool.commonPool(), -1);
+      fail();
+    } catch (IllegalArgumentException e) {}
+  }
+
+  public void testPermuteAndRemoveDuplicates() {
+    long[] values = {10, 20, 30, 40};
+    int[] order = {3, 0, 2, 1};
+    long[] sorted = {1, 1, 2, 3, 3, 3, 5};
+    for (int parallelism : new int[]{1, 3}) {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        for (int threshold : new int[]{1, 2, 100}) {
+          CHECK.order(LongArray.create(40, 10, 30, 20), LongArray.create(LongParallelSort.permute(values, order, 4, pool, threshold)));
+          CHECK.order(LongArray.create(40, 10), LongArray.create(LongParallelSort.permute(values, order, 2, pool, threshold)));
+          CHECK.order(LongArray.create(1, 2, 3, 5), LongArray.create(LongParallelSort.removeDuplicates(sorted, 7, pool, threshold)));
+          CHECK.order(LongArray.create(1, 2), LongArray.create(LongParallelSort.removeDuplicates(sorted, 3, pool, threshold)));
+        }
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.almworks.integers.IntegersFixture.SortedStatus.SORTED_UNIQUE;
+import static com.almworks.integers.IntegersFixture.SortedStatus.UNORDERED;
+
+/**
+ * add {@code -Dcom.almworks.integers.check=true} in VM options to run full set checks
+ * */
+public class LongBTreeSetTests extends WritableLongSetChecker<LongBTreeSet> {
+
+  protected LongBTreeSet createSet() {
+    return new LongBTreeSet();
+  }
+
+  protected LongBTreeSet createSetWithCapacity(int capacity) {
+    return capacity == -1 ? new LongBTreeSet() : new LongBTreeSet(capacity);
+  }
+
+  protected List<LongBTreeSet> createSets(LongList sortedUniqueList) {
+    LongBTreeSet set1 = new LongBTreeSet();
+    set1.addAll(sortedUniqueList);
+    LongBTreeSet set2 = new LongBTreeSet(sortedUniqueList.size());
+    set2.addAll(sortedUniqueList.iterator());
+    return Arrays.asList(set1, set2, LongBTreeSet.createFromSortedUnique(sortedUniqueList));
+  }
+
+  @Override
+  protected LongBTreeSet createSet(LongList sortedUniqueList) {
+    return LongBTreeSet.createFromSortedUnique(sortedUniqueList);
+  }
+
+  @Override
+  protected boolean isSortedSet() {
+    return true;
+  }
+
+  public void testEdgeCases() {
+    set = new LongBTreeSet();
+    assertEquals(Long.MAX_VALUE, set.getLowerBound());
+    assertEquals(Long.MIN_VALUE, set.getUpperBound());
+    assertFalse(set.exclude(MIN));
+    assertFalse(set.tailIterator(MIN).hasNext());
+    assertEquals(0, set.rank(MAX));
+    set.addAll(1, 3, 2, MIN, MAX);
+    CHECK.order(set.toArray(), MIN, 1, 2, 3, MAX);
+    assertEquals(MIN, set.getLowerBound());
+    assertEquals(MAX, set.getUpperBound());
+    assertTrue(set.contains(MIN));
+    assertFalse(set.contains(0));
+    assertTrue(LongBTreeSet.createFromSortedUnique(LongList.EMPTY).isEmpty());
+  }
+
+  public void testManyLeaves() {
+    LongBTreeSet tree = new LongBTreeSet();
+    LongOpenHashSet expected = new LongOpenHashSet();
+    for (int attempt = 0; attempt < 4; attempt++) {
+      // grows the tree to several levels, then shrinks it back
+      LongArray values = generateRandomLongArray(50000, UNORDERED, 100000);
+      for (int i = 0; i < values.size(); i++) {
+        assertEquals(expected.include(values.get(i)), tree.include(values.get(i)));
+      }
+      checkSet(tree, expected);
+      values = generateRandomLongArray(60000, UNORDERED, 100000);
+      for (int i = 0; i < values.size(); i++) {
+        assertEquals(expected.exclude(values.get(i)), tree.exclude(values.get(i)));
+      }
+      checkSet(tree, expected);
+    }
+    tree.removeAll(expected);
+    assertTrue(tree.isEmpty());
+    tree.add(1);
+    CHECK.order(tree.toArray(), 1);
+  }
+
+  private void checkSet(LongBTreeSet tree, LongSet expected) {
+    LongArray sorted = expected.toArray();
+    sorted.sort();
+    assertEquals(sorted.size(), tree.size());
+    CHECK.order(sorted, tree.toArray());
+    if (sorted.isEmpty()) return;
+    assertEquals(sorted.get(0), tree.getLowerBound());
+    assertEquals(sorted.getLast(0), tree.getUpperBound());
+    for (int i = 0; i < sorted.size(); i += 97) {
+      assertEquals(sorted.get(i), tree.select(i));
+      assertEquals(i, tree.rank(sorted.get(i)));
+    }
+  }
+
+  public void testRankSelect() {
+    for (int maxSize : new int[] {0, 1, 100, 1000, 30000}) {
+      LongArray values = generateRandomLongArray(maxSize, SORTED_UNIQUE, maxSize * 4 + 1);
+      int size = values.size();
+      for (LongBTreeSet tree : createSets(values)) {
+        for (int i = 0; i < size; i++) {
+          assertEquals(values.get(i), tree.select(i));
+        }
+        for (long value = -1; value <= maxSize * 4; value += 3) {
+          int index = values.binarySearch(value);
+          assertEquals(index >= 0 ? index : -index - 1, tree.rank(value));
+        }
+        try {
+          tree.select(size);
+          fail();
+        } catch (IndexOutOfBoundsException ignored) {}
+      }
+    }
+  }
+
+  public void testTailIteratorAdvanceTo() {
+    LongArray values = generateRandomLongArray(20000, SORTED_UNIQUE, 100000);
+    LongBTreeSet tree = LongBTreeSet.createFromSortedUnique(values);
+    for (int attempt = 0; attempt < 100; attempt++) {
+      long from = myRand.nextInt(100000);
+      int index = values.binarySearch(from);
+      index = index >= 0 ? index : -index - 1;
+      CHECK.order(values.subList(index, values.size()).iterator(), tree.tailIterator(from));
+
+      LongIterator it = tree.iterator();
+      long to = from + myRand.nextInt(1000);
+      int toIndex = values.binarySearch(to);
+      toIndex = toIndex >= 0 ? toIndex : -toIndex - 1;
+      assertEquals(index < values.size(), it.advanceTo(from));
+      if (index < values.size()) assertEquals(values.get(index), it.value());
+      assertEquals(toIndex < values.size(), it.advanceTo(to));
+      if (toIndex < values.size()) assertEquals(values.get(toIndex), it.value());
+    }
+  }
+
+  public void testAsAmortizedSetAddedSet() {
+    LongAmortizedSet amortized = new LongAmortizedSet(new LongBTreeSet(), new LongChainHashSet());
+    LongOpenHashSet expected = new LongOpenHashSet();
+    for (int attempt = 0; attempt < 10; attempt++) {
+      LongArray added = generateRandomLongArray(1000, UNORDERED, 5000);
+      LongArray removed = generateRandomLongArray(500, UNORDERED, 5000);
+      amortized.addAll(added);
+      expected.addAll(added);
+      amortized.removeAll(removed);
+      expected.removeAll(removed);
+      LongArray sorted = expected.toArray();
+      sorted.sort();
+      CHECK.order(sorted, amortized.toArray());
+      if (attempt % 3 == 0) amortized.coalesce();
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.almworks.integers.IntegersFixture.SortedStatus.SORTED_UNIQUE;
+
+public class LongCodecsTests extends IntegersFixture {
+  public void testIteratorSpecification() {
+    LongIteratorSpecificationChecker.checkIterator(myRand, new LongIteratorSpecificationChecker.IteratorGetter() {
+      @Override
+      public List<LongIterator> get(long... values) {
+        List<LongIterator> res = new ArrayList<LongIterator>();
+        byte[] data = LongCodecs.encode(new LongArray(values));
+        res.add(LongCodecs.iterator(data));
+        try {
+          res.add(LongCodecs.readIterator(new ByteArrayInputStream(data)));
+        } catch (IOException e) {
+          throw new AssertionError(e);
+        }
+        return res;
+      }
+    }, LongIteratorSpecificationChecker.ValuesType.SORTED_UNIQUE);
+  }
+
+  public void testRoundTrip() throws IOException {
+    long[][] cases = {{}, {0}, {-1}, {Long.MIN_VALUE}, {Long.MAX_VALUE}, {Long.MIN_VALUE, Long.MAX_VALUE},
+      {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE}, {-129, -128, 127, 128, 16383, 16384}};
+    for (long[] values : cases) {
+      checkRoundTrip(new LongArray(values));
+    }
+    for (int size : new int[]{10, 1000, 100000}) {
+      checkRoundTrip(generateRandomLongArray(size, SORTED_UNIQUE));
+      checkRoundTrip(LongProgression.Arithmetic.range(-size / 2, size * 3, 3));
+    }
+    checkRoundTrip(LongTreeSet.createFromSortedUnique(generateRandomLongArray(1000, SORTED_UNIQUE)));
+  }
+
+  private void checkRoundTrip(LongSizedIterable values) throws IOException {
+    byte[] data = LongCodecs.encode(values);
+    CHECK.order(values.iterator(), LongCodecs.decode(data).iterator());
+    CHECK.order(values.iterator(), LongCodecs.iterator(data));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    LongCodecs.write(values, out);
+    LongCodecs.write(values, out);
+    assertEquals(data.length * 2, out.size());
+    ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+    CHECK.order(values.iterator(), LongCodecs.read(in).iterator());
+    CHECK.order(values.iterator(), LongCodecs.readIterator(in));
+    assertEquals(-1, in.read());
+  }
+
+  public void testDenseSize() {
+    LongArray dense = new LongArray(LongProgression.Arithmetic.range(1000000, 1100000));
+    dense.removeAll(LongProgression.Arithmetic.range(1000000, 1100000, 7));
+    assertTrue(LongCodecs.encode(dense).length < dense.size() + 16);
+  }
+
+  public void testSmallBuffers() throws IOException {
+    final LongArray values = generateRandomLongArray(20000, SORTED_UNIQUE);
+    byte[] data = LongCodecs.encode(values);
+    InputStream in = new FilterInputStream(new ByteArrayInputStream(data)) {
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        return super.read(b, off, Math.min(len, 3));
+      }
+    };
+    CHECK.order(values, LongCodecs.read(in));
+  }
+
+  public void testNotSortedUnique() {
+    for (long[] values : new long[][]{{1, 1}, {2, 1}, {0, 5, 3}}) {
+      try {
+        LongCodecs.encode(new LongArray(values));
+        fail();
+      } catch (IllegalArgumentException e) {
+        // ok
+      }
+    }
+  }
+
+  public void testCorrupted() {
+    byte[] data = LongCodecs.encode(generateRandomLongArray(100, SORTED_UNIQUE));
+    byte[] truncated = new byte[data.length - 1];
+    System.arraycopy(data, 0, truncated, 0, truncated.length);
+    try {
+      LongCodecs.decode(truncated);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // ok
+    }
+    try {
+      LongCodecs.read(new ByteArrayInputStream(truncated));
+      fail();
+    } catch (IOException e) {
+      // ok
+    }
+  }
+
+  public void testCorruptedVarints() {
+    byte[][] cases = {
+      // count has bits above 32
+      {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10, 0},
+      // count is negative
+      {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08, 0},
+      // count has more than 5 bytes
+      {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0, 0},
+      // the value has bits above 64
+      {1, 10, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x02}};
+    for (byte[] data : cases) {
+      try {
+        LongCodecs.decode(data);
+        fail();
+      } catch (IllegalArgumentException e) {
+        // ok
+      }
+      try {
+        LongCodecs.read(new ByteArrayInputStream(data));
+        fail();
+      } catch (IOException e) {
+        // ok
+      } catch (UncheckedIOException e) {
+        // ok
+      }
+    }
+    // the greatest 10-byte varint is valid
+    assertEquals(1, LongCodecs.decode(new byte[]{1, 10, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80,
+      (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01}).size());
+  }
+
+  public void testCorruptedHeader() throws IOException {
+    byte[][] cases = {
+      // count is Integer.MAX_VALUE
+      {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 1, 0},
+      // more values than bytes
+      {3, 2, 0, 0}};
+    for (byte[] data : cases) {
+      try {
+        LongCodecs.decode(data);
+        fail();
+      } catch (IllegalArgumentException e) {
+        // ok
+      }
+      try {
+        LongCodecs.read(new ByteArrayInputStream(data));
+        fail();
+      } catch (StreamCorruptedException e) {
+        // ok
+      }
+    }
+  }
+}
@@ -22,6 +22,7 @@
 import com.almworks.util.Pair;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.almworks.integers.IntegersFixture.SortedStatus.*;
 import static com.almworks.integers.LongCollections.*;
@@ -437,6 +438,49 @@ public void testIntersectionUnionSets() {
     }
   }
 
+  /** Computes set algebra only with {@link LongListSet}, counting the calls */
+  private static class ListSetAlgebra extends LongTreeSet implements LongSetAlgebra {
+    int myCalls;
+
+    public WritableLongSortedSet unionOrNull(LongSet other) {
+      if (!(other instanceof LongListSet)) return null;
+      myCalls++;
+      return LongTreeSet.createFromSortedUnique(new LongUnionIterator(this, other));
+    }
+
+    public WritableLongSortedSet intersectionOrNull(LongSet other) {
+      if (!(other instanceof LongListSet)) return null;
+      myCalls++;
+      return LongTreeSet.createFromSortedUnique(new LongIntersectionIterator(this, other));
+    }
+  }
+
+  public void testSetAlgebraOfEitherOperand() {
+    LongArray a = generateRandomLongArray(1000, SORTED_UNIQUE, 3000);
+    LongArray b = generateRandomLongArray(1000, SORTED_UNIQUE, 3000);
+    ListSetAlgebra algebra = new ListSetAlgebra();
+    algebra.addAll(a);
+    LongListSet listSet = LongListSet.setFromSortedUniqueList(b);
+    LongArray union = LongArray.copy(a);
+    union.merge(b);
+    LongArray intersection = LongArray.copy(a);
+    intersection.retain(b);
+
+    IntegersFixture.checkSet(toSortedUnion(algebra, listSet), union);
+    IntegersFixture.checkSet(toSortedUnion(listSet, algebra), union);
+    IntegersFixture.checkSet(toSortedIntersection(algebra, listSet), intersection);
+    IntegersFixture.checkSet(toSortedIntersection(listSet, algebra), intersection);
+    assertEquals(4, algebra.myCalls);
+
+    LongOpenHashSet hashSet = LongOpenHashSet.createFrom(b);
+    IntegersFixture.checkSet(toSortedUnion(hashSet, algebra), union);
+    IntegersFixture.checkSet(toSortedIntersection(hashSet, algebra), intersection);
+    // the unsorted set is smaller and is iterated
+    LongArray small = LongArray.copy(a.subList(0, 100));
+    IntegersFixture.checkSet(toSortedIntersection(LongOpenHashSet.createFrom(small), algebra), small);
+    assertEquals(4, algebra.myCalls);
+  }
+
   public void testComplementSorted() {
     new SetOperationsChecker().check(myRand, new SetOperationsChecker.SetCreator() {
       @Override
@@ -666,4 +710,34 @@ public void testMap() {
       }
     }
   }
+
+  public void testParallelUnion() {
+    CHECK.order(LongList.EMPTY, parallelUnion());
+    CHECK.order(LongList.EMPTY, parallelUnion(LongList.EMPTY, null));
+    CHECK.order(LongArray.create(1, 2, 3), parallelUnion((LongList) null, LongArray.create(1, 2, 3)));
+    CHECK.order(LongArray.create(-5, 1, 2, 3, 7), parallelUnion(LongArray.create(1, 3, 7), LongArray.create(-5, 2, 3)));
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int attempt = 0; attempt < 10; attempt++) {
+        int count = 1 + myRand.nextInt(30);
+        List<LongList> lists = new ArrayList<LongList>();
+        LongArray expected = new LongArray();
+        for (int i = 0; i < count; i++) {
+          // some lists are dense, some sparse, some cover only a part of the domain
+          int max = myRand.nextBoolean() ? 1000 : 1000000;
+          LongArray list = generateRandomLongArray(myRand.nextInt(3000), SORTED_UNIQUE, max);
+          if (myRand.nextInt(4) == 0) list = new LongArray(LongCollections.map(LongFunctions.apply(LongFunctions.ADD, -500), list));
+          lists.add(list);
+          expected.addAll(list);
+        }
+        expected.sortUnique();
+        for (int minRange : new int[]{1, 100, 10000}) {
+          CHECK.order(expected, LongParallelUnion.union(pool, lists, minRange));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.almworks.integers;
+
+import com.almworks.integers.func.LongProcedure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.almworks.integers.LongProgression.range;
+
+public class LongConcurrentOpenHashSetTests extends WritableLongSetChecker<LongConcurrentOpenHashSet> {
+  private static final int THREADS = 8;
+
+  @Override
+  protected LongConcurrentOpenHashSet createSet() {
+    return new LongConcurrentOpenHashSet();
+  }
+
+  @Override
+  protected LongConcurrentOpenHashSet createSetWithCapacity(int capacity) {
+    return new LongConcurrentOpenHashSet(capacity);
+  }
+
+  @Override
+  protected List<LongConcurrentOpenHashSet> createSets(LongList sortedUniqueList) {
+    List<LongConcurrentOpenHashSet> sets = new ArrayList<LongConcurrentOpenHashSet>();
+    sets.add(LongConcurrentOpenHashSet.createFrom(sortedUniqueList));
+
+    set = new LongConcurrentOpenHashSet(0, 0.5f, 1);
+    set.addAll(sortedUniqueList);
+    sets.add(set);
+
+    set = new LongConcurrentOpenHashSet(sortedUniqueList.size(), 0.9f, 64);
+    set.addAll(sortedUniqueList);
+    sets.add(set);
+    return sets;
+  }
+
+  @Override
+  protected LongConcurrentOpenHashSet createSet(LongList sortedUniqueList) {
+    return LongConcurrentOpenHashSet.createFrom(sortedUniqueList);
+  }
+
+  @Override
+  protected boolean isSortedSet() {
+    return false;
+  }
+
+  /**
+   * Iterators are weakly consistent, so modification during iteration is allowed.
+   */
+  @Override
+  public void testIteratorConcurrentModificationException() {
+    set.addAll(2, 4, 6, 8);
+    LongIterator it = set.iterator();
+    set.add(10);
+    set.remove(2);
+    LongArray res = LongCollections.collectIterable(5, it);
+    res.sort();
+    assertTrue(res.toString(), res.isSortedUnique());
+    assertTrue(res.toString(), LongOpenHashSet.createFrom(res).containsAll(LongArray.create(4, 6, 8)));
+  }
+
+  /**
+   * forEachValue is weakly consistent too.
+   */
+  @Override
+  public void testForEachConcurrentModificationException() {
+    set.addAll(2, 4, 6, 8);
+    set.forEachValue(new LongProcedure() {
+      public void invoke(long a) {
+        if (a % 2 == 0) set.add(a + 1);
+      }
+    });
+    assertTrue(set.containsAll(range(2, 10)));
+  }
+
+  @Override
+  public void testIterator() {
+    LongList expected = LongArray.create(11, 12, 13, 14, 15, 16);
+    for (LongConcurrentOpenHashSet createdSet : createSets(expected)) {
+      LongArray res = new LongArray();
+      for (LongIterator i : createdSet) {
+        res.add(i.value());
+        createdSet.add(i.value() + 100);
+        createdSet.remove(i.value());
+      }
+      assertTrue(LongOpenHashSet.createFrom(res).containsAll(expected));
+
+      createdSet.clear();
+      CHECK.order(LongIterator.EMPTY, createdSet.iterator());
+      createdSet.add(10);
+      CHECK.order(LongArray.create(10).iterator(), createdSet.iterator());
+    }
+  }
+
+  public void testIllegalArguments() {
+    for (int[] args : new int[][]{{-1, 1}, {16, 0}}) {
+      try {
+        new LongConcurrentOpenHashSet(args[0], 0.75f, args[1]);
+        fail();
+      } catch (IllegalArgumentException e) {}
+    }
+    try {
+      new LongConcurrentOpenHashSet(16, 1f, 16);
+      fail();
+    } catch (IllegalArgumentException e) {}
+  }
+
+  public void testTombstonesDontGrowTable() {
+    set = new LongConcurrentOpenHashSet(16, 0.75f, 1);
+    for (int i = 0; i < 100000; i++) {
+      assertTrue(set.include(i));
+      assertTrue(set.exclude(i));
+    }
+    assertTrue(set.isEmpty());
+    set.addAll(range(100));
+    checkSet(set, range(100));
+  }
+
+  public void testConcurrentInclude() throws Exception {
+    final int perThread = 50000;
+    final LongConcurrentOpenHashSet set = new LongConcurrentOpenHashSet(0, 0.75f, 4);
+    final AtomicInteger included = new AtomicInteger();
+    runConcurrently(new Task() {
+      @Override
+      public void run(int thread) {
+        // neighbouring threads share half of their values
+        int count = 0;
+        for (long v = thread * perThread / 2; v < thread * perThread / 2 + perThread; v++) {
+          if (set.include(v)) count++;
+        }
+        included.addAndGet(count);
+      }
+    });
+    int expectedSize = (THREADS + 1) * perThread / 2;
+    assertEquals(expectedSize, included.get());
+    checkSet(set, range(expectedSize));
+  }
+
+  public void testConcurrentReadersSeeStableElements() throws Exception {
+    final LongConcurrentOpenHashSet set = new LongConcurrentOpenHashSet(0, 0.75f, 2);
+    final LongList stable = range(-1000, 0);
+    set.addAll(stable);
+    final CountDownLatch writersDone = new CountDownLatch(THREADS / 2);
+    runConcurrently(new Task() {
+      @Override
+      public void run(int thread) {
+        if (thread % 2 == 0) {
+          try {
+            for (int round = 0; round < 20; round++) {
+              for (long v = thread; v < 20000; v += THREADS) set.add(v);
+              for (long v = thread; v < 20000; v += THREADS) set.remove(v);
+            }
+          } finally {
+            writersDone.countDown();
+          }
+        } else {
+          while (writersDone.getCount() > 0) {
+            for (LongIterator it : stable) {
+              assertTrue(set.contains(it.value()));
+            }
+            // writers' values may be seen twice if removed and added again, stable ones exactly once
+            LongArray seen = set.toArray();
+            seen.sort();
+            CHECK.order(stable, seen.subList(0, seen.binarySearch(-1) + 1));
+          }
+        }
+      }
+    });
+    checkSet(set, stable);
+  }
+
+  private interface Task {
+    void run(int thread);
+  }
+
+  private static void runConcurrently(final Task task) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final CyclicBarrier start = new CyclicBarrier(THREADS);
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (int i = 0; i < THREADS; i++) {
+        final int thread = i;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            start.await();
+            task.run(thread);
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Error) throw (Error) e.getCause();
+          throw e;
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.almworks.integers.IntegersFixture.SortedStatus.SORTED_UNIQUE;
+
+public class LongEliasFanoSetTests extends LongSetChecker<LongEliasFanoSet> {
+  @Override
+  protected List<LongEliasFanoSet> createSets(LongList sortedUniqueList) {
+    List<LongEliasFanoSet> sets = new ArrayList<LongEliasFanoSet>();
+    sets.add(LongEliasFanoSet.createFromSortedUnique(sortedUniqueList));
+    sets.add(LongEliasFanoSet.createFromSortedUnique(LongTreeSet.createFromSortedUnique(sortedUniqueList)));
+    return sets;
+  }
+
+  @Override
+  protected LongEliasFanoSet createSet(LongList sortedUniqueList) {
+    return LongEliasFanoSet.createFromSortedUnique(sortedUniqueList);
+  }
+
+  @Override
+  protected boolean isSortedSet() {
+    return true;
+  }
+
+  public void testGetAndIndexOf() {
+    long[][] cases = {{0}, {Long.MIN_VALUE}, {Long.MIN_VALUE, Long.MAX_VALUE}, {Long.MIN_VALUE, -1, 0, Long.MAX_VALUE},
+      {-5, -4, -3, 10, 11, 1000000000000L}};
+    for (long[] values : cases) {
+      checkGetAndIndexOf(new LongArray(values));
+    }
+    for (int size : new int[]{10, 255, 256, 257, 1000, 5000}) {
+      checkGetAndIndexOf(generateRandomLongArray(size, SORTED_UNIQUE));
+      checkGetAndIndexOf(generateRandomLongArray(size, SORTED_UNIQUE, 2 * size));
+      checkGetAndIndexOf(LongProgression.Arithmetic.range(-size, size * 7, 7));
+      checkGetAndIndexOf(LongProgression.Arithmetic.range(100, 100 + size));
+      // a dense run followed by a far value: most elements share the same upper bits
+      LongArray clustered = new LongArray(LongProgression.Arithmetic.range(0, size * 3, 3));
+      clustered.add(1L << 40);
+      checkGetAndIndexOf(clustered);
+    }
+  }
+
+  private void checkGetAndIndexOf(LongList values) {
+    LongEliasFanoSet set = LongEliasFanoSet.createFromSortedUnique(values);
+    assertEquals(values.size(), set.size());
+    for (int i = 0; i < values.size(); i++) {
+      long value = values.get(i);
+      assertEquals(value, set.get(i));
+      assertEquals(i, set.indexOf(value));
+      if (value != Long.MAX_VALUE && (i + 1 == values.size() || values.get(i + 1) != value + 1)) {
+        assertEquals(-1, set.indexOf(value + 1));
+        assertFalse(set.contains(value + 1));
+        CHECK.order(values.subList(i + 1, values.size()).iterator(), set.tailIterator(value + 1));
+      }
+    }
+    CHECK.order(values.iterator(), set.iterator());
+    try {
+      set.get(values.size());
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      // ok
+    }
+  }
+
+  public void testAdvanceTo() {
+    LongArray values = generateRandomLongArray(3000, SORTED_UNIQUE);
+    LongEliasFanoSet set = LongEliasFanoSet.createFromSortedUnique(values);
+    for (int attempt = 0; attempt < 20; attempt++) {
+      LongArray probes = generateRandomLongArray(50, SORTED_UNIQUE);
+      CHECK.order(new LongIntersectionIterator(values, probes), new LongIntersectionIterator(set, probes));
+      CHECK.order(new LongMinusIterator(probes, values), new LongMinusIterator(probes, set));
+    }
+  }
+
+  public void testNotSortedUnique() {
+    for (long[] values : new long[][]{{1, 1}, {2, 1}, {0, 5, 3}}) {
+      try {
+        LongEliasFanoSet.createFromSortedUnique(LongArray.create(values));
+        fail();
+      } catch (IllegalArgumentException e) {
+        // ok
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.almworks.integers.IntegersFixture.SortedStatus.UNORDERED;
+import static com.almworks.integers.LongIntOpenHashMap.createForAdd;
+import static com.almworks.integers.LongIntOpenHashMap.createFrom;
+
+public class LongIntOpenHashMapTests extends WritableLongIntMapChecker<LongIntOpenHashMap> {
+  @Override
+  protected LongIntOpenHashMap createMap() {
+    return new LongIntOpenHashMap();
+  }
+
+  @Override
+  protected LongIntOpenHashMap createMapWithCapacity(int capacity) {
+    return new LongIntOpenHashMap(capacity);
+  }
+
+  @Override
+  protected List<LongIntOpenHashMap> createMapsFromLists(LongList keys, IntList values) {
+    List<LongIntOpenHashMap> res = new ArrayList<LongIntOpenHashMap>();
+    long[] keysNative = keys.toNativeArray();
+    int[] valuesNative = values.toNativeArray();
+    res.add(createFrom(keys, values));
+    res.add(createFrom(keysNative, valuesNative));
+
+    map = new LongIntOpenHashMap();
+    map.putAll(keysNative, valuesNative);
+    res.add(map);
+
+    int countToAdd = keys.size() / 2;
+    map = new LongIntOpenHashMap(countToAdd);
+    map.putAll(keys.subList(0, countToAdd), values.subList(0, countToAdd));
+    map.putAll(keys.subList(countToAdd, keys.size()), values.subList(countToAdd, values.size()));
+    res.add(map);
+
+    map = new LongIntOpenHashMap();
+    for (int i = 0; i < keys.size(); i++) {
+      map.addTo(keys.get(i), values.get(i));
+    }
+    res.add(map);
+    return res;
+  }
+
+  @Override
+  protected boolean isSortedSet() {
+    return false;
+  }
+
+  public void testCreateForAdd() {
+    float[] loadFactors = {0.1f, 0.3f, 0.5f, 0.75f, 0.9f};
+    for (float loadFactor : loadFactors) {
+      for (int size = 16; size <= 515; size += 7) {
+        map = createForAdd(size, loadFactor);
+        int threshold = map.getThreshold();
+        assertTrue(threshold >= size);
+        LongList keys = LongProgression.range(size);
+        IntProgression values = IntProgression.range(size);
+        map.putAllKeys(keys.iterator(), values.iterator());
+        checkMap(map, keys, values);
+        assertEquals(threshold, map.getThreshold());
+      }
+    }
+  }
+
+  public void testCounters() {
+    LongArray keys = generateRandomLongArray(5000, UNORDERED, 300);
+    LongIntOpenHashMap counts = new LongIntOpenHashMap();
+    LongIntOpenHashMap sums = new LongIntOpenHashMap();
+    for (int i = 0; i < keys.size(); i++) {
+      counts.addTo(keys.get(i), 1);
+      assertEquals(sums.get(keys.get(i)) + i, sums.putOrAdd(keys.get(i), i, i));
+    }
+    keys.sort();
+    for (int i = 0; i < keys.size(); ) {
+      int j = keys.getNextDifferentValueIndex(i);
+      assertEquals(j - i, counts.get(keys.get(i)));
+      i = j;
+    }
+    assertEquals(-1, counts.getOrDefault(-1, -1));
+    assertEquals(0, counts.get(-1));
+    assertEquals(5, counts.putOrAdd(-1, 5, 10));
+    assertEquals(15, counts.putOrAdd(-1, 5, 10));
+    assertEquals(15, counts.getOrDefault(-1, -1));
+  }
+
+  public void testRemoveKeepsProbeChains() {
+    map = new LongIntOpenHashMap(16);
+    for (int attempt = 0; attempt < 10; attempt++) {
+      LongArray keys = generateRandomLongArray(1000, UNORDERED, 2000);
+      keys.sortUnique();
+      for (int i = 0; i < keys.size(); i++) {
+        map.put(keys.get(i), i);
+      }
+      for (int i = 0; i < keys.size(); i += 2) {
+        assertEquals(i, map.remove(keys.get(i)));
+      }
+      for (int i = 0; i < keys.size(); i++) {
+        assertEquals(i % 2 == 1, map.containsKey(keys.get(i)));
+        if (i % 2 == 1) assertEquals(i, map.get(keys.get(i)));
+      }
+      map.clear();
+      assertEquals(0, map.size());
+    }
+  }
+}
@@ -19,6 +19,8 @@
 import java.util.ArrayList;
 import java.util.List;
 
+import com.almworks.integers.segmented.LongSegmentedArray;
+
 import static com.almworks.integers.LongIterators.range;
 
 public class LongIntersectionIteratorTests extends IntegersFixture {
@@ -76,6 +78,33 @@ public LongIterator get(LongArray... arrays) {
     }, new SetOperationsChecker.IntersectionGetter(false), false, SortedStatus.SORTED_UNIQUE);
   }
 
+  public void testSkewedSizes() {
+    LongArray large = generateRandomLongArray(100000, SortedStatus.SORTED_UNIQUE);
+    LongArray small = new LongArray();
+    for (int i = 0; i < 100; i++) {
+      small.add(large.get(myRand.nextInt(large.size())));
+      small.add(myRand.nextInt());
+    }
+    small.sortUnique();
+    LongArray expected = new LongArray(new LongIntersectionIterator(small.iterator(), large.iterator()));
+    CHECK.order(expected.iterator(), new SetOperationsChecker.IntersectionGetter(true).get(small, large).iterator());
+
+    LongTreeSet tree = LongTreeSet.createFromSortedUnique(large);
+    LongAmortizedSet amortized = new LongAmortizedSet();
+    amortized.addAll(large);
+    LongSetBuilder builder = new LongSetBuilder();
+    builder.addAll(large);
+    for (LongIterable other : new LongIterable[]{tree, amortized, LongSegmentedArray.create(large), builder}) {
+      CHECK.order(new LongIntersectionIterator(small, other), expected.iterator());
+      CHECK.order(new LongIntersectionIterator(other, small), expected.iterator());
+    }
+
+    LongArray minus = LongArray.copy(small);
+    minus.removeAll(large);
+    CHECK.order(new LongMinusIterator(small, tree), minus.iterator());
+    CHECK.order(new LongMinusIterator(small, amortized), minus.iterator());
+  }
+
   public void testSimple() {
     long[][][] variants = {{{0, 1, 2}, {1, 2, 3}},
         {{0, 2, 4, 6, 8, 10}, {0, 3, 6, 9, 12}},
@@ -288,6 +288,74 @@ private void checkOrder(long ... values) {
       checkValueAndCatchNSEE(it);
       CHECK.order(it, values);
     }
+
+    for(LongIterator it : getter.get(values)) {
+      checkBatches(it, values);
+    }
+
+    // advanceTo() is defined only for sorted values
+    if (new LongArray(values).isSorted()) {
+      for (LongIterator it : getter.get(values)) {
+        checkAdvanceTo(it, values);
+      }
+    }
+  }
+
+  private void checkAdvanceTo(LongIterator it, long ... values) {
+    int n = values.length;
+    int cur = -1;
+    if (n == 0) {
+      assertFalse(it.advanceTo(0));
+      return;
+    }
+    for (int attempt = 0; attempt < 4 * n + 4; attempt++) {
+      long target = cur == n - 1 ? values[n - 1] + 1 :
+          values[cur + 1 + myRand.nextInt(Math.min(3, n - cur - 1))] + myRand.nextInt(3) - 1;
+      int expected = cur;
+      if (cur == -1 || values[cur] < target) {
+        do {
+          expected++;
+        } while (expected < n && values[expected] < target);
+      }
+      if (expected == n) {
+        assertFalse(Arrays.toString(values) + " " + target, it.advanceTo(target));
+        assertFalse(Arrays.toString(values), it.hasNext());
+        return;
+      }
+      assertTrue(Arrays.toString(values) + " " + target, it.advanceTo(target));
+      assertEquals(Arrays.toString(values) + " " + target, values[expected], it.value());
+      cur = expected;
+      if (cur < n - 1 && myRand.nextInt(3) == 0) {
+        assertEquals(Arrays.toString(values), values[++cur], it.nextValue());
+      }
+    }
+    assertFalse(it.advanceTo(values[n - 1] + 1));
+    assertFalse(it.hasNext());
+  }
+
+  private void checkBatches(LongIterator it, long ... values) {
+    long[] batch = new long[values.length + 2];
+    int i = 0;
+    while (i < values.length) {
+      if (myRand.nextBoolean()) {
+        assertTrue(Arrays.toString(values), it.hasNext());
+      }
+      int len = myRand.nextInt(4);
+      int count = it.nextBatch(batch, 1, len);
+      assertEquals(Arrays.toString(values), Math.min(len, values.length - i), count);
+      for (int j = 0; j < count; j++) {
+        assertEquals(Arrays.toString(values), values[i++], batch[1 + j]);
+      }
+      if (count > 0) {
+        assertEquals(Arrays.toString(values), values[i - 1], it.value());
+      }
+      if (i < values.length && myRand.nextInt(3) == 0) {
+        assertEquals(Arrays.toString(values), values[i++], it.nextValue());
+      }
+    }
+    assertFalse(Arrays.toString(values), it.hasNext());
+    assertEquals(0, it.nextBatch(batch, 0, batch.length));
+    checkNextAndCatchNSEE(it);
   }
 
   protected void checkValueAndCatchNSEE(LongIterator it) {
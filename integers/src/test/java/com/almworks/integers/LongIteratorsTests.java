@@ -177,4 +177,52 @@ public void testAsLongIterator() {
     CHECK.order(LongIterators.asLongIterator(LongProgression.arithmetic(1, 10).toList().iterator()),
       LongProgression.arithmetic(1, 10).iterator());
   }
+
+  public void testDefaultMethodsSpecification() {
+    LongIteratorSpecificationChecker.checkIterator(myRand, new LongIteratorSpecificationChecker.IteratorGetter<LongIterator>() {
+      @Override
+      public List<LongIterator> get(long... values) {
+        return Arrays.<LongIterator>asList(new PlainIterator(values));
+      }
+    });
+  }
+
+  /**
+   * Implements only the abstract methods of {@link LongIterator}, as an iterator outside of the library would.
+   */
+  private static class PlainIterator implements LongIterator {
+    private final long[] myValues;
+    private int myNext;
+
+    PlainIterator(long[] values) {
+      myValues = values;
+    }
+
+    public boolean hasNext() {
+      return myNext < myValues.length;
+    }
+
+    public boolean hasValue() {
+      return myNext > 0;
+    }
+
+    public long value() throws NoSuchElementException {
+      if (!hasValue()) throw new NoSuchElementException();
+      return myValues[myNext - 1];
+    }
+
+    public long nextValue() throws NoSuchElementException {
+      if (!hasNext()) throw new NoSuchElementException();
+      return myValues[myNext++];
+    }
+
+    public LongIterator next() {
+      nextValue();
+      return this;
+    }
+
+    public LongIterator iterator() {
+      return this;
+    }
+  }
 }
@@ -16,6 +16,9 @@
 
 package com.almworks.integers;
 
+import com.almworks.integers.func.LongCondition;
+import com.almworks.integers.func.LongProcedure;
+
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -214,4 +217,36 @@ public void testEqual() {
     assertTrue(array.equalSortedUniqueValues(LongArray.create(-MIN, 0, MAX)));
   }
 
+
+  public void testForEach() {
+    long[] values = generateRandomLongArray(1000, UNORDERED).toNativeArray();
+    final int stop = values.length / 2;
+    for (LongList list : createLongListVariants(values)) {
+      final LongArray visited = new LongArray();
+      list.forEachValue(new LongProcedure() {
+        public void invoke(long a) {
+          visited.add(a);
+        }
+      });
+      CHECK.order(visited, values);
+
+      visited.clear();
+      assertFalse(list.forEachWhile(new LongCondition() {
+        public boolean invoke(long a) {
+          visited.add(a);
+          return visited.size() < stop;
+        }
+      }));
+      CHECK.order(visited, Arrays.copyOf(values, stop));
+
+      visited.clear();
+      assertTrue(list.forEachWhile(new LongCondition() {
+        public boolean invoke(long a) {
+          visited.add(a);
+          return true;
+        }
+      }));
+      CHECK.order(visited, values);
+    }
+  }
 }
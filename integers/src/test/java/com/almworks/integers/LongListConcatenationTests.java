@@ -19,6 +19,7 @@
 import com.almworks.integers.segmented.LongSegmentedArray;
 
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
 import java.util.List;
 
 import static com.almworks.integers.LongListConcatenation.concatUnmodifiable;
@@ -32,12 +33,14 @@ protected List<LongListConcatenation> createLongListVariants(long... values) {
     // []
     LongArray array = new LongArray(values);
     res.add(new LongListConcatenation(array));
+    res.add(LongListConcatenation.withFixedSliceSizes(array));
     int len2 = values.length / 2;
     if (values.length == 0 || len2 == 0) return res;
 
     // [][]
     LongList[] lists = {new LongArray(array.subList(0, len2)), new LongArray(array.subList(len2, array.size()))};
     res.add(new LongListConcatenation(lists));
+    res.add(LongListConcatenation.withFixedSliceSizes(LongList.EMPTY, lists[0], LongList.EMPTY, lists[1], LongList.EMPTY));
 
     LongListConcatenation concatenation = new LongListConcatenation();
     concatenation.addSlice(lists[0]);
@@ -62,6 +65,15 @@ protected List<LongListConcatenation> createLongListVariants(long... values) {
       }
     }
     res.add(concatenation);
+
+    concatenation = LongListConcatenation.withFixedSliceSizes();
+    for (int i = 0; i < values.length; i += 3) {
+      concatenation.addSlice(array.subList(i, Math.min(i + 3, values.length)));
+      if (myRand.nextInt(5) == 0) {
+        concatenation.addSlice(LongList.EMPTY);
+      }
+    }
+    res.add(concatenation);
     return res;
   }
 
@@ -135,4 +147,75 @@ public void testSimple() {
     myArray.add(2);
     checkCollection(concat, 1, 2, 3);
   }
+
+  public void testFixedSliceSizes() {
+    LongArray first = LongArray.create(0, 1, 2);
+    LongArray second = LongArray.create(3, 4);
+    LongListConcatenation concat = LongListConcatenation.withFixedSliceSizes(first, LongList.EMPTY, second);
+    checkCollection(concat, 0, 1, 2, 3, 4);
+    first.set(1, 10);
+    checkCollection(concat, 0, 10, 2, 3, 4);
+    concat.addSlice(LongArray.create(5));
+    checkCollection(concat, 0, 10, 2, 3, 4, 5);
+    second.add(6);
+    concat.sliceSizesChanged();
+    checkCollection(concat, 0, 10, 2, 3, 4, 6, 5);
+    try {
+      concat.get(7);
+      fail();
+    } catch (IndexOutOfBoundsException ok) {}
+  }
+
+  public void testFixedSliceSizesChangedSliceIsNoticed() {
+    LongArray first = LongArray.create(0, 1, 2);
+    LongArray second = LongArray.create(3, 4);
+    LongListConcatenation concat = LongListConcatenation.withFixedSliceSizes(first, second);
+    checkCollection(concat, 0, 1, 2, 3, 4);
+    first.add(5);
+    try {
+      concat.get(1);
+      fail();
+    } catch (ConcurrentModificationException ok) {}
+    try {
+      concat.iterator().nextValue();
+      fail();
+    } catch (ConcurrentModificationException ok) {}
+    concat.sliceSizesChanged();
+    checkCollection(concat, 0, 1, 2, 5, 3, 4);
+
+    LongListIterator it = concat.iterator(1, 6);
+    assertEquals(1, it.nextValue());
+    first.removeRange(2, 4);
+    try {
+      it.nextValue();
+      fail();
+    } catch (ConcurrentModificationException ok) {}
+  }
+
+  public void testIteratorSeesChangedSlices() {
+    LongArray first = LongArray.create(0, 1, 2);
+    LongArray second = LongArray.create(3, 4);
+    LongListConcatenation concat = new LongListConcatenation(first, second);
+    LongListIterator it = concat.iterator(0, 3);
+    assertEquals(0, it.nextValue());
+    assertEquals(1, it.nextValue());
+    first.removeRange(1, 3);
+    CHECK.order(it, 4);
+  }
+
+  public void testIteratorMove() {
+    for (LongListConcatenation concat : new LongListConcatenation[]{
+        new LongListConcatenation(LongArray.create(0, 1, 2), LongList.EMPTY, LongArray.create(3), LongArray.create(4, 5, 6)),
+        LongListConcatenation.withFixedSliceSizes(LongArray.create(0, 1, 2), LongList.EMPTY, LongArray.create(3), LongArray.create(4, 5, 6))}) {
+      LongListIterator it = concat.iterator(1, 7);
+      it.next();
+      it.move(4);
+      assertEquals(5, it.value());
+      it.move(-3);
+      assertEquals(2, it.value());
+      assertEquals(3, it.get(1));
+      it.next();
+      CHECK.order(it, 4, 5, 6);
+    }
+  }
 }
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+public class LongLongIndexedHeapTests extends IntegersFixture {
+  /** Checks the top of the heap against the entries of the model, {@code priorities.get(h)} for present handles */
+  private static void checkTop(LongLongIndexedHeap heap, LongArray priorities, LongArray values, BitSet present) {
+    assertEquals(present.cardinality(), heap.size());
+    if (heap.isEmpty()) return;
+    long best = heap.isMaxHeap() ? Long.MIN_VALUE : Long.MAX_VALUE;
+    for (int h = present.nextSetBit(0); h >= 0; h = present.nextSetBit(h + 1)) {
+      assertTrue(heap.contains(h));
+      assertEquals(priorities.get(h), heap.getPriority(h));
+      assertEquals(values.get(h), heap.getValue(h));
+      best = heap.isMaxHeap() ? Math.max(best, priorities.get(h)) : Math.min(best, priorities.get(h));
+    }
+    assertEquals(best, heap.peekPriority());
+    int top = heap.peekHandle();
+    assertTrue(present.get(top));
+    assertEquals(best, priorities.get(top));
+    assertEquals(values.get(top), heap.peekValue());
+  }
+
+  public void testRandomOperations() {
+    for (int attempt = 0; attempt < 20; attempt++) {
+      LongLongIndexedHeap heap = attempt % 2 == 0 ? new LongLongIndexedHeap() : LongLongIndexedHeap.createMaxHeap(10);
+      LongArray priorities = new LongArray();
+      LongArray values = new LongArray();
+      BitSet present = new BitSet();
+      int range = attempt < 10 ? 20 : Integer.MAX_VALUE;
+      for (int i = 0; i < 1000; i++) {
+        int op = myRand.nextInt(6);
+        if (heap.isEmpty() || op < 2) {
+          long priority = myRand.nextInt(range);
+          long value = myRand.nextLong();
+          int handle = heap.add(priority, value);
+          assertFalse(present.get(handle));
+          present.set(handle);
+          if (handle >= priorities.size()) {
+            assertEquals(priorities.size(), handle);
+            priorities.add(0);
+            values.add(0);
+          }
+          priorities.set(handle, priority);
+          values.set(handle, value);
+        } else if (op == 2) {
+          int handle = heap.peekHandle();
+          assertEquals(values.get(handle), heap.pop());
+          present.clear(handle);
+          assertFalse(heap.contains(handle));
+        } else {
+          int handle = randomHandle(present);
+          if (op == 3) {
+            assertEquals(values.get(handle), heap.remove(handle));
+            present.clear(handle);
+          } else if (op == 4) {
+            long priority = myRand.nextInt(range);
+            heap.updatePriority(handle, priority);
+            priorities.set(handle, priority);
+          } else {
+            long delta = myRand.nextInt(10);
+            long priority = heap.isMaxHeap() ? priorities.get(handle) + delta : priorities.get(handle) - delta;
+            heap.decreaseKey(handle, priority);
+            priorities.set(handle, priority);
+          }
+        }
+        checkTop(heap, priorities, values, present);
+      }
+      LongArray expected = new LongArray();
+      for (int h = present.nextSetBit(0); h >= 0; h = present.nextSetBit(h + 1)) {
+        expected.add(priorities.get(h));
+      }
+      expected.sort();
+      if (heap.isMaxHeap()) expected.reverse();
+      long[] popped = new long[expected.size() + 1];
+      assertEquals(expected.size(), heap.popBatch(popped, null, 1, popped.length));
+      CHECK.order(LongArray.copy(popped).subList(1, popped.length), expected);
+      assertTrue(heap.isEmpty());
+    }
+  }
+
+  private int randomHandle(BitSet present) {
+    int handle = present.nextSetBit(myRand.nextInt(present.length()));
+    return handle >= 0 ? handle : present.nextSetBit(0);
+  }
+
+  public void testHandles() {
+    LongLongIndexedHeap heap = new LongLongIndexedHeap();
+    heap.addAll(LongArray.create(5, 3, 4, 1, 2), LongArray.create(50, 30, 40, 10, 20));
+    for (int h = 0; h < 5; h++) {
+      assertEquals(heap.getPriority(h) * 10, heap.getValue(h));
+    }
+    assertEquals(3, heap.peekHandle());
+    assertEquals(10, heap.pop());
+    assertEquals(30, heap.remove(1));
+    assertFalse(heap.contains(1));
+    assertFalse(heap.contains(3));
+    assertFalse(heap.contains(5));
+    assertFalse(heap.contains(-1));
+    int h1 = heap.add(0, 60);
+    int h2 = heap.add(10, 70);
+    assertTrue(h1 == 1 && h2 == 3 || h1 == 3 && h2 == 1);
+    assertEquals(5, heap.add(7, 80));
+    heap.addAll(LongArray.create(1, 3), LongArray.create(90, 100));
+    assertTrue(heap.contains(6) && heap.contains(7));
+    assertEquals(8, heap.size());
+    long[] priorities = new long[8];
+    long[] values = new long[8];
+    assertEquals(8, heap.popBatch(priorities, values, 0, 8));
+    CHECK.order(priorities, 0, 1, 2, 3, 4, 5, 7, 10);
+    CHECK.order(values, 60, 90, 20, 100, 40, 50, 80, 70);
+    heap.add(1, 1);
+    heap.clear();
+    assertTrue(heap.isEmpty());
+    assertEquals(0, heap.add(1, 1));
+  }
+
+  public void testErrors() {
+    LongLongIndexedHeap heap = new LongLongIndexedHeap();
+    try {
+      heap.peekHandle();
+      fail();
+    } catch (NoSuchElementException ex) {
+      // ok
+    }
+    try {
+      heap.pop();
+      fail();
+    } catch (NoSuchElementException ex) {
+      // ok
+    }
+    int handle = heap.add(5, 0);
+    try {
+      heap.decreaseKey(handle, 6);
+      fail();
+    } catch (IllegalArgumentException ex) {
+      // ok
+    }
+    heap.remove(handle);
+    try {
+      heap.getPriority(handle);
+      fail();
+    } catch (IllegalArgumentException ex) {
+      // ok
+    }
+    try {
+      heap.addAll(LongArray.create(1, 2), LongArray.create(1));
+      fail();
+    } catch (IllegalArgumentException ex) {
+      // ok
+    }
+  }
+
+  public void testDijkstra() {
+    for (int attempt = 0; attempt < 10; attempt++) {
+      int n = 200;
+      long[][] weights = new long[n][n];
+      for (int i = 0; i < n; i++) {
+        for (int j = 0; j < n; j++) {
+          weights[i][j] = myRand.nextInt(10) == 0 ? myRand.nextInt(100) : -1;
+        }
+      }
+      // O(n^3) reference
+      long[] expected = new long[n];
+      Arrays.fill(expected, Long.MAX_VALUE);
+      expected[0] = 0;
+      for (int round = 0; round < n; round++) {
+        for (int i = 0; i < n; i++) {
+          if (expected[i] == Long.MAX_VALUE) continue;
+          for (int j = 0; j < n; j++) {
+            if (weights[i][j] >= 0) expected[j] = Math.min(expected[j], expected[i] + weights[i][j]);
+          }
+        }
+      }
+
+      LongArray distances = new LongArray(LongCollections.repeat(Long.MAX_VALUE, n));
+      distances.set(0, 0);
+      LongLongIndexedHeap heap = new LongLongIndexedHeap(n);
+      heap.addAll(distances, LongProgression.range(n));
+      long[] actual = new long[n];
+      while (!heap.isEmpty()) {
+        long distance = heap.peekPriority();
+        int node = (int) heap.pop();
+        actual[node] = distance;
+        if (distance == Long.MAX_VALUE) continue;
+        for (int j = 0; j < n; j++) {
+          if (weights[node][j] >= 0 && heap.contains(j) && distance + weights[node][j] < heap.getPriority(j)) {
+            heap.decreaseKey(j, distance + weights[node][j]);
+          }
+        }
+      }
+      CHECK.order(actual, expected);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package com.almworks.integers;
+
+import java.util.NoSuchElementException;
+
+public class LongMinHeapTests extends IntegersFixture {
+  public void testAddPop() {
+    for (int attempt = 0; attempt < 20; attempt++) {
+      boolean max = attempt % 2 == 1;
+      LongMinHeap heap = max ? LongMinHeap.createMaxHeap(attempt) : new LongMinHeap(attempt);
+      LongArray model = new LongArray();
+      for (int i = 0; i < 2000; i++) {
+        if (model.isEmpty() || myRand.nextInt(3) > 0) {
+          long value = attempt < 10 ? myRand.nextInt(50) - 25 : myRand.nextLong();
+          if (myRand.nextInt(50) == 0) value = myRand.nextBoolean() ? Long.MIN_VALUE : Long.MAX_VALUE;
+          heap.add(value);
+          model.add(value);
+        } else {
+          long top = max ? model.get(model.size() - 1) : model.get(0);
+          assertEquals(top, heap.peek());
+          assertEquals(top, heap.pop());
+          model.removeAt(max ? model.size() - 1 : 0);
+        }
+        model.sort();
+        assertEquals(model.size(), heap.size());
+      }
+      LongArray values = new LongArray(heap.toNativeArray());
+      values.sort();
+      CHECK.order(values, model);
+      long[] popped = new long[model.size() + 3];
+      assertEquals(model.size(), heap.popBatch(popped, 3, model.size()));
+      if (max) model.reverse();
+      CHECK.order(LongArray.copy(popped).subList(3, popped.length), model);
+      assertTrue(heap.isEmpty());
+    }
+  }
+
+  public void testAddAll() {
+    for (int attempt = 0; attempt < 20; attempt++) {
+      LongMinHeap heap = attempt % 2 == 0 ? new LongMinHeap() : LongMinHeap.createMaxHeap(0);
+      LongArray model = new LongArray();
+      for (int i = 0; i < 5; i++) {
+        LongArray values = generateRandomLongArray(myRand.nextInt(1000), IntegersFixture.SortedStatus.UNORDERED);
+        heap.addAll(values);
+        model.addAll(values);
+      }
+      heap.addAll((LongList) null);
+      heap.addAll(LongList.EMPTY);
+      model.sort();
+      if (heap.isMaxHeap()) model.reverse();
+      long[] popped = new long[model.size()];
+      assertEquals(model.size(), heap.popBatch(popped, 0, popped.length + 10));
+      CHECK.order(popped, model.toNativeArray());
+    }
+  }
+
+  public void testTopK() {
+    int k = 100;
+    LongArray values = generateRandomLongArray(10000, IntegersFixture.SortedStatus.UNORDERED);
+    LongMinHeap heap = new LongMinHeap(k);
+    for (LongIterator it : values) {
+      if (heap.size() < k) {
+        heap.add(it.value());
+      } else if (it.value() > heap.peek()) {
+        heap.replaceTop(it.value());
+      }
+    }
+    values.sort();
+    long[] top = new long[k];
+    assertEquals(k, heap.popBatch(top, 0, k));
+    CHECK.order(top, values.subList(values.size() - k, values.size()).toNativeArray());
+  }
+
+  public void testEmpty() {
+    LongMinHeap heap = new LongMinHeap();
+    try {
+      heap.peek();
+      fail();
+    } catch (NoSuchElementException ex) {
+      // ok
+    }
+    try {
+      heap.pop();
+      fail();
+    } catch (NoSuchElementException ex) {
+      // ok
+    }
+    try {
+      heap.replaceTop(1);
+      fail();
+    } catch (NoSuchElementException ex) {
+      // ok
+    }
+    assertEquals(0, heap.popBatch(new long[1], 0, 1));
+    heap.add(1);
+    heap.clear();
+    assertTrue(heap.isEmpty());
+    assertEquals(0, heap.toNativeArray().length);
+  }
+}
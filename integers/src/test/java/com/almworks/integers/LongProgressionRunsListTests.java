@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Random;
+
+public class LongProgressionRunsListTests extends LongListChecker<LongProgressionRunsList> {
+  @Override
+  protected List<LongProgressionRunsList> createLongListVariants(long... values) {
+    List<LongProgressionRunsList> res = new ArrayList<LongProgressionRunsList>();
+    res.add(LongProgressionRunsList.create(values));
+    res.add(LongProgressionRunsList.create(new LongArray(values)));
+    LongProgressionRunsList list = LongProgressionRunsList.create(1, 2, 3);
+    list.clear();
+    list.addAll(values);
+    res.add(list);
+    return res;
+  }
+
+  private static LongArray runs(int count, Random random) {
+    LongArray values = new LongArray();
+    while (values.size() < count) {
+      long first = random.nextInt(100);
+      long step = random.nextInt(3) == 0 ? random.nextInt(5) - 2 : 0;
+      for (int i = 0, n = random.nextInt(50) + 1; i < n; i++) {
+        values.add(first + step * i);
+      }
+    }
+    return values;
+  }
+
+  public void testRuns() {
+    LongProgressionRunsList list = LongProgressionRunsList.create(5, 5, 5, 1, 2, 3, 4, 10, 8, 6, 6);
+    assertEquals(4, list.getRunCount());
+    CHECK.order(list, 5, 5, 5, 1, 2, 3, 4, 10, 8, 6, 6);
+    list = LongProgressionRunsList.create(LongProgression.range(1000));
+    assertEquals(1, list.getRunCount());
+    CHECK.order(list, LongProgression.range(1000));
+    list.add(Long.MIN_VALUE);
+    list.add(Long.MAX_VALUE);
+    list.add(Long.MIN_VALUE);
+    CHECK.order(list.subList(1000, 1003), Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE);
+  }
+
+  public void testBulkAccess() {
+    for (int attempt = 0; attempt < 10; attempt++) {
+      LongArray expected = runs(1000, myRand);
+      LongProgressionRunsList list = LongProgressionRunsList.create(expected);
+      assertTrue(list.getRunCount() < expected.size() / 5);
+      CHECK.order(list.toNativeArray(), expected.toNativeArray());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i), list.get(i));
+      }
+      int from = myRand.nextInt(expected.size());
+      LongIterator it = list.iterator(from, expected.size());
+      LongArray actual = new LongArray();
+      long[] batch = new long[1 + myRand.nextInt(100)];
+      for (int count; (count = it.nextBatch(batch, 0, batch.length)) > 0; ) {
+        actual.addAll(new LongArray(batch, count));
+        assertEquals(batch[count - 1], it.value());
+      }
+      CHECK.order(actual, expected.subList(from, expected.size()));
+    }
+  }
+
+  public void testIteratorConcurrentModification() {
+    LongProgressionRunsList list = LongProgressionRunsList.create(1, 2, 3);
+    LongIterator it = list.iterator();
+    it.next();
+    list.add(4);
+    try {
+      it.next().value();
+      fail();
+    } catch (ConcurrentModificationException ok) {}
+  }
+}
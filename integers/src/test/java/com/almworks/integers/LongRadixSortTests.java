@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.almworks.integers;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+public class LongRadixSortTests extends IntegersFixture {
+  private final LongRadixSort mySorter = new LongRadixSort();
+
+  private long[] randomKeys(int size, long range) {
+    long[] keys = new long[size];
+    for (int i = 0; i < size; i++) {
+      keys[i] = range == 0 ? myRand.nextLong() : (long) (myRand.nextDouble() * range) - range / 2;
+    }
+    return keys;
+  }
+
+  public void testSortArray() {
+    long[] ranges = {0, 1, 2, 300, 1 << 20, 1L << 40};
+    int[] sizes = {0, 1, 2, 10, LongRadixSort.ARRAYS_SORT_THRESHOLD - 1, LongRadixSort.ARRAYS_SORT_THRESHOLD, 50000};
+    for (long range : ranges) {
+      for (int size : sizes) {
+        long[] keys = randomKeys(size, range);
+        long[] expected = keys.clone();
+        Arrays.sort(expected);
+        mySorter.sort(keys, 0, size);
+        assertTrue(Arrays.equals(expected, keys));
+      }
+    }
+  }
+
+  public void testSortSubArray() {
+    int size = LongRadixSort.ARRAYS_SORT_THRESHOLD * 3;
+    long[] keys = randomKeys(size, 0);
+    long[] expected = keys.clone();
+    int from = 17, to = size - 5;
+    Arrays.sort(expected, from, to);
+    mySorter.sort(keys, from, to);
+    assertTrue(Arrays.equals(expected, keys));
+  }
+
+  public void testExtremeValues() {
+    long[] keys = new long[LongRadixSort.ARRAYS_SORT_THRESHOLD * 2];
+    long[] values = {Long.MIN_VALUE, Long.MIN_VALUE + 1, -1, 0, 1, Long.MAX_VALUE - 1, Long.MAX_VALUE};
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = values[myRand.nextInt(values.length)];
+    }
+    long[] expected = keys.clone();
+    Arrays.sort(expected);
+    mySorter.sort(keys, 0, keys.length);
+    assertTrue(Arrays.equals(expected, keys));
+  }
+
+  public void testSortAlsoIsStable() {
+    for (int size : new int[]{2, 31, 32, 100, 10000}) {
+      for (long range : new long[]{4, 1000, 0}) {
+        LongArray keys = new LongArray(randomKeys(size, range));
+        LongArray original = LongArray.copy(keys);
+        LongArray positions = new LongArray(LongProgression.range(size));
+        LongArray negated = new LongArray(LongProgression.range(0, -size, -1));
+        keys.sort(positions, negated);
+
+        assertTrue(keys.isSorted());
+        for (int i = 0; i < size; i++) {
+          long position = positions.get(i);
+          assertEquals(original.get((int) position), keys.get(i));
+          assertEquals(-position, negated.get(i));
+          if (i > 0 && keys.get(i - 1) == keys.get(i)) {
+            assertTrue(positions.get(i - 1) < position);
+          }
+        }
+      }
+    }
+  }
+
+  public void testSortAlsoLongerLists() {
+    LongArray keys = LongArray.create(3, 1, 2);
+    LongArray values = LongArray.create(30, 10, 20, 40, 50);
+    mySorter.sort(keys, values);
+    CHECK.order(LongArray.create(1, 2, 3), keys);
+    CHECK.order(LongArray.create(10, 20, 30, 40, 50), values);
+  }
+
+  public void testSortPairs() {
+    for (int size : new int[]{0, 1, 5, 1000, 20000}) {
+      LongArray primary = new LongArray(randomKeys(size, 20));
+      LongArray secondary = new LongArray(randomKeys(size, 0));
+      secondary.add(42);
+      long[][] expected = new long[size][];
+      for (int i = 0; i < size; i++) {
+        expected[i] = new long[]{primary.get(i), secondary.get(i)};
+      }
+      Arrays.sort(expected, new Comparator<long[]>() {
+        @Override
+        public int compare(long[] a, long[] b) {
+          return a[0] != b[0] ? LongCollections.compare(a[0], b[0]) : LongCollections.compare(a[1], b[1]);
+        }
+      });
+
+      LongCollections.sortPairs(primary, secondary);
+      for (int i = 0; i < size; i++) {
+        assertEquals(expected[i][0], primary.get(i));
+        assertEquals(expected[i][1], secondary.get(i));
+      }
+      assertEquals(42, secondary.get(size));
+    }
+  }
+
+  public void testReuseWithDifferentSizes() {
+    for (int attempt = 0; attempt < 10; attempt++) {
+      int size = myRand.nextInt(3 * LongRadixSort.ARRAYS_SORT_THRESHOLD);
+      LongArray keys = new LongArray(randomKeys(size, 1 << 16));
+      LongArray values = LongArray.copy(keys);
+      mySorter.sort(keys, values);
+      assertTrue(keys.isSorted());
+      CHECK.order(keys, values);
+    }
+  }
+
+  public void testCachedSorter() {
+    assertSame(LongRadixSort.sorter(100), LongRadixSort.sorter(1000));
+    assertNotSame(LongRadixSort.sorter(100), LongRadixSort.sorter(Integer.MAX_VALUE));
+  }
+}
@@ -411,4 +411,29 @@ public void testRemoveAllSimple() {
     list.removeAll(0);
     checkCollection(list, 1, 1, 1);
   }
-}
\ No newline at end of file
+
+  public void testRunsBulkAccess() {
+    LongArray expected = new LongArray();
+    for (int run = 0; run < 100; run++) {
+      expected.addAll(LongCollections.repeat(myRand.nextInt(10), 1 + myRand.nextInt(30)));
+    }
+    list.addAll(expected);
+    CHECK.order(list.toNativeArray(), expected.toNativeArray());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i), list.get(i));
+    }
+    for (int i = expected.size() - 1; i >= 0; i -= 7) {
+      assertEquals(expected.get(i), list.get(i));
+    }
+    int from = myRand.nextInt(expected.size());
+    LongIterator it = list.iterator(from, expected.size());
+    LongArray actual = new LongArray();
+    long[] batch = new long[1 + myRand.nextInt(50)];
+    for (int count; (count = it.nextBatch(batch, 0, batch.length)) > 0; ) {
+      actual.addAll(new LongArray(batch, count));
+      assertEquals(batch[count - 1], it.value());
+      if (it.hasNext()) actual.add(it.nextValue());
+    }
+    CHECK.order(actual, expected.subList(from, expected.size()));
+  }
+}
@@ -202,6 +202,34 @@ public void testMerge() {
     checkSet(b, interval(100, 209));
   }
 
+  public void testMergeFromMany() {
+    LongSetBuilder b = new LongSetBuilder(5);
+    b.mergeFrom(new LongSetBuilder[0]);
+    checkSet(b, IntegersUtils.EMPTY_LONGS);
+    b.mergeFrom(prog(0, 2, 10), new LongSetBuilder(), prog(1, 1, 5), prog(4, 1, 25));
+    checkSet(b, interval(0, 28));
+    b.add(100);
+    b.mergeFrom(b, prog(50, 10, 3));
+    checkSet(b, interval(0, 28), new long[] {50, 60, 70, 100});
+
+    LongSetBuilder[] builders = new LongSetBuilder[50];
+    LongArray expected = new LongArray();
+    for (int i = 0; i < builders.length; i++) {
+      LongArray values = generateRandomLongArray(1000, UNORDERED, 20000);
+      builders[i] = new LongSetBuilder();
+      builders[i].addAll(values);
+      expected.addAll(values);
+    }
+    expected.sortUnique();
+    b = new LongSetBuilder();
+    b.mergeFrom(builders);
+    CHECK.order(expected, b.commitToArray());
+    try {
+      b.mergeFrom(builders);
+      fail();
+    } catch (IllegalStateException e) {}
+  }
+
   public void testAdd() {
     LongSetBuilder b = new LongSetBuilder();
     assertTrue(b.isEmpty());
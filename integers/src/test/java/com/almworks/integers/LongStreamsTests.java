@@ -0,0 +1,154 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers;
+
+import com.almworks.integers.segmented.LongSegmentedArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static com.almworks.integers.IntegersFixture.SortedStatus.UNORDERED;
+
+public class LongStreamsTests extends IntegersFixture {
+  public void testList() {
+    LongArray values = generateRandomLongArray(10000, UNORDERED);
+    LongSegmentedArray segmented = new LongSegmentedArray();
+    segmented.addAll(values);
+    for (LongList list : new LongList[] {values, segmented, LongList.EMPTY, LongProgression.range(5)}) {
+      Spliterator.OfLong spliterator = LongStreams.spliterator(list);
+      assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED));
+      assertFalse(spliterator.hasCharacteristics(Spliterator.SORTED));
+      assertEquals(list.size(), spliterator.estimateSize());
+      CHECK.order(list, LongStreams.toArray(LongStreams.parallelStream(list)));
+      CHECK.order(list, LongStreams.toArray(LongStreams.stream(list)));
+      CHECK.order(list, split(LongStreams.spliterator(list)));
+    }
+    assertEquals(sum(values), values.parallelStream().sum());
+    assertEquals(sum(values), segmented.stream().sum());
+  }
+
+  public void testSets() {
+    LongArray values = generateRandomLongArray(10000, UNORDERED);
+    LongOpenHashSet hashSet = LongOpenHashSet.createFrom(values);
+    LongSetBuilder builder = new LongSetBuilder();
+    builder.addAll(values);
+    LongTreeSet treeSet = LongTreeSet.createFromSortedUnique(builder.toList());
+    LongArray sorted = LongArray.copy(builder.toList());
+
+    Spliterator.OfLong spliterator = LongStreams.spliterator(hashSet);
+    assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.DISTINCT));
+    assertFalse(spliterator.hasCharacteristics(Spliterator.SORTED));
+    assertEquals(hashSet.size(), spliterator.estimateSize());
+    checkSet(sorted, split(spliterator));
+    checkSet(sorted, LongStreams.toArray(hashSet.parallelStream()));
+    assertEquals(sum(sorted), hashSet.parallelStream().sum());
+
+    for (LongSortedSet set : new LongSortedSet[] {builder, treeSet}) {
+      spliterator = LongStreams.spliterator(set);
+      assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED));
+      assertNull(spliterator.getComparator());
+      assertEquals(set.size(), spliterator.estimateSize());
+      CHECK.order(sorted, split(spliterator));
+      CHECK.order(sorted, LongStreams.toArray(LongStreams.parallelStream(set)));
+    }
+    assertEquals(sorted.size(), builder.parallelStream().distinct().count());
+    assertEquals(sorted.get(0), treeSet.stream().findFirst().getAsLong());
+  }
+
+  public void testSetBuilderBindsOnFirstRead() {
+    LongSetBuilder builder = new LongSetBuilder();
+    builder.addAll(3, 1);
+    LongStream stream = builder.stream();
+    Spliterator.OfLong spliterator = LongStreams.spliterator(builder);
+    builder.addAll(2, 5, 1);
+    assertEquals(4, spliterator.estimateSize());
+    CHECK.order(LongArray.create(1, 2, 3, 5), split(spliterator));
+    CHECK.order(LongArray.create(1, 2, 3, 5), LongStreams.toArray(stream));
+  }
+
+  public void testUnsized() {
+    final LongArray values = generateRandomLongArray(5000, UNORDERED);
+    LongIterable iterable = new LongIterable() {
+      public LongIterator iterator() {
+        return values.iterator();
+      }
+    };
+    Spliterator.OfLong spliterator = LongStreams.spliterator(iterable);
+    assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+    CHECK.order(values, split(spliterator));
+    assertEquals(sum(values), LongStreams.parallelStream(iterable).sum());
+  }
+
+  public void testCollectors() {
+    LongArray values = generateRandomLongArray(10000, UNORDERED);
+    CHECK.order(values, LongStreams.toArray(LongStream.of(values.toNativeArray()).parallel()));
+    LongSetBuilder builder = LongStreams.toSetBuilder(LongStream.of(values.toNativeArray()).parallel());
+    checkSet(values, builder.toList());
+
+    List<Long> boxed = new ArrayList<Long>(values.toList());
+    CHECK.order(values, boxed.parallelStream().collect(LongStreams.arrayCollector()));
+    checkSet(values, boxed.parallelStream().collect(LongStreams.setBuilderCollector()).toList());
+    assertEquals(boxed, values.stream().boxed().collect(Collectors.toList()));
+  }
+
+  private void checkSet(LongList expected, LongList actual) {
+    LongArray expectedSet = LongArray.copy(expected);
+    expectedSet.sortUnique();
+    LongArray actualSet = LongArray.copy(actual);
+    actualSet.sort();
+    CHECK.order(expectedSet, actualSet);
+  }
+
+  /**
+   * Splits the spliterator as deep as it goes, mixing tryAdvance and forEachRemaining, and collects the values in order.
+   */
+  private LongArray split(Spliterator.OfLong spliterator) {
+    final LongArray result = new LongArray();
+    LongConsumer add = new LongConsumer() {
+      public void accept(long value) {
+        result.add(value);
+      }
+    };
+    Spliterator.OfLong prefix = spliterator.trySplit();
+    if (prefix != null) {
+      result.addAll(split(prefix));
+    }
+    if (myRand.nextBoolean()) {
+      spliterator.tryAdvance(add);
+    }
+    prefix = spliterator.trySplit();
+    if (prefix != null) {
+      result.addAll(split(prefix));
+    }
+    spliterator.forEachRemaining(add);
+    assertFalse(spliterator.tryAdvance(add));
+    return result;
+  }
+
+  private static long sum(LongList values) {
+    long sum = 0;
+    for (int i = 0; i < values.size(); i++) {
+      sum += values.get(i);
+    }
+    return sum;
+  }
+}
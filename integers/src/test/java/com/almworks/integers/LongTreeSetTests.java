@@ -16,8 +16,12 @@
 
 package com.almworks.integers;
 
+import com.almworks.integers.func.LongProcedure;
+import org.jetbrains.annotations.NotNull;
+
 import java.lang.reflect.Field;
 import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.List;
 
 import static com.almworks.integers.LongProgression.range;
@@ -152,4 +156,160 @@ public void testRetainSimple2() {
       set.clear();
     }
   }
+
+  public void testCursor() {
+    LongTreeSet.Cursor cursor = new LongTreeSet.Cursor();
+    for (int size : new int[] {0, 1, 1000, 3, 100000, 10}) {
+      LongArray values = generateRandomLongArray(size, IntegersFixture.SortedStatus.SORTED_UNIQUE);
+      LongTreeSet tree = LongTreeSet.createFromSortedUnique(values);
+      assertSame(cursor, tree.iterator(cursor));
+      CHECK.order(cursor, values.iterator());
+      CHECK.order(tree.iterator(cursor), values.iterator());
+      for (int i = 0; i < 10 && !values.isEmpty(); i++) {
+        long from = values.get(myRand.nextInt(values.size())) + myRand.nextInt(3) - 1;
+        CHECK.order(tree.tailIterator(from), tree.tailIterator(from, cursor));
+      }
+    }
+
+    LongTreeSet tree = LongTreeSet.createFromSortedUnique(range(10));
+    LongIterator it = tree.iterator(cursor);
+    it.next();
+    tree.add(20);
+    try {
+      it.nextValue();
+      fail();
+    } catch (ConcurrentModificationException e) {
+      // ok
+    }
+    CHECK.order(tree.tailIterator(0, cursor), 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 20);
+  }
+
+  public void testAdvanceToNearAndFar() {
+    LongArray values = generateRandomLongArray(5000, IntegersFixture.SortedStatus.SORTED_UNIQUE, 20000);
+    LongTreeSet added = new LongTreeSet();
+    added.addAll(values.iterator());
+    for (LongTreeSet tree : new LongTreeSet[] {LongTreeSet.createFromSortedUnique(values), added}) {
+      for (int attempt = 0; attempt < 20; attempt++) {
+        LongIterator it = tree.iterator();
+        long target = values.get(0) - 1;
+        while (true) {
+          target += myRand.nextInt(4) == 0 ? myRand.nextInt(1000) : myRand.nextInt(4);
+          int index = values.binarySearch(target);
+          if (index < 0) index = -index - 1;
+          if (index >= values.size()) {
+            assertFalse(it.advanceTo(target));
+            break;
+          }
+          assertTrue(it.advanceTo(target));
+          assertEquals(values.get(index), it.value());
+          if (myRand.nextBoolean() && index + 1 < values.size()) {
+            assertEquals(values.get(index + 1), it.nextValue());
+          }
+          target = it.value();
+        }
+      }
+    }
+  }
+
+  public void testDefaultRankSelect() {
+    LongArray values = generateRandomLongArray(300, IntegersFixture.SortedStatus.SORTED_UNIQUE);
+    SortedArraySet set = new SortedArraySet();
+    set.addAll(values);
+    checkRankSelect(set, values);
+  }
+
+  /**
+   * Relies on the default {@code rank}, {@code select} and {@code subSetIterator}.
+   */
+  private static class SortedArraySet extends AbstractWritableLongSet implements WritableLongSortedSet {
+    private final LongArray myValues = new LongArray();
+
+    protected boolean include0(long value) {
+      int index = myValues.binarySearch(value);
+      if (index >= 0) return false;
+      myValues.insert(-index - 1, value);
+      return true;
+    }
+
+    protected boolean exclude0(long value) {
+      int index = myValues.binarySearch(value);
+      if (index < 0) return false;
+      myValues.removeAt(index);
+      return true;
+    }
+
+    public int size() {
+      return myValues.size();
+    }
+
+    public boolean contains(long value) {
+      return myValues.binarySearch(value) >= 0;
+    }
+
+    public void clear() {
+      myValues.clear();
+    }
+
+    @NotNull
+    public LongIterator iterator() {
+      return myValues.iterator();
+    }
+
+    public LongIterator tailIterator(long fromElement) {
+      int index = myValues.binarySearch(fromElement);
+      return myValues.iterator(index >= 0 ? index : -index - 1);
+    }
+
+    public long getUpperBound() {
+      return myValues.isEmpty() ? Long.MIN_VALUE : myValues.getLast(0);
+    }
+
+    public long getLowerBound() {
+      return myValues.isEmpty() ? Long.MAX_VALUE : myValues.get(0);
+    }
+
+    public LongArray toArray() {
+      return LongArray.copy(myValues);
+    }
+
+    public long[] toNativeArray(long[] dest, int destPos) {
+      return myValues.toNativeArray(0, dest, destPos, myValues.size());
+    }
+  }
+
+  public void testForEach() {
+    final LongTreeSet tree = LongTreeSet.createFromSortedUnique(range(0, 1000, 3));
+    final LongArray visited = new LongArray();
+    final LongArray pairs = new LongArray();
+    tree.forEachValue(new LongProcedure() {
+      public void invoke(final long a) {
+        visited.add(a);
+        if (a < 10) {
+          tree.forEachValue(new LongProcedure() {
+            public void invoke(long b) {
+              if (b < 10) pairs.add(a * 100 + b);
+            }
+          });
+        }
+      }
+    });
+    CHECK.order(range(0, 1000, 3), visited);
+    CHECK.order(pairs, 0, 3, 6, 9, 300, 303, 306, 309, 600, 603, 606, 609, 900, 903, 906, 909);
+
+    new LongTreeSet().forEachValue(new LongProcedure() {
+      public void invoke(long a) {
+        fail();
+      }
+    });
+    try {
+      tree.forEachValue(new LongProcedure() {
+        public void invoke(long a) {
+          tree.remove(a);
+        }
+      });
+      fail();
+    } catch (ConcurrentModificationException e) {
+      // ok
+    }
+  }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers;
+
+import com.almworks.integers.func.LongToLong;
+
+import java.util.ConcurrentModificationException;
+
+import static com.almworks.integers.LongProgression.arithmetic;
+import static com.almworks.integers.func.LongFunctions.*;
+
+public class LongTwoWayTreeMapTests extends IntegersFixture {
+  private final LongTwoWayTreeMap map = new LongTwoWayTreeMap();
+  private final LongTwoWayMap expected = new LongTwoWayMap();
+
+  private void checkMap() {
+    assertEquals(expected.size(), map.size());
+    CHECK.order(map.getKeys(), expected.getKeys());
+    CHECK.order(map.getValues(), expected.getValues());
+    CHECK.order(map.keysIterator(), expected.keysIterator());
+    CHECK.order(map.valuesIterator(), expected.valuesIterator());
+    assertEquals(expected.toList(), map.toList());
+    int n = map.size();
+    for (int i = 0; i < 10 && n > 0; ++i) {
+      int idx = myRand.nextInt(n);
+      assertEquals(expected.getKeys().get(idx), map.getKeys().get(idx));
+      assertEquals(expected.getValues().get(idx), map.getValues().get(idx));
+    }
+  }
+
+  public void testPutRemoveRandom() {
+    final int N = 20000;
+    final int RANGE = 5000;
+    for (int i = 0; i < N; ++i) {
+      long key = myRand.nextInt(RANGE);
+      if (myRand.nextInt(3) == 0) {
+        assertEquals(expected.containsKey(key), map.containsKey(key));
+        if (expected.containsKey(key)) assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        long val = myRand.nextInt(RANGE / 10);
+        assertEquals(expected.put(key, val), map.put(key, val));
+      }
+      if (i % 1000 == 0) checkMap();
+    }
+    checkMap();
+    for (int i = 0; i < RANGE; ++i) {
+      assertEquals(expected.containsKey(i), map.containsKey(i));
+      if (expected.containsKey(i)) assertEquals(expected.get(i), map.get(i));
+      assertEquals(expected.containsValue(i), map.containsValue(i));
+    }
+  }
+
+  public void testGetKeysForValue() {
+    map.insertAllRo(arithmetic(0, 1000), apply(swap(MOD), 7));
+    for (long v = -1; v <= 7; ++v) {
+      LongArray keys = map.getKeysForValue(v);
+      assertEquals(0 <= v && v < 7, !keys.isEmpty());
+      for (int i = 0; i < keys.size(); ++i) {
+        assertEquals(v, keys.get(i) % 7);
+      }
+      if (!keys.isEmpty()) CHECK.order(keys, arithmetic(v, keys.size(), 7));
+    }
+    map.put(3, 0);
+    assertTrue(map.getKeysForValue(0).contains(3));
+    assertFalse(map.getKeysForValue(3).contains(3));
+  }
+
+  public void testInsertAllMerges() {
+    LongArray keys = LongArray.create(10, 30, 20, 40);
+    LongArray vals = LongArray.create(1, 3, 2, 4);
+    map.insertAll(keys, vals);
+    expected.insertAllRo(LongArray.create(10, 30, 20, 40), LongArray.create(1, 3, 2, 4));
+    checkMap();
+    for (int attempt = 0; attempt < 10; ++attempt) {
+      LongArray newKeys = new LongArray();
+      for (int i = 0; i < 1000; ++i) {
+        long key = myRand.nextInt(1000000);
+        if (!expected.containsKey(key) && !newKeys.contains(key)) newKeys.add(key);
+      }
+      LongArray newVals = new LongArray();
+      for (int i = 0; i < newKeys.size(); ++i) newVals.add(myRand.nextInt(100));
+      expected.insertAllRo(newKeys, newVals);
+      map.insertAll(newKeys, newVals);
+      checkMap();
+    }
+    try {
+      map.insertAllRo(LongArray.create(10), LongArray.create(1));
+      fail();
+    } catch (IllegalArgumentException ok) {}
+    try {
+      map.insertAllRo(LongArray.create(-1, -1), LongArray.create(1, 2));
+      fail();
+    } catch (IllegalArgumentException ok) {}
+    checkMap();
+  }
+
+  public void testTransformsAndRemoveAllValues() {
+    LongArray keys = LongArray.create(myRand.longs(5000, 0, 100000).toArray());
+    keys.sortUnique();
+    map.insertAllRo(keys, apply(swap(MOD), 100));
+    expected.insertAllRo(keys, apply(swap(MOD), 100));
+    LongToLong mod7 = apply(swap(MOD), 7);
+    map.transformValues(50, mod7);
+    expected.transformValues(50, mod7);
+    checkMap();
+    map.transformValues(ADD);
+    expected.transformValues(ADD);
+    checkMap();
+    map.transformKeys(NEG);
+    expected.transformKeys(NEG);
+    checkMap();
+    try {
+      map.transformKeys(apply(swap(MOD), 1000));
+      fail();
+    } catch (LongTwoWayMap.NonInjectiveFunctionException ok) {}
+    checkMap();
+    LongArray vals = LongArray.create(-10, 0, 25, 25, 1000, 3, 200);
+    CHECK.order(map.removeAllValuesRo(vals), expected.removeAllValuesRo(vals));
+    checkMap();
+  }
+
+  public void testIteratorConcurrentModification() {
+    map.insertAllRo(arithmetic(0, 300), apply(swap(MOD), 5));
+    LongLongIterator it = map.iterator();
+    it.next();
+    map.put(1000, 1);
+    try {
+      it.next();
+      fail();
+    } catch (ConcurrentModificationException ok) {}
+  }
+
+  public void testEquals() {
+    map.insertAllRo(arithmetic(0, 300), apply(swap(MOD), 5));
+    LongLongOpenHashMap hashMap = new LongLongOpenHashMap();
+    for (int i = 0; i < 300; ++i) hashMap.put(i, i % 5);
+    assertEquals(map, hashMap);
+    assertEquals(hashMap.hashCode(), map.hashCode());
+    map.put(0, 100);
+    assertFalse(map.equals(hashMap));
+  }
+}
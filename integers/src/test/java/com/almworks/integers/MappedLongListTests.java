@@ -0,0 +1,156 @@
+/*
+ * Copyright 2014 ALM Works Ltd
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.almworks.integers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.almworks.integers.IntegersFixture.SortedStatus.SORTED;
+import static com.almworks.integers.IntegersFixture.SortedStatus.UNORDERED;
+
+public class MappedLongListTests extends LongListChecker<MappedLongList> {
+  @Override
+  protected List<MappedLongList> createLongListVariants(long... values) {
+    List<MappedLongList> result = new ArrayList<MappedLongList>(3);
+    try {
+      result.add(write(MappedLongList.DEFAULT_CHUNK_BITS, values));
+      result.add(write(0, values));
+      result.add(write(3, values));
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+    return result;
+  }
+
+  private static MappedLongList write(int chunkBits, long... values) throws IOException {
+    File file = File.createTempFile("list", ".bin");
+    try {
+      LongListWriter.write(new LongArray(values), file);
+      return MappedLongList.open(file, chunkBits);
+    } finally {
+      file.delete();
+    }
+  }
+
+  public void testChunkBoundaries() throws IOException {
+    LongArray expected = generateRandomLongArray(1000, UNORDERED);
+    MappedLongList list = write(4, expected.toNativeArray());
+    CHECK.order(expected, list);
+    for (int from = 0; from < 40; from++) {
+      for (int length = 0; from + length <= 40; length++) {
+        long[] dest = new long[length + 2];
+        list.toNativeArray(from, dest, 1, length);
+        CHECK.order(expected.subList(from, from + length), new LongArray(dest).subList(1, length + 1));
+      }
+    }
+    LongIterator it = list.iterator(5);
+    long[] batch = new long[7];
+    LongArray actual = new LongArray();
+    int count;
+    while ((count = it.nextBatch(batch, 0, batch.length)) > 0) {
+      actual.addAll(new LongArray(batch, count));
+      assertEquals(batch[count - 1], it.value());
+    }
+    CHECK.order(expected.subList(5, expected.size()), actual);
+  }
+
+  public void testMappedBinarySearch() throws IOException {
+    for (int attempt = 0; attempt < 20; attempt++) {
+      LongArray expected = generateRandomLongArray(500, SORTED, 300);
+      MappedLongList list = write(attempt % 5, expected.toNativeArray());
+      for (long value = -1; value <= 301; value++) {
+        assertEquals(expected.binarySearch(value), list.binarySearch(value));
+        int from = myRand.nextInt(expected.size() + 1);
+        int to = from + myRand.nextInt(expected.size() - from + 1);
+        assertEquals(expected.binarySearch(value, from, to), list.binarySearch(value, from, to));
+      }
+    }
+  }
+
+  public void testWriter() throws IOException {
+    File file = File.createTempFile("list", ".bin");
+    try {
+      LongListWriter writer = new LongListWriter(file);
+      LongArray expected = new LongArray();
+      for (int i = 0; i < 20000; i++) {
+        writer.add(i * 3L);
+        expected.add(i * 3L);
+      }
+      long[] bulk = generateRandomLongArray(100000, UNORDERED).toNativeArray();
+      writer.addAll(bulk, 10, bulk.length - 20);
+      expected.addAll(new LongArray(bulk).subList(10, bulk.length - 10));
+      writer.addAll(LongProgression.range(-5, 5));
+      expected.addAll(LongProgression.range(-5, 5));
+      assertEquals(expected.size(), writer.size());
+      writer.close();
+      writer.close();
+      try {
+        writer.add(1);
+        fail();
+      } catch (IOException e) {
+        // ok
+      }
+      assertEquals(LongListWriter.HEADER_SIZE + 8L * expected.size(), file.length());
+      CHECK.order(expected, MappedLongList.open(file));
+    } finally {
+      file.delete();
+    }
+  }
+
+  public void testBadFiles() throws IOException {
+    File file = File.createTempFile("list", ".bin");
+    try {
+      IntListWriter.write(IntProgression.range(10), file);
+      assertEquals(10, MappedIntList.open(file).size());
+      checkBadFile(file);
+
+      LongListWriter.write(LongProgression.range(10), file);
+      RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      raf.setLength(raf.length() - 1);
+      raf.close();
+      checkBadFile(file);
+
+      raf = new RandomAccessFile(file, "rw");
+      raf.setLength(0);
+      raf.writeLong(-1);
+      raf.writeLong(-1);
+      raf.writeLong(-1);
+      raf.close();
+      checkBadFile(file);
+
+      raf = new RandomAccessFile(file, "rw");
+      raf.setLength(3);
+      raf.close();
+      checkBadFile(file);
+    } finally {
+      file.delete();
+    }
+  }
+
+  private static void checkBadFile(File file) {
+    try {
+      MappedLongList.open(file);
+      fail();
+    } catch (IOException e) {
+      // ok
+    }
+  }
+}
@@ -80,11 +80,22 @@ public LongArray[] generateRandomArrays(int intersectionLength, int arraysNumber
 
   private void checkNewSetCreator(LongArray... arrays) {
     CHECK.order(creator.get(arrays).iterator(), expected.get(arrays).iterator());
+    checkBatches(creator.get(arrays).iterator(), expected.get(arrays).iterator());
     if (arrays.length == 2 && getCurrentStatus(0) == getCurrentStatus(1)) {
       CHECK.order(creator.get(arrays[1], arrays[0]).iterator(), expected.get(arrays[1], arrays[0]).iterator());
     }
   }
 
+  private void checkBatches(LongIterator actual, LongIterator expected) {
+    LongArray values = new LongArray();
+    long[] batch = new long[1 + myRand.nextInt(8)];
+    int count;
+    while ((count = actual.nextBatch(batch, 0, batch.length)) > 0) {
+      values.addAll(new LongArray(batch, count));
+    }
+    CHECK.order(values.iterator(), expected);
+  }
+
   public void check(Random random, SetCreator creator, SetCreator expected, boolean onlyTwo, SortedStatus... statuses) {
     this.myRand = random;
     this.creator = creator;
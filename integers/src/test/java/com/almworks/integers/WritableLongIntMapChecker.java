@@ -16,6 +16,9 @@
 
 package com.almworks.integers;
 
+import com.almworks.integers.func.LongIntCondition;
+import com.almworks.integers.func.LongIntProcedure;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -137,6 +140,38 @@ public void testIterators() {
     }
   }
 
+  public void testForEachPair() {
+    LongArray keys = generateRandomLongArray(100, SORTED_UNIQUE);
+    IntArray values = generateRandomIntArray(keys.size(), UNORDERED);
+    for (T map : createMapsFromLists(keys, values)) {
+      final LongArray expectedKeys = new LongArray();
+      final IntArray expectedValues = new IntArray();
+      for (LongIntIterator iter : map) {
+        expectedKeys.add(iter.left());
+        expectedValues.add(iter.right());
+      }
+      final LongArray actualKeys = new LongArray();
+      final IntArray actualValues = new IntArray();
+      map.forEachPair(new LongIntProcedure() {
+        public void invoke(long a, int b) {
+          actualKeys.add(a);
+          actualValues.add(b);
+        }
+      });
+      CHECK.order(actualKeys, expectedKeys);
+      CHECK.order(actualValues.iterator(), expectedValues.iterator());
+
+      actualKeys.clear();
+      assertFalse(map.forEachWhile(new LongIntCondition() {
+        public boolean invoke(long a, int b) {
+          actualKeys.add(a);
+          return actualKeys.size() < 5;
+        }
+      }));
+      CHECK.order(actualKeys, expectedKeys.subList(0, 5));
+    }
+  }
+
   public void testIteratorConcurrentModificationException2() {
     // assumed that method createMapsFromLists returns variants with all constructors
     int attemptsCount = 10;
@@ -17,7 +17,9 @@
 package com.almworks.integers;
 
 import com.almworks.integers.func.IntProcedure;
+import com.almworks.integers.func.LongCondition;
 import com.almworks.integers.func.LongFunctions;
+import com.almworks.integers.func.LongProcedure;
 
 import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
@@ -377,6 +379,43 @@ public void testIteratorConcurrentModificationException() {
     LongIteratorSpecificationChecker.checkIteratorThrowsCME(it);
   }
 
+  public void testForEach() {
+    LongArray values = generateRandomLongArray(1000, SORTED_UNIQUE);
+    for (T createdSet : createSets(values)) {
+      LongArray expected = LongCollections.collectIterable(values.size(), createdSet);
+      final LongArray visited = new LongArray();
+      createdSet.forEachValue(new LongProcedure() {
+        public void invoke(long a) {
+          visited.add(a);
+        }
+      });
+      CHECK.order(visited, expected);
+
+      visited.clear();
+      assertFalse(createdSet.forEachWhile(new LongCondition() {
+        public boolean invoke(long a) {
+          visited.add(a);
+          return visited.size() < 10;
+        }
+      }));
+      CHECK.order(visited, expected.subList(0, 10));
+    }
+  }
+
+  public void testForEachConcurrentModificationException() {
+    set.addAll(2, 4, 6, 8);
+    try {
+      set.forEachValue(new LongProcedure() {
+        public void invoke(long a) {
+          set.add(a + 1);
+        }
+      });
+      fail();
+    } catch (ConcurrentModificationException e) {
+      // ok
+    }
+  }
+
   public void testIsEmpty() {
     assertTrue(set.isEmpty());
     set.addAll(0, 7, 10);
@@ -529,6 +568,52 @@ public void testTailIteratorHasMethods() {
     }
   }
 
+  public void testRankSelect() {
+    if (!isSortedSet()) return;
+    for (int maxSize : new int[] {0, 1, 10, 1000}) {
+      LongArray values = generateRandomLongArray(maxSize, SORTED_UNIQUE, 4 * maxSize + 1);
+      LongArray toRemove = generateRandomLongArray(maxSize / 4, SORTED_UNIQUE, 4 * maxSize + 1);
+      for (T createdSet : createSets(values)) {
+        WritableLongSortedSet sortedSet = (WritableLongSortedSet)createdSet;
+        checkRankSelect(sortedSet, values);
+        sortedSet.removeAll(toRemove);
+        sortedSet.add(-1);
+        LongArray expected = LongArray.copy(values);
+        expected.removeAll(toRemove);
+        expected.add(-1);
+        expected.sortUnique();
+        checkRankSelect(sortedSet, expected);
+      }
+    }
+  }
+
+  protected void checkRankSelect(WritableLongSortedSet sortedSet, LongList expected) {
+    int size = expected.size();
+    for (int i = 0; i < size; i++) {
+      long value = expected.get(i);
+      assertEquals(value, sortedSet.select(i));
+      assertEquals(i, sortedSet.rank(value));
+      int index = expected.binarySearch(value + 1);
+      assertEquals(index >= 0 ? index : -index - 1, sortedSet.rank(value + 1));
+    }
+    assertEquals(0, sortedSet.rank(MIN));
+    for (int index : new int[] {-1, size}) {
+      try {
+        sortedSet.select(index);
+        fail();
+      } catch (IndexOutOfBoundsException ignored) {}
+    }
+    for (int attempt = 0; attempt < 10; attempt++) {
+      int from = myRand.nextInt(size + 1);
+      int to = from + myRand.nextInt(size - from + 1);
+      CHECK.order(expected.subList(from, to).iterator(), sortedSet.subSetIterator(from, to));
+    }
+    try {
+      sortedSet.subSetIterator(0, size + 1);
+      fail();
+    } catch (IndexOutOfBoundsException ignored) {}
+  }
+
   public void testRemoveRandom() {
     int attempts = 3, maxVal = Integer.MAX_VALUE;
     boolean deepCheck = false;
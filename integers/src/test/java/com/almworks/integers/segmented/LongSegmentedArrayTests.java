@@ -17,10 +17,21 @@
 package com.almworks.integers.segmented;
 
 import com.almworks.integers.*;
+import com.almworks.integers.func.LongCondition;
 import com.almworks.integers.func.LongFunctions;
+import com.almworks.integers.func.LongProcedure;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.almworks.integers.IntegersFixture.SortedStatus.UNORDERED;
 
@@ -29,6 +40,8 @@
  * */
 public class LongSegmentedArrayTests extends WritableLongListChecker<LongSegmentedArray> {
   private TestEnvForLongSegmentedArray myEnv;
+  private LongSegmentedArrayBufferEnvironment myBufferEnv;
+  private LongSegmentedArrayPoolingEnvironment myPoolingEnv;
   private LongSegmentedArray array;
   private final int segmentSize = 1024;
   private final int checkedSize = segmentSize * 2 - 1;
@@ -37,6 +50,8 @@ public void setUp() throws Exception {
     super.setUp();
     myEnv = new TestEnvForLongSegmentedArray();
     array = new LongSegmentedArray(myEnv);
+    myBufferEnv = new LongSegmentedArrayBufferEnvironment(LongSegmentedArrayBufferEnvironment.DIRECT, 1 << 16);
+    myPoolingEnv = new LongSegmentedArrayPoolingEnvironment();
   }
 
 
@@ -53,6 +68,18 @@ protected List<LongSegmentedArray> createWritableLongLists(long... values) {
     array.addAll(values);
     res.add(array);
 
+    array = new LongSegmentedArray(myBufferEnv);
+    array.addAll(LongCollections.repeat(-1, 1025));
+    array.clear();
+    array.addAll(values);
+    res.add(array);
+
+    array = new LongSegmentedArray(myPoolingEnv);
+    array.addAll(LongCollections.repeat(-1, 1025));
+    array.clear();
+    array.addAll(values);
+    res.add(array);
+
     if (values.length < segmentSize) {
       for (int count = segmentSize - values.length - 1; count < segmentSize - values.length + 1; count++) {
         array = new LongSegmentedArray();
@@ -93,6 +120,8 @@ protected void tearDown() throws Exception {
     array.clear();
     array = null;
     myEnv = null;
+    myBufferEnv = null;
+    myPoolingEnv = null;
     super.tearDown();
   }
 
@@ -437,4 +466,228 @@ public void testSetAllBorders() {
       // ok
     }
   }
-}
\ No newline at end of file
+
+  public void testBufferEnvironmentPooling() {
+    LongSegmentedArray a = new LongSegmentedArray(myBufferEnv);
+    a.addAll(LongProgression.Arithmetic.range(5000));
+    long reserved = myBufferEnv.getReservedBytes();
+    assertTrue(reserved >= 5000 * 8);
+    assertEquals(0, myBufferEnv.getPooledBytes());
+
+    LongSegmentedArray b = a.clone();
+    a.clear();
+    assertEquals(0, myBufferEnv.getPooledBytes());
+    CHECK.order(LongProgression.Arithmetic.range(5000), b);
+
+    b.clear();
+    assertTrue(myBufferEnv.getPooledBytes() >= 5000 * 8);
+    a.addAll(LongProgression.Arithmetic.range(0, 10000, 2));
+    assertEquals(reserved, myBufferEnv.getReservedBytes());
+    assertEquals(0, myBufferEnv.getPooledBytes());
+    CHECK.order(LongProgression.Arithmetic.range(0, 10000, 2), a);
+  }
+
+  public void testBufferEnvironmentPoolLimit() {
+    LongSegmentedArrayBufferEnvironment env =
+        new LongSegmentedArrayBufferEnvironment(LongSegmentedArrayBufferEnvironment.DIRECT, 1 << 16, 3 * 1024 * 8);
+    LongSegmentedArray a = new LongSegmentedArray(env);
+    a.addAll(LongProgression.Arithmetic.range(10 * 1024));
+    a.clear();
+    assertEquals(3 * 1024 * 8, env.getPooledBytes());
+    env.clear();
+    assertEquals(0, env.getPooledBytes());
+  }
+
+  public void testBufferEnvironmentPoolsOwnSegmentsOnly() {
+    LongSegmentedArrayBufferEnvironment other = new LongSegmentedArrayBufferEnvironment();
+    LongSegment foreign = other.allocate(1024);
+    myBufferEnv.free(foreign);
+    myBufferEnv.free(new LongBufferSegment(LongBuffer.allocate(1024)));
+    myBufferEnv.free(new LongArraySegment(1024));
+    assertEquals(0, myBufferEnv.getPooledBytes());
+    assertNotSame(foreign, myBufferEnv.allocate(1024));
+
+    LongSegment own = myBufferEnv.allocate(1024);
+    myBufferEnv.free(own);
+    assertEquals(1024 * 8, myBufferEnv.getPooledBytes());
+    other.free(own);
+    assertEquals(0, other.getPooledBytes());
+    assertSame(own, myBufferEnv.allocate(1024));
+  }
+
+  public void testForEachConcurrentModification() {
+    array.addAll(LongProgression.Arithmetic.range(3000));
+    final LongArray visited = new LongArray();
+    try {
+      array.forEachValue(new LongProcedure() {
+        public void invoke(long a) {
+          visited.add(a);
+          array.add(a);
+        }
+      });
+      fail();
+    } catch (ConcurrentModificationException e) {
+      // ok
+    }
+    CHECK.order(visited, 0);
+
+    visited.clear();
+    try {
+      array.forEachWhile(new LongCondition() {
+        public boolean invoke(long a) {
+          visited.add(a);
+          if (a == 5) array.removeLast();
+          return true;
+        }
+      });
+      fail();
+    } catch (ConcurrentModificationException e) {
+      // ok
+    }
+    CHECK.order(visited, 0, 1, 2, 3, 4, 5);
+  }
+
+  public void testMappedBufferEnvironment() throws IOException {
+    File file = File.createTempFile("segments", ".bin");
+    try {
+      FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+      try {
+        LongSegmentedArrayBufferEnvironment env =
+          new LongSegmentedArrayBufferEnvironment(LongSegmentedArrayBufferEnvironment.mapped(channel), 1 << 14);
+        LongArray expected = generateRandomLongArray(10000, UNORDERED);
+        LongSegmentedArray a = new LongSegmentedArray(env);
+        a.addAll(expected);
+        a.insertMultiple(100, -1, 3000);
+        a.removeRange(100, 3100);
+        CHECK.order(expected, a);
+        assertTrue(channel.size() >= 10000 * 8);
+      } finally {
+        channel.close();
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  public void testPoolingEnvironment() {
+    LongSegmentedArray a = new LongSegmentedArray(myPoolingEnv);
+    a.addAll(LongProgression.Arithmetic.range(5000));
+    assertEquals(0, myPoolingEnv.getHitCount());
+    long misses = myPoolingEnv.getMissCount();
+    assertTrue(misses > 0);
+
+    for (int i = 0; i < 10; i++) {
+      LongSegmentedArray copy = a.clone();
+      copy.set(i * 400, -1);
+      copy.insertMultiple(2500, -2, 100);
+      copy.removeRange(2500, 2600);
+      copy.clear();
+    }
+    long missesAfterWarmUp = myPoolingEnv.getMissCount();
+    for (int i = 0; i < 10; i++) {
+      LongSegmentedArray copy = a.clone();
+      copy.set(i * 400, -1);
+      copy.insertMultiple(2500, -2, 100);
+      copy.removeRange(2500, 2600);
+      copy.clear();
+    }
+    assertEquals(missesAfterWarmUp, myPoolingEnv.getMissCount());
+    assertTrue(myPoolingEnv.getHitCount() > 0);
+    CHECK.order(LongProgression.Arithmetic.range(5000), a);
+
+    a.clear();
+    assertTrue(myPoolingEnv.getRetainedBytes() >= 5000 * 8);
+    myPoolingEnv.clear();
+    assertEquals(0, myPoolingEnv.getRetainedBytes());
+  }
+
+  public void testPoolingEnvironmentLimit() {
+    LongSegmentedArrayPoolingEnvironment env = new LongSegmentedArrayPoolingEnvironment(3 * 1024 * 8);
+    LongSegmentedArray a = new LongSegmentedArray(env);
+    a.addAll(LongProgression.Arithmetic.range(10 * 1024));
+    a.clear();
+    assertEquals(3 * 1024 * 8, env.getRetainedBytes());
+    a.addAll(LongProgression.Arithmetic.range(10 * 1024));
+    assertEquals(0, env.getRetainedBytes());
+    assertEquals(3, env.getHitCount());
+
+    env = new LongSegmentedArrayPoolingEnvironment(0);
+    a = new LongSegmentedArray(env);
+    a.addAll(LongProgression.Arithmetic.range(5000));
+    a.clear();
+    assertEquals(0, env.getRetainedBytes());
+  }
+
+  public void testSnapshot() {
+    LongSegmentedArray a = new LongSegmentedArray(myPoolingEnv);
+    assertTrue(a.snapshot().isEmpty());
+    a.addAll(LongProgression.Arithmetic.range(5000));
+    LongList snapshot = a.snapshot();
+    assertSame(snapshot, a.snapshot());
+    CHECK.order(LongProgression.Arithmetic.range(5000), snapshot);
+
+    a.set(10, -1);
+    a.insertMultiple(2500, -2, 100);
+    a.removeRange(0, 5);
+    LongList snapshot2 = a.snapshot();
+    assertNotSame(snapshot, snapshot2);
+    CHECK.order(LongProgression.Arithmetic.range(5000), snapshot);
+    a.clear();
+    // segments of the snapshots must not be reused by the environment
+    a.addAll(LongCollections.repeat(-3, 10000));
+    CHECK.order(LongProgression.Arithmetic.range(5000), snapshot);
+    assertEquals(5095, snapshot2.size());
+    assertEquals(-1, snapshot2.get(5));
+    assertEquals(-2, snapshot2.get(2495));
+    assertEquals(4999, snapshot2.get(5094));
+    CHECK.order(snapshot.subList(1000, 3000), new LongArray(snapshot).subList(1000, 3000));
+    try {
+      snapshot2.get(5095);
+      fail();
+    } catch (IndexOutOfBoundsException ignored) {}
+  }
+
+  public void testSnapshotConcurrentReaders() throws Exception {
+    final LongSegmentedArray a = new LongSegmentedArray();
+    a.addAll(LongCollections.repeat(0, 20000));
+    final AtomicReference<LongList> published = new AtomicReference<LongList>(a.snapshot());
+    final AtomicBoolean done = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      List<Future<Integer>> readers = new ArrayList<Future<Integer>>();
+      for (int r = 0; r < 3; r++) {
+        readers.add(executor.submit(new Callable<Integer>() {
+          public Integer call() {
+            int checked = 0;
+            while (!done.get() || checked == 0) {
+              // every published snapshot holds the same value everywhere
+              LongList snapshot = published.get();
+              long[] values = snapshot.toNativeArray();
+              for (long value : values) {
+                assertEquals(values[0], value);
+              }
+              assertEquals(values[0], snapshot.get(snapshot.size() - 1));
+              checked++;
+            }
+            return checked;
+          }
+        }));
+      }
+      for (int version = 1; version <= 200; version++) {
+        a.setRange(0, a.size(), version);
+        if (version % 2 == 0) {
+          a.insertMultiple(version * 7, version, 100);
+        } else {
+          a.removeRange(version * 7, version * 7 + 100);
+        }
+        published.set(a.snapshot());
+      }
+      done.set(true);
+      for (Future<Integer> reader : readers) {
+        assertTrue(reader.get() > 0);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
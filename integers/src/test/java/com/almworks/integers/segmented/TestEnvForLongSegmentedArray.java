@@ -30,7 +30,7 @@ public LongSegment allocate(int size) {
     allocateCount++;
     allocateSize += size;
     if (size != 1024 || myLast < 0)
-      return new LongSegment(size);
+      return new LongArraySegment(size);
     LongSegment r = myCache[myLast];
     myCache[myLast--] = null;
     return r;
@@ -50,8 +50,8 @@ public LongSegments allocateSegments(int size) {
   public void free(LongSegments segments) {
   }
 
-  public void copy(long[] source, int sourceOffset, long[] destination, int destinationOffset, int length) {
-    System.arraycopy(source, sourceOffset, destination, destinationOffset, length);
+  public void copy(LongSegment source, int sourceOffset, LongSegment destination, int destinationOffset, int length) {
+    source.copy(sourceOffset, destination, destinationOffset, length);
     copied += length;
   }
 